@@ -0,0 +1,53 @@
+/*
+ * This file is part of Classmod.
+ * Copyright (c) 2014 QuarterCode <http://www.quartercode.com/>
+ *
+ * Classmod is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Classmod is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Classmod. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.classmod.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * The main class of the benchmark JAR which runs the selected benchmarks with the gc profiler.
+ * The gc profiler reports the allocation rate of each benchmark next to its throughput, so allocation regressions are visible as well.
+ * All JMH command line options are supported; for example, a regular expression selects the benchmarks which should be run.
+ */
+public class BenchmarkRunner {
+
+    /**
+     * Runs the benchmarks which are selected by the given JMH command line options.
+     * 
+     * @param args The JMH command line options.
+     * @throws CommandLineOptionException The given command line options are invalid.
+     * @throws RunnerException Something went wrong while running the benchmarks.
+     */
+    public static void main(String[] args) throws CommandLineOptionException, RunnerException {
+
+        Options options = new OptionsBuilder().parent(new CommandLineOptions(args)).addProfiler(GCProfiler.class).build();
+        new Runner(options).run();
+    }
+
+    private BenchmarkRunner() {
+
+    }
+
+}
@@ -0,0 +1,110 @@
+/*
+ * This file is part of Classmod.
+ * Copyright (c) 2014 QuarterCode <http://www.quartercode.com/>
+ *
+ * Classmod is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Classmod is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Classmod. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.classmod.benchmark;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import com.quartercode.classmod.base.Feature;
+import com.quartercode.classmod.base.FeatureDefinition;
+import com.quartercode.classmod.base.FeatureHolder;
+import com.quartercode.classmod.base.def.AbstractFeature;
+import com.quartercode.classmod.base.def.AbstractFeatureDefinition;
+import com.quartercode.classmod.base.def.DefaultFeatureHolder;
+
+/**
+ * Measures the lookup of {@link Feature}s through {@link FeatureHolder#get(FeatureDefinition)} in holders with different amounts of {@link Feature}s.
+ * All {@link Feature}s are created during the setup, so only the lookup itself is measured.
+ */
+@BenchmarkMode (Mode.Throughput)
+@OutputTimeUnit (TimeUnit.MICROSECONDS)
+@Warmup (iterations = 5, time = 1)
+@Measurement (iterations = 5, time = 1)
+@Fork (1)
+@State (Scope.Thread)
+public class FeatureHolderGetBenchmark {
+
+    @Param ({ "10", "100" })
+    private int                                  featureCount;
+
+    private FeatureDefinition<AbstractFeature>[] definitions;
+    private FeatureHolder                        holder;
+
+    @SuppressWarnings ("unchecked")
+    @Setup
+    public void setUp() {
+
+        definitions = new FeatureDefinition[featureCount];
+        for (int index = 0; index < featureCount; index++) {
+            definitions[index] = new AbstractFeatureDefinition<AbstractFeature>("benchmarkFeature" + index) {
+
+                @Override
+                public AbstractFeature create(FeatureHolder holder) {
+
+                    return new AbstractFeature(getName(), holder);
+                }
+
+            };
+        }
+
+        holder = new DefaultFeatureHolder();
+        for (FeatureDefinition<AbstractFeature> definition : definitions) {
+            holder.get(definition);
+        }
+    }
+
+    @Benchmark
+    public Feature getFirst() {
+
+        return holder.get(definitions[0]);
+    }
+
+    @Benchmark
+    public Feature getLast() {
+
+        return holder.get(definitions[featureCount - 1]);
+    }
+
+    @Benchmark
+    public void getAll(Blackhole blackhole) {
+
+        for (FeatureDefinition<AbstractFeature> definition : definitions) {
+            blackhole.consume(holder.get(definition));
+        }
+    }
+
+    @Benchmark
+    public void iterate(Blackhole blackhole) {
+
+        for (Feature feature : holder) {
+            blackhole.consume(feature);
+        }
+    }
+
+}
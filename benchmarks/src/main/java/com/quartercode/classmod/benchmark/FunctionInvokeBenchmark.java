@@ -0,0 +1,159 @@
+/*
+ * This file is part of Classmod.
+ * Copyright (c) 2014 QuarterCode <http://www.quartercode.com/>
+ *
+ * Classmod is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Classmod is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Classmod. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.classmod.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import com.quartercode.classmod.base.FeatureHolder;
+import com.quartercode.classmod.base.def.DefaultFeatureHolder;
+import com.quartercode.classmod.extra.ExecutorInvokationException;
+import com.quartercode.classmod.extra.Function;
+import com.quartercode.classmod.extra.FunctionDefinition;
+import com.quartercode.classmod.extra.FunctionExecutionException;
+import com.quartercode.classmod.extra.FunctionExecutor;
+import com.quartercode.classmod.extra.Prioritized;
+import com.quartercode.classmod.util.FunctionDefinitionFactory;
+
+/**
+ * Measures the dispatch of function invokations with different amounts of {@link FunctionExecutor}s.
+ * The executors are spread across four priority groups, so the ordering of the executors is part of the measurement.
+ */
+@BenchmarkMode (Mode.Throughput)
+@OutputTimeUnit (TimeUnit.MICROSECONDS)
+@Warmup (iterations = 5, time = 1)
+@Measurement (iterations = 5, time = 1)
+@Fork (1)
+@State (Scope.Thread)
+public class FunctionInvokeBenchmark {
+
+    @Param ({ "1", "5", "20" })
+    private int                executorCount;
+
+    private Function<Integer>  function;
+    private Function<Integer>  argumentFunction;
+
+    @Setup
+    public void setUp() {
+
+        FunctionDefinition<Integer> definition = FunctionDefinitionFactory.create("benchmarkFunction");
+        FunctionDefinition<Integer> argumentDefinition = FunctionDefinitionFactory.create("benchmarkArgumentFunction", Integer.class);
+        for (int index = 0; index < executorCount; index++) {
+            definition.addExecutor(FeatureHolder.class, "executor" + index, createExecutor(index));
+            argumentDefinition.addExecutor(FeatureHolder.class, "executor" + index, createExecutor(index));
+        }
+
+        FeatureHolder holder = new DefaultFeatureHolder();
+        function = holder.get(definition);
+        argumentFunction = holder.get(argumentDefinition);
+    }
+
+    private FunctionExecutor<Integer> createExecutor(int index) {
+
+        switch (index % 4) {
+            case 0:
+                return new Level1Executor();
+            case 1:
+                return new Level2Executor();
+            case 2:
+                return new Level3Executor();
+            default:
+                return new Level4Executor();
+        }
+    }
+
+    @Benchmark
+    public Integer invoke() throws FunctionExecutionException {
+
+        return function.invoke();
+    }
+
+    @Benchmark
+    public Integer invoke1() throws FunctionExecutionException {
+
+        return argumentFunction.invoke1(7);
+    }
+
+    @Benchmark
+    public Integer invokeVarargs() throws FunctionExecutionException {
+
+        return argumentFunction.invoke(7);
+    }
+
+    @Benchmark
+    public List<Integer> invokeRA() throws FunctionExecutionException {
+
+        return function.invokeRA();
+    }
+
+    public static class Level1Executor implements FunctionExecutor<Integer> {
+
+        @Override
+        @Prioritized (Prioritized.LEVEL_1)
+        public Integer invoke(FeatureHolder holder, Object... arguments) throws ExecutorInvokationException {
+
+            return 1;
+        }
+
+    }
+
+    public static class Level2Executor implements FunctionExecutor<Integer> {
+
+        @Override
+        @Prioritized (Prioritized.LEVEL_2)
+        public Integer invoke(FeatureHolder holder, Object... arguments) throws ExecutorInvokationException {
+
+            return 2;
+        }
+
+    }
+
+    public static class Level3Executor implements FunctionExecutor<Integer> {
+
+        @Override
+        @Prioritized (Prioritized.LEVEL_3)
+        public Integer invoke(FeatureHolder holder, Object... arguments) throws ExecutorInvokationException {
+
+            return 3;
+        }
+
+    }
+
+    public static class Level4Executor implements FunctionExecutor<Integer> {
+
+        @Override
+        @Prioritized (Prioritized.LEVEL_4)
+        public Integer invoke(FeatureHolder holder, Object... arguments) throws ExecutorInvokationException {
+
+            return 4;
+        }
+
+    }
+
+}
@@ -0,0 +1,130 @@
+/*
+ * This file is part of Classmod.
+ * Copyright (c) 2014 QuarterCode <http://www.quartercode.com/>
+ *
+ * Classmod is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Classmod is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Classmod. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.classmod.benchmark;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import com.quartercode.classmod.base.FeatureHolder;
+import com.quartercode.classmod.base.def.DefaultFeatureHolder;
+import com.quartercode.classmod.extra.Delay;
+import com.quartercode.classmod.extra.ExecutorInvokationException;
+import com.quartercode.classmod.extra.Function;
+import com.quartercode.classmod.extra.FunctionDefinition;
+import com.quartercode.classmod.extra.FunctionExecutionException;
+import com.quartercode.classmod.extra.FunctionExecutor;
+import com.quartercode.classmod.extra.Limit;
+import com.quartercode.classmod.util.FunctionDefinitionFactory;
+
+/**
+ * Measures the dispatch of function invokations whose {@link FunctionExecutor}s use {@link Limit} and {@link Delay}.
+ * Those settings depend on the invokation counters and are therefore checked on every invokation.
+ * The limit is high enough that it's never reached during a benchmark run.
+ */
+@BenchmarkMode (Mode.Throughput)
+@OutputTimeUnit (TimeUnit.MICROSECONDS)
+@Warmup (iterations = 5, time = 1)
+@Measurement (iterations = 5, time = 1)
+@Fork (1)
+@State (Scope.Thread)
+public class LimitedFunctionInvokeBenchmark {
+
+    private Function<Integer> limitedFunction;
+    private Function<Integer> delayedFunction;
+    private Function<Integer> mixedFunction;
+
+    @Setup
+    public void setUp() {
+
+        FunctionDefinition<Integer> limitedDefinition = FunctionDefinitionFactory.create("benchmarkLimitedFunction");
+        limitedDefinition.addExecutor(FeatureHolder.class, "limited", new LimitedExecutor());
+
+        FunctionDefinition<Integer> delayedDefinition = FunctionDefinitionFactory.create("benchmarkDelayedFunction");
+        delayedDefinition.addExecutor(FeatureHolder.class, "delayed", new DelayedExecutor());
+
+        FunctionDefinition<Integer> mixedDefinition = FunctionDefinitionFactory.create("benchmarkMixedFunction");
+        mixedDefinition.addExecutor(FeatureHolder.class, "limited", new LimitedExecutor());
+        mixedDefinition.addExecutor(FeatureHolder.class, "delayed", new DelayedExecutor());
+        mixedDefinition.addExecutor(FeatureHolder.class, "plain", new PlainExecutor());
+
+        FeatureHolder holder = new DefaultFeatureHolder();
+        limitedFunction = holder.get(limitedDefinition);
+        delayedFunction = holder.get(delayedDefinition);
+        mixedFunction = holder.get(mixedDefinition);
+    }
+
+    @Benchmark
+    public Integer invokeLimited() throws FunctionExecutionException {
+
+        return limitedFunction.invoke();
+    }
+
+    @Benchmark
+    public Integer invokeDelayed() throws FunctionExecutionException {
+
+        return delayedFunction.invoke();
+    }
+
+    @Benchmark
+    public Integer invokeMixed() throws FunctionExecutionException {
+
+        return mixedFunction.invoke();
+    }
+
+    public static class LimitedExecutor implements FunctionExecutor<Integer> {
+
+        @Override
+        @Limit (Integer.MAX_VALUE)
+        public Integer invoke(FeatureHolder holder, Object... arguments) throws ExecutorInvokationException {
+
+            return 1;
+        }
+
+    }
+
+    public static class DelayedExecutor implements FunctionExecutor<Integer> {
+
+        @Override
+        @Delay (firstDelay = 1, delay = 1)
+        public Integer invoke(FeatureHolder holder, Object... arguments) throws ExecutorInvokationException {
+
+            return 2;
+        }
+
+    }
+
+    public static class PlainExecutor implements FunctionExecutor<Integer> {
+
+        @Override
+        public Integer invoke(FeatureHolder holder, Object... arguments) throws ExecutorInvokationException {
+
+            return 3;
+        }
+
+    }
+
+}
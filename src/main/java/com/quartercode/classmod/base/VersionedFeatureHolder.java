@@ -0,0 +1,89 @@
+/*
+ * This file is part of Classmod.
+ * Copyright (c) 2014 QuarterCode <http://www.quartercode.com/>
+ *
+ * Classmod is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Classmod is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Classmod. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.classmod.base;
+
+/**
+ * A versioned feature holder is a {@link FeatureHolder} which counts the modifications of its {@link Feature}s.
+ * Those counters allow optimistic snapshot reads: A reader takes a stamp, reads several {@link Feature}s and then validates the stamp.
+ * If a modification started in between, the read values might not belong together and the read has to be repeated.
+ * That way, readers never block writers and never see a torn state.
+ * Modifying {@link Feature}s call {@link #startModification()} before and {@link #completeModification()} after every change.
+ * 
+ * @see FeatureHolder
+ * @see SnapshotReader
+ */
+public interface VersionedFeatureHolder extends FeatureHolder {
+
+    /**
+     * Marks the start of a modification of one of the {@link Feature}s of the versioned feature holder.
+     * Every call must be followed by exactly one call of {@link #completeModification()}, even if the modification fails.
+     */
+    public void startModification();
+
+    /**
+     * Marks the end of a modification which was started with {@link #startModification()}.
+     */
+    public void completeModification();
+
+    /**
+     * Returns a stamp for an optimistic read once no modification is in progress.
+     * The stamp can later be checked with {@link #validate(int)}.
+     * 
+     * @return The stamp which represents the current version of the versioned feature holder.
+     */
+    public int getStamp();
+
+    /**
+     * Returns whether no modification was started since the given stamp was taken with {@link #getStamp()}.
+     * If this returns true, all values that were read after the stamp was taken belong to the same version.
+     * 
+     * @param stamp The stamp which was returned by {@link #getStamp()}.
+     * @return Whether the versioned feature holder wasn't modified since the stamp was taken.
+     */
+    public boolean validate(int stamp);
+
+    /**
+     * Executes the given {@link SnapshotReader} until no modification happened while it was running and returns its result.
+     * The reader might therefore be executed several times.
+     * 
+     * @param reader The snapshot reader which reads the values of some {@link Feature}s.
+     * @return The result of the last reader execution, which is a consistent snapshot.
+     */
+    public <T> T readSnapshot(SnapshotReader<T> reader);
+
+    /**
+     * A snapshot reader reads the values of several {@link Feature}s of a {@link VersionedFeatureHolder} and combines them into one result.
+     * Since a snapshot reader might be executed several times, it mustn't have any side effects.
+     * 
+     * @param <T> The type of the result the snapshot reader creates.
+     * @see VersionedFeatureHolder#readSnapshot(SnapshotReader)
+     */
+    public static interface SnapshotReader<T> {
+
+        /**
+         * Reads the values of some {@link Feature}s of the given {@link VersionedFeatureHolder}.
+         * 
+         * @param holder The versioned feature holder whose {@link Feature}s should be read.
+         * @return The result which combines the read values.
+         */
+        public T read(VersionedFeatureHolder holder);
+
+    }
+
+}
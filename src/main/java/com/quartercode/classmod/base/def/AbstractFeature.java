@@ -21,6 +21,7 @@ package com.quartercode.classmod.base.def;
 import javax.xml.bind.annotation.XmlAttribute;
 import com.quartercode.classmod.base.Feature;
 import com.quartercode.classmod.base.FeatureHolder;
+import com.quartercode.classmod.base.VersionedFeatureHolder;
 
 /**
  * An abstract feature is a part of a {@link FeatureHolder} and is used for creating modifiable classes.
@@ -69,6 +70,31 @@ public class AbstractFeature implements Feature {
         this.holder = holder;
     }
 
+    /**
+     * Notifies the {@link FeatureHolder} that the state of this feature is about to change.
+     * This has only an effect if the holder is a {@link VersionedFeatureHolder}.
+     * Every call must be followed by a call of {@link #completeModification()} in a finally block.
+     */
+    protected void startModification() {
+
+        FeatureHolder holder = this.holder;
+        if (holder instanceof VersionedFeatureHolder) {
+            ((VersionedFeatureHolder) holder).startModification();
+        }
+    }
+
+    /**
+     * Notifies the {@link FeatureHolder} that the change which was started with {@link #startModification()} is complete.
+     * This has only an effect if the holder is a {@link VersionedFeatureHolder}.
+     */
+    protected void completeModification() {
+
+        FeatureHolder holder = this.holder;
+        if (holder instanceof VersionedFeatureHolder) {
+            ((VersionedFeatureHolder) holder).completeModification();
+        }
+    }
+
     @Override
     public int hashCode() {
 
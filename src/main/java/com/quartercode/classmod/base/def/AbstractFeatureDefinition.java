@@ -18,6 +18,10 @@
 
 package com.quartercode.classmod.base.def;
 
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.commons.lang.Validate;
 import com.quartercode.classmod.base.Feature;
 import com.quartercode.classmod.base.FeatureDefinition;
 import com.quartercode.classmod.base.FeatureHolder;
@@ -34,16 +38,45 @@ import com.quartercode.classmod.base.FeatureHolder;
  */
 public abstract class AbstractFeatureDefinition<F extends Feature> implements FeatureDefinition<F> {
 
-    private final String name;
+    private static final ConcurrentMap<String, Integer> IDS     = new ConcurrentHashMap<String, Integer>();
+    private static final AtomicInteger                  NEXT_ID = new AtomicInteger();
+
+    private final String                                name;
+    private final int                                   id;
 
     /**
      * Creates a new abstract feature definition for defining a {@link Feature} with the given name.
      * 
-     * @param name The name of the defined {@link Feature}.
+     * @param name The name of the defined {@link Feature}. Null names are not allowed.
      */
     public AbstractFeatureDefinition(String name) {
 
         this.name = name;
+        id = getId(name);
+    }
+
+    /**
+     * Returns the dense integer id which is assigned to the given {@link Feature} name.
+     * All definitions with the same name share the same id because they define the same {@link Feature}.
+     * The ids are assigned in ascending order, starting at 0.
+     * 
+     * @param name The {@link Feature} name whose id should be returned. Null names are not allowed.
+     * @return The dense id which is assigned to the given name.
+     */
+    static int getId(String name) {
+
+        Validate.notNull(name, "Feature name cannot be null");
+
+        Integer id = IDS.get(name);
+        if (id == null) {
+            id = NEXT_ID.getAndIncrement();
+            Integer existing = IDS.putIfAbsent(name, id);
+            if (existing != null) {
+                id = existing;
+            }
+        }
+
+        return id;
     }
 
     @Override
@@ -52,6 +85,18 @@ public abstract class AbstractFeatureDefinition<F extends Feature> implements Fe
         return name;
     }
 
+    /**
+     * Returns the dense integer id of the defined {@link Feature}.
+     * The id is assigned on construction and is the same for all definitions with the same name.
+     * {@link FeatureHolder}s can use it to store their {@link Feature}s in slots instead of looking them up by name.
+     * 
+     * @return The dense id of the defined {@link Feature}.
+     */
+    public int getId() {
+
+        return id;
+    }
+
     @Override
     public int hashCode() {
 
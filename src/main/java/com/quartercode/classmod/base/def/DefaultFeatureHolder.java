@@ -18,9 +18,15 @@
 
 package com.quartercode.classmod.base.def;
 
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import javax.xml.bind.annotation.XmlAttribute;
 import javax.xml.bind.annotation.XmlElement;
 import javax.xml.bind.annotation.XmlID;
@@ -28,46 +34,87 @@ import com.quartercode.classmod.base.Feature;
 import com.quartercode.classmod.base.FeatureDefinition;
 import com.quartercode.classmod.base.FeatureHolder;
 import com.quartercode.classmod.base.Persistent;
+import com.quartercode.classmod.base.VersionedFeatureHolder;
 import com.quartercode.classmod.extra.LockableClass;
+import com.quartercode.classmod.util.FlightRecorderEvents;
+import com.quartercode.classmod.util.FlightRecorderEventType.PendingEvent;
 
 /**
  * A default feature holder is a class which is modifiable through {@link Feature}s.
  * It is just an implementation of {@link FeatureHolder}.
  * A user can get {@link Feature}s through the central access method {@link #get(FeatureDefinition)}.
  * Such {@link Feature}s are defined by {@link FeatureDefinition} which describe how a feature looks like.
+ * The {@link Feature}s are stored in slots which are indexed by the dense ids of their definitions (see {@link AbstractFeatureDefinition#getId()}).
+ * All holders of the same class share the mapping from definition ids to slots.
+ * Default feature holders can be shared between threads. Existing {@link Feature}s are read without locking,
+ * while the lazy creation of a {@link Feature} happens exactly once per definition under a private lock of the holder.
+ * The {@link #iterator()} is weakly consistent: it iterates over the {@link Feature}s which existed when it was created and may also return some which were created afterwards.
+ * Consistent reads of several {@link Feature}s are possible with {@link #readSnapshot(SnapshotReader)}.
+ * Slow lazy creations are reported as {@link FlightRecorderEvents#FEATURE_CREATION} events while a flight recording is running.
  * 
  * @see FeatureHolder
+ * @see VersionedFeatureHolder
  * @see Feature
  * @see FeatureDefinition
  * @see LockableClass
  */
-public class DefaultFeatureHolder implements FeatureHolder, LockableClass {
+public class DefaultFeatureHolder implements VersionedFeatureHolder, LockableClass {
 
-    private final Set<Feature> features = new HashSet<Feature>();
-    private boolean            locked;
+    private static final ConcurrentMap<Class<?>, SlotLayout>             LAYOUTS                 = new ConcurrentHashMap<Class<?>, SlotLayout>();
+    private static final AtomicIntegerFieldUpdater<DefaultFeatureHolder> MODIFICATIONS_STARTED   = AtomicIntegerFieldUpdater.newUpdater(DefaultFeatureHolder.class, "modificationsStarted");
+    private static final AtomicIntegerFieldUpdater<DefaultFeatureHolder> MODIFICATIONS_COMPLETED = AtomicIntegerFieldUpdater.newUpdater(DefaultFeatureHolder.class, "modificationsCompleted");
+
+    private final SlotLayout                                             layout;
+    private final Object                                                 lock                    = new Object();
+    private volatile AtomicReferenceArray<Feature>                       features;
+    private volatile boolean                                             locked;
+    private volatile int                                                 modificationsStarted;
+    private volatile int                                                 modificationsCompleted;
 
     /**
      * Creates a new default feature holder.
      */
     public DefaultFeatureHolder() {
 
+        layout = getLayout(getClass());
+        features = new AtomicReferenceArray<Feature>(layout.getSlotCount());
+
         setLocked(true);
     }
 
+    private static SlotLayout getLayout(Class<?> type) {
+
+        SlotLayout layout = LAYOUTS.get(type);
+        if (layout == null) {
+            layout = new SlotLayout();
+            SlotLayout existing = LAYOUTS.putIfAbsent(type, layout);
+            if (existing != null) {
+                layout = existing;
+            }
+        }
+
+        return layout;
+    }
+
     @Override
     public boolean isLocked() {
 
         return locked;
     }
 
+    /*
+     * Runs under the same lock as the lazy feature creation, so a feature which is created concurrently either sees the new lock state or is updated here.
+     */
     @Override
     public void setLocked(boolean locked) {
 
-        this.locked = locked;
+        synchronized (lock) {
+            this.locked = locked;
 
-        for (Feature feature : this) {
-            if (feature instanceof LockableClass) {
-                ((LockableClass) feature).setLocked(locked);
+            for (Feature feature : this) {
+                if (feature instanceof LockableClass) {
+                    ((LockableClass) feature).setLocked(locked);
+                }
             }
         }
     }
@@ -77,19 +124,105 @@ public class DefaultFeatureHolder implements FeatureHolder, LockableClass {
     @Override
     public <F extends Feature> F get(FeatureDefinition<F> definition) {
 
-        for (Feature feature : features) {
-            if (feature.getName().equals(definition.getName())) {
-                return (F) feature;
+        // Other definitions don't store their id, so it's looked up by name in the global id map on every call
+        int id = definition instanceof AbstractFeatureDefinition ? ((AbstractFeatureDefinition<?>) definition).getId() : AbstractFeatureDefinition.getId(definition.getName());
+        int slot = layout.getSlot(id);
+
+        Feature existingFeature = getFeature(slot);
+        if (existingFeature != null) {
+            return (F) existingFeature;
+        }
+
+        synchronized (lock) {
+            // Another thread might have created the feature in the meantime
+            existingFeature = getFeature(slot);
+            if (existingFeature != null) {
+                return (F) existingFeature;
+            }
+
+            boolean locked = isLocked();
+            PendingEvent event = FlightRecorderEvents.FEATURE_CREATION.begin();
+            F feature = definition.create(this);
+            FlightRecorderEvents.FEATURE_CREATION.commit(event, definition.getName(), getClass());
+            if (feature instanceof LockableClass) {
+                ((LockableClass) feature).setLocked(locked);
             }
+            setFeature(slot, feature);
+            return feature;
         }
+    }
+
+    @Override
+    public void startModification() {
 
-        boolean locked = isLocked();
-        F feature = definition.create(this);
-        if (feature instanceof LockableClass) {
-            ((LockableClass) feature).setLocked(locked);
+        MODIFICATIONS_STARTED.incrementAndGet(this);
+    }
+
+    @Override
+    public void completeModification() {
+
+        MODIFICATIONS_COMPLETED.incrementAndGet(this);
+    }
+
+    /*
+     * The started counter is read first: If the completed counter has the same value afterwards, every modification which was started before had been completed.
+     * Modifications that start later increment the started counter and are therefore detected by validate().
+     */
+    @Override
+    public int getStamp() {
+
+        int started = modificationsStarted;
+        while (started != modificationsCompleted) {
+            Thread.yield();
+            started = modificationsStarted;
+        }
+
+        return started;
+    }
+
+    @Override
+    public boolean validate(int stamp) {
+
+        return modificationsStarted == stamp;
+    }
+
+    @Override
+    public <T> T readSnapshot(SnapshotReader<T> reader) {
+
+        while (true) {
+            int stamp = getStamp();
+            T result = reader.read(this);
+            if (validate(stamp)) {
+                return result;
+            }
+        }
+    }
+
+    private Feature getFeature(int slot) {
+
+        AtomicReferenceArray<Feature> features = this.features;
+        return slot < features.length() ? features.get(slot) : null;
+    }
+
+    /*
+     * The slots are written through the atomic array, so readers never see a feature which isn't fully constructed.
+     * The array is only copied when it has to grow, and it grows at least by half its size.
+     * Callers must hold the lock of the holder.
+     */
+    private void setFeature(int slot, Feature feature) {
+
+        AtomicReferenceArray<Feature> features = this.features;
+        if (slot >= features.length()) {
+            int length = Math.max(Math.max(slot + 1, features.length() + (features.length() >> 1)), layout.getSlotCount());
+            AtomicReferenceArray<Feature> newFeatures = new AtomicReferenceArray<Feature>(length);
+            for (int index = 0; index < features.length(); index++) {
+                newFeatures.lazySet(index, features.get(index));
+            }
+            newFeatures.set(slot, feature);
+            this.features = newFeatures;
+        } else {
+            features.set(slot, feature);
         }
-        features.add(feature);
-        return feature;
     }
 
     /**
@@ -102,7 +235,7 @@ public class DefaultFeatureHolder implements FeatureHolder, LockableClass {
     public Set<Object> getPersistentFeatures() {
 
         Set<Object> persistentFeatures = new HashSet<Object>();
-        for (Feature feature : features) {
+        for (Feature feature : this) {
             if (feature.getClass().isAnnotationPresent(Persistent.class)) {
                 persistentFeatures.add(feature);
             }
@@ -119,9 +252,12 @@ public class DefaultFeatureHolder implements FeatureHolder, LockableClass {
      */
     public void setPersistentFeatures(Set<Object> persistentFeatures) {
 
-        for (Object persistentFeature : persistentFeatures) {
-            if (persistentFeature instanceof Feature) {
-                features.add((Feature) persistentFeature);
+        synchronized (lock) {
+            for (Object persistentFeature : persistentFeatures) {
+                if (persistentFeature instanceof Feature) {
+                    Feature feature = (Feature) persistentFeature;
+                    setFeature(layout.getSlot(AbstractFeatureDefinition.getId(feature.getName())), feature);
+                }
             }
         }
     }
@@ -129,7 +265,7 @@ public class DefaultFeatureHolder implements FeatureHolder, LockableClass {
     @Override
     public Iterator<Feature> iterator() {
 
-        return features.iterator();
+        return new FeatureIterator(features);
     }
 
     /**
@@ -150,7 +286,11 @@ public class DefaultFeatureHolder implements FeatureHolder, LockableClass {
 
         final int prime = 31;
         int result = 1;
-        result = prime * result + (features == null ? 0 : features.hashCode());
+        int featuresHashCode = 0;
+        for (Feature feature : this) {
+            featuresHashCode += feature.hashCode();
+        }
+        result = prime * result + featuresHashCode;
         return result;
     }
 
@@ -167,12 +307,19 @@ public class DefaultFeatureHolder implements FeatureHolder, LockableClass {
             return false;
         }
         DefaultFeatureHolder other = (DefaultFeatureHolder) obj;
-        if (features == null) {
-            if (other.features != null) {
+        // Both holders have the same class and therefore use the same slot layout
+        AtomicReferenceArray<Feature> features = this.features;
+        AtomicReferenceArray<Feature> otherFeatures = other.features;
+        for (int slot = 0; slot < Math.max(features.length(), otherFeatures.length()); slot++) {
+            Feature feature = slot < features.length() ? features.get(slot) : null;
+            Feature otherFeature = slot < otherFeatures.length() ? otherFeatures.get(slot) : null;
+            if (feature == null) {
+                if (otherFeature != null) {
+                    return false;
+                }
+            } else if (!feature.equals(otherFeature)) {
                 return false;
             }
-        } else if (!features.equals(other.features)) {
-            return false;
         }
         return true;
     }
@@ -181,7 +328,7 @@ public class DefaultFeatureHolder implements FeatureHolder, LockableClass {
     public String toString() {
 
         String featureString = "";
-        for (Feature feature : features) {
+        for (Feature feature : this) {
             featureString += ", " + feature.getName();
         }
         featureString = "{" + (featureString.isEmpty() ? "" : featureString.substring(2)) + "}";
@@ -189,4 +336,94 @@ public class DefaultFeatureHolder implements FeatureHolder, LockableClass {
         return getClass().getName() + " [features=" + featureString + "]";
     }
 
+    /*
+     * Maps the dense definition ids to the feature slots of one holder class.
+     * The slots are assigned in the order the features are requested for the first time.
+     */
+    private static class SlotLayout {
+
+        private volatile int[] slots = new int[0];
+        private volatile int   slotCount;
+
+        private int getSlotCount() {
+
+            return slotCount;
+        }
+
+        private int getSlot(int id) {
+
+            int[] slots = this.slots;
+            if (id < slots.length && slots[id] >= 0) {
+                return slots[id];
+            }
+
+            return assignSlot(id);
+        }
+
+        private synchronized int assignSlot(int id) {
+
+            int[] slots = this.slots;
+            if (id < slots.length && slots[id] >= 0) {
+                return slots[id];
+            }
+
+            int[] newSlots = Arrays.copyOf(slots, Math.max(id + 1, slots.length));
+            Arrays.fill(newSlots, slots.length, newSlots.length, -1);
+            newSlots[id] = slotCount++;
+            this.slots = newSlots;
+            return newSlots[id];
+        }
+
+    }
+
+    /*
+     * Iterates over the occupied slots of a feature array.
+     * The next feature is read in advance, so a slot which is filled during the iteration can't make hasNext() and next() disagree.
+     */
+    private static class FeatureIterator implements Iterator<Feature> {
+
+        private final AtomicReferenceArray<Feature> features;
+        private int                                 nextSlot;
+        private Feature                             next;
+
+        private FeatureIterator(AtomicReferenceArray<Feature> features) {
+
+            this.features = features;
+            advance();
+        }
+
+        private void advance() {
+
+            next = null;
+            while (next == null && nextSlot < features.length()) {
+                next = features.get(nextSlot++);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+
+            return next != null;
+        }
+
+        @Override
+        public Feature next() {
+
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+
+            Feature feature = next;
+            advance();
+            return feature;
+        }
+
+        @Override
+        public void remove() {
+
+            throw new UnsupportedOperationException("Features can't be removed from a feature holder");
+        }
+
+    }
+
 }
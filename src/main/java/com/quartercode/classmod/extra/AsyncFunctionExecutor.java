@@ -0,0 +1,47 @@
+/*
+ * This file is part of Classmod.
+ * Copyright (c) 2014 QuarterCode <http://www.quartercode.com/>
+ *
+ * Classmod is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Classmod is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Classmod. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.classmod.extra;
+
+import com.quartercode.classmod.base.FeatureHolder;
+
+/**
+ * An async function executor is a {@link FunctionExecutor} which can return a {@link FunctionFuture} instead of a finished result.
+ * When a {@link Function} is invoked asynchronously (like with {@link Function#invokeAsync(Object...)}), the invokation continues with the next executor once the future is done.
+ * No thread is blocked while the future is pending.
+ * Synchronous invokations still use {@link #invoke(FeatureHolder, Object...)}, which must wait for the result.
+ * A future which fails with an {@link ExecutorInvokationException} (like a {@link StopExecutionException}) is treated like the same exception thrown by a synchronous executor.
+ * 
+ * @param <R> The type of the return value of the defined function.
+ * @see FunctionExecutor
+ * @see FunctionFuture
+ */
+public interface AsyncFunctionExecutor<R> extends FunctionExecutor<R> {
+
+    /**
+     * Starts the invokation of the defined function executor in the given {@link FeatureHolder} with the given arguments and returns a {@link FunctionFuture} for the result.
+     * The result must be the same one {@link #invoke(FeatureHolder, Object...)} would return.
+     * 
+     * @param holder The {@link FeatureHolder} the function executor is invoked in.
+     * @param arguments Some arguments for the function executor.
+     * @return A {@link FunctionFuture} which provides the value the function executor returns.
+     * @throws ExecutorInvokationException The function executor sends a signal before the asynchronous work is started.
+     */
+    public FunctionFuture<R> invokeAsync(FeatureHolder holder, Object... arguments) throws ExecutorInvokationException;
+
+}
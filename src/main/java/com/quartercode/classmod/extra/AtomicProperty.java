@@ -0,0 +1,115 @@
+/*
+ * This file is part of Classmod.
+ * Copyright (c) 2014 QuarterCode <http://www.quartercode.com/>
+ *
+ * Classmod is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Classmod is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Classmod. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.classmod.extra;
+
+/**
+ * An atomic property is a {@link Property} whose stored object can be changed atomically without any external locks.
+ * Apart from the simple compare-and-set operation, it supports read-modify-write operations which use {@link Updater}s and {@link Accumulator}s.
+ * Those operations may call the {@link Updater} or {@link Accumulator} multiple times if other threads change the property concurrently, so they should be free of side effects.
+ * 
+ * @param <T> The type of object which can be stored inside the atomic property.
+ * @see Property
+ */
+public interface AtomicProperty<T> extends Property<T> {
+
+    /**
+     * Changes the stored object to the given update object if the current stored object is the given expected object.
+     * The objects are compared by identity (==), not by {@link Object#equals(Object)}.
+     * 
+     * @param expect The object which is expected to be stored.
+     * @param update The new stored object.
+     * @return True if the stored object was changed, false if the current stored object isn't the expected one.
+     */
+    public boolean compareAndSet(T expect, T update);
+
+    /**
+     * Changes the stored object to the given one and returns the previous one as one atomic operation.
+     * 
+     * @param value The new stored object.
+     * @return The previously stored object.
+     */
+    public T getAndSet(T value);
+
+    /**
+     * Atomically changes the stored object to the result of the given {@link Updater} and returns the previous object.
+     * 
+     * @param updater The {@link Updater} which calculates the new stored object from the current one.
+     * @return The previously stored object.
+     */
+    public T getAndUpdate(Updater<T> updater);
+
+    /**
+     * Atomically changes the stored object to the result of the given {@link Updater} and returns the new object.
+     * 
+     * @param updater The {@link Updater} which calculates the new stored object from the current one.
+     * @return The new stored object.
+     */
+    public T updateAndGet(Updater<T> updater);
+
+    /**
+     * Atomically changes the stored object to the result of the given {@link Accumulator} and returns the new object.
+     * The {@link Accumulator} is called with the current stored object and the given argument.
+     * 
+     * @param argument The second argument for the {@link Accumulator}.
+     * @param accumulator The {@link Accumulator} which calculates the new stored object from the current one and the argument.
+     * @return The new stored object.
+     */
+    public T accumulateAndGet(T argument, Accumulator<T> accumulator);
+
+    /**
+     * An updater calculates a new object from the current object of an {@link AtomicProperty}.
+     * It might be called multiple times for one update, so it should be free of side effects.
+     * 
+     * @param <T> The type of object the updater calculates.
+     * @see AtomicProperty#getAndUpdate(Updater)
+     * @see AtomicProperty#updateAndGet(Updater)
+     */
+    public static interface Updater<T> {
+
+        /**
+         * Calculates the new object from the given current object.
+         * 
+         * @param value The current object of the {@link AtomicProperty}.
+         * @return The new object for the {@link AtomicProperty}.
+         */
+        public T update(T value);
+
+    }
+
+    /**
+     * An accumulator calculates a new object from the current object of an {@link AtomicProperty} and an argument.
+     * It might be called multiple times for one update, so it should be free of side effects.
+     * 
+     * @param <T> The type of object the accumulator calculates.
+     * @see AtomicProperty#accumulateAndGet(Object, Accumulator)
+     */
+    public static interface Accumulator<T> {
+
+        /**
+         * Calculates the new object from the given current object and the given argument.
+         * 
+         * @param value The current object of the {@link AtomicProperty}.
+         * @param argument The argument which was passed to the {@link AtomicProperty}.
+         * @return The new object for the {@link AtomicProperty}.
+         */
+        public T accumulate(T value, T argument);
+
+    }
+
+}
@@ -0,0 +1,39 @@
+/*
+ * This file is part of Classmod.
+ * Copyright (c) 2014 QuarterCode <http://www.quartercode.com/>
+ *
+ * Classmod is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Classmod is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Classmod. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.classmod.extra;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * {@link FunctionExecutor}s which have this annotation call blocking APIs, like file or socket reads.
+ * During asynchronous invokations (see {@link Function#invokeAsync(Object...)}) and inside of {@link Parallel} groups, they are run on a separate blocking executor.
+ * That executor uses virtual threads if the runtime supports them, so blocked executors don't occupy the threads of the shared pool.
+ * Synchronous invokations still invoke them on the calling thread, which has to wait for the result anyway.
+ * 
+ * @see FunctionExecutor
+ * @see com.quartercode.classmod.util.BlockingExecutor
+ */
+@Target (ElementType.METHOD)
+@Retention (RetentionPolicy.RUNTIME)
+public @interface Blocking {
+
+}
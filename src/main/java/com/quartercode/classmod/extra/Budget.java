@@ -0,0 +1,45 @@
+/*
+ * This file is part of Classmod.
+ * Copyright (c) 2014 QuarterCode <http://www.quartercode.com/>
+ *
+ * Classmod is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Classmod is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Classmod. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.classmod.extra;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import com.quartercode.classmod.base.FeatureHolder;
+
+/**
+ * {@link FunctionExecutor}s which have this annotation should complete within the given amount of milliseconds.
+ * While the {@link com.quartercode.classmod.extra.def.Watchdog} is enabled, executors which take longer are reported.
+ * The annotation overrides the budget of the function and the default budget of the watchdog.
+ * This should be annotated at the actual {@link FunctionExecutor#invoke(FeatureHolder, Object...)} method.
+ * 
+ * @see FunctionExecutor
+ * @see com.quartercode.classmod.extra.def.Watchdog
+ */
+@Target (ElementType.METHOD)
+@Retention (RetentionPolicy.RUNTIME)
+public @interface Budget {
+
+    /**
+     * The maximum amount of milliseconds an invokation of the {@link FunctionExecutor} should take.
+     */
+    long value ();
+
+}
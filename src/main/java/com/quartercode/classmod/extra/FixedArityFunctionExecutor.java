@@ -0,0 +1,81 @@
+/*
+ * This file is part of Classmod.
+ * Copyright (c) 2014 QuarterCode <http://www.quartercode.com/>
+ *
+ * Classmod is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Classmod is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Classmod. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.classmod.extra;
+
+import com.quartercode.classmod.base.FeatureHolder;
+
+/**
+ * A fixed arity function executor is a {@link FunctionExecutor} which can also be invoked with a fixed amount of arguments.
+ * When a {@link Function} is called through one of its fixed arity methods (like {@link Function#invoke1(Object)}), such executors are invoked without packing the arguments into an array.
+ * Plain {@link FunctionExecutor}s still work with those methods; they just receive the arguments as an array.
+ * Annotations like {@link Prioritized} or {@link Limit} should still be annotated at the {@link #invoke(FeatureHolder, Object...)} method.
+ * 
+ * @param <R> The type of the return value of the defined function.
+ * @see FunctionExecutor
+ * @see Function
+ */
+public interface FixedArityFunctionExecutor<R> extends FunctionExecutor<R> {
+
+    /**
+     * Invokes the defined function executor in the given {@link FeatureHolder} without any arguments.
+     * This must behave exactly like {@link #invoke(FeatureHolder, Object...)} with an empty argument array.
+     * 
+     * @param holder The {@link FeatureHolder} the function executor is invoked in.
+     * @return The value the invoked function executor returns. Can be null.
+     * @throws ExecutorInvokationException The function executor sends a signal.
+     */
+    public R invoke0(FeatureHolder holder) throws ExecutorInvokationException;
+
+    /**
+     * Invokes the defined function executor in the given {@link FeatureHolder} with the given single argument.
+     * This must behave exactly like {@link #invoke(FeatureHolder, Object...)} with an argument array which only contains the given argument.
+     * 
+     * @param holder The {@link FeatureHolder} the function executor is invoked in.
+     * @param argument The first and only argument for the function executor.
+     * @return The value the invoked function executor returns. Can be null.
+     * @throws ExecutorInvokationException The function executor sends a signal.
+     */
+    public R invoke1(FeatureHolder holder, Object argument) throws ExecutorInvokationException;
+
+    /**
+     * Invokes the defined function executor in the given {@link FeatureHolder} with the given two arguments.
+     * This must behave exactly like {@link #invoke(FeatureHolder, Object...)} with an argument array which contains the given arguments.
+     * 
+     * @param holder The {@link FeatureHolder} the function executor is invoked in.
+     * @param argument1 The first argument for the function executor.
+     * @param argument2 The second argument for the function executor.
+     * @return The value the invoked function executor returns. Can be null.
+     * @throws ExecutorInvokationException The function executor sends a signal.
+     */
+    public R invoke2(FeatureHolder holder, Object argument1, Object argument2) throws ExecutorInvokationException;
+
+    /**
+     * Invokes the defined function executor in the given {@link FeatureHolder} with the given three arguments.
+     * This must behave exactly like {@link #invoke(FeatureHolder, Object...)} with an argument array which contains the given arguments.
+     * 
+     * @param holder The {@link FeatureHolder} the function executor is invoked in.
+     * @param argument1 The first argument for the function executor.
+     * @param argument2 The second argument for the function executor.
+     * @param argument3 The third argument for the function executor.
+     * @return The value the invoked function executor returns. Can be null.
+     * @throws ExecutorInvokationException The function executor sends a signal.
+     */
+    public R invoke3(FeatureHolder holder, Object argument1, Object argument2, Object argument3) throws ExecutorInvokationException;
+
+}
@@ -29,6 +29,7 @@ import com.quartercode.classmod.base.Named;
  * A function makes a method (also called a function) avaiable.
  * Functions are executed by different {@link FunctionExecutor}s. That makes the function concept flexible.
  * The function object itself stores a set of those {@link FunctionExecutor}s.
+ * Custom implementations should extend {@link com.quartercode.classmod.extra.def.AbstractFunction}, since new invokation methods may be added to this interface.
  * 
  * @param <R> The type of the return values of the used {@link FunctionExecutor}s. The function returns a {@link List} with these values.
  * @see FunctionExecutor
@@ -64,6 +65,7 @@ public interface Function<R> extends Feature, LockableClass {
      * Invokes the defined function with the given arguments on all {@link FunctionExecutor}s.
      * This returns the return value of the {@link FunctionExecutor}s with the highest priority.
      * If you want the return values of all executors, use {@link #invokeRA(Object...)}.
+     * The other return values aren't collected, so this doesn't allocate a list.
      * 
      * @param arguments Some arguments for the {@link FunctionExecutor}s.
      * @return The value the {@link FunctionExecutor}s with the highest priority returns. May be null.
@@ -71,6 +73,48 @@ public interface Function<R> extends Feature, LockableClass {
      */
     public R invoke(Object... arguments) throws FunctionExecutionException;
 
+    /**
+     * Invokes the defined function without any arguments on all {@link FunctionExecutor}s.
+     * This behaves like {@link #invoke(Object...)}, but doesn't need to allocate an argument array for {@link FixedArityFunctionExecutor}s.
+     * 
+     * @return The value the {@link FunctionExecutor}s with the highest priority returns. May be null.
+     * @throws FunctionExecutionException Something goes wrong during the invokation of a {@link FunctionExecutor}.
+     */
+    public R invoke0() throws FunctionExecutionException;
+
+    /**
+     * Invokes the defined function with the given single argument on all {@link FunctionExecutor}s.
+     * This behaves like {@link #invoke(Object...)}, but doesn't need to allocate an argument array for {@link FixedArityFunctionExecutor}s.
+     * 
+     * @param argument The first and only argument for the {@link FunctionExecutor}s.
+     * @return The value the {@link FunctionExecutor}s with the highest priority returns. May be null.
+     * @throws FunctionExecutionException Something goes wrong during the invokation of a {@link FunctionExecutor}.
+     */
+    public R invoke1(Object argument) throws FunctionExecutionException;
+
+    /**
+     * Invokes the defined function with the given two arguments on all {@link FunctionExecutor}s.
+     * This behaves like {@link #invoke(Object...)}, but doesn't need to allocate an argument array for {@link FixedArityFunctionExecutor}s.
+     * 
+     * @param argument1 The first argument for the {@link FunctionExecutor}s.
+     * @param argument2 The second argument for the {@link FunctionExecutor}s.
+     * @return The value the {@link FunctionExecutor}s with the highest priority returns. May be null.
+     * @throws FunctionExecutionException Something goes wrong during the invokation of a {@link FunctionExecutor}.
+     */
+    public R invoke2(Object argument1, Object argument2) throws FunctionExecutionException;
+
+    /**
+     * Invokes the defined function with the given three arguments on all {@link FunctionExecutor}s.
+     * This behaves like {@link #invoke(Object...)}, but doesn't need to allocate an argument array for {@link FixedArityFunctionExecutor}s.
+     * 
+     * @param argument1 The first argument for the {@link FunctionExecutor}s.
+     * @param argument2 The second argument for the {@link FunctionExecutor}s.
+     * @param argument3 The third argument for the {@link FunctionExecutor}s.
+     * @return The value the {@link FunctionExecutor}s with the highest priority returns. May be null.
+     * @throws FunctionExecutionException Something goes wrong during the invokation of a {@link FunctionExecutor}.
+     */
+    public R invoke3(Object argument1, Object argument2, Object argument3) throws FunctionExecutionException;
+
     /**
      * Invokes the defined function with the given arguments on all {@link FunctionExecutor}s.
      * This returns the values the {@link FunctionExecutor}s return in invokation order.
@@ -82,6 +126,40 @@ public interface Function<R> extends Feature, LockableClass {
      */
     public List<R> invokeRA(Object... arguments) throws FunctionExecutionException;
 
+    /**
+     * Invokes the defined function with the given arguments on all {@link FunctionExecutor}s and folds their return values with the given {@link ResultReducer}.
+     * In contrast to {@link #invokeRA(Object...)}, no list is created for storing the return values.
+     * For example, the return values could be summed up or added into an existing buffer (see {@link com.quartercode.classmod.util.ResultReducerFactory}).
+     * 
+     * @param reducer The {@link ResultReducer} which folds the return values of the {@link FunctionExecutor}s in invokation order.
+     * @param identity The initial accumulated value which is passed into the reducer together with the first return value.
+     * @param arguments Some arguments for the {@link FunctionExecutor}s.
+     * @return The accumulated value the reducer returned for the last return value. If no executor returned anything, the identity is returned.
+     * @throws FunctionExecutionException Something goes wrong during the invokation of a {@link FunctionExecutor}.
+     */
+    public <A> A invokeReduce(ResultReducer<? super R, A> reducer, A identity, Object... arguments) throws FunctionExecutionException;
+
+    /**
+     * Invokes the defined function with the given arguments on all {@link FunctionExecutor}s without blocking the calling thread.
+     * The {@link FunctionExecutor}s are invoked one after another on an executor service, in the same order and with the same semantics as {@link #invoke(Object...)}.
+     * {@link AsyncFunctionExecutor}s can continue the invokation when their own {@link FunctionFuture} is done.
+     * 
+     * @param arguments Some arguments for the {@link FunctionExecutor}s.
+     * @return A {@link FunctionFuture} which provides the value the {@link FunctionExecutor}s with the highest priority returns.
+     *         If the invokation fails, the future fails with a {@link FunctionExecutionException}.
+     */
+    public FunctionFuture<R> invokeAsync(Object... arguments);
+
+    /**
+     * Invokes the defined function with the given arguments on all {@link FunctionExecutor}s without blocking the calling thread.
+     * This behaves like {@link #invokeAsync(Object...)}, but collects the return values of all executors like {@link #invokeRA(Object...)}.
+     * 
+     * @param arguments Some arguments for the {@link FunctionExecutor}s.
+     * @return A {@link FunctionFuture} which provides the values the invoked {@link FunctionExecutor}s return.
+     *         If the invokation fails, the future fails with a {@link FunctionExecutionException}.
+     */
+    public FunctionFuture<List<R>> invokeRAAsync(Object... arguments);
+
     /**
      * The function executor container wraps around {@link FunctionExecutor}s for storing data values along with them.
      * The data isn't stored in the actual {@link FunctionExecutor} object because it should only do the execution and nothing else.
@@ -0,0 +1,69 @@
+/*
+ * This file is part of Classmod.
+ * Copyright (c) 2014 QuarterCode <http://www.quartercode.com/>
+ *
+ * Classmod is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Classmod is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Classmod. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.classmod.extra;
+
+import java.util.concurrent.Future;
+
+/**
+ * A function future is a {@link Future} which provides the result of an asynchronous {@link Function} invokation.
+ * Apart from waiting for the result, {@link Callback}s can be registered which are notified when the invokation is done.
+ * That way, further work can be chained onto an invokation without blocking a thread.
+ * If the invokation fails, the failure cause is usually a {@link FunctionExecutionException}.
+ * 
+ * @param <T> The type of the result the future provides.
+ * @see Function#invokeAsync(Object...)
+ * @see AsyncFunctionExecutor
+ */
+public interface FunctionFuture<T> extends Future<T> {
+
+    /**
+     * Registers the given {@link Callback} which is notified when the future is done.
+     * If the future is already done, the callback is notified immediately by the calling thread.
+     * Otherwise, it is notified by the thread which completes the future.
+     * 
+     * @param callback The callback which should be notified about the result.
+     */
+    public void addCallback(Callback<? super T> callback);
+
+    /**
+     * A callback is notified by a {@link FunctionFuture} when the result is available or the computation failed.
+     * Since callbacks are executed by the thread which completes the future, they should return quickly.
+     * 
+     * @param <T> The type of the result the callback receives.
+     * @see FunctionFuture
+     */
+    public static interface Callback<T> {
+
+        /**
+         * Is called when the {@link FunctionFuture} completes successfully.
+         * 
+         * @param result The result of the future. May be null.
+         */
+        public void onSuccess(T result);
+
+        /**
+         * Is called when the {@link FunctionFuture} fails or is cancelled.
+         * 
+         * @param cause The {@link Throwable} which caused the failure.
+         */
+        public void onFailure(Throwable cause);
+
+    }
+
+}
@@ -0,0 +1,62 @@
+/*
+ * This file is part of Classmod.
+ * Copyright (c) 2014 QuarterCode <http://www.quartercode.com/>
+ *
+ * Classmod is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Classmod is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Classmod. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.classmod.extra;
+
+/**
+ * An invokation listener is notified before and after every {@link FunctionExecutor} a {@link Function} invokes.
+ * Listeners can be used for tracing, profiling or auditing. They are either registered for all functions or for the functions of a single definition,
+ * and they can be sampled, so they only observe every n-th invokation of a function.
+ * The callbacks are called on the thread which invokes the executor, so they should return quickly.
+ * Exceptions which are thrown by the callbacks are logged and don't affect the invokation.
+ * 
+ * @see Function
+ * @see FunctionExecutor
+ */
+public interface InvokationListener {
+
+    /**
+     * Called right before the {@link FunctionExecutor} with the given name is invoked by the given {@link Function}.
+     * 
+     * @param function The function which invokes the executor. Its holder is available through {@link Function#getHolder()}.
+     * @param executorName The name of the executor which is about to be invoked.
+     */
+    public void beforeExecutor(Function<?> function, String executorName);
+
+    /**
+     * Called after the {@link FunctionExecutor} with the given name returned normally.
+     * 
+     * @param function The function which invoked the executor.
+     * @param executorName The name of the executor which was invoked.
+     * @param result The value the executor returned. Can be null.
+     * @param nanos The duration of the executor invokation in nanoseconds.
+     */
+    public void afterExecutor(Function<?> function, String executorName, Object result, long nanos);
+
+    /**
+     * Called after the {@link FunctionExecutor} with the given name threw an exception or an error.
+     * That includes signals like {@link StopExecutionException} and {@link ReturnNextException}.
+     * 
+     * @param function The function which invoked the executor.
+     * @param executorName The name of the executor which threw the exception.
+     * @param exception The exception or error the executor threw.
+     * @param nanos The duration of the executor invokation in nanoseconds.
+     */
+    public void executorFailed(Function<?> function, String executorName, Throwable exception, long nanos);
+
+}
@@ -0,0 +1,40 @@
+/*
+ * This file is part of Classmod.
+ * Copyright (c) 2014 QuarterCode <http://www.quartercode.com/>
+ *
+ * Classmod is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Classmod is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Classmod. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.classmod.extra;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * {@link FunctionExecutor}s which have this annotation can be invoked in parallel with the other parallel executors which have the same priority (see {@link Prioritized}).
+ * Such a priority group acts as a barrier: executors with a lower priority are only invoked after all executors of the group are done.
+ * The return values are still collected in invokation order, and signals like {@link StopExecutionException} are handled after the whole group is done.
+ * Since the order inside of a priority group is undefined anyway, only independent executors which don't rely on each other should be parallel.
+ * Functions which override the selection of the executable executors invoke parallel executors one after another.
+ * 
+ * @see FunctionExecutor
+ * @see Prioritized
+ */
+@Target (ElementType.METHOD)
+@Retention (RetentionPolicy.RUNTIME)
+public @interface Parallel {
+
+}
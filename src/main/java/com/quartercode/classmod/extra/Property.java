@@ -19,6 +19,7 @@
 package com.quartercode.classmod.extra;
 
 import com.quartercode.classmod.base.Feature;
+import com.quartercode.classmod.base.VersionedFeatureHolder;
 
 /**
  * A property is a simple {@link Feature} which stores an object.
@@ -36,6 +37,7 @@ public interface Property<T> extends Feature, Iterable<T> {
 
     /**
      * Changes the object which is stored inside the property.
+     * If the holder of the property is a {@link VersionedFeatureHolder}, the change must be reported to it.
      * 
      * @param value The new stored object.
      */
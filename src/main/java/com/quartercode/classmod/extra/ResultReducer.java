@@ -0,0 +1,42 @@
+/*
+ * This file is part of Classmod.
+ * Copyright (c) 2014 QuarterCode <http://www.quartercode.com/>
+ *
+ * Classmod is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Classmod is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Classmod. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.classmod.extra;
+
+/**
+ * A result reducer folds the return values of the {@link FunctionExecutor}s which are invoked by a {@link Function} into one accumulated value.
+ * That allows to process the return values without materializing them in a {@link java.util.List} (see {@link Function#invokeReduce(ResultReducer, Object, Object...)}).
+ * Reducers are called in invokation order, so the return value of the {@link FunctionExecutor} with the highest priority is reduced first.
+ * 
+ * @param <R> The type of the return values the result reducer accepts.
+ * @param <A> The type of the accumulated value.
+ * @see Function
+ */
+public interface ResultReducer<R, A> {
+
+    /**
+     * Combines the given accumulated value with the given return value of a {@link FunctionExecutor}.
+     * The returned value is used as accumulated value for the next return value.
+     * 
+     * @param accumulator The value which was accumulated so far. For the first return value, this is the identity value of the invokation.
+     * @param result The return value of the {@link FunctionExecutor} which was just invoked. Can be null.
+     * @return The new accumulated value.
+     */
+    public A reduce(A accumulator, R result);
+
+}
@@ -22,12 +22,21 @@ package com.quartercode.classmod.extra;
  * The return next exception is thrown if a {@link FunctionExecutor} wants the next invoked executor define the return value of the {@link Function}.
  * By default, the algorithm uses the return value of the {@link FunctionExecutor} with the highest priority as return value for the {@link Function}.
  * If the {@link FunctionExecutor} which should define the return value throws this exception, the {@link FunctionExecutor} with the second highest priority will be used.
+ * Since the exception is a pure control flow signal, it doesn't record a stack trace. Executors can throw the shared {@link #INSTANCE} instead of creating a new object.
+ * The shared instance must not be passed to {@link Throwable#addSuppressed(Throwable)} (for example by a try-with-resources statement), since suppressed exceptions would pile up on it.
  * 
  * @see FunctionExecutor
  */
 public class ReturnNextException extends ExecutorInvokationException {
 
-    private static final long serialVersionUID = 9095191065451797814L;
+    private static final long               serialVersionUID = 9095191065451797814L;
+
+    /**
+     * A shared return next exception signal which can be thrown by every {@link FunctionExecutor}.
+     * That way, signalling doesn't construct a new exception object.
+     * Its cause is fixed to null and its stack trace can't be changed, so it can't be modified for the whole runtime.
+     */
+    public static final ReturnNextException INSTANCE         = new ReturnNextException(null, null);
 
     /**
      * Creates a new return next exception signal.
@@ -37,4 +46,36 @@ public class ReturnNextException extends ExecutorInvokationException {
         super();
     }
 
+    /*
+     * Passing the null cause explicitly prevents initCause() calls on the shared instance.
+     */
+    private ReturnNextException(String message, Throwable cause) {
+
+        super(message, cause);
+    }
+
+    /**
+     * Doesn't fill in the stack trace because it is never used for such a signal, but filling it in is really expensive.
+     * 
+     * @return This return next exception.
+     */
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+
+        return this;
+    }
+
+    /**
+     * Sets the stack trace of this return next exception, unless it is the shared {@link #INSTANCE}.
+     * 
+     * @param stackTrace The new stack trace.
+     */
+    @Override
+    public void setStackTrace(StackTraceElement[] stackTrace) {
+
+        if (this != INSTANCE) {
+            super.setStackTrace(stackTrace);
+        }
+    }
+
 }
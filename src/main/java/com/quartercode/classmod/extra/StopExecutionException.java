@@ -22,12 +22,22 @@ package com.quartercode.classmod.extra;
  * The stop execution exception is thrown if a {@link FunctionExecutor} wants to quit the invokation queue.
  * The algorithm checks the {@link FunctionExecutor} with the highest priority first and then goes down.
  * If any {@link FunctionExecutor} in the line denies the execution of other {@link FunctionExecutor}s, the algorithm stops.
+ * Since the exception is a control flow signal, it doesn't record a stack trace; a wrapped cause still has its own one.
+ * Executors can throw the shared {@link #INSTANCE} if they don't need to provide a message or a cause.
+ * The shared instance must not be passed to {@link Throwable#addSuppressed(Throwable)} (for example by a try-with-resources statement), since suppressed exceptions would pile up on it.
  * 
  * @see FunctionExecutor
  */
 public class StopExecutionException extends ExecutorInvokationException {
 
-    private static final long serialVersionUID = -5169233409509164509L;
+    private static final long                  serialVersionUID = -5169233409509164509L;
+
+    /**
+     * A shared stop execution exception signal without a cause which can be thrown by every {@link FunctionExecutor}.
+     * That way, signalling doesn't construct a new exception object.
+     * Its cause is fixed to null and its stack trace can't be changed, so it can't be modified for the whole runtime.
+     */
+    public static final StopExecutionException INSTANCE         = new StopExecutionException("Execution stopped", null);
 
     /**
      * Creates a new stop execution exception signal with the given message why the execution should stop.
@@ -60,4 +70,28 @@ public class StopExecutionException extends ExecutorInvokationException {
         super(message, cause);
     }
 
+    /**
+     * Doesn't fill in the stack trace because it is never used for such a signal, but filling it in is really expensive.
+     * 
+     * @return This stop execution exception.
+     */
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+
+        return this;
+    }
+
+    /**
+     * Sets the stack trace of this stop execution exception, unless it is the shared {@link #INSTANCE}.
+     * 
+     * @param stackTrace The new stack trace.
+     */
+    @Override
+    public void setStackTrace(StackTraceElement[] stackTrace) {
+
+        if (this != INSTANCE) {
+            super.setStackTrace(stackTrace);
+        }
+    }
+
 }
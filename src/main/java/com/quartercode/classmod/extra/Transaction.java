@@ -0,0 +1,121 @@
+/*
+ * This file is part of Classmod.
+ * Copyright (c) 2014 QuarterCode <http://www.quartercode.com/>
+ *
+ * Classmod is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Classmod is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Classmod. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.classmod.extra;
+
+import java.util.Collection;
+import com.quartercode.classmod.base.FeatureDefinition;
+import com.quartercode.classmod.base.FeatureHolder;
+import com.quartercode.classmod.base.VersionedFeatureHolder;
+
+/**
+ * A transaction buffers changes of {@link Property}s, {@link Collection} {@link Property}s and {@link ChildFeatureHolder} parents which can span several {@link FeatureHolder}s.
+ * The buffered changes are applied together by {@link #commit()}.
+ * The commit only succeeds if none of the {@link VersionedFeatureHolder}s the transaction read from was modified in the meantime.
+ * Transactions don't use global locks, so transactions which work on different {@link FeatureHolder}s can be committed in parallel.
+ * Since a transaction might fail, the code which uses it should be wrapped in a {@link Work} object which can be retried.
+ * 
+ * @see Property
+ * @see VersionedFeatureHolder
+ * @see Work
+ */
+public interface Transaction {
+
+    /**
+     * Returns the object which is stored inside the {@link Property} that is defined by the given definition on the given {@link FeatureHolder}.
+     * If the transaction already changed the {@link Property} through {@link #set(FeatureHolder, FeatureDefinition, Object)}, the new buffered object is returned.
+     * Buffered {@link #add(FeatureHolder, FeatureDefinition, Object)} and {@link #remove(FeatureHolder, FeatureDefinition, Object)} operations aren't reflected,
+     * so the {@link Collection} of a {@link Collection} {@link Property} is returned in its committed state.
+     * 
+     * @param holder The {@link FeatureHolder} which holds the {@link Property} to read.
+     * @param propertyDefinition The {@link FeatureDefinition} of the {@link Property} to read.
+     * @return The object which is stored inside the {@link Property}.
+     * @throws TransactionConflictException The {@link FeatureHolder} was modified since the transaction read from it for the first time.
+     */
+    public <T> T get(FeatureHolder holder, FeatureDefinition<? extends Property<T>> propertyDefinition);
+
+    /**
+     * Buffers a change of the object which is stored inside the {@link Property} that is defined by the given definition on the given {@link FeatureHolder}.
+     * 
+     * @param holder The {@link FeatureHolder} which holds the {@link Property} to change.
+     * @param propertyDefinition The {@link FeatureDefinition} of the {@link Property} to change.
+     * @param value The new stored object.
+     */
+    public <T> void set(FeatureHolder holder, FeatureDefinition<? extends Property<T>> propertyDefinition, T value);
+
+    /**
+     * Buffers the addition of the given element to the {@link Collection} {@link Property} that is defined by the given definition on the given {@link FeatureHolder}.
+     * If the element is a {@link ChildFeatureHolder}, its parent is set to the given {@link FeatureHolder} when the element is added.
+     * 
+     * @param holder The {@link FeatureHolder} which holds the {@link Collection} {@link Property}.
+     * @param propertyDefinition The {@link FeatureDefinition} of the {@link Collection} {@link Property} to change.
+     * @param element The element to add.
+     */
+    public <E> void add(FeatureHolder holder, FeatureDefinition<? extends Property<? extends Collection<E>>> propertyDefinition, E element);
+
+    /**
+     * Buffers the removal of the given element from the {@link Collection} {@link Property} that is defined by the given definition on the given {@link FeatureHolder}.
+     * If the element is a {@link ChildFeatureHolder}, its parent is set to null when the element is removed.
+     * 
+     * @param holder The {@link FeatureHolder} which holds the {@link Collection} {@link Property}.
+     * @param propertyDefinition The {@link FeatureDefinition} of the {@link Collection} {@link Property} to change.
+     * @param element The element to remove.
+     */
+    public <E> void remove(FeatureHolder holder, FeatureDefinition<? extends Property<? extends Collection<E>>> propertyDefinition, Object element);
+
+    /**
+     * Buffers a change of the parent of the given {@link ChildFeatureHolder}.
+     * 
+     * @param child The {@link ChildFeatureHolder} whose parent should change.
+     * @param parent The new parent {@link FeatureHolder}.
+     */
+    public <P extends FeatureHolder> void setParent(ChildFeatureHolder<P> child, P parent);
+
+    /**
+     * Validates that none of the {@link VersionedFeatureHolder}s the transaction read from was modified in the meantime and applies all buffered changes.
+     * If the validation fails, no change is applied.
+     * If one of the changes throws an exception, the changes which were already applied are undone before the exception is rethrown.
+     * After the call, the transaction can't be used any more, even if the commit failed.
+     * 
+     * @return True if all buffered changes were applied, false if there was a conflict.
+     */
+    public boolean commit();
+
+    /**
+     * A work object contains code which reads and changes {@link Property}s through a {@link Transaction}.
+     * Since a transaction might fail because of conflicts, the work might be executed several times with new transactions.
+     * Therefore, it should only change state through the given transaction.
+     * 
+     * @param <T> The type of result the work returns.
+     * @see Transaction
+     */
+    public static interface Work<T> {
+
+        /**
+         * Executes the work with the given {@link Transaction}.
+         * The transaction is committed after this method returned.
+         * 
+         * @param transaction The transaction which should be used for all reads and changes.
+         * @return The result of the work.
+         * @throws ExecutorInvokationException Something goes wrong during the execution.
+         */
+        public T execute(Transaction transaction) throws ExecutorInvokationException;
+
+    }
+
+}
@@ -0,0 +1,41 @@
+/*
+ * This file is part of Classmod.
+ * Copyright (c) 2014 QuarterCode <http://www.quartercode.com/>
+ *
+ * Classmod is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Classmod is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Classmod. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.classmod.extra;
+
+/**
+ * The transaction conflict exception is thrown if a {@link Transaction} detects that a {@link Property} it read was changed by someone else.
+ * The values the transaction read before don't form a consistent state any more, so the transaction can't continue and must be retried.
+ * 
+ * @see Transaction
+ */
+public class TransactionConflictException extends RuntimeException {
+
+    private static final long serialVersionUID = 3650727612047346082L;
+
+    /**
+     * Creates a new transaction conflict exception with the given message which describes the conflict.
+     * 
+     * @param message The message which describes the conflict.
+     */
+    public TransactionConflictException(String message) {
+
+        super(message);
+    }
+
+}
@@ -19,41 +19,68 @@
 package com.quartercode.classmod.extra.def;
 
 import java.lang.annotation.Annotation;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Set;
-import java.util.SortedMap;
-import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.apache.commons.lang.Validate;
 import com.quartercode.classmod.base.FeatureHolder;
 import com.quartercode.classmod.base.def.AbstractFeature;
+import com.quartercode.classmod.extra.AsyncFunctionExecutor;
+import com.quartercode.classmod.extra.Blocking;
+import com.quartercode.classmod.extra.Budget;
 import com.quartercode.classmod.extra.Delay;
 import com.quartercode.classmod.extra.ExecutorInvokationException;
+import com.quartercode.classmod.extra.FixedArityFunctionExecutor;
 import com.quartercode.classmod.extra.Function;
 import com.quartercode.classmod.extra.FunctionDefinition;
 import com.quartercode.classmod.extra.FunctionExecutionException;
 import com.quartercode.classmod.extra.FunctionExecutor;
+import com.quartercode.classmod.extra.FunctionFuture;
+import com.quartercode.classmod.extra.FunctionFuture.Callback;
 import com.quartercode.classmod.extra.Limit;
-import com.quartercode.classmod.extra.Lockable;
 import com.quartercode.classmod.extra.LockableClass;
-import com.quartercode.classmod.extra.Prioritized;
+import com.quartercode.classmod.extra.Parallel;
+import com.quartercode.classmod.extra.ResultReducer;
 import com.quartercode.classmod.extra.ReturnNextException;
 import com.quartercode.classmod.extra.StopExecutionException;
+import com.quartercode.classmod.extra.def.ExecutorTable.LockState;
+import com.quartercode.classmod.extra.def.InvokationProbe.ExecutorCall;
+import com.quartercode.classmod.util.BlockingExecutor;
+import com.quartercode.classmod.util.ResultReducerFactory;
+import com.quartercode.classmod.util.StripedCounter;
 
 /**
  * An abstract function makes a method (also called a function) avaiable.
  * Functions are executed by different {@link FunctionExecutor}s. That makes the function concept flexible.
  * The function object itself stores a set of those {@link FunctionExecutor}s.
+ * The immutable executor data can be shared between many functions, while the function only stores the mutable state of its executors.
+ * That state is only allocated if it's used; for example, the invokation counters of single executors are only tracked for executors with a {@link Limit}.
+ * Asynchronous invokations and {@link Parallel} executors run on the executor which is returned by {@link #getAsyncExecutor()}.
+ * {@link Blocking} executors are moved to the executor returned by {@link #getBlockingExecutor()} in those cases.
+ * While the {@link FunctionMetrics} are enabled or a flight recording is running, the invokations of the function and its executors are measured.
+ * The executor invokations are also reported to the global {@link InvokationListeners} and the ones set through {@link #setInvokationListeners(InvokationListeners)}.
+ * While the {@link Watchdog} is enabled, executors which exceed their budget are reported.
  * 
  * @param <R> The type of the return value of the used {@link FunctionExecutor}s. The function returns a {@link List} with these values.
  * @see FunctionExecutor
@@ -62,48 +89,229 @@ import com.quartercode.classmod.extra.StopExecutionException;
  */
 public class AbstractFunction<R> extends AbstractFeature implements Function<R> {
 
-    private static final Logger                            LOGGER = Logger.getLogger(AbstractFunction.class.getName());
+    private static final Logger                                                   LOGGER                      = Logger.getLogger(AbstractFunction.class.getName());
 
-    private final List<Class<?>>                           parameters;
-    private final Set<DefaultFunctionExecutorContainer<R>> executors;
-    private boolean                                        locked;
-    private int                                            invokationCounter;
+    private static final ConcurrentMap<Class<?>, Boolean>                         CUSTOM_EXECUTABLE_EXECUTORS = new ConcurrentHashMap<Class<?>, Boolean>();
+
+    @SuppressWarnings ("rawtypes")
+    private static final AtomicIntegerFieldUpdater<AbstractFunction>              INVOKATION_COUNTER          = AtomicIntegerFieldUpdater.newUpdater(AbstractFunction.class, "invokationCounter");
+    @SuppressWarnings ("rawtypes")
+    private static final AtomicReferenceFieldUpdater<AbstractFunction, LockState> LOCK_STATE                  = AtomicReferenceFieldUpdater.newUpdater(AbstractFunction.class, LockState.class, "lockState");
+
+    /*
+     * The argument count which indicates that the arguments are passed as an array.
+     */
+    static final int                                                              VARARGS                     = -1;
+    private static final Object[]                                                 NO_ARGUMENTS                = new Object[0];
+
+    /*
+     * The accumulator of the FIRST_RESULT reducer stays NO_RESULT as long as no executor returned anything.
+     */
+    private static final Object                                                   NO_RESULT                   = new Object();
+    private static final ResultReducer<Object, Object>                            FIRST_RESULT                = new FirstResultReducer();
+    private static final ResultReducer<Object, List<Object>>                      COLLECT_RESULTS             = ResultReducerFactory.createCollect();
+
+    /*
+     * Marks the executors of a parallel group which weren't invoked because of their limit or delay settings.
+     */
+    private static final Object                                                   NOT_INVOKED                 = new Object();
+
+    private final List<Class<?>>                                                  parameters;
+    private final ArgumentValidator                                               validator;
+    private boolean                                                               trusted;
+    private volatile Executor                                                     asyncExecutor;
+    private volatile Executor                                                     blockingExecutor;
+    private volatile InvokationListeners                                          invokationListeners;
+    private volatile long                                                         watchdogBudget;
+    private final ExecutorTable<R>                                                executors;
+    private final boolean                                                         customExecutableExecutors;
+    private volatile int                                                          invokationCounter;
+
+    /*
+     * The lock flags of the function and its executors are published as immutable snapshots which are swapped atomically.
+     * The per-executor state is indexed like the shared executor table and only allocated when it's needed.
+     * The invokation counters are atomic because they are used to reserve invokations of limited executors.
+     * The changed annotation values are copied on write.
+     */
+    private volatile LockState                                                    lockState;
+    private volatile AtomicIntegerArray                                           executorInvokationCounters;
+    private volatile Map<Class<? extends Annotation>, Map<String, Object>>[]      changedValues;
 
     /**
      * Creates a new abstract function with the given name, parent {@link FeatureHolder}, parameters and {@link FunctionExecutor}s.
+     * If the executor map was resolved by an {@link AbstractFunctionDefinition}, the immutable executor data is shared with all other functions which use the same map.
      * 
      * @param name The name of the abstract function.
      * @param holder The {@link FeatureHolder} which has and uses the new abstract function.
      * @param parameters The argument types an {@link #invoke(Object...)} call must have (see {@link FunctionDefinition#setParameter(int, Class)} for further explanation).
      * @param executors The {@link FunctionExecutor}s which will be executing the function calls for this particular function.
      */
+    @SuppressWarnings ("unchecked")
     public AbstractFunction(String name, FeatureHolder holder, List<Class<?>> parameters, Map<String, FunctionExecutor<R>> executors) {
 
         super(name, holder);
 
-        for (Class<?> parameter : parameters) {
-            Validate.isTrue(parameter != null, "Null parameters are not allowed");
-        }
+        validator = ArgumentValidator.get(parameters);
         this.parameters = parameters;
 
-        this.executors = new HashSet<DefaultFunctionExecutorContainer<R>>();
-        for (Entry<String, FunctionExecutor<R>> executor : executors.entrySet()) {
-            this.executors.add(new DefaultFunctionExecutorContainer<R>(executor.getKey(), executor.getValue()));
-        }
+        this.executors = executors instanceof ExecutorTable ? (ExecutorTable<R>) executors : new ExecutorTable<R>(executors);
+
+        customExecutableExecutors = overridesExecutableExecutors(getClass());
 
         setLocked(true);
     }
 
+    /*
+     * Checks whether the given function class overrides getExecutableExecutors(); such classes can't use the cached invokation plan.
+     */
+    private static boolean overridesExecutableExecutors(Class<?> type) {
+
+        Boolean overrides = CUSTOM_EXECUTABLE_EXECUTORS.get(type);
+        if (overrides == null) {
+            overrides = false;
+            for (Class<?> current = type; current != AbstractFunction.class; current = current.getSuperclass()) {
+                try {
+                    current.getDeclaredMethod("getExecutableExecutors");
+                    overrides = true;
+                    break;
+                }
+                catch (NoSuchMethodException e) {
+                    // Continue with the superclass
+                }
+            }
+            CUSTOM_EXECUTABLE_EXECUTORS.put(type, overrides);
+        }
+
+        return overrides;
+    }
+
     @Override
     public boolean isLocked() {
 
-        return locked;
+        return lockState.functionLocked;
     }
 
     @Override
     public void setLocked(boolean locked) {
 
-        this.locked = locked;
+        while (true) {
+            LockState oldState = lockState;
+            LockState newState = executors.getLockState(locked, oldState == null ? null : oldState.lockedExecutors);
+            if (LOCK_STATE.compareAndSet(this, oldState, newState)) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Returns whether the function is trusted.
+     * The arguments of trusted functions are not validated against the parameters.
+     * 
+     * @return True if the function skips the argument validation, false if not.
+     */
+    public boolean isTrusted() {
+
+        return trusted;
+    }
+
+    /**
+     * Changes whether the function is trusted.
+     * The arguments of trusted functions are not validated against the parameters.
+     * Only mark a function as trusted if all callers are known to pass correct arguments.
+     * 
+     * @param trusted True if the function should skip the argument validation, false if not.
+     */
+    public void setTrusted(boolean trusted) {
+
+        this.trusted = trusted;
+    }
+
+    /**
+     * Returns the {@link Executor} which runs the asynchronous invokations of the function (see {@link #invokeAsync(Object...)}) and the {@link Parallel} executors.
+     * If no executor was set, a shared pool with one thread per processor is used.
+     * 
+     * @return The executor which runs asynchronous invokations.
+     */
+    public Executor getAsyncExecutor() {
+
+        Executor asyncExecutor = this.asyncExecutor;
+        return asyncExecutor != null ? asyncExecutor : DefaultAsyncExecutor.INSTANCE;
+    }
+
+    /**
+     * Changes the {@link Executor} which runs the asynchronous invokations of the function (see {@link #invokeAsync(Object...)}) and the {@link Parallel} executors.
+     * 
+     * @param asyncExecutor The executor which should run asynchronous invokations. Null restores the shared default pool.
+     */
+    public void setAsyncExecutor(Executor asyncExecutor) {
+
+        this.asyncExecutor = asyncExecutor;
+    }
+
+    /**
+     * Returns the {@link Executor} which runs the {@link Blocking} executors during asynchronous invokations and inside of {@link Parallel} groups.
+     * If no executor was set, a shared {@link BlockingExecutor} is used. It runs each executor on a virtual thread if the runtime supports them.
+     * 
+     * @return The executor which runs blocking executors.
+     */
+    public Executor getBlockingExecutor() {
+
+        Executor blockingExecutor = this.blockingExecutor;
+        return blockingExecutor != null ? blockingExecutor : DefaultBlockingExecutor.INSTANCE;
+    }
+
+    /**
+     * Changes the {@link Executor} which runs the {@link Blocking} executors during asynchronous invokations and inside of {@link Parallel} groups.
+     * A {@link BlockingExecutor} with a custom concurrency cap can be used to limit the amount of executors which block at the same time.
+     * 
+     * @param blockingExecutor The executor which should run blocking executors. Null restores the shared default executor.
+     */
+    public void setBlockingExecutor(Executor blockingExecutor) {
+
+        this.blockingExecutor = blockingExecutor;
+    }
+
+    /**
+     * Returns the {@link InvokationListeners} which observe the invokations of this function in addition to the global ones.
+     * Functions which were created by an {@link AbstractFunctionDefinition} share the listeners of their definition.
+     * 
+     * @return The invokation listeners of the function, or null if only the global listeners are used.
+     */
+    public InvokationListeners getInvokationListeners() {
+
+        return invokationListeners;
+    }
+
+    /**
+     * Changes the {@link InvokationListeners} which observe the invokations of this function in addition to the global ones.
+     * 
+     * @param invokationListeners The new invokation listeners of the function. Null only uses the global listeners.
+     */
+    public void setInvokationListeners(InvokationListeners invokationListeners) {
+
+        this.invokationListeners = invokationListeners;
+    }
+
+    /**
+     * Returns the budget in milliseconds of the executors of the function which have no {@link Budget} annotation.
+     * The budget is only checked while the {@link Watchdog} is enabled.
+     * 
+     * @return The watchdog budget of the function in milliseconds, or 0 if the default budget of the watchdog is used.
+     */
+    public long getWatchdogBudget() {
+
+        return watchdogBudget;
+    }
+
+    /**
+     * Changes the budget in milliseconds of the executors of the function which have no {@link Budget} annotation.
+     * 
+     * @param watchdogBudget The new watchdog budget of the function in milliseconds. 0 uses the default budget of the watchdog.
+     */
+    public void setWatchdogBudget(long watchdogBudget) {
+
+        Validate.isTrue(watchdogBudget >= 0, "Watchdog budget can't be negative");
+        this.watchdogBudget = watchdogBudget;
     }
 
     /**
@@ -122,275 +330,1310 @@ public class AbstractFunction<R> extends AbstractFeature implements Function<R>
         return Collections.unmodifiableList(parameters);
     }
 
+    /**
+     * Returns all {@link FunctionExecutor}s of the function, wrapped in {@link FunctionExecutorContainer}s.
+     * The returned containers are views on the state the function stores for its executors.
+     * 
+     * @return The {@link FunctionExecutor}s of the function.
+     */
     @Override
     public Set<FunctionExecutorContainer<R>> getExecutors() {
 
-        return Collections.unmodifiableSet(new HashSet<FunctionExecutorContainer<R>>(this.executors));
+        Set<FunctionExecutorContainer<R>> containers = new HashSet<FunctionExecutorContainer<R>>();
+        for (int index = 0; index < executors.names.length; index++) {
+            containers.add(new ExecutorContainerView(index));
+        }
+
+        return Collections.unmodifiableSet(containers);
     }
 
     @Override
     public FunctionExecutorContainer<R> getExecutor(String name) {
 
-        for (FunctionExecutorContainer<R> executor : executors) {
-            if (executor.getName().equals(name)) {
-                return executor;
-            }
-        }
-
-        return null;
+        int index = executors.indexOf(name);
+        return index < 0 ? null : new ExecutorContainerView(index);
     }
 
     /**
      * Collects the {@link FunctionExecutor}s which can be invoked through {@link #invoke(Object...)} or {@link #invokeRA(Object...)}.
      * This can be overriden to modify which {@link FunctionExecutor}s should be invoked.
+     * Note that overriding this method disables the cached invokation plan, so every invokation needs to collect and sort the executors again.
      * 
      * @return The {@link FunctionExecutor}s which can be invoked.
      */
     protected Set<FunctionExecutorContainer<R>> getExecutableExecutors() {
 
-        Set<DefaultFunctionExecutorContainer<R>> executors = new HashSet<DefaultFunctionExecutorContainer<R>>(this.executors);
+        Set<FunctionExecutorContainer<R>> executors = new HashSet<FunctionExecutorContainer<R>>();
 
-        for (DefaultFunctionExecutorContainer<R> executor : new HashSet<DefaultFunctionExecutorContainer<R>>(executors)) {
-            // Lockable
-            try {
-                Method invokeMethod = executor.getExecutor().getClass().getMethod("invoke", FeatureHolder.class, Object[].class);
-                if (executor.isLocked() || locked && invokeMethod.isAnnotationPresent(Lockable.class)) {
-                    executors.remove(executor);
-                }
-            }
-            catch (NoSuchMethodException e) {
-                LOGGER.log(Level.SEVERE, "Programmer's fault: Can't find invoke() method (should be defined by interface)", e);
+        int invokation = invokationCounter - 1;
+        for (int index : lockState.plan) {
+            if (isInvokable(index, invokation)) {
+                executors.add(new ExecutorContainerView(index));
             }
+        }
 
-            // Limit
-            if (executor.getValue(Limit.class, "value") != null && executor.getInvokationCounter() + 1 > (Integer) executor.getValue(Limit.class, "value")) {
-                executors.remove(executor);
-                continue;
-            }
+        return executors;
+    }
 
-            // Delay
-            int invokation = invokationCounter - 1;
-            int firstDelay = (Integer) executor.getValue(Delay.class, "firstDelay");
-            int delay = (Integer) executor.getValue(Delay.class, "delay");
-            if (invokation < firstDelay) {
-                executors.remove(executor);
-                continue;
-            } else if (delay > 0 && (invokation - firstDelay) % (delay + 1) != 0) {
-                executors.remove(executor);
-                continue;
-            }
+    /*
+     * Checks the limit and delay settings of the executor at the given index which depend on the invokation counters and therefore can't be part of the cached plan.
+     * This doesn't reserve an invokation of limited executors, see reserveInvokation() for that.
+     */
+    private boolean isInvokable(int index, int invokation) {
+
+        Integer limit = getLimit(index);
+        if (limit != null && getExecutorInvokationCounter(index) + 1 > limit) {
+            return false;
         }
 
-        return new HashSet<FunctionExecutorContainer<R>>(executors);
+        return isScheduled(index, invokation);
     }
 
-    @Override
-    public R invoke(Object... arguments) throws FunctionExecutionException {
-
-        List<R> returnValues = invokeRA(arguments);
-        if (returnValues.size() > 0) {
-            return returnValues.get(0);
-        } else {
-            return null;
+    /*
+     * Checks the delay settings of the executor at the given index for the invokation with the given number.
+     */
+    private boolean isScheduled(int index, int invokation) {
+
+        int firstDelay = changedValues == null ? executors.descriptors[index].getFirstDelay() : (Integer) getValue(index, Delay.class, "firstDelay");
+        int delay = changedValues == null ? executors.descriptors[index].getDelay() : (Integer) getValue(index, Delay.class, "delay");
+        if (invokation < firstDelay) {
+            return false;
+        } else if (delay > 0 && (invokation - firstDelay) % (delay + 1) != 0) {
+            return false;
         }
+
+        return true;
     }
 
-    @Override
-    public List<R> invokeRA(Object... arguments) throws FunctionExecutionException {
+    /*
+     * Fast accessor for the limit of the executor at the given index.
+     * It only falls back to the map lookup if values were changed through setValue().
+     */
+    private Integer getLimit(int index) {
 
-        invokationCounter++;
+        return changedValues == null ? executors.descriptors[index].getLimit() : (Integer) getValue(index, Limit.class, "value");
+    }
 
-        // Argument validation
-        try {
-            String errorString = "";
-            for (Class<?> parameter : parameters) {
-                errorString += ", " + parameter.getSimpleName();
-            }
-            errorString = "Wrong arguments: '" + (errorString.isEmpty() ? "" : errorString.substring(2)) + "' required";
+    /*
+     * Claims one invokation of the executor at the given index if it's limited.
+     * The check and the increment of the invokation counter are one atomic step, so concurrent invokations can't exceed the limit.
+     * Returns false if the limit is already reached.
+     */
+    private boolean reserveInvokation(int index) {
 
-            for (int index = 0; index < parameters.size(); index++) {
-                if (!parameters.get(index).isAssignableFrom(arguments[index].getClass())) {
-                    if (parameters.get(index).isArray()) {
-                        for (int varargIndex = index; varargIndex < arguments.length; varargIndex++) {
-                            Validate.isTrue(parameters.get(index).getComponentType().isAssignableFrom(arguments[varargIndex].getClass()), errorString);
-                        }
-                    } else {
-                        throw new IllegalArgumentException(errorString);
-                    }
-                }
+        Integer limit = getLimit(index);
+        if (limit == null) {
+            return true;
+        }
+
+        AtomicIntegerArray counters = getExecutorInvokationCounters();
+        while (true) {
+            int counter = counters.get(index);
+            if (counter + 1 > limit) {
+                return false;
+            } else if (counters.compareAndSet(index, counter, counter + 1)) {
+                return true;
             }
         }
-        catch (IllegalArgumentException e) {
-            throw new FunctionExecutionException(e);
+    }
+
+    /*
+     * Counts an invokation of the executor at the given index which didn't reserve its invokation before.
+     * Like the reservation, this only counts invokations of limited executors.
+     */
+    private void countInvokation(int index) {
+
+        if (getLimit(index) != null) {
+            getExecutorInvokationCounters().incrementAndGet(index);
         }
+    }
 
-        // Check if there are any executable executors
-        Set<FunctionExecutorContainer<R>> executors = getExecutableExecutors();
-        if (executors.isEmpty()) {
-            // Would not do anything -> Don't run unnecessary stuff
-            return new ArrayList<R>();
+    private int getExecutorInvokationCounter(int index) {
+
+        AtomicIntegerArray counters = executorInvokationCounters;
+        return counters == null ? 0 : counters.get(index);
+    }
+
+    private AtomicIntegerArray getExecutorInvokationCounters() {
+
+        AtomicIntegerArray counters = executorInvokationCounters;
+        if (counters == null) {
+            synchronized (this) {
+                counters = executorInvokationCounters;
+                if (counters == null) {
+                    counters = new AtomicIntegerArray(executors.names.length);
+                    executorInvokationCounters = counters;
+                }
+            }
         }
 
-        // Sort the executors by priority
-        SortedMap<Integer, Set<FunctionExecutorContainer<R>>> sortedExecutors = new TreeMap<Integer, Set<FunctionExecutorContainer<R>>>(new Comparator<Integer>() {
+        return counters;
+    }
 
-            @Override
-            public int compare(Integer o1, Integer o2) {
+    private Object getValue(int index, Class<? extends Annotation> type, String name) {
 
-                return o2 - o1;
+        Map<Class<? extends Annotation>, Map<String, Object>>[] changedValues = this.changedValues;
+        if (changedValues != null && changedValues[index] != null) {
+            Map<String, Object> values = changedValues[index].get(type);
+            if (values != null && values.containsKey(name)) {
+                return values.get(name);
             }
+        }
 
-        });
-        for (FunctionExecutorContainer<R> executor : executors) {
-            int priority = Prioritized.DEFAULT;
+        return executors.descriptors[index].getValue(type, name);
+    }
 
-            // Read custom priorities
-            try {
-                Method invokeMethod = executor.getExecutor().getClass().getMethod("invoke", FeatureHolder.class, Object[].class);
-                if (invokeMethod.isAnnotationPresent(Prioritized.class)) {
-                    priority = invokeMethod.getAnnotation(Prioritized.class).value();
-                }
+    @SuppressWarnings ("unchecked")
+    private synchronized void setValue(int index, Class<? extends Annotation> type, String name, Object value) {
+
+        try {
+            type.getMethod(name);
+
+            // Copy everything which is changed, so readers never see a partially changed map
+            // Generic arrays can't be created directly; the new array only stores maps of the declared type
+            Map<Class<? extends Annotation>, Map<String, Object>>[] newChangedValues = changedValues == null ? (Map<Class<? extends Annotation>, Map<String, Object>>[]) new Map<?, ?>[executors.names.length] : changedValues.clone();
+            Map<Class<? extends Annotation>, Map<String, Object>> executorValues = newChangedValues[index] == null ? new HashMap<Class<? extends Annotation>, Map<String, Object>>() : new HashMap<Class<? extends Annotation>, Map<String, Object>>(newChangedValues[index]);
+            Map<String, Object> annotationValues = executorValues.containsKey(type) ? new HashMap<String, Object>(executorValues.get(type)) : new HashMap<String, Object>();
+            annotationValues.put(name, value);
+            executorValues.put(type, annotationValues);
+            newChangedValues[index] = executorValues;
+            changedValues = newChangedValues;
+        }
+        catch (NoSuchMethodException e) {
+            LOGGER.log(Level.WARNING, "Tried to access not existing annotation method for setting annotation value", e);
+        }
+    }
+
+    private void setExecutorLocked(int index, boolean locked) {
+
+        while (true) {
+            LockState oldState = lockState;
+            if (oldState.isExecutorLocked(index) == locked) {
+                return;
             }
-            catch (NoSuchMethodException e) {
-                LOGGER.log(Level.SEVERE, "Programmer's fault: Can't find invoke() method (should be defined by interface)", e);
+
+            boolean[] lockedExecutors = oldState.lockedExecutors == null ? new boolean[executors.names.length] : oldState.lockedExecutors.clone();
+            lockedExecutors[index] = locked;
+            if (!locked && !containsTrue(lockedExecutors)) {
+                // No executor is locked anymore -> Use one of the shared states
+                lockedExecutors = null;
             }
 
-            if (!sortedExecutors.containsKey(priority)) {
-                sortedExecutors.put(priority, new HashSet<FunctionExecutorContainer<R>>());
+            if (LOCK_STATE.compareAndSet(this, oldState, executors.getLockState(oldState.functionLocked, lockedExecutors))) {
+                return;
             }
-            sortedExecutors.get(priority).add(executor);
         }
+    }
 
-        // Invoke the executors
-        List<R> returnValues = new ArrayList<R>();
-        invokeExecutors:
-        for (Set<FunctionExecutorContainer<R>> priorityGroup : sortedExecutors.values()) {
-            for (FunctionExecutorContainer<R> executor : priorityGroup) {
-                try {
-                    returnValues.add(executor.invoke(getHolder(), arguments));
-                }
-                catch (Exception e) {
-                    if (e instanceof StopExecutionException || e instanceof FunctionExecutionException || e instanceof IllegalArgumentException) {
-                        if (priorityGroup.size() > 1) {
-                            String otherExecutors = "";
-                            for (FunctionExecutorContainer<R> otherExecutor : priorityGroup) {
-                                if (!otherExecutor.equals(executor)) {
-                                    otherExecutors += ", '" + otherExecutor.getExecutor().getClass().getName() + "'";
-                                }
-                            }
-                            otherExecutors = otherExecutors.substring(2);
-                            LOGGER.warning("Function executor '" + executor.getExecutor().getClass().getName() + "' stopped while having the same priority as the executors " + otherExecutors);
-                        }
+    private static boolean containsTrue(boolean[] array) {
 
-                        if (e.getCause() == null) {
-                            break invokeExecutors;
-                        } else {
-                            throw new FunctionExecutionException(e.getCause());
-                        }
-                    } else if (e instanceof ReturnNextException) {
-                        continue;
-                    } else {
-                        LOGGER.log(Level.SEVERE, "Function executor '" + executor.getExecutor().getClass().getName() + "' threw an unexpected exception", e);
-                    }
-                }
+        for (boolean element : array) {
+            if (element) {
+                return true;
             }
         }
 
-        return returnValues;
+        return false;
     }
 
-    @Override
-    public String toString() {
+    /*
+     * Invokes the executor at the given index like invokeExecutor() without a probe, but reports the invokation to the given probe if it isn't null.
+     */
+    private R invokeExecutor(InvokationProbe probe, int index, FeatureHolder holder, int argumentCount, Object argument1, Object argument2, Object argument3, Object[] arguments) throws ExecutorInvokationException {
+
+        if (probe == null) {
+            return invokeExecutor(index, holder, argumentCount, argument1, argument2, argument3, arguments);
+        }
 
-        return getClass().getName() + " [name=" + getName() + ", " + getExecutableExecutors().size() + "/" + getExecutors().size() + " executors, locked=" + locked + "]";
+        Object[] watchedArguments = arguments != null || !probe.isWatching() ? arguments : toArgumentArray(argumentCount, argument1, argument2, argument3);
+        ExecutorCall call = probe.startExecutor(executors.names[index], executors.descriptors[index].getBudget(), watchedArguments);
+        R result = null;
+        Throwable failure = null;
+        try {
+            result = invokeExecutor(index, holder, argumentCount, argument1, argument2, argument3, arguments);
+            return result;
+        }
+        catch (ExecutorInvokationException e) {
+            failure = e;
+            throw e;
+        }
+        catch (RuntimeException e) {
+            failure = e;
+            throw e;
+        }
+        catch (Error e) {
+            failure = e;
+            throw e;
+        }
+        finally {
+            probe.endExecutor(call, result, failure);
+        }
     }
 
-    /**
-     * The default implementation of the {@link FunctionExecutorContainer} for storing data values along with a {@link FunctionExecutor}.
-     * The data isn't stored in the actual {@link FunctionExecutor} object because it should only do the execution and nothing else.
-     * 
-     * @param <R> The type of the value the stored {@link FunctionExecutor} returns.
+    /*
+     * Invokes the given custom executor container and reports the invokation to the given probe if it isn't null.
      */
-    public static class DefaultFunctionExecutorContainer<R> implements FunctionExecutorContainer<R> {
-
-        private static final Logger       LOGGER            = Logger.getLogger(DefaultFunctionExecutorContainer.class.getName());
+    private R invokeContainer(InvokationProbe probe, FunctionExecutorContainer<R> container, Object[] arguments) throws ExecutorInvokationException {
 
-        private final String              name;
-        private final FunctionExecutor<R> executor;
-        private final Map<Method, Object> annotationValues  = new HashMap<Method, Object>();
-        private int                       invokationCounter = 0;
-        private boolean                   locked            = false;
+        if (probe == null) {
+            return container.invoke(getHolder(), arguments);
+        }
 
-        /**
-         * Creates a new default function executor container and fills in the {@link FunctionExecutor} to store and its name.
-         * 
-         * @param name The name of the {@link FunctionExecutor} to store.
-         * @param executor The {@link FunctionExecutor} which is stored by the container
-         */
-        public DefaultFunctionExecutorContainer(String name, FunctionExecutor<R> executor) {
+        ExecutorCall call = probe.startExecutor(container.getName(), getDescriptor(container).getBudget(), arguments);
+        R result = null;
+        Throwable failure = null;
+        try {
+            result = container.invoke(getHolder(), arguments);
+            return result;
+        }
+        catch (ExecutorInvokationException e) {
+            failure = e;
+            throw e;
+        }
+        catch (RuntimeException e) {
+            failure = e;
+            throw e;
+        }
+        catch (Error e) {
+            failure = e;
+            throw e;
+        }
+        finally {
+            probe.endExecutor(call, result, failure);
+        }
+    }
 
-            this.name = name;
-            this.executor = executor;
+    /*
+     * Invokes the executor at the given index in the given holder with either an argument array (argumentCount is VARARGS) or up to three single arguments.
+     * If the executor isn't a FixedArityFunctionExecutor, the argument array must always be provided.
+     * The invokation must already be counted or reserved by the caller, and the caller must have checked that the executor isn't locked.
+     */
+    private R invokeExecutor(int index, FeatureHolder holder, int argumentCount, Object argument1, Object argument2, Object argument3, Object[] arguments) throws ExecutorInvokationException {
+
+        FunctionExecutor<R> executor = executors.executors[index];
+        if (argumentCount != VARARGS && executor instanceof FixedArityFunctionExecutor) {
+            FixedArityFunctionExecutor<R> fixedArityExecutor = (FixedArityFunctionExecutor<R>) executor;
+            switch (argumentCount) {
+                case 0:
+                    return fixedArityExecutor.invoke0(holder);
+                case 1:
+                    return fixedArityExecutor.invoke1(holder, argument1);
+                case 2:
+                    return fixedArityExecutor.invoke2(holder, argument1, argument2);
+                default:
+                    return fixedArityExecutor.invoke3(holder, argument1, argument2, argument3);
+            }
         }
 
-        @Override
-        public String getName() {
+        return executor.invoke(holder, arguments);
+    }
 
-            return name;
-        }
+    @Override
+    public R invoke(Object... arguments) throws FunctionExecutionException {
 
-        @Override
-        public FunctionExecutor<R> getExecutor() {
+        return getFirst(invoke(FIRST_RESULT, NO_RESULT, VARARGS, null, null, null, arguments));
+    }
 
-            return executor;
-        }
+    @Override
+    public R invoke0() throws FunctionExecutionException {
 
-        @Override
-        public <A extends Annotation> Object getValue(Class<A> type, String name) {
+        return getFirst(invoke(FIRST_RESULT, NO_RESULT, 0, null, null, null, null));
+    }
 
-            try {
-                Method valueMethod = type.getMethod(name);
+    @Override
+    public R invoke1(Object argument) throws FunctionExecutionException {
 
-                if (!annotationValues.containsKey(valueMethod)) {
-                    // Fill in annotation value
-                    try {
-                        A annotation = executor.getClass().getMethod("invoke", FeatureHolder.class, Object[].class).getAnnotation(type);
-                        if (annotation != null) {
-                            Object value = valueMethod.invoke(annotation);
-                            annotationValues.put(valueMethod, value);
-                            return value;
-                        }
-                    }
-                    catch (NoSuchMethodException e) {
-                        LOGGER.log(Level.SEVERE, "Programmer's fault: Can't find invoke() method (should be defined by interface)", e);
-                    }
-                    catch (IllegalAccessException e) {
-                        LOGGER.log(Level.SEVERE, "No access to annotation method because it's not public; What the ... ?", e);
-                    }
-                    catch (InvocationTargetException e) {
-                        LOGGER.log(Level.SEVERE, "Can't invoke annotation method", e);
-                    }
+        return getFirst(invoke(FIRST_RESULT, NO_RESULT, 1, argument, null, null, null));
+    }
 
-                    // Fill in default value
-                    Object value = valueMethod.getDefaultValue();
-                    annotationValues.put(valueMethod, value);
-                    return value;
-                }
+    @Override
+    public R invoke2(Object argument1, Object argument2) throws FunctionExecutionException {
 
-                // Return stored value
-                return annotationValues.get(valueMethod);
-            }
-            catch (NoSuchMethodException e) {
-                LOGGER.log(Level.WARNING, "Tried to access not existing annotation method for getting annotation value", e);
-                return null;
-            }
-        }
+        return getFirst(invoke(FIRST_RESULT, NO_RESULT, 2, argument1, argument2, null, null));
+    }
 
-        @Override
-        public <A extends Annotation> void setValue(Class<A> type, String name, Object value) {
+    @Override
+    public R invoke3(Object argument1, Object argument2, Object argument3) throws FunctionExecutionException {
 
-            try {
-                annotationValues.put(type.getMethod(name), value);
+        return getFirst(invoke(FIRST_RESULT, NO_RESULT, 3, argument1, argument2, argument3, null));
+    }
+
+    @SuppressWarnings ("unchecked")
+    private R getFirst(Object result) {
+
+        return result == NO_RESULT ? null : (R) result;
+    }
+
+    @SuppressWarnings ("unchecked")
+    @Override
+    public List<R> invokeRA(Object... arguments) throws FunctionExecutionException {
+
+        // The COLLECT_RESULTS reducer only adds the return values of the executors, which are of the type R, to the list
+        return (List<R>) (List<?>) invoke(COLLECT_RESULTS, new ArrayList<Object>(), VARARGS, null, null, null, arguments);
+    }
+
+    @Override
+    public <A> A invokeReduce(ResultReducer<? super R, A> reducer, A identity, Object... arguments) throws FunctionExecutionException {
+
+        return invoke(reducer, identity, VARARGS, null, null, null, arguments);
+    }
+
+    @SuppressWarnings ("unchecked")
+    @Override
+    public FunctionFuture<R> invokeAsync(Object... arguments) {
+
+        // The NO_RESULT accumulator of the FIRST_RESULT reducer is replaced by null on completion
+        return (FunctionFuture<R>) (FunctionFuture<?>) invokeAsync(FIRST_RESULT, NO_RESULT, arguments);
+    }
+
+    @SuppressWarnings ("unchecked")
+    @Override
+    public FunctionFuture<List<R>> invokeRAAsync(Object... arguments) {
+
+        return (FunctionFuture<List<R>>) (FunctionFuture<?>) invokeAsync(COLLECT_RESULTS, new ArrayList<Object>(), arguments);
+    }
+
+    /*
+     * Starts an asynchronous invokation. The invokation number, the argument validation and the executor selection happen in the calling thread,
+     * so the asynchronous invokation sees the same state as a synchronous one which is started at the same time.
+     */
+    private <A> FunctionFuture<A> invokeAsync(ResultReducer<? super R, A> reducer, A identity, Object[] arguments) {
+
+        DefaultFunctionFuture<A> future = new DefaultFunctionFuture<A>();
+        int invokation = INVOKATION_COUNTER.getAndIncrement(this);
+
+        InvokationProbe probe = InvokationProbe.start(this);
+        if (probe != null) {
+            future.addCallback(new ProbeCallback(probe));
+        }
+
+        if (!trusted) {
+            try {
+                validator.validate(VARARGS, null, null, null, arguments);
+            }
+            catch (IllegalArgumentException e) {
+                future.fail(new FunctionExecutionException(e));
+                return future;
+            }
+        }
+
+        int[] plan = null;
+        FunctionExecutorContainer<R>[] customExecutors = null;
+        if (customExecutableExecutors) {
+            customExecutors = sort(getExecutableExecutors());
+        } else {
+            plan = lockState.plan;
+        }
+
+        AsyncInvokation<A> asyncInvokation = new AsyncInvokation<A>(future, reducer, identity, arguments, invokation, plan, customExecutors, probe);
+        if ( (plan != null ? plan.length : customExecutors.length) == 0) {
+            // Would not do anything -> Don't bother the executor
+            asyncInvokation.complete();
+        } else {
+            asyncInvokation.resume();
+        }
+
+        return future;
+    }
+
+    /*
+     * Invokes the function and reports the invokation to a probe if any instrumentation is active.
+     */
+    private <A> A invoke(ResultReducer<? super R, A> reducer, A identity, int argumentCount, Object argument1, Object argument2, Object argument3, Object[] arguments) throws FunctionExecutionException {
+
+        InvokationProbe probe = InvokationProbe.start(this);
+        if (probe == null) {
+            return invoke(null, reducer, identity, argumentCount, argument1, argument2, argument3, arguments);
+        }
+
+        Throwable failure = null;
+        try {
+            return invoke(probe, reducer, identity, argumentCount, argument1, argument2, argument3, arguments);
+        }
+        catch (FunctionExecutionException e) {
+            failure = e;
+            throw e;
+        }
+        catch (RuntimeException e) {
+            failure = e;
+            throw e;
+        }
+        catch (Error e) {
+            failure = e;
+            throw e;
+        }
+        finally {
+            probe.end(failure);
+        }
+    }
+
+    /*
+     * The actual invokation algorithm. The return values are folded into the given accumulator using the given reducer.
+     * The arguments are either passed as an array (argumentCount is VARARGS) or as up to three single objects.
+     * In the latter case, an argument array is only created if an executor which isn't a FixedArityFunctionExecutor must be invoked.
+     * If the probe isn't null, the invokations of the executors are reported to it.
+     */
+    @SuppressWarnings ("unchecked")
+    private <A> A invoke(InvokationProbe probe, ResultReducer<? super R, A> reducer, A identity, int argumentCount, Object argument1, Object argument2, Object argument3, Object[] arguments) throws FunctionExecutionException {
+
+        // The number of this invokation is the clock for the delay settings
+        int invokation = INVOKATION_COUNTER.getAndIncrement(this);
+
+        // Argument validation
+        if (!trusted) {
+            try {
+                validator.validate(argumentCount, argument1, argument2, argument3, arguments);
+            }
+            catch (IllegalArgumentException e) {
+                throw new FunctionExecutionException(e);
+            }
+        }
+
+        // Collect the executors which should be invoked in the right order
+        // Either the plan (indices of executors in the table) or the custom executor containers are used
+        int[] plan = null;
+        FunctionExecutorContainer<R>[] customExecutors = null;
+        if (customExecutableExecutors) {
+            customExecutors = sort(getExecutableExecutors());
+        } else {
+            // Read the lock state once, so lock changes during the invokation don't affect it
+            plan = lockState.plan;
+        }
+
+        int length = plan != null ? plan.length : customExecutors.length;
+        if (length == 0) {
+            // Would not do anything -> Don't run unnecessary stuff
+            return identity;
+        }
+
+        // Invoke the executors
+        A accumulator = identity;
+        for (int position = 0; position < length; position++) {
+            int groupEnd = plan != null ? getParallelGroupEnd(plan, position) : position + 1;
+            if (groupEnd - position > 1) {
+                if (arguments == null) {
+                    arguments = toArgumentArray(argumentCount, argument1, argument2, argument3);
+                }
+
+                Object[] results = invokeParallel(plan, position, groupEnd, invokation, arguments, probe);
+                for (int member = position; member < groupEnd; member++) {
+                    Object result = results[member - position];
+                    if (result instanceof ParallelFailure) {
+                        Throwable failure = ((ParallelFailure) result).cause;
+                        if (failure instanceof Error) {
+                            throw (Error) failure;
+                        } else if (failure instanceof StopExecutionException || failure instanceof FunctionExecutionException || failure instanceof IllegalArgumentException) {
+                            stop(plan, null, member, (Exception) failure, probe);
+                            return accumulator;
+                        } else if (! (failure instanceof ReturnNextException)) {
+                            LOGGER.log(Level.SEVERE, "Function executor '" + getExecutor(plan, null, member).getClass().getName() + "' threw an unexpected exception", failure);
+                        }
+                    } else if (result != NOT_INVOKED) {
+                        accumulator = reducer.reduce(accumulator, (R) result);
+                    }
+                }
+
+                position = groupEnd - 1;
+                continue;
+            }
+
+            if (plan != null && ! (isScheduled(plan[position], invokation) && reserveInvokation(plan[position]))) {
+                continue;
+            }
+
+            try {
+                if (plan != null) {
+                    if (arguments == null && ! (executors.executors[plan[position]] instanceof FixedArityFunctionExecutor)) {
+                        arguments = toArgumentArray(argumentCount, argument1, argument2, argument3);
+                    }
+                    accumulator = reducer.reduce(accumulator, invokeExecutor(probe, plan[position], getHolder(), argumentCount, argument1, argument2, argument3, arguments));
+                } else {
+                    if (arguments == null) {
+                        arguments = toArgumentArray(argumentCount, argument1, argument2, argument3);
+                    }
+                    accumulator = reducer.reduce(accumulator, invokeContainer(probe, customExecutors[position], arguments));
+                }
+            }
+            catch (ReturnNextException e) {
+                continue;
+            }
+            catch (StopExecutionException e) {
+                stop(plan, customExecutors, position, e, probe);
+                break;
+            }
+            catch (FunctionExecutionException e) {
+                stop(plan, customExecutors, position, e, probe);
+                break;
+            }
+            catch (IllegalArgumentException e) {
+                stop(plan, customExecutors, position, e, probe);
+                break;
+            }
+            catch (Exception e) {
+                LOGGER.log(Level.SEVERE, "Function executor '" + getExecutor(plan, customExecutors, position).getClass().getName() + "' threw an unexpected exception", e);
+            }
+        }
+
+        return accumulator;
+    }
+
+    /*
+     * Returns the end (exclusive) of the group of parallel executors with the same priority which starts at the given plan position.
+     * The executor table sorts the parallel executors of a priority group before the other ones.
+     */
+    private int getParallelGroupEnd(int[] plan, int start) {
+
+        int end = start + 1;
+        if (executors.descriptors[plan[start]].isParallel()) {
+            while (end < plan.length && executors.descriptors[plan[end]].isParallel() && executors.priorities[plan[end]] == executors.priorities[plan[start]]) {
+                end++;
+            }
+        }
+
+        return end;
+    }
+
+    /*
+     * Invokes the parallel executors between the given plan positions (the end is exclusive) and waits until all of them are done.
+     * The executors are offered to the async executor, but the calling thread invokes every executor which wasn't picked up yet itself.
+     * Therefore, the group also completes if the async executor is busy, for example because the calling thread belongs to it.
+     * Blocking executors are offered to the blocking executor instead, and the calling thread only picks them up after the other executors.
+     * The returned array contains the return value, a ParallelFailure or NOT_INVOKED for every executor of the group.
+     */
+    private Object[] invokeParallel(int[] plan, int start, int end, int invokation, Object[] arguments, InvokationProbe probe) {
+
+        Object[] results = new Object[end - start];
+        CountDownLatch done = new CountDownLatch(end - start);
+        List<ParallelInvokation> invokations = new ArrayList<ParallelInvokation>(end - start);
+        for (int member = 0; member < end - start; member++) {
+            invokations.add(new ParallelInvokation(plan[start + member], invokation, arguments, results, member, done, probe));
+        }
+
+        List<ParallelInvokation> blockingInvokations = new ArrayList<ParallelInvokation>();
+        List<ParallelInvokation> otherInvokations = new ArrayList<ParallelInvokation>();
+        for (ParallelInvokation parallelInvokation : invokations) {
+            (executors.descriptors[parallelInvokation.index].isBlocking() ? blockingInvokations : otherInvokations).add(parallelInvokation);
+        }
+
+        offer(getBlockingExecutor(), blockingInvokations);
+        if (!otherInvokations.isEmpty()) {
+            // The calling thread starts with the first executor anyway
+            offer(getAsyncExecutor(), otherInvokations.subList(1, otherInvokations.size()));
+        }
+
+        for (ParallelInvokation parallelInvokation : otherInvokations) {
+            parallelInvokation.run();
+        }
+        for (ParallelInvokation parallelInvokation : blockingInvokations) {
+            parallelInvokation.run();
+        }
+
+        // Only executors which are running on other threads are waited for
+        boolean interrupted = false;
+        while (true) {
+            try {
+                done.await();
+                break;
+            }
+            catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+
+        return results;
+    }
+
+    private void offer(Executor executor, List<ParallelInvokation> invokations) {
+
+        for (ParallelInvokation parallelInvokation : invokations) {
+            try {
+                executor.execute(parallelInvokation);
+            }
+            catch (RejectedExecutionException e) {
+                // The calling thread invokes the remaining executors
+                break;
+            }
+        }
+    }
+
+    /*
+     * Handles a signal which stops the invokation of the executor at the given position.
+     * Signals with a cause are rethrown as FunctionExecutionException; the caller stops the invokation otherwise.
+     */
+    private void stop(int[] plan, FunctionExecutorContainer<R>[] customExecutors, int position, Exception signal, InvokationProbe probe) throws FunctionExecutionException {
+
+        warnStopInPriorityGroup(plan, customExecutors, position);
+        if (probe != null) {
+            probe.stop(getExecutorName(plan, customExecutors, position));
+        }
+
+        if (signal.getCause() != null) {
+            throw new FunctionExecutionException(signal.getCause());
+        }
+    }
+
+    /*
+     * Logs a warning if the executor at the given position stopped the invokation while other executors have the same priority.
+     * In that case, it's undefined whether those other executors were invoked or not.
+     */
+    private void warnStopInPriorityGroup(int[] plan, FunctionExecutorContainer<R>[] customExecutors, int position) {
+
+        if (!LOGGER.isLoggable(Level.WARNING)) {
+            return;
+        }
+
+        int length = plan != null ? plan.length : customExecutors.length;
+        int priority = getPriority(plan, customExecutors, position);
+        String otherExecutors = "";
+        for (int otherPosition = 0; otherPosition < length; otherPosition++) {
+            if (otherPosition != position && getPriority(plan, customExecutors, otherPosition) == priority) {
+                otherExecutors += ", '" + getExecutor(plan, customExecutors, otherPosition).getClass().getName() + "'";
+            }
+        }
+
+        if (!otherExecutors.isEmpty()) {
+            LOGGER.warning("Function executor '" + getExecutor(plan, customExecutors, position).getClass().getName() + "' stopped while having the same priority as the executors " + otherExecutors.substring(2));
+        }
+    }
+
+    private String getExecutorName(int[] plan, FunctionExecutorContainer<R>[] customExecutors, int position) {
+
+        return plan != null ? executors.names[plan[position]] : customExecutors[position].getName();
+    }
+
+    private FunctionExecutor<R> getExecutor(int[] plan, FunctionExecutorContainer<R>[] customExecutors, int position) {
+
+        return plan != null ? executors.executors[plan[position]] : customExecutors[position].getExecutor();
+    }
+
+    private int getPriority(int[] plan, FunctionExecutorContainer<R>[] customExecutors, int position) {
+
+        return plan != null ? executors.priorities[plan[position]] : getPriority(customExecutors[position]);
+    }
+
+    private static int getPriority(FunctionExecutorContainer<?> executor) {
+
+        return getDescriptor(executor).getPriority();
+    }
+
+    /*
+     * Default containers already store their descriptor, so the descriptor cache is only used for other container implementations.
+     */
+    private static FunctionExecutorDescriptor getDescriptor(FunctionExecutorContainer<?> executor) {
+
+        if (executor instanceof DefaultFunctionExecutorContainer) {
+            return ((DefaultFunctionExecutorContainer<?>) executor).getDescriptor();
+        } else {
+            return FunctionExecutorDescriptor.get(executor.getExecutor().getClass());
+        }
+    }
+
+    /*
+     * Sorts the given executor containers by their priorities. The executors with the highest priority come first.
+     */
+    @SuppressWarnings ("unchecked")
+    private static <R> FunctionExecutorContainer<R>[] sort(Collection<FunctionExecutorContainer<R>> executors) {
+
+        // Generic arrays can't be created directly; the array only stores the given containers
+        FunctionExecutorContainer<R>[] sorted = (FunctionExecutorContainer<R>[]) executors.toArray(new FunctionExecutorContainer<?>[executors.size()]);
+        Arrays.sort(sorted, new Comparator<FunctionExecutorContainer<R>>() {
+
+            @Override
+            public int compare(FunctionExecutorContainer<R> o1, FunctionExecutorContainer<R> o2) {
+
+                return getPriority(o2) - getPriority(o1);
+            }
+
+        });
+
+        return sorted;
+    }
+
+    private static Object[] toArgumentArray(int argumentCount, Object argument1, Object argument2, Object argument3) {
+
+        switch (argumentCount) {
+            case 0:
+                return NO_ARGUMENTS;
+            case 1:
+                return new Object[] { argument1 };
+            case 2:
+                return new Object[] { argument1, argument2 };
+            default:
+                return new Object[] { argument1, argument2, argument3 };
+        }
+    }
+
+    @Override
+    public String toString() {
+
+        return getClass().getName() + " [name=" + getName() + ", " + getExecutableExecutors().size() + "/" + executors.size() + " executors, locked=" + isLocked() + "]";
+    }
+
+    /*
+     * The reducer which keeps the first return value and ignores all others.
+     */
+    private static class FirstResultReducer implements ResultReducer<Object, Object> {
+
+        @Override
+        public Object reduce(Object accumulator, Object result) {
+
+            return accumulator == NO_RESULT ? result : accumulator;
+        }
+
+    }
+
+    /*
+     * The state of an asynchronous invokation. It walks through the executors like the synchronous algorithm, but on the async executor.
+     * If an AsyncFunctionExecutor returns a future, the invokation is suspended and resumed on the async executor once that future is done.
+     * Only one thread works on the state at a time; the hand-overs through the executor and the futures publish the changes.
+     */
+    private class AsyncInvokation<A> implements Runnable, Callback<R> {
+
+        private final DefaultFunctionFuture<A>       future;
+        private final ResultReducer<? super R, A>    reducer;
+        private final Object[]                       arguments;
+        private final int                            invokation;
+        private final int[]                          plan;
+        private final FunctionExecutorContainer<R>[] customExecutors;
+        private final InvokationProbe                probe;
+        private A                                    accumulator;
+        private int                                  position;
+
+        private AsyncInvokation(DefaultFunctionFuture<A> future, ResultReducer<? super R, A> reducer, A identity, Object[] arguments, int invokation, int[] plan, FunctionExecutorContainer<R>[] customExecutors, InvokationProbe probe) {
+
+            this.future = future;
+            this.reducer = reducer;
+            accumulator = identity;
+            this.arguments = arguments;
+            this.invokation = invokation;
+            this.plan = plan;
+            this.customExecutors = customExecutors;
+            this.probe = probe;
+        }
+
+        @SuppressWarnings ("unchecked")
+        @Override
+        public void run() {
+
+            try {
+                int length = plan != null ? plan.length : customExecutors.length;
+                while (position < length) {
+                    // The future might have been cancelled
+                    if (future.isDone()) {
+                        return;
+                    }
+
+                    int current = position;
+                    int groupEnd = plan != null ? getParallelGroupEnd(plan, current) : current + 1;
+                    position = groupEnd;
+                    if (groupEnd - current > 1) {
+                        Object[] results = invokeParallel(plan, current, groupEnd, invokation, arguments, probe);
+                        for (int member = current; member < groupEnd; member++) {
+                            Object result = results[member - current];
+                            if (result instanceof ParallelFailure) {
+                                if (handle(member, ((ParallelFailure) result).cause)) {
+                                    return;
+                                }
+                            } else if (result != NOT_INVOKED) {
+                                accumulator = reducer.reduce(accumulator, (R) result);
+                            }
+                        }
+                        continue;
+                    }
+
+                    if (plan != null && ! (isScheduled(plan[current], invokation) && reserveInvokation(plan[current]))) {
+                        continue;
+                    }
+
+                    try {
+                        if (plan != null && executors.executors[plan[current]] instanceof AsyncFunctionExecutor) {
+                            // Suspend until the executor is done; the callback resumes the invokation
+                            invokeAsyncExecutor(plan[current]);
+                            return;
+                        } else if (plan != null && executors.descriptors[plan[current]].isBlocking()) {
+                            // Suspend until the executor is done on the blocking executor
+                            invokeBlocking(plan[current]).addCallback(this);
+                            return;
+                        } else if (plan != null) {
+                            accumulator = reducer.reduce(accumulator, invokeExecutor(probe, plan[current], getHolder(), VARARGS, null, null, null, arguments));
+                        } else {
+                            accumulator = reducer.reduce(accumulator, invokeContainer(probe, customExecutors[current], arguments));
+                        }
+                    }
+                    catch (Exception e) {
+                        if (handle(current, e)) {
+                            return;
+                        }
+                    }
+                }
+
+                complete();
+            }
+            catch (RuntimeException e) {
+                future.fail(e);
+            }
+        }
+
+        @Override
+        public void onSuccess(R result) {
+
+            try {
+                accumulator = reducer.reduce(accumulator, result);
+            }
+            catch (RuntimeException e) {
+                if (handle(position - 1, e)) {
+                    return;
+                }
+            }
+
+            resume();
+        }
+
+        @Override
+        public void onFailure(Throwable cause) {
+
+            if (!handle(position - 1, cause)) {
+                resume();
+            }
+        }
+
+        /*
+         * Handles a signal of the executor at the given position like the synchronous algorithm does.
+         * Returns true if the invokation is finished.
+         */
+        private boolean handle(int position, Throwable signal) {
+
+            if (signal instanceof ReturnNextException) {
+                return false;
+            } else if (signal instanceof StopExecutionException || signal instanceof FunctionExecutionException || signal instanceof IllegalArgumentException) {
+                warnStopInPriorityGroup(plan, customExecutors, position);
+                if (probe != null) {
+                    probe.stop(getExecutorName(plan, customExecutors, position));
+                }
+                if (signal.getCause() != null) {
+                    future.fail(new FunctionExecutionException(signal.getCause()));
+                } else {
+                    complete();
+                }
+                return true;
+            } else if (signal instanceof Error) {
+                future.fail(signal);
+                return true;
+            }
+
+            LOGGER.log(Level.SEVERE, "Function executor '" + getExecutor(plan, customExecutors, position).getClass().getName() + "' threw an unexpected exception", signal);
+            return false;
+        }
+
+        /*
+         * Starts the asynchronous executor with the given index. The future of the executor resumes the invokation through the callbacks.
+         * If the invokation is observed, the executor call lasts until that future is done.
+         */
+        @SuppressWarnings ("unchecked")
+        private void invokeAsyncExecutor(int index) throws ExecutorInvokationException {
+
+            AsyncFunctionExecutor<R> executor = (AsyncFunctionExecutor<R>) executors.executors[index];
+            if (probe == null) {
+                executor.invokeAsync(getHolder(), arguments).addCallback(this);
+                return;
+            }
+
+            final ExecutorCall call = probe.startExecutor(executors.names[index], executors.descriptors[index].getBudget(), arguments);
+            FunctionFuture<R> executorFuture;
+            try {
+                executorFuture = executor.invokeAsync(getHolder(), arguments);
+            }
+            catch (ExecutorInvokationException e) {
+                probe.endExecutor(call, null, e);
+                throw e;
+            }
+            catch (RuntimeException e) {
+                probe.endExecutor(call, null, e);
+                throw e;
+            }
+            catch (Error e) {
+                probe.endExecutor(call, null, e);
+                throw e;
+            }
+
+            probe.suspendExecutor(call);
+            executorFuture.addCallback(new Callback<R>() {
+
+                @Override
+                public void onSuccess(R result) {
+
+                    probe.endExecutor(call, result, null);
+                    AsyncInvokation.this.onSuccess(result);
+                }
+
+                @Override
+                public void onFailure(Throwable cause) {
+
+                    probe.endExecutor(call, null, cause);
+                    AsyncInvokation.this.onFailure(cause);
+                }
+
+            });
+        }
+
+        /*
+         * Invokes the executor with the given index on the blocking executor.
+         * Exceptions which are thrown by the executor fail the returned future, so they are handled like the ones of other executors.
+         */
+        private FunctionFuture<R> invokeBlocking(final int index) {
+
+            final DefaultFunctionFuture<R> executorFuture = new DefaultFunctionFuture<R>();
+            try {
+                getBlockingExecutor().execute(new Runnable() {
+
+                    @Override
+                    public void run() {
+
+                        try {
+                            executorFuture.complete(invokeExecutor(probe, index, getHolder(), VARARGS, null, null, null, arguments));
+                        }
+                        catch (Throwable t) {
+                            executorFuture.fail(t);
+                        }
+                    }
+
+                });
+            }
+            catch (RejectedExecutionException e) {
+                executorFuture.fail(e);
+            }
+
+            return executorFuture;
+        }
+
+        private void resume() {
+
+            try {
+                getAsyncExecutor().execute(this);
+            }
+            catch (RejectedExecutionException e) {
+                future.fail(e);
+            }
+        }
+
+        private void complete() {
+
+            future.complete(accumulator == NO_RESULT ? null : accumulator);
+        }
+
+    }
+
+    /*
+     * The invokation of one executor of a parallel group. It's run by the first thread which claims it,
+     * which is either a thread of the async executor or the thread which invokes the group.
+     */
+    private class ParallelInvokation implements Runnable {
+
+        private final int             index;
+        private final int             invokation;
+        private final Object[]        arguments;
+        private final Object[]        results;
+        private final int             member;
+        private final CountDownLatch  done;
+        private final InvokationProbe probe;
+        private final AtomicBoolean   claimed = new AtomicBoolean();
+
+        private ParallelInvokation(int index, int invokation, Object[] arguments, Object[] results, int member, CountDownLatch done, InvokationProbe probe) {
+
+            this.index = index;
+            this.invokation = invokation;
+            this.arguments = arguments;
+            this.results = results;
+            this.member = member;
+            this.done = done;
+            this.probe = probe;
+        }
+
+        @Override
+        public void run() {
+
+            if (!claimed.compareAndSet(false, true)) {
+                return;
+            }
+
+            try {
+                if (isScheduled(index, invokation) && reserveInvokation(index)) {
+                    results[member] = invokeExecutor(probe, index, getHolder(), VARARGS, null, null, null, arguments);
+                } else {
+                    results[member] = NOT_INVOKED;
+                }
+            }
+            catch (Throwable t) {
+                results[member] = new ParallelFailure(t);
+            }
+            finally {
+                done.countDown();
+            }
+        }
+
+    }
+
+    /*
+     * Stores the exception or error an executor of a parallel group threw, so it can be handled after the group is done.
+     */
+    private static class ParallelFailure {
+
+        private final Throwable cause;
+
+        private ParallelFailure(Throwable cause) {
+
+            this.cause = cause;
+        }
+
+    }
+
+    /*
+     * Ends the probe of an asynchronous invokation once its future is done.
+     */
+    private static class ProbeCallback implements Callback<Object> {
+
+        private final InvokationProbe probe;
+
+        private ProbeCallback(InvokationProbe probe) {
+
+            this.probe = probe;
+        }
+
+        @Override
+        public void onSuccess(Object result) {
+
+            probe.end(null);
+        }
+
+        @Override
+        public void onFailure(Throwable cause) {
+
+            probe.end(cause);
+        }
+
+    }
+
+    /*
+     * Holds the shared default executor for asynchronous invokations, which is only created when it's used for the first time.
+     * Its daemon threads don't keep the application alive.
+     */
+    private static class DefaultAsyncExecutor implements ThreadFactory {
+
+        private static final Executor INSTANCE = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), new DefaultAsyncExecutor());
+
+        private final AtomicInteger   nextId   = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable task) {
+
+            Thread thread = new Thread(task, "classmod-async-" + nextId.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+
+    }
+
+    /*
+     * Holds the shared default executor for blocking executors, which is only created when it's used for the first time.
+     */
+    private static class DefaultBlockingExecutor {
+
+        private static final Executor INSTANCE = new BlockingExecutor(BlockingExecutor.DEFAULT_CONCURRENCY);
+
+    }
+
+    /*
+     * A function executor container which is a view on the executor at the given index of the function.
+     * The immutable data is read from the shared executor table, the mutable data is stored by the function itself.
+     */
+    private class ExecutorContainerView implements FunctionExecutorContainer<R> {
+
+        private final int index;
+
+        private ExecutorContainerView(int index) {
+
+            this.index = index;
+        }
+
+        @Override
+        public String getName() {
+
+            return executors.names[index];
+        }
+
+        @Override
+        public FunctionExecutor<R> getExecutor() {
+
+            return executors.executors[index];
+        }
+
+        @Override
+        public <A extends Annotation> Object getValue(Class<A> type, String name) {
+
+            return AbstractFunction.this.getValue(index, type, name);
+        }
+
+        @Override
+        public <A extends Annotation> void setValue(Class<A> type, String name, Object value) {
+
+            AbstractFunction.this.setValue(index, type, name, value);
+        }
+
+        @Override
+        public void resetInvokationCounter() {
+
+            AtomicIntegerArray counters = executorInvokationCounters;
+            if (counters != null) {
+                counters.set(index, 0);
+            }
+        }
+
+        @Override
+        public boolean isLocked() {
+
+            return lockState.isExecutorLocked(index);
+        }
+
+        @Override
+        public void setLocked(boolean locked) {
+
+            setExecutorLocked(index, locked);
+        }
+
+        @Override
+        public R invoke(FeatureHolder holder, Object... arguments) throws ExecutorInvokationException {
+
+            if (lockState.isExecutorLocked(index)) {
+                return null;
+            }
+
+            countInvokation(index);
+            return invokeExecutor(index, holder, VARARGS, null, null, null, arguments);
+        }
+
+        private AbstractFunction<R> getFunction() {
+
+            return AbstractFunction.this;
+        }
+
+        @Override
+        public int hashCode() {
+
+            final int prime = 31;
+            int result = 1;
+            result = prime * result + index;
+            return result;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+
+            if (this == obj) {
+                return true;
+            }
+            if (obj == null) {
+                return false;
+            }
+            if (getClass() != obj.getClass()) {
+                return false;
+            }
+            AbstractFunction<?>.ExecutorContainerView other = (AbstractFunction<?>.ExecutorContainerView) obj;
+            if (getFunction() != other.getFunction()) {
+                return false;
+            }
+            if (index != other.index) {
+                return false;
+            }
+            return true;
+        }
+
+        @Override
+        public String toString() {
+
+            return getClass().getName() + " [name=" + getName() + ", executor=" + getExecutor() + ", locked=" + isLocked() + ", invokationCounter=" + getExecutorInvokationCounter(index) + "]";
+        }
+
+    }
+
+    /**
+     * The default implementation of the {@link FunctionExecutorContainer} for storing data values along with a {@link FunctionExecutor}.
+     * The data isn't stored in the actual {@link FunctionExecutor} object because it should only do the execution and nothing else.
+     * 
+     * @param <R> The type of the value the stored {@link FunctionExecutor} returns.
+     */
+    public static class DefaultFunctionExecutorContainer<R> implements FunctionExecutorContainer<R> {
+
+        private static final Logger                                  LOGGER            = Logger.getLogger(DefaultFunctionExecutorContainer.class.getName());
+
+        private final String                                         name;
+        private final FunctionExecutor<R>                            executor;
+        private final FunctionExecutorDescriptor                     descriptor;
+        private Map<Class<? extends Annotation>, Map<String, Object>> changedValues;
+        private final StripedCounter                                 invokationCounter = new StripedCounter();
+        private volatile boolean                                     locked            = false;
+
+        /**
+         * Creates a new default function executor container and fills in the {@link FunctionExecutor} to store and its name.
+         * 
+         * @param name The name of the {@link FunctionExecutor} to store.
+         * @param executor The {@link FunctionExecutor} which is stored by the container
+         */
+        public DefaultFunctionExecutorContainer(String name, FunctionExecutor<R> executor) {
+
+            this.name = name;
+            this.executor = executor;
+            descriptor = FunctionExecutorDescriptor.get(executor.getClass());
+        }
+
+        @Override
+        public String getName() {
+
+            return name;
+        }
+
+        @Override
+        public FunctionExecutor<R> getExecutor() {
+
+            return executor;
+        }
+
+        /**
+         * Returns the {@link FunctionExecutorDescriptor} which stores the annotation metadata of the stored {@link FunctionExecutor}'s class.
+         * Note that the descriptor doesn't contain the values which were changed through {@link #setValue(Class, String, Object)}.
+         * 
+         * @return The descriptor of the stored {@link FunctionExecutor}.
+         */
+        public FunctionExecutorDescriptor getDescriptor() {
+
+            return descriptor;
+        }
+
+        @Override
+        public <A extends Annotation> Object getValue(Class<A> type, String name) {
+
+            if (changedValues != null && changedValues.containsKey(type) && changedValues.get(type).containsKey(name)) {
+                return changedValues.get(type).get(name);
+            }
+
+            return descriptor.getValue(type, name);
+        }
+
+        @Override
+        public <A extends Annotation> void setValue(Class<A> type, String name, Object value) {
+
+            try {
+                type.getMethod(name);
+
+                if (changedValues == null) {
+                    changedValues = new HashMap<Class<? extends Annotation>, Map<String, Object>>();
+                }
+                if (!changedValues.containsKey(type)) {
+                    changedValues.put(type, new HashMap<String, Object>());
+                }
+                changedValues.get(type).put(name, value);
             }
             catch (NoSuchMethodException e) {
                 LOGGER.log(Level.WARNING, "Tried to access not existing annotation method for setting annotation value", e);
@@ -404,13 +1647,13 @@ public class AbstractFunction<R> extends AbstractFeature implements Function<R>
          */
         public int getInvokationCounter() {
 
-            return invokationCounter;
+            return (int) invokationCounter.sum();
         }
 
         @Override
         public void resetInvokationCounter() {
 
-            invokationCounter = 0;
+            invokationCounter.reset();
         }
 
         @Override
@@ -438,7 +1681,7 @@ public class AbstractFunction<R> extends AbstractFeature implements Function<R>
         public R invoke(FeatureHolder holder, Object... arguments) throws ExecutorInvokationException {
 
             if (!locked) {
-                invokationCounter++;
+                invokationCounter.increment();
                 return executor.invoke(holder, arguments);
             } else {
                 return null;
@@ -18,16 +18,23 @@
 
 package com.quartercode.classmod.extra.def;
 
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
 import org.apache.commons.lang.Validate;
 import com.quartercode.classmod.base.Feature;
 import com.quartercode.classmod.base.FeatureHolder;
 import com.quartercode.classmod.base.def.AbstractFeatureDefinition;
+import com.quartercode.classmod.extra.Blocking;
+import com.quartercode.classmod.extra.Budget;
 import com.quartercode.classmod.extra.Function;
 import com.quartercode.classmod.extra.FunctionDefinition;
 import com.quartercode.classmod.extra.FunctionExecutor;
@@ -44,8 +51,15 @@ import com.quartercode.classmod.extra.FunctionExecutor;
  */
 public abstract class AbstractFunctionDefinition<R> extends AbstractFeatureDefinition<Function<R>> implements FunctionDefinition<R> {
 
-    private final List<Class<?>>                                                        parameters = new ArrayList<Class<?>>();
-    private final Map<Class<? extends FeatureHolder>, Map<String, FunctionExecutor<R>>> executors  = new HashMap<Class<? extends FeatureHolder>, Map<String, FunctionExecutor<R>>>();
+    private final List<Class<?>>                                                                parameters           = new ArrayList<Class<?>>();
+    private final Map<Class<? extends FeatureHolder>, Map<String, FunctionExecutor<R>>>         executors            = new HashMap<Class<? extends FeatureHolder>, Map<String, FunctionExecutor<R>>>();
+    private volatile ConcurrentMap<WeakIdentityKey<Class<?>>, Map<String, FunctionExecutor<R>>> resolvedExecutors    = new ConcurrentHashMap<WeakIdentityKey<Class<?>>, Map<String, FunctionExecutor<R>>>();
+    private final ReferenceQueue<Class<?>>                                                      collectedHolderTypes = new ReferenceQueue<Class<?>>();
+    private boolean                                                                             trusted;
+    private Executor                                                                            asyncExecutor;
+    private Executor                                                                            blockingExecutor;
+    private final InvokationListeners                                                           invokationListeners  = new InvokationListeners();
+    private long                                                                                watchdogBudget;
 
     /**
      * Creates a new abstract function definition for defining a {@link Function} with the given name and parameters.
@@ -83,28 +97,151 @@ public abstract class AbstractFunctionDefinition<R> extends AbstractFeatureDefin
         }
     }
 
+    /**
+     * Returns whether the {@link Function}s created by this definition are trusted.
+     * The arguments of trusted functions are not validated against the parameters.
+     * 
+     * @return True if the created {@link Function}s skip the argument validation, false if not.
+     * @see AbstractFunction#isTrusted()
+     */
+    public boolean isTrusted() {
+
+        return trusted;
+    }
+
+    /**
+     * Changes whether the {@link Function}s created by this definition are trusted.
+     * The arguments of trusted functions are not validated against the parameters.
+     * The flag is only applied to {@link AbstractFunction}s which are created after the call.
+     * 
+     * @param trusted True if the created {@link Function}s should skip the argument validation, false if not.
+     * @see AbstractFunction#setTrusted(boolean)
+     */
+    public void setTrusted(boolean trusted) {
+
+        this.trusted = trusted;
+    }
+
+    /**
+     * Returns the {@link Executor} which runs the asynchronous invokations of the {@link Function}s created by this definition.
+     * 
+     * @return The executor for asynchronous invokations, or null if the shared default pool is used.
+     * @see AbstractFunction#getAsyncExecutor()
+     */
+    public Executor getAsyncExecutor() {
+
+        return asyncExecutor;
+    }
+
+    /**
+     * Changes the {@link Executor} which runs the asynchronous invokations of the {@link Function}s created by this definition.
+     * The executor is only applied to {@link AbstractFunction}s which are created after the call.
+     * 
+     * @param asyncExecutor The executor for asynchronous invokations. Null selects the shared default pool.
+     * @see AbstractFunction#setAsyncExecutor(Executor)
+     */
+    public void setAsyncExecutor(Executor asyncExecutor) {
+
+        this.asyncExecutor = asyncExecutor;
+    }
+
+    /**
+     * Returns the {@link Executor} which runs the {@link Blocking} executors of the {@link Function}s created by this definition.
+     * 
+     * @return The executor for blocking executors, or null if the shared default blocking executor is used.
+     * @see AbstractFunction#getBlockingExecutor()
+     */
+    public Executor getBlockingExecutor() {
+
+        return blockingExecutor;
+    }
+
+    /**
+     * Changes the {@link Executor} which runs the {@link Blocking} executors of the {@link Function}s created by this definition.
+     * The executor is only applied to {@link AbstractFunction}s which are created after the call.
+     * 
+     * @param blockingExecutor The executor for blocking executors. Null selects the shared default blocking executor.
+     * @see AbstractFunction#setBlockingExecutor(Executor)
+     */
+    public void setBlockingExecutor(Executor blockingExecutor) {
+
+        this.blockingExecutor = blockingExecutor;
+    }
+
+    /**
+     * Returns the {@link InvokationListeners} which observe the invokations of all {@link Function}s created by this definition.
+     * Listeners which are added later also observe the functions which were already created.
+     * 
+     * @return The invokation listeners of the definition.
+     * @see AbstractFunction#getInvokationListeners()
+     */
+    public InvokationListeners getInvokationListeners() {
+
+        return invokationListeners;
+    }
+
+    /**
+     * Returns the budget in milliseconds of the executors without a {@link Budget} annotation of the {@link Function}s created by this definition.
+     * 
+     * @return The watchdog budget in milliseconds, or 0 if the default budget of the {@link Watchdog} is used.
+     * @see AbstractFunction#getWatchdogBudget()
+     */
+    public long getWatchdogBudget() {
+
+        return watchdogBudget;
+    }
+
+    /**
+     * Changes the budget in milliseconds of the executors without a {@link Budget} annotation of the {@link Function}s created by this definition.
+     * The budget is only applied to {@link AbstractFunction}s which are created after the call.
+     * 
+     * @param watchdogBudget The new watchdog budget in milliseconds. 0 uses the default budget of the {@link Watchdog}.
+     * @see AbstractFunction#setWatchdogBudget(long)
+     */
+    public void setWatchdogBudget(long watchdogBudget) {
+
+        Validate.isTrue(watchdogBudget >= 0, "Watchdog budget can't be negative");
+        this.watchdogBudget = watchdogBudget;
+    }
+
     @Override
     public void addExecutor(Class<? extends FeatureHolder> variant, String name, FunctionExecutor<R> executor) {
 
-        if (!executors.containsKey(variant)) {
-            executors.put(variant, new HashMap<String, FunctionExecutor<R>>());
-        }
+        synchronized (executors) {
+            if (!executors.containsKey(variant)) {
+                executors.put(variant, new HashMap<String, FunctionExecutor<R>>());
+            }
 
-        executors.get(variant).put(name, executor);
+            executors.get(variant).put(name, executor);
+            invalidateExecutors();
+        }
     }
 
     @Override
     public void removeExecutor(Class<? extends FeatureHolder> variant, String name) {
 
-        if (executors.containsKey(variant)) {
-            executors.get(variant).remove(name);
+        synchronized (executors) {
+            if (executors.containsKey(variant)) {
+                executors.get(variant).remove(name);
 
-            if (executors.get(variant).isEmpty()) {
-                executors.remove(variant);
+                if (executors.get(variant).isEmpty()) {
+                    executors.remove(variant);
+                }
+
+                invalidateExecutors();
             }
         }
     }
 
+    /*
+     * Replaces the resolved executor cache instead of clearing it, so a resolution which is still running against the old cache can't store an outdated table in the new one.
+     * Must be called while holding the lock of the executors map.
+     */
+    private void invalidateExecutors() {
+
+        resolvedExecutors = new ConcurrentHashMap<WeakIdentityKey<Class<?>>, Map<String, FunctionExecutor<R>>>();
+    }
+
     @Override
     public Function<R> create(FeatureHolder holder) {
 
@@ -112,22 +249,70 @@ public abstract class AbstractFunctionDefinition<R> extends AbstractFeatureDefin
             Validate.isTrue(parameter != null, "Null parameters are not allowed");
         }
 
-        Map<String, FunctionExecutor<R>> actualExecutors = new HashMap<String, FunctionExecutor<R>>();
-        for (Entry<Class<? extends FeatureHolder>, Map<String, FunctionExecutor<R>>> variant : executors.entrySet()) {
-            if (variant.getKey().isAssignableFrom(holder.getClass())) {
-                actualExecutors.putAll(variant.getValue());
+        Function<R> function = create(holder, parameters, getExecutors(holder.getClass()));
+        if (function instanceof AbstractFunction) {
+            if (trusted) {
+                ((AbstractFunction<R>) function).setTrusted(true);
+            }
+            if (asyncExecutor != null) {
+                ((AbstractFunction<R>) function).setAsyncExecutor(asyncExecutor);
+            }
+            if (blockingExecutor != null) {
+                ((AbstractFunction<R>) function).setBlockingExecutor(blockingExecutor);
+            }
+            ((AbstractFunction<R>) function).setInvokationListeners(invokationListeners);
+            if (watchdogBudget > 0) {
+                ((AbstractFunction<R>) function).setWatchdogBudget(watchdogBudget);
+            }
+        }
+        return function;
+    }
+
+    /*
+     * Returns the immutable executor map for the given holder class.
+     * The map is resolved once per holder class and cached until the executors are changed.
+     * It's an executor table, so all functions which are created for the same holder class share the executor data.
+     * Cache hits don't lock; the resolution and the executor changes are guarded by the lock of the executors map.
+     * The holder classes are only referenced weakly, so the cache doesn't keep the class loaders of discarded holder classes alive.
+     */
+    private Map<String, FunctionExecutor<R>> getExecutors(Class<? extends FeatureHolder> holderType) {
+
+        Map<String, FunctionExecutor<R>> actualExecutors = resolvedExecutors.get(new WeakIdentityKey<Class<?>>(holderType, null));
+
+        if (actualExecutors == null) {
+            synchronized (executors) {
+                // Remove the executor maps of collected holder classes
+                for (Reference<? extends Class<?>> collected = collectedHolderTypes.poll(); collected != null; collected = collectedHolderTypes.poll()) {
+                    resolvedExecutors.remove(collected);
+                }
+
+                actualExecutors = resolvedExecutors.get(new WeakIdentityKey<Class<?>>(holderType, null));
+
+                if (actualExecutors == null) {
+                    Map<String, FunctionExecutor<R>> resolved = new HashMap<String, FunctionExecutor<R>>();
+                    for (Entry<Class<? extends FeatureHolder>, Map<String, FunctionExecutor<R>>> variant : executors.entrySet()) {
+                        if (variant.getKey().isAssignableFrom(holderType)) {
+                            resolved.putAll(variant.getValue());
+                        }
+                    }
+
+                    actualExecutors = new ExecutorTable<R>(resolved);
+                    resolvedExecutors.put(new WeakIdentityKey<Class<?>>(holderType, collectedHolderTypes), actualExecutors);
+                }
             }
         }
 
-        return create(holder, parameters, actualExecutors);
+        return actualExecutors;
     }
 
     /**
      * Creates a new {@link Function} which is defined by this function definition using the given {@link FeatureHolder} and {@link FunctionExecutor}s.
      * The holder is a {@link FeatureHolder} which can have different {@link Feature}s.
+     * The executor map is immutable and shared between all {@link Function}s which are created for the same holder class.
+     * Implementations which want to modify it must copy it first.
      * 
      * @param holder The {@link FeatureHolder} which holds the new {@link Function}.
-     * @param executors The {@link FunctionExecutor}s which should be used in the new {@link Function}s.
+     * @param executors The immutable {@link FunctionExecutor}s which should be used in the new {@link Function}s.
      * @return The created {@link Function}.
      */
     protected abstract Function<R> create(FeatureHolder holder, List<Class<?>> parameters, Map<String, FunctionExecutor<R>> executors);
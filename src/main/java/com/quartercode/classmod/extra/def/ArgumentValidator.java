@@ -0,0 +1,187 @@
+/*
+ * This file is part of Classmod.
+ * Copyright (c) 2014 QuarterCode <http://www.quartercode.com/>
+ *
+ * Classmod is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Classmod is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Classmod. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.classmod.extra.def;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.apache.commons.lang.Validate;
+import com.quartercode.classmod.extra.Function;
+import com.quartercode.classmod.extra.FunctionDefinition;
+
+/**
+ * An argument validator checks whether the arguments of a {@link Function} call match the parameters of the {@link Function}.
+ * It is compiled once for a parameter list and shared by all {@link Function}s which use an equal parameter list.
+ * The validator remembers the runtime argument classes it already accepted, so repeated calls with the same argument classes only need some identity checks.
+ * Only the arguments which are actually checked are remembered; those are the arguments for the declared parameters and, if there is an array parameter, the vararg arguments.
+ * A null argument is remembered as a null class.
+ * The error message is only built if the arguments are actually wrong.
+ * 
+ * @see FunctionDefinition#setParameter(int, Class)
+ */
+class ArgumentValidator {
+
+    private static final ConcurrentMap<List<Class<?>>, ArgumentValidator> VALIDATORS          = new ConcurrentHashMap<List<Class<?>>, ArgumentValidator>();
+
+    /*
+     * The maximum amount of accepted argument class tuples which are remembered by one validator.
+     */
+    private static final int                                              MAX_CACHED_VERDICTS = 16;
+
+    /**
+     * Returns the argument validator for the given parameter list.
+     * The validator is compiled when an equal parameter list is requested for the first time.
+     * 
+     * @param parameters The parameters the returned validator checks the arguments against. Null parameters are not allowed.
+     * @return The argument validator for the given parameter list.
+     */
+    static ArgumentValidator get(List<Class<?>> parameters) {
+
+        ArgumentValidator validator = VALIDATORS.get(parameters);
+        if (validator == null) {
+            validator = new ArgumentValidator(parameters);
+            ArgumentValidator existing = VALIDATORS.putIfAbsent(Collections.unmodifiableList(new ArrayList<Class<?>>(parameters)), validator);
+            if (existing != null) {
+                validator = existing;
+            }
+        }
+
+        return validator;
+    }
+
+    private final Class<?>[]      parameters;
+    private final boolean         varargs;
+    private volatile Class<?>[][] verdicts = new Class<?>[0][];
+
+    private ArgumentValidator(List<Class<?>> parameters) {
+
+        for (Class<?> parameter : parameters) {
+            Validate.isTrue(parameter != null, "Null parameters are not allowed");
+        }
+
+        this.parameters = parameters.toArray(new Class<?>[parameters.size()]);
+
+        boolean varargs = false;
+        for (Class<?> parameter : this.parameters) {
+            varargs |= parameter.isArray();
+        }
+        this.varargs = varargs;
+    }
+
+    /**
+     * Checks the given arguments against the parameters of the validator.
+     * The arguments are either passed as an array (argumentCount is {@link AbstractFunction#VARARGS}) or as up to three single objects.
+     * 
+     * @param argumentCount The amount of single arguments, or {@link AbstractFunction#VARARGS} if the arguments are passed as an array.
+     * @param argument1 The first single argument.
+     * @param argument2 The second single argument.
+     * @param argument3 The third single argument.
+     * @param arguments The argument array, or null if single arguments are passed.
+     * @throws IllegalArgumentException The arguments don't match the parameters.
+     */
+    void validate(int argumentCount, Object argument1, Object argument2, Object argument3, Object[] arguments) {
+
+        int actualArgumentCount = argumentCount == AbstractFunction.VARARGS ? arguments.length : argumentCount;
+        // Arguments after the declared parameters are only checked if they might be varargs
+        int checkedArgumentCount = varargs ? actualArgumentCount : parameters.length;
+
+        // Check whether the argument classes were already accepted
+        if (actualArgumentCount >= parameters.length) {
+            verdicts:
+            for (Class<?>[] verdict : verdicts) {
+                if (verdict.length == checkedArgumentCount) {
+                    for (int index = 0; index < checkedArgumentCount; index++) {
+                        if (verdict[index] != getArgumentClass(index, argumentCount, argument1, argument2, argument3, arguments)) {
+                            continue verdicts;
+                        }
+                    }
+                    return;
+                }
+            }
+        }
+
+        // Actually check the arguments
+        for (int index = 0; index < parameters.length; index++) {
+            if (!parameters[index].isAssignableFrom(getArgument(index, argumentCount, argument1, argument2, argument3, arguments).getClass())) {
+                if (parameters[index].isArray()) {
+                    for (int varargIndex = index; varargIndex < actualArgumentCount; varargIndex++) {
+                        if (!parameters[index].getComponentType().isAssignableFrom(getArgument(varargIndex, argumentCount, argument1, argument2, argument3, arguments).getClass())) {
+                            throw new IllegalArgumentException(getErrorMessage());
+                        }
+                    }
+                } else {
+                    throw new IllegalArgumentException(getErrorMessage());
+                }
+            }
+        }
+
+        // Remember the accepted argument classes
+        if (verdicts.length < MAX_CACHED_VERDICTS) {
+            Class<?>[] verdict = new Class<?>[checkedArgumentCount];
+            for (int index = 0; index < checkedArgumentCount; index++) {
+                verdict[index] = getArgumentClass(index, argumentCount, argument1, argument2, argument3, arguments);
+            }
+            addVerdict(verdict);
+        }
+    }
+
+    private synchronized void addVerdict(Class<?>[] verdict) {
+
+        Class<?>[][] verdicts = this.verdicts;
+        if (verdicts.length < MAX_CACHED_VERDICTS) {
+            Class<?>[][] newVerdicts = new Class<?>[verdicts.length + 1][];
+            System.arraycopy(verdicts, 0, newVerdicts, 0, verdicts.length);
+            newVerdicts[verdicts.length] = verdict;
+            this.verdicts = newVerdicts;
+        }
+    }
+
+    private String getErrorMessage() {
+
+        String errorString = "";
+        for (Class<?> parameter : parameters) {
+            errorString += ", " + parameter.getSimpleName();
+        }
+        return "Wrong arguments: '" + (errorString.isEmpty() ? "" : errorString.substring(2)) + "' required";
+    }
+
+    private static Class<?> getArgumentClass(int index, int argumentCount, Object argument1, Object argument2, Object argument3, Object[] arguments) {
+
+        Object argument = getArgument(index, argumentCount, argument1, argument2, argument3, arguments);
+        return argument == null ? null : argument.getClass();
+    }
+
+    private static Object getArgument(int index, int argumentCount, Object argument1, Object argument2, Object argument3, Object[] arguments) {
+
+        if (argumentCount == AbstractFunction.VARARGS) {
+            return arguments[index];
+        } else if (index >= argumentCount) {
+            throw new ArrayIndexOutOfBoundsException(index);
+        } else if (index == 0) {
+            return argument1;
+        } else if (index == 1) {
+            return argument2;
+        } else {
+            return argument3;
+        }
+    }
+
+}
@@ -0,0 +1,217 @@
+/*
+ * This file is part of Classmod.
+ * Copyright (c) 2014 QuarterCode <http://www.quartercode.com/>
+ *
+ * Classmod is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Classmod is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Classmod. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.classmod.extra.def;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.adapters.XmlJavaTypeAdapter;
+import com.quartercode.classmod.base.FeatureHolder;
+import com.quartercode.classmod.base.Persistent;
+import com.quartercode.classmod.base.def.AbstractPersistentFeature;
+import com.quartercode.classmod.extra.AtomicProperty;
+import com.quartercode.classmod.util.ObjectAdapter;
+
+/**
+ * An atomic object property is an {@link AtomicProperty} which stores an object in an {@link AtomicReference}.
+ * It can be serialized like an {@link ObjectProperty}, so persistent objects can be updated concurrently without locking the whole holder.
+ * 
+ * @param <T> The type of object which can be stored inside the atomic object property.
+ * @see AtomicProperty
+ * @see ObjectProperty
+ */
+@Persistent
+public class AtomicObjectProperty<T> extends AbstractPersistentFeature implements AtomicProperty<T> {
+
+    private final AtomicReference<T> reference = new AtomicReference<T>();
+
+    /**
+     * Creates a new empty atomic object property.
+     * This is only recommended for direct field access (e.g. for serialization).
+     */
+    protected AtomicObjectProperty() {
+
+    }
+
+    /**
+     * Creates a new atomic object property with the given name and {@link FeatureHolder}.
+     * 
+     * @param name The name of the atomic object property.
+     * @param holder The feature holder which has and uses the new atomic object property.
+     */
+    public AtomicObjectProperty(String name, FeatureHolder holder) {
+
+        super(name, holder);
+    }
+
+    /**
+     * Creates a new atomic object property with the given name and {@link FeatureHolder}, and sets the initial value.
+     * 
+     * @param name The name of the atomic object property.
+     * @param holder The feature holder which has and uses the new atomic object property.
+     * @param initialValue The value the new atomic object property has directly after creation.
+     */
+    public AtomicObjectProperty(String name, FeatureHolder holder, T initialValue) {
+
+        super(name, holder);
+
+        set(initialValue);
+    }
+
+    @Override
+    @XmlElement
+    @XmlJavaTypeAdapter (ObjectAdapter.class)
+    public T get() {
+
+        return reference.get();
+    }
+
+    @Override
+    public void set(T value) {
+
+        startModification();
+        try {
+            reference.set(value);
+        }
+        finally {
+            completeModification();
+        }
+    }
+
+    @Override
+    public boolean compareAndSet(T expect, T update) {
+
+        return compareAndSetModified(expect, update);
+    }
+
+    /*
+     * Only the compare-and-set itself is a modification of the holder. Updaters and accumulators are called outside of the modification,
+     * so they can read snapshots of the holder and don't keep snapshot readers waiting while they run.
+     */
+    private boolean compareAndSetModified(T expect, T update) {
+
+        startModification();
+        try {
+            return reference.compareAndSet(expect, update);
+        }
+        finally {
+            completeModification();
+        }
+    }
+
+    @Override
+    public T getAndSet(T value) {
+
+        startModification();
+        try {
+            return reference.getAndSet(value);
+        }
+        finally {
+            completeModification();
+        }
+    }
+
+    @Override
+    public T getAndUpdate(Updater<T> updater) {
+
+        while (true) {
+            T current = reference.get();
+            if (compareAndSetModified(current, updater.update(current))) {
+                return current;
+            }
+        }
+    }
+
+    @Override
+    public T updateAndGet(Updater<T> updater) {
+
+        while (true) {
+            T current = reference.get();
+            T next = updater.update(current);
+            if (compareAndSetModified(current, next)) {
+                return next;
+            }
+        }
+    }
+
+    @Override
+    public T accumulateAndGet(T argument, Accumulator<T> accumulator) {
+
+        while (true) {
+            T current = reference.get();
+            T next = accumulator.accumulate(current, argument);
+            if (compareAndSetModified(current, next)) {
+                return next;
+            }
+        }
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+
+        Set<T> set = new HashSet<T>();
+        set.add(reference.get());
+        return set.iterator();
+    }
+
+    @Override
+    public int hashCode() {
+
+        T object = reference.get();
+
+        final int prime = 31;
+        int result = super.hashCode();
+        result = prime * result + (object == null ? 0 : object.hashCode());
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+
+        if (this == obj) {
+            return true;
+        }
+        if (!super.equals(obj)) {
+            return false;
+        }
+        if (getClass() != obj.getClass()) {
+            return false;
+        }
+        AtomicObjectProperty<?> other = (AtomicObjectProperty<?>) obj;
+        Object object = reference.get();
+        Object otherObject = other.reference.get();
+        if (object == null) {
+            if (otherObject != null) {
+                return false;
+            }
+        } else if (!object.equals(otherObject)) {
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+
+        return getClass().getName() + " [name=" + getName() + ", object=" + reference.get() + "]";
+    }
+
+}
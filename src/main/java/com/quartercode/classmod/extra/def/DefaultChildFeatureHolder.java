@@ -38,7 +38,7 @@ import com.quartercode.classmod.extra.ChildFeatureHolder;
  */
 public class DefaultChildFeatureHolder<P extends FeatureHolder> extends DefaultFeatureHolder implements ChildFeatureHolder<P> {
 
-    private P parent;
+    private volatile P parent;
 
     /**
      * Creates a new default child feature holder.
@@ -56,7 +56,13 @@ public class DefaultChildFeatureHolder<P extends FeatureHolder> extends DefaultF
     @Override
     public void setParent(P parent) {
 
-        this.parent = parent;
+        startModification();
+        try {
+            this.parent = parent;
+        }
+        finally {
+            completeModification();
+        }
     }
 
     /**
@@ -0,0 +1,188 @@
+/*
+ * This file is part of Classmod.
+ * Copyright (c) 2014 QuarterCode <http://www.quartercode.com/>
+ *
+ * Classmod is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Classmod is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Classmod. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.classmod.extra.def;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import com.quartercode.classmod.extra.FunctionFuture;
+
+/**
+ * A default function future is a {@link FunctionFuture} which is completed manually through {@link #complete(Object)} or {@link #fail(Throwable)}.
+ * It can be returned by {@link com.quartercode.classmod.extra.AsyncFunctionExecutor}s which complete it when their asynchronous work is done.
+ * Only the first completion has an effect; later ones are ignored.
+ * 
+ * @param <T> The type of the result the future provides.
+ * @see FunctionFuture
+ */
+public class DefaultFunctionFuture<T> implements FunctionFuture<T> {
+
+    private static final Logger       LOGGER    = Logger.getLogger(DefaultFunctionFuture.class.getName());
+
+    private static final int          PENDING   = 0;
+    private static final int          SUCCEEDED = 1;
+    private static final int          FAILED    = 2;
+    private static final int          CANCELLED = 3;
+
+    private final CountDownLatch      done      = new CountDownLatch(1);
+    private volatile int              state     = PENDING;
+    private T                         result;
+    private Throwable                 cause;
+
+    // Is set to null on completion; guarded by the monitor of the future
+    private List<Callback<? super T>> callbacks = new ArrayList<Callback<? super T>>();
+
+    /**
+     * Creates a new pending default function future.
+     */
+    public DefaultFunctionFuture() {
+
+    }
+
+    /**
+     * Completes the future successfully with the given result and notifies all registered {@link Callback}s.
+     * 
+     * @param result The result of the future. May be null.
+     * @return True if the future was completed by this call, false if it was already done.
+     */
+    public boolean complete(T result) {
+
+        return finish(SUCCEEDED, result, null);
+    }
+
+    /**
+     * Completes the future with the given failure cause and notifies all registered {@link Callback}s.
+     * 
+     * @param cause The {@link Throwable} which caused the failure.
+     * @return True if the future was completed by this call, false if it was already done.
+     */
+    public boolean fail(Throwable cause) {
+
+        return finish(FAILED, null, cause);
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+
+        return finish(CANCELLED, null, new CancellationException("Future was cancelled"));
+    }
+
+    private boolean finish(int newState, T result, Throwable cause) {
+
+        List<Callback<? super T>> callbacks;
+        synchronized (this) {
+            if (state != PENDING) {
+                return false;
+            }
+
+            this.result = result;
+            this.cause = cause;
+            state = newState;
+            callbacks = this.callbacks;
+            this.callbacks = null;
+        }
+
+        done.countDown();
+        for (Callback<? super T> callback : callbacks) {
+            notify(callback);
+        }
+        return true;
+    }
+
+    @Override
+    public void addCallback(Callback<? super T> callback) {
+
+        synchronized (this) {
+            if (state == PENDING) {
+                callbacks.add(callback);
+                return;
+            }
+        }
+
+        notify(callback);
+    }
+
+    private void notify(Callback<? super T> callback) {
+
+        try {
+            if (state == SUCCEEDED) {
+                callback.onSuccess(result);
+            } else {
+                callback.onFailure(cause);
+            }
+        }
+        catch (RuntimeException e) {
+            LOGGER.log(Level.SEVERE, "Function future callback '" + callback.getClass().getName() + "' threw an unexpected exception", e);
+        }
+    }
+
+    @Override
+    public boolean isCancelled() {
+
+        return state == CANCELLED;
+    }
+
+    @Override
+    public boolean isDone() {
+
+        return state != PENDING;
+    }
+
+    @Override
+    public T get() throws InterruptedException, ExecutionException {
+
+        done.await();
+        return getResult();
+    }
+
+    @Override
+    public T get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+
+        if (!done.await(timeout, unit)) {
+            throw new TimeoutException("Future wasn't completed in time");
+        }
+
+        return getResult();
+    }
+
+    private T getResult() throws ExecutionException {
+
+        if (state == SUCCEEDED) {
+            return result;
+        } else if (state == CANCELLED) {
+            throw (CancellationException) cause;
+        } else {
+            throw new ExecutionException(cause);
+        }
+    }
+
+    @Override
+    public String toString() {
+
+        String stateString = state == PENDING ? "pending" : state == SUCCEEDED ? "succeeded" : state == FAILED ? "failed" : "cancelled";
+        return getClass().getName() + " [state=" + stateString + "]";
+    }
+
+}
@@ -0,0 +1,200 @@
+/*
+ * This file is part of Classmod.
+ * Copyright (c) 2014 QuarterCode <http://www.quartercode.com/>
+ *
+ * Classmod is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Classmod is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Classmod. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.classmod.extra.def;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import com.quartercode.classmod.extra.FunctionExecutor;
+
+/**
+ * An executor table is an immutable map of named {@link FunctionExecutor}s which stores the executors in flat arrays sorted by their priority.
+ * The executors with the highest priority come first.
+ * It also stores the shared metadata of the executors, like their {@link FunctionExecutorDescriptor}s and the lock states for functions whose single executors aren't locked.
+ * Function definitions resolve one table per holder class and pass it to all {@link AbstractFunction}s they create, so those functions share the table.
+ * 
+ * @param <R> The type of the return values of the stored {@link FunctionExecutor}s.
+ * @see AbstractFunction
+ * @see AbstractFunctionDefinition
+ */
+class ExecutorTable<R> extends AbstractMap<String, FunctionExecutor<R>> {
+
+    final String[]                                 names;
+    final FunctionExecutor<R>[]                    executors;
+    final FunctionExecutorDescriptor[]             descriptors;
+    final int[]                                    priorities;
+
+    /*
+     * The lock states which are used if the function is unlocked or locked and no single executor is locked.
+     */
+    final LockState                                unlockedState;
+    final LockState                                lockedState;
+
+    private final Map<String, FunctionExecutor<R>> map;
+
+    /**
+     * Creates a new executor table which stores the given named {@link FunctionExecutor}s.
+     * 
+     * @param executors The {@link FunctionExecutor}s the new table should store.
+     */
+    @SuppressWarnings ("unchecked")
+    ExecutorTable(Map<String, FunctionExecutor<R>> executors) {
+
+        List<Entry<String, FunctionExecutor<R>>> entries = new ArrayList<Entry<String, FunctionExecutor<R>>>(executors.entrySet());
+        Collections.sort(entries, new Comparator<Entry<String, FunctionExecutor<R>>>() {
+
+            @Override
+            public int compare(Entry<String, FunctionExecutor<R>> o1, Entry<String, FunctionExecutor<R>> o2) {
+
+                int priorityDifference = getPriority(o2.getValue()) - getPriority(o1.getValue());
+                if (priorityDifference != 0) {
+                    return priorityDifference;
+                }
+
+                // Parallel executors come first inside of a priority group, so they can be invoked together
+                boolean parallel1 = FunctionExecutorDescriptor.get(o1.getValue().getClass()).isParallel();
+                boolean parallel2 = FunctionExecutorDescriptor.get(o2.getValue().getClass()).isParallel();
+                return parallel1 == parallel2 ? 0 : parallel1 ? -1 : 1;
+            }
+
+        });
+
+        int size = entries.size();
+        names = new String[size];
+        // Generic arrays can't be created directly; the array only ever stores the executors of the given map
+        this.executors = (FunctionExecutor<R>[]) new FunctionExecutor<?>[size];
+        descriptors = new FunctionExecutorDescriptor[size];
+        priorities = new int[size];
+        Map<String, FunctionExecutor<R>> map = new LinkedHashMap<String, FunctionExecutor<R>>();
+
+        for (int index = 0; index < size; index++) {
+            Entry<String, FunctionExecutor<R>> entry = entries.get(index);
+            names[index] = entry.getKey();
+            this.executors[index] = entry.getValue();
+            descriptors[index] = FunctionExecutorDescriptor.get(entry.getValue().getClass());
+            priorities[index] = descriptors[index].getPriority();
+            map.put(entry.getKey(), entry.getValue());
+        }
+        this.map = Collections.unmodifiableMap(map);
+
+        unlockedState = new LockState(false, null, descriptors);
+        lockedState = new LockState(true, null, descriptors);
+    }
+
+    private static int getPriority(FunctionExecutor<?> executor) {
+
+        return FunctionExecutorDescriptor.get(executor.getClass()).getPriority();
+    }
+
+    /**
+     * Returns the lock state for the given function lock and the given executor locks.
+     * If no single executor is locked, one of the shared states is returned.
+     * 
+     * @param functionLocked Whether the function is locked.
+     * @param lockedExecutors The lock flags of the single executors, or null if no executor is locked. The array must not be modified afterwards.
+     * @return The lock state for the given locks.
+     */
+    LockState getLockState(boolean functionLocked, boolean[] lockedExecutors) {
+
+        if (lockedExecutors == null) {
+            return functionLocked ? lockedState : unlockedState;
+        } else {
+            return new LockState(functionLocked, lockedExecutors, descriptors);
+        }
+    }
+
+    /**
+     * Returns the index of the {@link FunctionExecutor} with the given name.
+     * 
+     * @param name The name of the {@link FunctionExecutor} whose index should be returned.
+     * @return The index of the {@link FunctionExecutor}, or -1 if there is no {@link FunctionExecutor} with the given name.
+     */
+    int indexOf(String name) {
+
+        for (int index = 0; index < names.length; index++) {
+            if (names[index].equals(name)) {
+                return index;
+            }
+        }
+
+        return -1;
+    }
+
+    @Override
+    public FunctionExecutor<R> get(Object key) {
+
+        return map.get(key);
+    }
+
+    @Override
+    public Set<Entry<String, FunctionExecutor<R>>> entrySet() {
+
+        return map.entrySet();
+    }
+
+    /**
+     * A lock state is an immutable snapshot of the lock flags of a function and its executors.
+     * It also stores the invokation plan which is derived from the flags, so an invokation only needs to read one snapshot to know which executors aren't locked.
+     */
+    static class LockState {
+
+        final boolean   functionLocked;
+        final boolean[] lockedExecutors;
+
+        /*
+         * The indices of the executors which aren't locked, sorted by their priorities.
+         */
+        final int[]     plan;
+
+        private LockState(boolean functionLocked, boolean[] lockedExecutors, FunctionExecutorDescriptor[] descriptors) {
+
+            this.functionLocked = functionLocked;
+            this.lockedExecutors = lockedExecutors;
+
+            int size = 0;
+            int[] plan = new int[descriptors.length];
+            for (int index = 0; index < descriptors.length; index++) {
+                if (! (functionLocked && descriptors[index].isLockable()) && ! (lockedExecutors != null && lockedExecutors[index])) {
+                    plan[size++] = index;
+                }
+            }
+            this.plan = size == plan.length ? plan : Arrays.copyOf(plan, size);
+        }
+
+        /**
+         * Returns whether the executor at the given index is locked through its own lock flag.
+         * 
+         * @param index The index of the executor.
+         * @return True if the executor itself is locked, false if not.
+         */
+        boolean isExecutorLocked(int index) {
+
+            return lockedExecutors != null && lockedExecutors[index];
+        }
+
+    }
+
+}
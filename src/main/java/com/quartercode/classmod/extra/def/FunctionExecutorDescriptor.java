@@ -0,0 +1,295 @@
+/*
+ * This file is part of Classmod.
+ * Copyright (c) 2014 QuarterCode <http://www.quartercode.com/>
+ *
+ * Classmod is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Classmod is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Classmod. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.classmod.extra.def;
+
+import java.lang.annotation.Annotation;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import com.quartercode.classmod.base.FeatureHolder;
+import com.quartercode.classmod.extra.Blocking;
+import com.quartercode.classmod.extra.Budget;
+import com.quartercode.classmod.extra.Delay;
+import com.quartercode.classmod.extra.FunctionExecutor;
+import com.quartercode.classmod.extra.Limit;
+import com.quartercode.classmod.extra.Lockable;
+import com.quartercode.classmod.extra.Parallel;
+import com.quartercode.classmod.extra.Prioritized;
+
+/**
+ * A function executor descriptor stores the annotation metadata of a {@link FunctionExecutor} class.
+ * The {@link Prioritized}, {@link Lockable}, {@link Parallel}, {@link Blocking}, {@link Limit}, {@link Delay} and {@link Budget} annotations of the invoke method are resolved once when the descriptor is created.
+ * Values of other annotations are resolved on first access and cached afterwards.
+ * Descriptors are immutable and shared process-wide. They are retrieved through {@link #get(Class)}, which only uses reflection the first time a class is requested.
+ * The described classes are only referenced weakly, so caching a descriptor doesn't keep the class loader of the executor class alive.
+ * Cached descriptors and annotation values are read without locking.
+ * 
+ * @see FunctionExecutor
+ * @see AbstractFunction
+ */
+public final class FunctionExecutorDescriptor {
+
+    private static final Logger                                                               LOGGER          = Logger.getLogger(FunctionExecutorDescriptor.class.getName());
+
+    private static final ConcurrentMap<WeakIdentityKey<Class<?>>, FunctionExecutorDescriptor> DESCRIPTORS     = new ConcurrentHashMap<WeakIdentityKey<Class<?>>, FunctionExecutorDescriptor>();
+    private static final ReferenceQueue<Class<?>>                                             COLLECTED_TYPES = new ReferenceQueue<Class<?>>();
+
+    /*
+     * ConcurrentHashMaps can't store null, so this object represents annotation values which are null.
+     */
+    private static final Object                                                               NULL_VALUE      = new Object();
+
+    /**
+     * Returns the function executor descriptor for the given {@link FunctionExecutor} class.
+     * The descriptor is created when the class is requested for the first time.
+     * 
+     * @param type The {@link FunctionExecutor} class whose descriptor should be returned.
+     * @return The descriptor which stores the annotation metadata of the given class.
+     */
+    public static FunctionExecutorDescriptor get(Class<?> type) {
+
+        FunctionExecutorDescriptor descriptor = DESCRIPTORS.get(new WeakIdentityKey<Class<?>>(type, null));
+        if (descriptor == null) {
+            // Remove the descriptors of collected classes
+            expunge(DESCRIPTORS, COLLECTED_TYPES);
+
+            descriptor = new FunctionExecutorDescriptor(type);
+            FunctionExecutorDescriptor existing = DESCRIPTORS.putIfAbsent(new WeakIdentityKey<Class<?>>(type, COLLECTED_TYPES), descriptor);
+            if (existing != null) {
+                descriptor = existing;
+            }
+        }
+
+        return descriptor;
+    }
+
+    private static void expunge(ConcurrentMap<WeakIdentityKey<Class<?>>, ?> map, ReferenceQueue<Class<?>> collected) {
+
+        for (Reference<? extends Class<?>> key = collected.poll(); key != null; key = collected.poll()) {
+            map.remove(key);
+        }
+    }
+
+    private final Reference<Class<?>>                                                     type;
+    private final int                                                                     priority;
+    private final boolean                                                                 lockable;
+    private final boolean                                                                 parallel;
+    private final boolean                                                                 blocking;
+    private final Integer                                                                 limit;
+    private final int                                                                     firstDelay;
+    private final int                                                                     delay;
+    private final Long                                                                    budget;
+    private final ConcurrentMap<WeakIdentityKey<Class<?>>, ConcurrentMap<String, Object>> annotationValues     = new ConcurrentHashMap<WeakIdentityKey<Class<?>>, ConcurrentMap<String, Object>>();
+    private final ReferenceQueue<Class<?>>                                                collectedAnnotations = new ReferenceQueue<Class<?>>();
+
+    private FunctionExecutorDescriptor(Class<?> type) {
+
+        this.type = new WeakReference<Class<?>>(type);
+
+        Method invokeMethod = getInvokeMethod();
+        priority = (Integer) readValue(Prioritized.class, "value", Prioritized.DEFAULT);
+        lockable = invokeMethod != null && invokeMethod.isAnnotationPresent(Lockable.class);
+        parallel = invokeMethod != null && invokeMethod.isAnnotationPresent(Parallel.class);
+        blocking = invokeMethod != null && invokeMethod.isAnnotationPresent(Blocking.class);
+        limit = (Integer) readValue(Limit.class, "value", null);
+        firstDelay = (Integer) readValue(Delay.class, "firstDelay", 0);
+        delay = (Integer) readValue(Delay.class, "delay", 0);
+        budget = (Long) readValue(Budget.class, "value", null);
+    }
+
+    /*
+     * The invoke method isn't stored because it would strongly reference the described class.
+     */
+    private Method getInvokeMethod() {
+
+        Class<?> type = this.type.get();
+        if (type == null) {
+            return null;
+        }
+
+        try {
+            return type.getMethod("invoke", FeatureHolder.class, Object[].class);
+        }
+        catch (NoSuchMethodException e) {
+            LOGGER.log(Level.SEVERE, "Programmer's fault: Can't find invoke() method (should be defined by interface)", e);
+            return null;
+        }
+    }
+
+    private Object readValue(Class<? extends Annotation> type, String name, Object defaultValue) {
+
+        Object value = getValue(type, name);
+        return value == null ? defaultValue : value;
+    }
+
+    /**
+     * Returns the priority of the described {@link FunctionExecutor} class.
+     * If the invoke method isn't {@link Prioritized}, {@link Prioritized#DEFAULT} is returned.
+     * 
+     * @return The priority of the {@link FunctionExecutor} class.
+     */
+    public int getPriority() {
+
+        return priority;
+    }
+
+    /**
+     * Returns whether the invoke method of the described {@link FunctionExecutor} class is {@link Lockable}.
+     * 
+     * @return True if the {@link FunctionExecutor} class is {@link Lockable}.
+     */
+    public boolean isLockable() {
+
+        return lockable;
+    }
+
+    /**
+     * Returns whether the invoke method of the described {@link FunctionExecutor} class is {@link Parallel}.
+     * 
+     * @return True if the {@link FunctionExecutor} class can be invoked in parallel with the other executors of its priority group.
+     */
+    public boolean isParallel() {
+
+        return parallel;
+    }
+
+    /**
+     * Returns whether the invoke method of the described {@link FunctionExecutor} class is {@link Blocking}.
+     * 
+     * @return True if the {@link FunctionExecutor} class calls blocking APIs and should run on a blocking executor.
+     */
+    public boolean isBlocking() {
+
+        return blocking;
+    }
+
+    /**
+     * Returns the {@link Limit} of the described {@link FunctionExecutor} class.
+     * If the invoke method has no {@link Limit} annotation, null is returned.
+     * 
+     * @return The invokation limit of the {@link FunctionExecutor} class, or null.
+     */
+    public Integer getLimit() {
+
+        return limit;
+    }
+
+    /**
+     * Returns the {@link Delay#firstDelay()} of the described {@link FunctionExecutor} class.
+     * 
+     * @return The amount of invokations the {@link FunctionExecutor} class waits until it is invoked for the first time.
+     */
+    public int getFirstDelay() {
+
+        return firstDelay;
+    }
+
+    /**
+     * Returns the {@link Delay#delay()} of the described {@link FunctionExecutor} class.
+     * 
+     * @return The amount of invokations the {@link FunctionExecutor} class waits until it is invoked again.
+     */
+    public int getDelay() {
+
+        return delay;
+    }
+
+    /**
+     * Returns the {@link Budget} of the described {@link FunctionExecutor} class.
+     * If the invoke method has no {@link Budget} annotation, null is returned.
+     * 
+     * @return The maximum amount of milliseconds an invokation of the {@link FunctionExecutor} class should take, or null.
+     */
+    public Long getBudget() {
+
+        return budget;
+    }
+
+    /**
+     * Returns a value of the given {@link Annotation} type at the invoke method of the described {@link FunctionExecutor} class.
+     * If the annotation isn't present, the default value of the annotation variable is returned.
+     * 
+     * @param type The {@link Annotation} type whose value should be retrieved (could be {@link Limit}).
+     * @param name The name of the value stored in the {@link Annotation} which should be retrieved (could be "value" for {@link Limit#value()}).
+     * @return The value stored in the defined variable, or null if the variable doesn't exist or has no default value.
+     */
+    public Object getValue(Class<? extends Annotation> type, String name) {
+
+        ConcurrentMap<String, Object> values = annotationValues.get(new WeakIdentityKey<Class<?>>(type, null));
+        if (values == null) {
+            expunge(annotationValues, collectedAnnotations);
+
+            values = new ConcurrentHashMap<String, Object>();
+            ConcurrentMap<String, Object> existing = annotationValues.putIfAbsent(new WeakIdentityKey<Class<?>>(type, collectedAnnotations), values);
+            if (existing != null) {
+                values = existing;
+            }
+        }
+
+        Object value = values.get(name);
+        if (value == null) {
+            value = resolveValue(type, name);
+            values.putIfAbsent(name, value == null ? NULL_VALUE : value);
+        }
+
+        return value == NULL_VALUE ? null : value;
+    }
+
+    private Object resolveValue(Class<? extends Annotation> type, String name) {
+
+        try {
+            Method valueMethod = type.getMethod(name);
+
+            // Fill in annotation value
+            try {
+                Method invokeMethod = getInvokeMethod();
+                Annotation annotation = invokeMethod == null ? null : invokeMethod.getAnnotation(type);
+                if (annotation != null) {
+                    return valueMethod.invoke(annotation);
+                }
+            }
+            catch (IllegalAccessException e) {
+                LOGGER.log(Level.SEVERE, "No access to annotation method because it's not public; What the ... ?", e);
+            }
+            catch (InvocationTargetException e) {
+                LOGGER.log(Level.SEVERE, "Can't invoke annotation method", e);
+            }
+
+            // Fill in default value
+            return valueMethod.getDefaultValue();
+        }
+        catch (NoSuchMethodException e) {
+            LOGGER.log(Level.WARNING, "Tried to access not existing annotation method for getting annotation value", e);
+            return null;
+        }
+    }
+
+    @Override
+    public String toString() {
+
+        return getClass().getName() + " [type=" + type.get() + ", priority=" + priority + ", lockable=" + lockable + ", limit=" + limit + ", firstDelay=" + firstDelay + ", delay=" + delay + "]";
+    }
+
+}
@@ -0,0 +1,221 @@
+/*
+ * This file is part of Classmod.
+ * Copyright (c) 2014 QuarterCode <http://www.quartercode.com/>
+ *
+ * Classmod is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Classmod is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Classmod. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.classmod.extra.def;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import com.quartercode.classmod.extra.Function;
+import com.quartercode.classmod.extra.FunctionExecutor;
+
+/**
+ * The function metrics collect {@link InvokationStats} for every {@link AbstractFunction} name and every {@link FunctionExecutor} name inside of those functions.
+ * The stats of all functions with the same name (usually all functions created by the same definition) are combined.
+ * The metrics are disabled by default. While all instrumentation is disabled, an invokation only reads one volatile field to find that out.
+ * They can be read programmatically, as a plain text snapshot through {@link #dump()}, or through JMX after {@link #registerMBean()} was called.
+ * 
+ * @see InvokationStats
+ * @see FunctionMetricsMBean
+ */
+public class FunctionMetrics implements FunctionMetricsMBean {
+
+    /**
+     * The JMX object name the function metrics are registered under.
+     */
+    public static final String                         OBJECT_NAME = "com.quartercode.classmod:type=FunctionMetrics";
+
+    private static final Logger                        LOGGER      = Logger.getLogger(FunctionMetrics.class.getName());
+
+    private static final FunctionMetrics               INSTANCE    = new FunctionMetrics();
+
+    private volatile boolean                           enabled;
+    private final ConcurrentMap<String, FunctionStats> functions   = new ConcurrentHashMap<String, FunctionStats>();
+
+    /**
+     * Returns the process-wide function metrics.
+     * 
+     * @return The function metrics.
+     */
+    public static FunctionMetrics getInstance() {
+
+        return INSTANCE;
+    }
+
+    private FunctionMetrics() {
+
+    }
+
+    @Override
+    public boolean isEnabled() {
+
+        return enabled;
+    }
+
+    @Override
+    public void setEnabled(boolean enabled) {
+
+        this.enabled = enabled;
+        InvokationProbe.update();
+    }
+
+    /**
+     * Returns the {@link FunctionStats} of the {@link Function}s with the given name.
+     * They are created if they don't exist yet.
+     * 
+     * @param functionName The name of the functions whose stats should be returned.
+     * @return The stats of the functions with the given name.
+     */
+    public FunctionStats getFunctionStats(String functionName) {
+
+        FunctionStats stats = functions.get(functionName);
+        if (stats == null) {
+            stats = new FunctionStats();
+            FunctionStats existing = functions.putIfAbsent(functionName, stats);
+            if (existing != null) {
+                stats = existing;
+            }
+        }
+
+        return stats;
+    }
+
+    @Override
+    public String[] getFunctionNames() {
+
+        Set<String> names = functions.keySet();
+        return names.toArray(new String[names.size()]);
+    }
+
+    @Override
+    public String dump() {
+
+        StringBuilder dump = new StringBuilder();
+        for (Entry<String, FunctionStats> function : new TreeMap<String, FunctionStats>(functions).entrySet()) {
+            dump.append("function '").append(function.getKey()).append("': ").append(function.getValue()).append("\n");
+            for (Entry<String, InvokationStats> executor : new TreeMap<String, InvokationStats>(function.getValue().executors).entrySet()) {
+                dump.append("    executor '").append(executor.getKey()).append("': ").append(executor.getValue()).append("\n");
+            }
+        }
+
+        return dump.toString();
+    }
+
+    @Override
+    public void reset() {
+
+        functions.clear();
+    }
+
+    /**
+     * Registers the function metrics at the platform {@link MBeanServer} under the object name {@link #OBJECT_NAME}.
+     * Nothing happens if they are already registered.
+     * 
+     * @return True if the function metrics are registered after the call, false if the registration failed.
+     */
+    public static boolean registerMBean() {
+
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(INSTANCE, new ObjectName(OBJECT_NAME));
+            return true;
+        }
+        catch (InstanceAlreadyExistsException e) {
+            return true;
+        }
+        catch (JMException e) {
+            LOGGER.log(Level.WARNING, "Can't register the function metrics MBean", e);
+            return false;
+        }
+    }
+
+    /**
+     * Removes the function metrics from the platform {@link MBeanServer}.
+     * Nothing happens if they aren't registered.
+     */
+    public static void unregisterMBean() {
+
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(new ObjectName(OBJECT_NAME));
+        }
+        catch (InstanceNotFoundException e) {
+            // Not registered -> Nothing to do
+        }
+        catch (JMException e) {
+            LOGGER.log(Level.WARNING, "Can't unregister the function metrics MBean", e);
+        }
+    }
+
+    @Override
+    public String toString() {
+
+        return getClass().getName() + " [enabled=" + enabled + ", functions=" + functions.size() + "]";
+    }
+
+    /**
+     * The {@link InvokationStats} of a function name, which also stores the stats of the executors of the functions.
+     * The function stats count invokations of the whole function, while the executor stats count the invokations of single executors.
+     */
+    public static class FunctionStats extends InvokationStats {
+
+        private final ConcurrentMap<String, InvokationStats> executors = new ConcurrentHashMap<String, InvokationStats>();
+
+        /**
+         * Returns the {@link InvokationStats} of the executor with the given name.
+         * They are created if they don't exist yet.
+         * 
+         * @param executorName The name of the executor whose stats should be returned.
+         * @return The stats of the executor with the given name.
+         */
+        public InvokationStats getExecutorStats(String executorName) {
+
+            InvokationStats stats = executors.get(executorName);
+            if (stats == null) {
+                stats = new InvokationStats();
+                InvokationStats existing = executors.putIfAbsent(executorName, stats);
+                if (existing != null) {
+                    stats = existing;
+                }
+            }
+
+            return stats;
+        }
+
+        /**
+         * Returns the stats of all executors which were invoked while the metrics were enabled, mapped by the executor names.
+         * 
+         * @return The stats of the executors.
+         */
+        public Map<String, InvokationStats> getExecutorStats() {
+
+            return new TreeMap<String, InvokationStats>(executors);
+        }
+
+    }
+
+}
@@ -0,0 +1,62 @@
+/*
+ * This file is part of Classmod.
+ * Copyright (c) 2014 QuarterCode <http://www.quartercode.com/>
+ *
+ * Classmod is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Classmod is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Classmod. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.classmod.extra.def;
+
+/**
+ * The JMX management interface of the {@link FunctionMetrics}.
+ * It is registered under the object name {@link FunctionMetrics#OBJECT_NAME} through {@link FunctionMetrics#registerMBean()}.
+ * 
+ * @see FunctionMetrics
+ */
+public interface FunctionMetricsMBean {
+
+    /**
+     * Returns whether the metrics are collected.
+     * 
+     * @return True if the metrics are collected, false if not.
+     */
+    public boolean isEnabled();
+
+    /**
+     * Changes whether the metrics are collected.
+     * 
+     * @param enabled True if the metrics should be collected, false if not.
+     */
+    public void setEnabled(boolean enabled);
+
+    /**
+     * Returns the names of all functions which have stats.
+     * 
+     * @return The names of the measured functions.
+     */
+    public String[] getFunctionNames();
+
+    /**
+     * Returns a plain text snapshot of all stats.
+     * 
+     * @return The current stats as text.
+     */
+    public String dump();
+
+    /**
+     * Removes all stats.
+     */
+    public void reset();
+
+}
@@ -0,0 +1,187 @@
+/*
+ * This file is part of Classmod.
+ * Copyright (c) 2014 QuarterCode <http://www.quartercode.com/>
+ *
+ * Classmod is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Classmod is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Classmod. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.classmod.extra.def;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.commons.lang.Validate;
+import com.quartercode.classmod.extra.InvokationListener;
+
+/**
+ * Invokation listeners store the {@link InvokationListener}s which observe the invokations of {@link AbstractFunction}s.
+ * There is one global instance (see {@link #getGlobal()}) for all functions, and every {@link AbstractFunctionDefinition} has its own instance for the functions it creates.
+ * Every listener is registered with a sample interval n, so it only observes every n-th invokation of a function.
+ * The registrations are copied on write, so reading them while a function is invoked doesn't need any locks.
+ * As long as no listener is registered anywhere, functions don't even look at the registrations.
+ * 
+ * @see InvokationListener
+ */
+public class InvokationListeners {
+
+    private static final Registration[]      NO_REGISTRATIONS = new Registration[0];
+    private static final InvokationListeners GLOBAL           = new InvokationListeners();
+
+    /*
+     * The total amount of registrations in all instances, so the invokation probe can be switched off if it's 0.
+     */
+    private static final AtomicInteger       TOTAL_REGISTERED = new AtomicInteger();
+
+    private volatile Registration[]          registrations    = NO_REGISTRATIONS;
+
+    /**
+     * Returns the global invokation listeners, which observe the invokations of all {@link AbstractFunction}s.
+     * 
+     * @return The global invokation listeners.
+     */
+    public static InvokationListeners getGlobal() {
+
+        return GLOBAL;
+    }
+
+    /*
+     * Returns whether any listener is registered in any instance.
+     */
+    static boolean isAnyRegistered() {
+
+        return TOTAL_REGISTERED.get() > 0;
+    }
+
+    /**
+     * Adds the given {@link InvokationListener}, which observes every invokation.
+     * 
+     * @param listener The listener which should be added.
+     */
+    public void add(InvokationListener listener) {
+
+        add(listener, 1);
+    }
+
+    /**
+     * Adds the given {@link InvokationListener}, which only observes every n-th invokation.
+     * For example, an interval of 100 samples the first, the 101st, the 201st invokation and so on.
+     * The invokations are counted separately for every registration.
+     * 
+     * @param listener The listener which should be added.
+     * @param sampleInterval The amount of invokations between two observed invokations. 1 observes every invokation.
+     */
+    public void add(InvokationListener listener, int sampleInterval) {
+
+        Validate.notNull(listener, "Invokation listener cannot be null");
+        Validate.isTrue(sampleInterval > 0, "Sample interval must be positive");
+
+        synchronized (this) {
+            Registration[] newRegistrations = Arrays.copyOf(registrations, registrations.length + 1);
+            newRegistrations[registrations.length] = new Registration(listener, sampleInterval);
+            registrations = newRegistrations;
+        }
+
+        TOTAL_REGISTERED.incrementAndGet();
+        InvokationProbe.update();
+    }
+
+    /**
+     * Removes all registrations of the given {@link InvokationListener}.
+     * 
+     * @param listener The listener which should be removed.
+     */
+    public void remove(InvokationListener listener) {
+
+        int removed = 0;
+        synchronized (this) {
+            List<Registration> newRegistrations = new ArrayList<Registration>();
+            for (Registration registration : registrations) {
+                if (registration.listener == listener) {
+                    removed++;
+                } else {
+                    newRegistrations.add(registration);
+                }
+            }
+            registrations = newRegistrations.toArray(new Registration[newRegistrations.size()]);
+        }
+
+        if (removed > 0) {
+            TOTAL_REGISTERED.addAndGet(-removed);
+            InvokationProbe.update();
+        }
+    }
+
+    /**
+     * Returns all registered {@link InvokationListener}s.
+     * 
+     * @return The registered listeners.
+     */
+    public List<InvokationListener> getListeners() {
+
+        List<InvokationListener> listeners = new ArrayList<InvokationListener>();
+        for (Registration registration : registrations) {
+            listeners.add(registration.listener);
+        }
+        return listeners;
+    }
+
+    /*
+     * Adds the listeners which sample the current invokation to the given list and advances the sample counters.
+     * The list is created lazily; the (possibly new) list is returned.
+     */
+    List<InvokationListener> sample(List<InvokationListener> sampled) {
+
+        for (Registration registration : registrations) {
+            if (registration.sample()) {
+                if (sampled == null) {
+                    sampled = new ArrayList<InvokationListener>(2);
+                }
+                sampled.add(registration.listener);
+            }
+        }
+
+        return sampled;
+    }
+
+    @Override
+    public String toString() {
+
+        return getClass().getName() + " [listeners=" + getListeners() + "]";
+    }
+
+    /*
+     * One registered listener with its sample interval.
+     */
+    private static class Registration {
+
+        private final InvokationListener listener;
+        private final int                sampleInterval;
+        private final AtomicLong         invokations = new AtomicLong();
+
+        private Registration(InvokationListener listener, int sampleInterval) {
+
+            this.listener = listener;
+            this.sampleInterval = sampleInterval;
+        }
+
+        private boolean sample() {
+
+            return sampleInterval == 1 || invokations.getAndIncrement() % sampleInterval == 0;
+        }
+
+    }
+
+}
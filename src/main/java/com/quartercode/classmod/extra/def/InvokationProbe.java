@@ -0,0 +1,250 @@
+/*
+ * This file is part of Classmod.
+ * Copyright (c) 2014 QuarterCode <http://www.quartercode.com/>
+ *
+ * Classmod is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Classmod is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Classmod. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.classmod.extra.def;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import com.quartercode.classmod.extra.InvokationListener;
+import com.quartercode.classmod.extra.def.Watchdog.Watch;
+import com.quartercode.classmod.extra.def.FunctionMetrics.FunctionStats;
+import com.quartercode.classmod.util.FlightRecorderEvents;
+import com.quartercode.classmod.util.FlightRecorderEventType;
+import com.quartercode.classmod.util.FlightRecorderEventType.PendingEvent;
+
+/*
+ * An invokation probe observes one invokation of an abstract function and its executors for all kinds of instrumentation.
+ * Probes are only created while any instrumentation is active, which is tracked by one volatile flag.
+ * Without instrumentation, the function passes null around instead and skips all measurements.
+ */
+final class InvokationProbe {
+
+    private static final Logger     LOGGER = Logger.getLogger(InvokationProbe.class.getName());
+
+    private static volatile boolean active;
+
+    static {
+        FlightRecorderEventType.addRecordingListener(new Runnable() {
+
+            @Override
+            public void run() {
+
+                update();
+            }
+
+        });
+        update();
+    }
+
+    /*
+     * Recalculates whether any instrumentation is active. Must be called every time an instrumentation is switched on or off.
+     */
+    static void update() {
+
+        active = FunctionMetrics.getInstance().isEnabled() || FlightRecorderEventType.isRecording() || InvokationListeners.isAnyRegistered() || Watchdog.getInstance().isEnabled() || ResourceAccounting.getInstance().isEnabled();
+    }
+
+    /*
+     * Starts observing an invokation of the given function. Returns null if no instrumentation is active for the invokation,
+     * for example because the only registered listeners don't sample it.
+     */
+    static InvokationProbe start(AbstractFunction<?> function) {
+
+        if (!active) {
+            return null;
+        }
+
+        List<InvokationListener> listeners = InvokationListeners.getGlobal().sample(null);
+        InvokationListeners functionListeners = function.getInvokationListeners();
+        if (functionListeners != null) {
+            listeners = functionListeners.sample(listeners);
+        }
+
+        FunctionStats stats = FunctionMetrics.getInstance().isEnabled() ? FunctionMetrics.getInstance().getFunctionStats(function.getName()) : null;
+        PendingEvent event = FlightRecorderEvents.FUNCTION_INVOKATION.begin();
+        if (listeners == null && stats == null && event == null && !Watchdog.getInstance().isEnabled() && !ResourceAccounting.getInstance().isEnabled()) {
+            return null;
+        }
+
+        return new InvokationProbe(function, listeners == null ? null : listeners.toArray(new InvokationListener[listeners.size()]), stats, event);
+    }
+
+    private final AbstractFunction<?>  function;
+    private final InvokationListener[] listeners;
+    private final FunctionStats        stats;
+    private final PendingEvent         event;
+    private final long                 start;
+    private final AtomicInteger        executorCount = new AtomicInteger();
+    private volatile String            stoppedBy;
+
+    private InvokationProbe(AbstractFunction<?> function, InvokationListener[] listeners, FunctionStats stats, PendingEvent event) {
+
+        this.function = function;
+        this.listeners = listeners;
+        this.stats = stats;
+        this.event = event;
+        start = System.nanoTime();
+    }
+
+    /*
+     * Returns whether executors are watched by the watchdog, so they need their arguments as an array.
+     */
+    boolean isWatching() {
+
+        return Watchdog.getInstance().isEnabled();
+    }
+
+    /*
+     * Called before the executor with the given name is invoked. The returned call must be passed to endExecutor().
+     * The budget is the value of the budget annotation of the executor or null. The arguments are only used by the watchdog.
+     */
+    ExecutorCall startExecutor(String executorName, Long budget, Object[] arguments) {
+
+        if (listeners != null) {
+            for (InvokationListener listener : listeners) {
+                try {
+                    listener.beforeExecutor(function, executorName);
+                }
+                catch (RuntimeException e) {
+                    LOGGER.log(Level.WARNING, "Invokation listener '" + listener.getClass().getName() + "' threw an exception", e);
+                }
+            }
+        }
+
+        Watch watch = Watchdog.getInstance().watch(function, executorName, budget, function.getWatchdogBudget(), arguments);
+        ResourceAccounting accounting = ResourceAccounting.getInstance();
+        if (accounting.isEnabled()) {
+            return new ExecutorCall(executorName, watch, accounting.getCurrentThreadCpuTime(), accounting.getCurrentThreadAllocatedBytes());
+        } else {
+            return new ExecutorCall(executorName, watch, -1, -1);
+        }
+    }
+
+    /*
+     * Called when an asynchronous executor returned its future and the calling thread continues with other work.
+     * The resources the executor used on the calling thread are charged now, and the watchdog no longer samples that thread.
+     * The call must still be ended through endExecutor() once the future is done.
+     */
+    void suspendExecutor(ExecutorCall call) {
+
+        if (call.watch != null) {
+            call.watch.suspend();
+        }
+
+        chargeResources(call);
+    }
+
+    /*
+     * Charges the CPU time and the allocated bytes of the current thread since the start of the given call to its executor, if that wasn't done yet.
+     */
+    private void chargeResources(ExecutorCall call) {
+
+        if (call.startCpuTime >= 0) {
+            ResourceAccounting accounting = ResourceAccounting.getInstance();
+            long cpuTime = accounting.getCurrentThreadCpuTime() - call.startCpuTime;
+            long allocatedBytes = accounting.getCurrentThreadAllocatedBytes() - call.startAllocatedBytes;
+            accounting.getUsage(function.getName(), call.executorName).charge(cpuTime, allocatedBytes);
+            call.startCpuTime = -1;
+        }
+    }
+
+    /*
+     * Called after an executor was invoked. The result is the return value of the executor.
+     * The failure is the exception or error the executor threw, or null if it returned normally.
+     */
+    void endExecutor(ExecutorCall call, Object result, Throwable failure) {
+
+        long nanos = System.nanoTime() - call.start;
+        String executorName = call.executorName;
+        if (call.watch != null) {
+            call.watch.end();
+        }
+
+        chargeResources(call);
+
+        executorCount.incrementAndGet();
+        if (stats != null) {
+            stats.getExecutorStats(executorName).record(nanos, failure);
+        }
+
+        if (listeners != null) {
+            for (InvokationListener listener : listeners) {
+                try {
+                    if (failure == null) {
+                        listener.afterExecutor(function, executorName, result, nanos);
+                    } else {
+                        listener.executorFailed(function, executorName, failure, nanos);
+                    }
+                }
+                catch (RuntimeException e) {
+                    LOGGER.log(Level.WARNING, "Invokation listener '" + listener.getClass().getName() + "' threw an exception", e);
+                }
+            }
+        }
+    }
+
+    /*
+     * Called when the executor with the given name stopped the invokation.
+     */
+    void stop(String executorName) {
+
+        stoppedBy = executorName;
+        if (stats != null) {
+            stats.recordStop();
+        }
+    }
+
+    /*
+     * Called once the whole invokation is done. The failure is the exception or error the invokation threw, or null.
+     */
+    void end(Throwable failure) {
+
+        if (stats != null) {
+            stats.record(System.nanoTime() - start, failure);
+        }
+
+        FlightRecorderEvents.FUNCTION_INVOKATION.commit(event, function.getName(), function.getHolder().getClass(), executorCount.get(), stoppedBy);
+    }
+
+    /*
+     * One executor invokation which was started through startExecutor().
+     * The start CPU time and allocated bytes are -1 if the resource accounting was disabled when the executor started.
+     * The start CPU time is also set to -1 once the resources were charged.
+     */
+    static class ExecutorCall {
+
+        private final String executorName;
+        private final Watch  watch;
+        private long         startCpuTime;
+        private final long   startAllocatedBytes;
+        private final long   start;
+
+        private ExecutorCall(String executorName, Watch watch, long startCpuTime, long startAllocatedBytes) {
+
+            this.executorName = executorName;
+            this.watch = watch;
+            this.startCpuTime = startCpuTime;
+            this.startAllocatedBytes = startAllocatedBytes;
+            start = System.nanoTime();
+        }
+
+    }
+
+}
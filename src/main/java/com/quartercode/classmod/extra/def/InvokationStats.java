@@ -0,0 +1,130 @@
+/*
+ * This file is part of Classmod.
+ * Copyright (c) 2014 QuarterCode <http://www.quartercode.com/>
+ *
+ * Classmod is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Classmod is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Classmod. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.classmod.extra.def;
+
+import com.quartercode.classmod.extra.FunctionExecutionException;
+import com.quartercode.classmod.extra.ReturnNextException;
+import com.quartercode.classmod.extra.StopExecutionException;
+import com.quartercode.classmod.util.LatencyHistogram;
+import com.quartercode.classmod.util.StripedCounter;
+
+/**
+ * Invokation stats count the calls, errors and stops of a function or a single executor and record their latencies in a {@link LatencyHistogram}.
+ * They are collected by the {@link FunctionMetrics} while they are enabled.
+ * All counters are {@link StripedCounter}s, so concurrent invokations don't contend.
+ * 
+ * @see FunctionMetrics
+ */
+public class InvokationStats {
+
+    private final StripedCounter   calls     = new StripedCounter();
+    private final StripedCounter   errors    = new StripedCounter();
+    private final StripedCounter   stops     = new StripedCounter();
+    private final LatencyHistogram latencies = new LatencyHistogram();
+
+    /**
+     * Records one call which took the given amount of nanoseconds.
+     * The given failure is the exception or error the call threw. It is null if the call completed normally.
+     * {@link StopExecutionException}s are counted as stops, {@link ReturnNextException}s are normal calls and everything else is an error.
+     * Stops with a cause are also errors because they are rethrown as {@link FunctionExecutionException}s.
+     * 
+     * @param nanos The duration of the call in nanoseconds.
+     * @param failure The exception or error which was thrown by the call, or null.
+     */
+    public void record(long nanos, Throwable failure) {
+
+        calls.increment();
+        latencies.record(nanos);
+
+        if (failure instanceof StopExecutionException) {
+            stops.increment();
+            if (failure.getCause() != null) {
+                errors.increment();
+            }
+        } else if (failure != null && ! (failure instanceof ReturnNextException)) {
+            errors.increment();
+        }
+    }
+
+    /**
+     * Counts one stop which wasn't caused by a {@link StopExecutionException}, for example because an executor stopped a whole function.
+     */
+    public void recordStop() {
+
+        stops.increment();
+    }
+
+    /**
+     * Returns the amount of recorded calls.
+     * 
+     * @return The amount of calls.
+     */
+    public long getCalls() {
+
+        return calls.sum();
+    }
+
+    /**
+     * Returns the amount of recorded calls which threw an unexpected exception or were stopped with a cause.
+     * 
+     * @return The amount of failed calls.
+     */
+    public long getErrors() {
+
+        return errors.sum();
+    }
+
+    /**
+     * Returns the amount of recorded calls which stopped the invokation of a function.
+     * 
+     * @return The amount of stops.
+     */
+    public long getStops() {
+
+        return stops.sum();
+    }
+
+    /**
+     * Returns the {@link LatencyHistogram} which stores the durations of the recorded calls in nanoseconds.
+     * 
+     * @return The latency histogram of the calls.
+     */
+    public LatencyHistogram getLatencies() {
+
+        return latencies;
+    }
+
+    /**
+     * Resets all counters and the {@link LatencyHistogram}.
+     */
+    public void reset() {
+
+        calls.reset();
+        errors.reset();
+        stops.reset();
+        latencies.reset();
+    }
+
+    @Override
+    public String toString() {
+
+        return "calls=" + getCalls() + ", errors=" + getErrors() + ", stops=" + getStops() + ", mean=" + (long) latencies.getMean() + "ns, p50=" + latencies.getValueAtPercentile(50) + "ns, p99=" + latencies.getValueAtPercentile(99) + "ns, max=" + latencies.getMax() + "ns";
+    }
+
+}
@@ -0,0 +1,233 @@
+/*
+ * This file is part of Classmod.
+ * Copyright (c) 2014 QuarterCode <http://www.quartercode.com/>
+ *
+ * Classmod is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Classmod is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Classmod. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.classmod.extra.def;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.apache.commons.lang.Validate;
+import com.quartercode.classmod.base.FeatureHolder;
+import com.quartercode.classmod.extra.Function;
+import com.quartercode.classmod.extra.FunctionFuture;
+
+/**
+ * A mailbox executor runs tasks for {@link FeatureHolder}s one at a time per holder on a shared thread pool.
+ * Every holder owns a mailbox which is stored by the executor in a map with weak identity keys, so the holders themselves aren't changed and can still be garbage collected.
+ * The tasks of one mailbox are never executed concurrently, so they can use {@link Function}s and properties which aren't thread-safe without any locks.
+ * Different holders are processed in parallel by the threads of the pool.
+ * 
+ * <p>
+ * Each mailbox is bounded: If it is full, the submitting thread blocks until there is space again.
+ * A pool thread drains a mailbox in batches of several tasks before it releases the mailbox, which keeps the data of one holder in the caches of one thread.
+ * A task mustn't submit new tasks to its own full mailbox since it would wait for itself; such a submission is rejected.
+ * </p>
+ * 
+ * @see FeatureHolder
+ * @see Function
+ */
+public class MailboxExecutor {
+
+    private static final ThreadLocal<Mailbox>                            CURRENT_MAILBOX  = new ThreadLocal<Mailbox>();
+
+    private final Executor                                               pool;
+    private final int                                                    capacity;
+    private final int                                                    batchSize;
+    private final ConcurrentMap<WeakIdentityKey<FeatureHolder>, Mailbox> mailboxes        = new ConcurrentHashMap<WeakIdentityKey<FeatureHolder>, Mailbox>();
+    private final ReferenceQueue<FeatureHolder>                          collectedHolders = new ReferenceQueue<FeatureHolder>();
+
+    /**
+     * Creates a new mailbox executor which runs the tasks on the given pool.
+     * 
+     * @param pool The {@link Executor} which provides the threads that drain the mailboxes.
+     * @param capacity The maximum amount of tasks which can wait in the mailbox of one holder.
+     * @param batchSize The maximum amount of tasks a pool thread executes from one mailbox before it releases the mailbox.
+     */
+    public MailboxExecutor(Executor pool, int capacity, int batchSize) {
+
+        Validate.notNull(pool, "Pool cannot be null");
+        Validate.isTrue(capacity > 0, "Capacity must be positive");
+        Validate.isTrue(batchSize > 0, "Batch size must be positive");
+
+        this.pool = pool;
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Returns the {@link Executor} which provides the threads that drain the mailboxes.
+     * 
+     * @return The pool of the mailbox executor.
+     */
+    public Executor getPool() {
+
+        return pool;
+    }
+
+    /**
+     * Queues the invokation of the given {@link Function} with the given arguments in the mailbox of the {@link FeatureHolder} of the function.
+     * This method blocks while the mailbox is full.
+     * 
+     * @param function The {@link Function} to invoke.
+     * @param arguments The arguments for the invokation.
+     * @return A {@link FunctionFuture} which provides the result of the invokation.
+     *         If the invokation fails, the future fails with the {@link com.quartercode.classmod.extra.FunctionExecutionException}.
+     * @throws InterruptedException The thread was interrupted while it was waiting for space in the mailbox.
+     */
+    public <R> FunctionFuture<R> invokeAsync(final Function<R> function, final Object... arguments) throws InterruptedException {
+
+        return submit(function.getHolder(), new Callable<R>() {
+
+            @Override
+            public R call() throws Exception {
+
+                return function.invoke(arguments);
+            }
+
+        });
+    }
+
+    /**
+     * Queues the given task in the mailbox of the given {@link FeatureHolder}.
+     * This method blocks while the mailbox is full.
+     * 
+     * @param holder The {@link FeatureHolder} whose mailbox should execute the task.
+     * @param task The task to execute.
+     * @return A {@link FunctionFuture} which provides the result of the task.
+     * @throws InterruptedException The thread was interrupted while it was waiting for space in the mailbox.
+     */
+    public <T> FunctionFuture<T> submit(FeatureHolder holder, final Callable<T> task) throws InterruptedException {
+
+        final DefaultFunctionFuture<T> future = new DefaultFunctionFuture<T>();
+        getMailbox(holder).enqueue(new Runnable() {
+
+            @Override
+            public void run() {
+
+                // Cancelled tasks are skipped
+                if (!future.isDone()) {
+                    try {
+                        future.complete(task.call());
+                    }
+                    catch (Exception e) {
+                        future.fail(e);
+                    }
+                    catch (Error e) {
+                        future.fail(e);
+                        throw e;
+                    }
+                }
+            }
+
+        });
+        return future;
+    }
+
+    private Mailbox getMailbox(FeatureHolder holder) {
+
+        // Remove the mailboxes of collected holders; their remaining tasks still run since the mailboxes stay referenced while they are scheduled
+        for (Reference<? extends FeatureHolder> collected = collectedHolders.poll(); collected != null; collected = collectedHolders.poll()) {
+            mailboxes.remove(collected);
+        }
+
+        Mailbox mailbox = mailboxes.get(new WeakIdentityKey<FeatureHolder>(holder, null));
+        if (mailbox == null) {
+            mailbox = new Mailbox(holder.getClass().getName() + "@" + Integer.toHexString(System.identityHashCode(holder)));
+            // Only the stored key is registered, so collected holders are removed exactly once
+            Mailbox existing = mailboxes.putIfAbsent(new WeakIdentityKey<FeatureHolder>(holder, collectedHolders), mailbox);
+            if (existing != null) {
+                mailbox = existing;
+            }
+        }
+
+        return mailbox;
+    }
+
+    /*
+     * The mailbox of one holder. The scheduled flag guarantees that at most one pool thread drains the mailbox at a time.
+     * The mailbox doesn't reference its holder, so the holder can be collected while the mailbox is stored.
+     */
+    private class Mailbox implements Runnable {
+
+        private final String                  holderName;
+        private final BlockingQueue<Runnable> tasks     = new ArrayBlockingQueue<Runnable>(capacity);
+        private final AtomicBoolean           scheduled = new AtomicBoolean();
+
+        private Mailbox(String holderName) {
+
+            this.holderName = holderName;
+        }
+
+        private void enqueue(Runnable task) throws InterruptedException {
+
+            if (CURRENT_MAILBOX.get() == this) {
+                if (!tasks.offer(task)) {
+                    throw new RejectedExecutionException("Mailbox of " + holderName + " is full and can't be drained by its own task");
+                }
+            } else {
+                tasks.put(task);
+            }
+
+            schedule();
+        }
+
+        private void schedule() {
+
+            if (!tasks.isEmpty() && scheduled.compareAndSet(false, true)) {
+                try {
+                    pool.execute(this);
+                }
+                catch (RejectedExecutionException e) {
+                    scheduled.set(false);
+                    throw e;
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+
+            CURRENT_MAILBOX.set(this);
+            try {
+                for (int task = 0; task < batchSize; task++) {
+                    Runnable next = tasks.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    next.run();
+                }
+            }
+            finally {
+                CURRENT_MAILBOX.remove();
+                scheduled.set(false);
+
+                // Tasks which were queued while the flag was still set, or which follow a task that threw an error, would be stranded otherwise
+                schedule();
+            }
+        }
+
+    }
+
+}
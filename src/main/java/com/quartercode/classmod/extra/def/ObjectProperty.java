@@ -38,7 +38,7 @@ import com.quartercode.classmod.util.ObjectAdapter;
 @Persistent
 public class ObjectProperty<T> extends AbstractPersistentFeature implements Property<T> {
 
-    private T object;
+    private volatile T object;
 
     /**
      * Creates a new empty object property.
@@ -84,7 +84,13 @@ public class ObjectProperty<T> extends AbstractPersistentFeature implements Prop
     @Override
     public void set(T value) {
 
-        object = value;
+        startModification();
+        try {
+            object = value;
+        }
+        finally {
+            completeModification();
+        }
     }
 
     @Override
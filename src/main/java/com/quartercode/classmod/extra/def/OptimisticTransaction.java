@@ -0,0 +1,462 @@
+/*
+ * This file is part of Classmod.
+ * Copyright (c) 2014 QuarterCode <http://www.quartercode.com/>
+ *
+ * Classmod is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Classmod is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Classmod. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.classmod.extra.def;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import com.quartercode.classmod.base.FeatureDefinition;
+import com.quartercode.classmod.base.FeatureHolder;
+import com.quartercode.classmod.base.VersionedFeatureHolder;
+import com.quartercode.classmod.extra.ChildFeatureHolder;
+import com.quartercode.classmod.extra.ExecutorInvokationException;
+import com.quartercode.classmod.extra.Property;
+import com.quartercode.classmod.extra.Transaction;
+import com.quartercode.classmod.extra.TransactionConflictException;
+
+/**
+ * An optimistic transaction is a {@link Transaction} which doesn't lock anything until it is committed.
+ * It remembers a stamp (see {@link VersionedFeatureHolder#getStamp()}) for every {@link VersionedFeatureHolder} it reads from.
+ * On commit, it locks all involved {@link FeatureHolder}s in a global order, validates the stamps and applies the buffered changes in the order they were made.
+ * The commit locks are private to the transactions, so code which synchronizes on a {@link FeatureHolder} can't block a commit.
+ * Reads from {@link FeatureHolder}s which aren't versioned can't be validated.
+ * If a buffered change throws an exception (for example because a value is rejected), the changes which were already applied are undone in reverse order.
+ * The {@link #execute(Work)} method retries a {@link Work} with new transactions until one of them commits successfully.
+ * 
+ * @see Transaction
+ * @see VersionedFeatureHolder
+ */
+public class OptimisticTransaction implements Transaction {
+
+    /*
+     * Commits which contain two holders with the same identity hash code can't rely on the lock order and are serialized with this lock.
+     */
+    private static final Object                                                TIE_LOCK          = new Object();
+    private static final Comparator<FeatureHolder>                             LOCK_ORDER        = new LockOrder();
+
+    /*
+     * The commit locks of the holders. They are stored with weak identity keys, so the holders can still be garbage collected.
+     */
+    private static final ConcurrentMap<WeakIdentityKey<FeatureHolder>, Object> COMMIT_LOCKS      = new ConcurrentHashMap<WeakIdentityKey<FeatureHolder>, Object>();
+    private static final ReferenceQueue<FeatureHolder>                         COLLECTED_HOLDERS = new ReferenceQueue<FeatureHolder>();
+
+    // Holders aren't compared with equals() since their hash codes change with their features
+    private final Map<FeatureHolder, Integer>                                  stamps            = new IdentityHashMap<FeatureHolder, Integer>();
+    private final Map<FeatureHolder, Map<FeatureDefinition<?>, Object>>        writes            = new IdentityHashMap<FeatureHolder, Map<FeatureDefinition<?>, Object>>();
+    private final Set<FeatureHolder>                                           modified          = Collections.newSetFromMap(new IdentityHashMap<FeatureHolder, Boolean>());
+    private final List<Operation>                                              operations        = new ArrayList<Operation>();
+    private boolean                                                            finished;
+
+    /**
+     * Executes the given {@link Work} with new optimistic transactions until one of them commits successfully.
+     * The work is retried if a commit fails or a {@link TransactionConflictException} is thrown.
+     * 
+     * @param work The {@link Work} to execute.
+     * @return The result of the work execution whose transaction committed successfully.
+     * @throws ExecutorInvokationException The work throws an exception.
+     */
+    public static <T> T execute(Work<T> work) throws ExecutorInvokationException {
+
+        while (true) {
+            OptimisticTransaction transaction = new OptimisticTransaction();
+            try {
+                T result = work.execute(transaction);
+                if (transaction.commit()) {
+                    return result;
+                }
+            }
+            catch (TransactionConflictException e) {
+                // Retry the work with a new transaction
+            }
+
+            Thread.yield();
+        }
+    }
+
+    /**
+     * Creates a new empty optimistic transaction.
+     */
+    public OptimisticTransaction() {
+
+    }
+
+    @SuppressWarnings ("unchecked")
+    @Override
+    public <T> T get(FeatureHolder holder, FeatureDefinition<? extends Property<T>> propertyDefinition) {
+
+        checkActive();
+
+        Map<FeatureDefinition<?>, Object> holderWrites = writes.get(holder);
+        if (holderWrites != null && holderWrites.containsKey(propertyDefinition)) {
+            return (T) holderWrites.get(propertyDefinition);
+        }
+
+        // The property is retrieved before the stamp is taken because its creation might already modify the holder
+        Property<T> property = holder.get(propertyDefinition);
+        Integer stamp = stamps.get(holder);
+        if (stamp == null && holder instanceof VersionedFeatureHolder) {
+            stamp = ((VersionedFeatureHolder) holder).getStamp();
+            stamps.put(holder, stamp);
+        }
+
+        T value = property.get();
+        if (stamp != null && ! ((VersionedFeatureHolder) holder).validate(stamp)) {
+            throw new TransactionConflictException("Feature holder " + holder + " was modified during the transaction");
+        }
+
+        return value;
+    }
+
+    @Override
+    public <T> void set(final FeatureHolder holder, final FeatureDefinition<? extends Property<T>> propertyDefinition, final T value) {
+
+        checkActive();
+
+        Map<FeatureDefinition<?>, Object> holderWrites = writes.get(holder);
+        if (holderWrites == null) {
+            holderWrites = new HashMap<FeatureDefinition<?>, Object>();
+            writes.put(holder, holderWrites);
+        }
+        holderWrites.put(propertyDefinition, value);
+
+        addOperation(holder, new Operation() {
+
+            @Override
+            public Operation apply() {
+
+                final Property<T> property = holder.get(propertyDefinition);
+                final T oldValue = property.get();
+                property.set(value);
+
+                return new Operation() {
+
+                    @Override
+                    public Operation apply() {
+
+                        property.set(oldValue);
+                        return null;
+                    }
+
+                };
+            }
+
+        });
+    }
+
+    @Override
+    public <E> void add(final FeatureHolder holder, final FeatureDefinition<? extends Property<? extends Collection<E>>> propertyDefinition, final E element) {
+
+        checkActive();
+
+        if (element instanceof ChildFeatureHolder) {
+            modified.add((ChildFeatureHolder<?>) element);
+        }
+        addOperation(holder, new Operation() {
+
+            @SuppressWarnings ("unchecked")
+            @Override
+            public Operation apply() {
+
+                final Collection<E> collection = holder.get(propertyDefinition).get();
+                if (!collection.add(element)) {
+                    return null;
+                }
+
+                // Set the parent of the added element the new holder
+                final FeatureHolder oldParent = element instanceof ChildFeatureHolder ? ((ChildFeatureHolder<?>) element).getParent() : null;
+                if (element instanceof ChildFeatureHolder) {
+                    // Is always true because of <P extends FeatureHolder> in ChildFeatureHolder
+                    ((ChildFeatureHolder<FeatureHolder>) element).setParent(holder);
+                }
+
+                return new Operation() {
+
+                    @Override
+                    public Operation apply() {
+
+                        removeLast(collection, element);
+                        if (element instanceof ChildFeatureHolder) {
+                            ((ChildFeatureHolder<FeatureHolder>) element).setParent(oldParent);
+                        }
+                        return null;
+                    }
+
+                };
+            }
+
+        });
+    }
+
+    @Override
+    public <E> void remove(final FeatureHolder holder, final FeatureDefinition<? extends Property<? extends Collection<E>>> propertyDefinition, final Object element) {
+
+        checkActive();
+
+        if (element instanceof ChildFeatureHolder) {
+            modified.add((ChildFeatureHolder<?>) element);
+        }
+        addOperation(holder, new Operation() {
+
+            @SuppressWarnings ("unchecked")
+            @Override
+            public Operation apply() {
+
+                final Collection<E> collection = holder.get(propertyDefinition).get();
+                // Lists remember the index, so the undo can put the element back at its old position
+                final int index = collection instanceof List ? ((List<E>) collection).indexOf(element) : -1;
+                if (index >= 0) {
+                    ((List<E>) collection).remove(index);
+                } else if (collection instanceof List || !collection.remove(element)) {
+                    return null;
+                }
+
+                // Set the parent of the removed element to null
+                final FeatureHolder oldParent = element instanceof ChildFeatureHolder ? ((ChildFeatureHolder<?>) element).getParent() : null;
+                if (element instanceof ChildFeatureHolder) {
+                    ((ChildFeatureHolder<?>) element).setParent(null);
+                }
+
+                return new Operation() {
+
+                    @Override
+                    public Operation apply() {
+
+                        // The element was contained in the collection, so it has the element type
+                        if (index >= 0) {
+                            ((List<E>) collection).add(index, (E) element);
+                        } else {
+                            collection.add((E) element);
+                        }
+                        if (element instanceof ChildFeatureHolder) {
+                            ((ChildFeatureHolder<FeatureHolder>) element).setParent(oldParent);
+                        }
+                        return null;
+                    }
+
+                };
+            }
+
+        });
+    }
+
+    @Override
+    public <P extends FeatureHolder> void setParent(final ChildFeatureHolder<P> child, final P parent) {
+
+        checkActive();
+
+        addOperation(child, new Operation() {
+
+            @Override
+            public Operation apply() {
+
+                final P oldParent = child.getParent();
+                child.setParent(parent);
+
+                return new Operation() {
+
+                    @Override
+                    public Operation apply() {
+
+                        child.setParent(oldParent);
+                        return null;
+                    }
+
+                };
+            }
+
+        });
+    }
+
+    private void checkActive() {
+
+        if (finished) {
+            throw new IllegalStateException("Transaction was already committed");
+        }
+    }
+
+    /*
+     * Removes the last occurrence of the given element, which is the one an add operation appended to a list.
+     */
+    private static void removeLast(Collection<?> collection, Object element) {
+
+        if (collection instanceof List) {
+            ListIterator<?> iterator = ((List<?>) collection).listIterator(collection.size());
+            while (iterator.hasPrevious()) {
+                Object previous = iterator.previous();
+                if (previous == null ? element == null : previous.equals(element)) {
+                    iterator.remove();
+                    return;
+                }
+            }
+        } else {
+            collection.remove(element);
+        }
+    }
+
+    private void addOperation(FeatureHolder holder, Operation operation) {
+
+        modified.add(holder);
+        operations.add(operation);
+    }
+
+    @Override
+    public boolean commit() {
+
+        checkActive();
+        finished = true;
+
+        List<FeatureHolder> holders = new ArrayList<FeatureHolder>(stamps.keySet());
+        for (FeatureHolder holder : modified) {
+            if (!stamps.containsKey(holder)) {
+                holders.add(holder);
+            }
+        }
+        Collections.sort(holders, LOCK_ORDER);
+
+        for (int index = 1; index < holders.size(); index++) {
+            if (LOCK_ORDER.compare(holders.get(index - 1), holders.get(index)) == 0) {
+                synchronized (TIE_LOCK) {
+                    return commit(holders, 0);
+                }
+            }
+        }
+
+        return commit(holders, 0);
+    }
+
+    /*
+     * Acquires the commit locks of the given holders one after another and commits when all of them are held.
+     */
+    private boolean commit(List<FeatureHolder> holders, int index) {
+
+        if (index < holders.size()) {
+            synchronized (getCommitLock(holders.get(index))) {
+                return commit(holders, index + 1);
+            }
+        }
+
+        List<VersionedFeatureHolder> startedHolders = new ArrayList<VersionedFeatureHolder>();
+        try {
+            // Modifications of other threads which start after this point are detected by the validation
+            for (FeatureHolder holder : modified) {
+                if (holder instanceof VersionedFeatureHolder) {
+                    ((VersionedFeatureHolder) holder).startModification();
+                    startedHolders.add((VersionedFeatureHolder) holder);
+                }
+            }
+
+            for (Entry<FeatureHolder, Integer> stamp : stamps.entrySet()) {
+                // The modification this transaction started itself mustn't cause a conflict
+                int expectedStamp = modified.contains(stamp.getKey()) ? stamp.getValue() + 1 : stamp.getValue();
+                if (! ((VersionedFeatureHolder) stamp.getKey()).validate(expectedStamp)) {
+                    return false;
+                }
+            }
+
+            apply();
+            return true;
+        }
+        finally {
+            for (VersionedFeatureHolder holder : startedHolders) {
+                holder.completeModification();
+            }
+        }
+    }
+
+    private static Object getCommitLock(FeatureHolder holder) {
+
+        // Remove the locks of collected holders
+        for (Reference<? extends FeatureHolder> collected = COLLECTED_HOLDERS.poll(); collected != null; collected = COLLECTED_HOLDERS.poll()) {
+            COMMIT_LOCKS.remove(collected);
+        }
+
+        Object lock = COMMIT_LOCKS.get(new WeakIdentityKey<FeatureHolder>(holder, null));
+        if (lock == null) {
+            lock = new Object();
+            Object existing = COMMIT_LOCKS.putIfAbsent(new WeakIdentityKey<FeatureHolder>(holder, COLLECTED_HOLDERS), lock);
+            if (existing != null) {
+                lock = existing;
+            }
+        }
+
+        return lock;
+    }
+
+    /*
+     * Applies all operations. If one of them fails, the operations which were already applied are undone in reverse order.
+     */
+    private void apply() {
+
+        List<Operation> undoOperations = new ArrayList<Operation>(operations.size());
+        boolean applied = false;
+        try {
+            for (Operation operation : operations) {
+                Operation undoOperation = operation.apply();
+                if (undoOperation != null) {
+                    undoOperations.add(undoOperation);
+                }
+            }
+            applied = true;
+        }
+        finally {
+            if (!applied) {
+                for (int index = undoOperations.size() - 1; index >= 0; index--) {
+                    undoOperations.get(index).apply();
+                }
+            }
+        }
+    }
+
+    /*
+     * A buffered change. Applying it returns the operation which undoes it, or null if nothing was changed.
+     */
+    private static interface Operation {
+
+        public Operation apply();
+
+    }
+
+    /*
+     * Orders the holders by their identity hash codes, so concurrent commits always acquire the commit locks of the holders in the same order.
+     */
+    private static class LockOrder implements Comparator<FeatureHolder> {
+
+        @Override
+        public int compare(FeatureHolder holder1, FeatureHolder holder2) {
+
+            int hash1 = System.identityHashCode(holder1);
+            int hash2 = System.identityHashCode(holder2);
+            return hash1 < hash2 ? -1 : hash1 == hash2 ? 0 : 1;
+        }
+
+    }
+
+}
@@ -38,7 +38,7 @@ import com.quartercode.classmod.extra.Property;
 @Persistent
 public class ReferenceProperty<T> extends AbstractPersistentFeature implements Property<T> {
 
-    private T reference;
+    private volatile T reference;
 
     /**
      * Creates a new empty reference property.
@@ -83,7 +83,13 @@ public class ReferenceProperty<T> extends AbstractPersistentFeature implements P
     @Override
     public void set(T value) {
 
-        reference = value;
+        startModification();
+        try {
+            reference = value;
+        }
+        finally {
+            completeModification();
+        }
     }
 
     @Override
@@ -0,0 +1,399 @@
+/*
+ * This file is part of Classmod.
+ * Copyright (c) 2014 QuarterCode <http://www.quartercode.com/>
+ *
+ * Classmod is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Classmod is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Classmod. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.classmod.extra.def;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import com.quartercode.classmod.extra.FunctionExecutor;
+import com.quartercode.classmod.util.StripedCounter;
+
+/**
+ * The resource accounting charges the CPU time and the allocated bytes of the current thread to every {@link FunctionExecutor} name of every {@link AbstractFunction} name.
+ * The values are read from the {@link ThreadMXBean} before and after each executor invokation, so they include nested function invokations.
+ * Asynchronous executors are only charged for the work they do on the invoking thread before they return their future.
+ * The allocated bytes are only available on runtimes whose thread bean supports them (for example HotSpot); they are read through reflection.
+ * The totals are stored in {@link StripedCounter}s and can be listed as a top-n report through {@link #report(int)}.
+ * The accounting is disabled by default.
+ */
+public class ResourceAccounting {
+
+    private static final Logger                                               LOGGER             = Logger.getLogger(ResourceAccounting.class.getName());
+
+    private static final ResourceAccounting                                   INSTANCE           = new ResourceAccounting();
+
+    private static final Comparator<ResourceUsage>                            BY_CPU_TIME        = new ResourceComparator(true);
+    private static final Comparator<ResourceUsage>                            BY_ALLOCATED_BYTES = new ResourceComparator(false);
+
+    private final ThreadMXBean                                                threadBean         = ManagementFactory.getThreadMXBean();
+    private final Method                                                      getThreadAllocatedBytes;
+    private final ConcurrentMap<String, ConcurrentMap<String, ResourceUsage>> usages             = new ConcurrentHashMap<String, ConcurrentMap<String, ResourceUsage>>();
+    private volatile boolean                                                  enabled;
+    private volatile boolean                                                  cpuTimeEnabled;
+    private volatile boolean                                                  allocatedBytesEnabled;
+
+    /**
+     * Returns the process-wide resource accounting.
+     * 
+     * @return The resource accounting.
+     */
+    public static ResourceAccounting getInstance() {
+
+        return INSTANCE;
+    }
+
+    private ResourceAccounting() {
+
+        getThreadAllocatedBytes = resolveGetThreadAllocatedBytes();
+    }
+
+    /*
+     * Resolves com.sun.management.ThreadMXBean.getThreadAllocatedBytes(long) through reflection, since it isn't part of the standard API.
+     */
+    private Method resolveGetThreadAllocatedBytes() {
+
+        try {
+            Class<?> extendedBeanClass = Class.forName("com.sun.management.ThreadMXBean");
+            if (extendedBeanClass.isInstance(threadBean) && (Boolean) extendedBeanClass.getMethod("isThreadAllocatedMemorySupported").invoke(threadBean)) {
+                return extendedBeanClass.getMethod("getThreadAllocatedBytes", long.class);
+            }
+        }
+        catch (Exception e) {
+            LOGGER.log(Level.FINE, "Thread allocation counters aren't available", e);
+        }
+
+        return null;
+    }
+
+    /**
+     * Returns whether the thread bean of the runtime supports measuring the CPU time of the current thread.
+     * 
+     * @return True if the CPU time of executors can be accounted.
+     */
+    public boolean isCpuTimeSupported() {
+
+        return threadBean.isCurrentThreadCpuTimeSupported();
+    }
+
+    /**
+     * Returns whether the thread bean of the runtime supports counting the bytes a thread allocated.
+     * 
+     * @return True if the allocated bytes of executors can be accounted.
+     */
+    public boolean isAllocatedBytesSupported() {
+
+        return getThreadAllocatedBytes != null;
+    }
+
+    /**
+     * Returns whether the resources of the executors are accounted.
+     * 
+     * @return True if the accounting is enabled, false if not.
+     */
+    public boolean isEnabled() {
+
+        return enabled;
+    }
+
+    /**
+     * Changes whether the resources of the executors are accounted.
+     * Enabling the accounting also enables the CPU time and allocation measurements of the thread bean if they are supported.
+     * 
+     * @param enabled True if the accounting should be enabled, false if not.
+     */
+    public synchronized void setEnabled(boolean enabled) {
+
+        if (enabled) {
+            cpuTimeEnabled = isCpuTimeSupported() && enableThreadCpuTime();
+            allocatedBytesEnabled = isAllocatedBytesSupported() && enableThreadAllocatedMemory();
+        }
+
+        this.enabled = enabled;
+        InvokationProbe.update();
+    }
+
+    private boolean enableThreadCpuTime() {
+
+        try {
+            if (!threadBean.isThreadCpuTimeEnabled()) {
+                threadBean.setThreadCpuTimeEnabled(true);
+            }
+            return true;
+        }
+        catch (UnsupportedOperationException e) {
+            LOGGER.log(Level.WARNING, "Can't enable thread CPU time measurement", e);
+            return false;
+        }
+    }
+
+    private boolean enableThreadAllocatedMemory() {
+
+        try {
+            Class<?> extendedBeanClass = getThreadAllocatedBytes.getDeclaringClass();
+            if (! ((Boolean) extendedBeanClass.getMethod("isThreadAllocatedMemoryEnabled").invoke(threadBean))) {
+                extendedBeanClass.getMethod("setThreadAllocatedMemoryEnabled", boolean.class).invoke(threadBean, true);
+            }
+            return true;
+        }
+        catch (Exception e) {
+            LOGGER.log(Level.WARNING, "Can't enable thread allocation measurement", e);
+            return false;
+        }
+    }
+
+    /*
+     * Returns the CPU time of the current thread in nanoseconds, or 0 if it isn't measured.
+     */
+    long getCurrentThreadCpuTime() {
+
+        return cpuTimeEnabled ? threadBean.getCurrentThreadCpuTime() : 0;
+    }
+
+    /*
+     * Returns the amount of bytes the current thread allocated, or 0 if they aren't measured.
+     */
+    long getCurrentThreadAllocatedBytes() {
+
+        if (!allocatedBytesEnabled) {
+            return 0;
+        }
+
+        try {
+            return (Long) getThreadAllocatedBytes.invoke(threadBean, Thread.currentThread().getId());
+        }
+        catch (Exception e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Returns the {@link ResourceUsage} of the executor with the given name in the functions with the given name.
+     * It is created if it doesn't exist yet.
+     * 
+     * @param functionName The name of the functions which contain the executor.
+     * @param executorName The name of the executor whose usage should be returned.
+     * @return The resource usage of the executor.
+     */
+    public ResourceUsage getUsage(String functionName, String executorName) {
+
+        ConcurrentMap<String, ResourceUsage> functionUsages = usages.get(functionName);
+        if (functionUsages == null) {
+            functionUsages = new ConcurrentHashMap<String, ResourceUsage>();
+            ConcurrentMap<String, ResourceUsage> existing = usages.putIfAbsent(functionName, functionUsages);
+            if (existing != null) {
+                functionUsages = existing;
+            }
+        }
+
+        ResourceUsage usage = functionUsages.get(executorName);
+        if (usage == null) {
+            usage = new ResourceUsage(functionName, executorName);
+            ResourceUsage existing = functionUsages.putIfAbsent(executorName, usage);
+            if (existing != null) {
+                usage = existing;
+            }
+        }
+
+        return usage;
+    }
+
+    /**
+     * Returns the {@link ResourceUsage}s of the given amount of executors which used the most CPU time, sorted by their CPU time.
+     * 
+     * @param count The maximum amount of usages which should be returned.
+     * @return The usages of the executors with the highest CPU time.
+     */
+    public List<ResourceUsage> getTopByCpuTime(int count) {
+
+        return getTop(count, BY_CPU_TIME);
+    }
+
+    /**
+     * Returns the {@link ResourceUsage}s of the given amount of executors which allocated the most bytes, sorted by their allocated bytes.
+     * 
+     * @param count The maximum amount of usages which should be returned.
+     * @return The usages of the executors with the most allocated bytes.
+     */
+    public List<ResourceUsage> getTopByAllocatedBytes(int count) {
+
+        return getTop(count, BY_ALLOCATED_BYTES);
+    }
+
+    private List<ResourceUsage> getTop(int count, Comparator<ResourceUsage> comparator) {
+
+        List<ResourceUsage> allUsages = new ArrayList<ResourceUsage>();
+        for (ConcurrentMap<String, ResourceUsage> functionUsages : usages.values()) {
+            allUsages.addAll(functionUsages.values());
+        }
+
+        Collections.sort(allUsages, comparator);
+        return allUsages.subList(0, Math.min(count, allUsages.size()));
+    }
+
+    /**
+     * Returns a plain text report which lists the given amount of executors with the highest CPU time and the ones with the most allocated bytes.
+     * 
+     * @param count The amount of executors which should be listed in each part of the report.
+     * @return The top-n report.
+     */
+    public String report(int count) {
+
+        StringBuilder report = new StringBuilder();
+        report.append("Top ").append(count).append(" executors by CPU time:\n");
+        for (ResourceUsage usage : getTopByCpuTime(count)) {
+            report.append("    ").append(usage).append("\n");
+        }
+        report.append("Top ").append(count).append(" executors by allocated bytes:\n");
+        for (ResourceUsage usage : getTopByAllocatedBytes(count)) {
+            report.append("    ").append(usage).append("\n");
+        }
+
+        return report.toString();
+    }
+
+    /**
+     * Removes all accounted usages.
+     */
+    public void reset() {
+
+        usages.clear();
+    }
+
+    @Override
+    public String toString() {
+
+        return getClass().getName() + " [enabled=" + enabled + ", cpuTime=" + cpuTimeEnabled + ", allocatedBytes=" + allocatedBytesEnabled + ", functions=" + usages.size() + "]";
+    }
+
+    /**
+     * The resource usage stores the CPU time and the allocated bytes which were charged to one executor name of one function name.
+     */
+    public static class ResourceUsage {
+
+        private final String         functionName;
+        private final String         executorName;
+        private final StripedCounter invokations    = new StripedCounter();
+        private final StripedCounter cpuTime        = new StripedCounter();
+        private final StripedCounter allocatedBytes = new StripedCounter();
+
+        private ResourceUsage(String functionName, String executorName) {
+
+            this.functionName = functionName;
+            this.executorName = executorName;
+        }
+
+        /**
+         * Returns the name of the functions which contain the executor.
+         * 
+         * @return The function name.
+         */
+        public String getFunctionName() {
+
+            return functionName;
+        }
+
+        /**
+         * Returns the name of the executor the resources were charged to.
+         * 
+         * @return The executor name.
+         */
+        public String getExecutorName() {
+
+            return executorName;
+        }
+
+        /**
+         * Returns the amount of accounted invokations of the executor.
+         * 
+         * @return The amount of invokations.
+         */
+        public long getInvokations() {
+
+            return invokations.sum();
+        }
+
+        /**
+         * Returns the CPU time in nanoseconds the executor used in all accounted invokations.
+         * 
+         * @return The total CPU time in nanoseconds.
+         */
+        public long getCpuTime() {
+
+            return cpuTime.sum();
+        }
+
+        /**
+         * Returns the amount of bytes the executor allocated in all accounted invokations.
+         * 
+         * @return The total allocated bytes.
+         */
+        public long getAllocatedBytes() {
+
+            return allocatedBytes.sum();
+        }
+
+        /*
+         * Charges one invokation with the given CPU time and allocated bytes.
+         */
+        void charge(long cpuNanos, long bytes) {
+
+            invokations.increment();
+            cpuTime.add(cpuNanos);
+            allocatedBytes.add(bytes);
+        }
+
+        @Override
+        public String toString() {
+
+            return "function '" + functionName + "', executor '" + executorName + "': invokations=" + getInvokations() + ", cpuTime=" + getCpuTime() / 1000 + "us, allocatedBytes=" + getAllocatedBytes();
+        }
+
+    }
+
+    /*
+     * Sorts resource usages by their CPU time or their allocated bytes, the highest first.
+     */
+    private static class ResourceComparator implements Comparator<ResourceUsage> {
+
+        private final boolean byCpuTime;
+
+        private ResourceComparator(boolean byCpuTime) {
+
+            this.byCpuTime = byCpuTime;
+        }
+
+        @Override
+        public int compare(ResourceUsage o1, ResourceUsage o2) {
+
+            long value1 = byCpuTime ? o1.getCpuTime() : o1.getAllocatedBytes();
+            long value2 = byCpuTime ? o2.getCpuTime() : o2.getAllocatedBytes();
+            return value1 < value2 ? 1 : value1 > value2 ? -1 : 0;
+        }
+
+    }
+
+}
@@ -33,7 +33,7 @@ import com.quartercode.classmod.extra.Property;
  */
 public class TransientProperty<T> extends AbstractFeature implements Property<T> {
 
-    private T object;
+    private volatile T object;
 
     /**
      * Creates a new transient property with the given name and {@link FeatureHolder}.
@@ -69,7 +69,13 @@ public class TransientProperty<T> extends AbstractFeature implements Property<T>
     @Override
     public void set(T value) {
 
-        object = value;
+        startModification();
+        try {
+            object = value;
+        }
+        finally {
+            completeModification();
+        }
     }
 
     @Override
@@ -0,0 +1,391 @@
+/*
+ * This file is part of Classmod.
+ * Copyright (c) 2014 QuarterCode <http://www.quartercode.com/>
+ *
+ * Classmod is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Classmod is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Classmod. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.classmod.extra.def;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.apache.commons.lang.Validate;
+import com.quartercode.classmod.extra.Budget;
+import com.quartercode.classmod.extra.FunctionExecutor;
+
+/**
+ * The watchdog reports {@link FunctionExecutor}s which take longer than their budget, while they are still running.
+ * The budget of an executor is taken from its {@link Budget} annotation, the budget of its function (see {@link AbstractFunction#setWatchdogBudget(long)})
+ * or the default budget of the watchdog, in that order. Executors without any budget aren't watched.
+ * A report is logged as a warning and contains the function name, the holder class, a summary of the arguments and a stack sample of the executor's thread.
+ * Reports are rate limited: there is at most one report per report interval, the others are only counted.
+ * All running executors are checked by one shared timer thread, which only runs while the watchdog is enabled.
+ * 
+ * @see Budget
+ */
+public class Watchdog {
+
+    private static final Logger   LOGGER              = Logger.getLogger(Watchdog.class.getName());
+
+    private static final Watchdog INSTANCE            = new Watchdog();
+
+    private static final int      MAX_ARGUMENT_LENGTH = 50;
+    private static final int      MAX_SUMMARY_LENGTH  = 200;
+
+    private final Set<Watch>      running             = Collections.newSetFromMap(new ConcurrentHashMap<Watch, Boolean>());
+    private volatile boolean      enabled;
+    private volatile long         defaultBudget;
+    private volatile long         checkInterval       = 10;
+    private volatile long         reportInterval      = 1000;
+    private final AtomicLong      reports             = new AtomicLong();
+    private final AtomicLong      suppressedReports   = new AtomicLong();
+
+    /*
+     * Only accessed by the timer thread.
+     */
+    private long                  lastReport;
+    private long                  unreportedSuppressed;
+
+    private ScheduledFuture<?>    checkTask;
+
+    /**
+     * Returns the process-wide watchdog.
+     * 
+     * @return The watchdog.
+     */
+    public static Watchdog getInstance() {
+
+        return INSTANCE;
+    }
+
+    private Watchdog() {
+
+    }
+
+    /**
+     * Returns whether the watchdog watches the running executors.
+     * 
+     * @return True if the watchdog is enabled, false if not.
+     */
+    public boolean isEnabled() {
+
+        return enabled;
+    }
+
+    /**
+     * Changes whether the watchdog watches the running executors.
+     * Enabling the watchdog starts the shared timer; disabling it stops the timer.
+     * 
+     * @param enabled True if the watchdog should be enabled, false if not.
+     */
+    public synchronized void setEnabled(boolean enabled) {
+
+        this.enabled = enabled;
+        InvokationProbe.update();
+        scheduleCheckTask();
+    }
+
+    /**
+     * Returns the budget in milliseconds of all executors which have no other budget.
+     * 
+     * @return The default budget in milliseconds, or 0 if executors without a budget aren't watched.
+     */
+    public long getDefaultBudget() {
+
+        return defaultBudget;
+    }
+
+    /**
+     * Changes the budget in milliseconds of all executors which have no other budget.
+     * 
+     * @param defaultBudget The new default budget in milliseconds. 0 doesn't watch executors without a budget.
+     */
+    public void setDefaultBudget(long defaultBudget) {
+
+        Validate.isTrue(defaultBudget >= 0, "Default budget can't be negative");
+        this.defaultBudget = defaultBudget;
+    }
+
+    /**
+     * Returns the amount of milliseconds between two checks of the running executors.
+     * 
+     * @return The check interval in milliseconds.
+     */
+    public long getCheckInterval() {
+
+        return checkInterval;
+    }
+
+    /**
+     * Changes the amount of milliseconds between two checks of the running executors.
+     * A shorter interval reports slow executors more precisely, but costs more.
+     * 
+     * @param checkInterval The new check interval in milliseconds.
+     */
+    public synchronized void setCheckInterval(long checkInterval) {
+
+        Validate.isTrue(checkInterval > 0, "Check interval must be positive");
+        this.checkInterval = checkInterval;
+        scheduleCheckTask();
+    }
+
+    /**
+     * Returns the minimum amount of milliseconds between two reports.
+     * 
+     * @return The report interval in milliseconds.
+     */
+    public long getReportInterval() {
+
+        return reportInterval;
+    }
+
+    /**
+     * Changes the minimum amount of milliseconds between two reports.
+     * Executors which exceed their budget during that time are only counted as suppressed reports.
+     * 
+     * @param reportInterval The new report interval in milliseconds. 0 reports every executor.
+     */
+    public void setReportInterval(long reportInterval) {
+
+        Validate.isTrue(reportInterval >= 0, "Report interval can't be negative");
+        this.reportInterval = reportInterval;
+    }
+
+    /**
+     * Returns the amount of reports which were logged.
+     * 
+     * @return The amount of logged reports.
+     */
+    public long getReports() {
+
+        return reports.get();
+    }
+
+    /**
+     * Returns the amount of executors which exceeded their budget, but weren't reported because of the rate limit.
+     * 
+     * @return The amount of suppressed reports.
+     */
+    public long getSuppressedReports() {
+
+        return suppressedReports.get();
+    }
+
+    /*
+     * Must be called while holding the lock of the watchdog.
+     */
+    private void scheduleCheckTask() {
+
+        if (checkTask != null) {
+            checkTask.cancel(false);
+            checkTask = null;
+        }
+
+        if (enabled) {
+            checkTask = TimerHolder.TIMER.scheduleWithFixedDelay(new Runnable() {
+
+                @Override
+                public void run() {
+
+                    check();
+                }
+
+            }, checkInterval, checkInterval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /*
+     * Starts watching an executor which is invoked on the current thread. Returns null if the executor has no budget or the watchdog is disabled.
+     * The executor budget is the value of a budget annotation or null; the function budget is 0 if the function has no budget.
+     */
+    Watch watch(AbstractFunction<?> function, String executorName, Long executorBudget, long functionBudget, Object[] arguments) {
+
+        if (!enabled) {
+            return null;
+        }
+
+        long budget = executorBudget != null ? executorBudget : functionBudget > 0 ? functionBudget : defaultBudget;
+        if (budget <= 0) {
+            return null;
+        }
+
+        Watch watch = new Watch(function, executorName, Thread.currentThread(), arguments, TimeUnit.MILLISECONDS.toNanos(budget));
+        running.add(watch);
+        return watch;
+    }
+
+    /*
+     * Called by the timer thread. Every watched executor which exceeded its budget is reported once.
+     */
+    private void check() {
+
+        long now = System.nanoTime();
+        for (Watch watch : running) {
+            if (!watch.reported && now - watch.start >= watch.budget) {
+                watch.reported = true;
+                report(watch, now);
+            }
+        }
+    }
+
+    private void report(Watch watch, long now) {
+
+        if (reports.get() > 0 && now - lastReport < TimeUnit.MILLISECONDS.toNanos(reportInterval)) {
+            suppressedReports.incrementAndGet();
+            unreportedSuppressed++;
+            return;
+        }
+
+        // Take the stack sample first, so it's as close to the check as possible; suspended executors don't occupy a thread
+        Thread thread = watch.thread;
+        StackSample sample = thread == null ? null : new StackSample(thread);
+        if (!running.contains(watch)) {
+            // The executor completed in the meantime, so the sample would show something else
+            return;
+        }
+
+        lastReport = now;
+        reports.incrementAndGet();
+
+        String message = "Function executor '" + watch.executorName + "' of function '" + watch.function.getName() + "' in holder '" + watch.function.getHolder().getClass().getName() + "'";
+        message += " exceeded its budget of " + TimeUnit.NANOSECONDS.toMillis(watch.budget) + " ms (running for " + TimeUnit.NANOSECONDS.toMillis(now - watch.start) + " ms)";
+        message += " with arguments " + summarize(watch.arguments) + (thread == null ? " while waiting for its asynchronous result" : " on thread '" + thread.getName() + "'");
+        if (unreportedSuppressed > 0) {
+            message += "; " + unreportedSuppressed + " other reports were suppressed since the last one";
+            unreportedSuppressed = 0;
+        }
+        LOGGER.log(Level.WARNING, message, sample);
+    }
+
+    private static String summarize(Object[] arguments) {
+
+        if (arguments == null) {
+            return "[]";
+        }
+
+        StringBuilder summary = new StringBuilder("[");
+        for (int index = 0; index < arguments.length; index++) {
+            if (summary.length() > MAX_SUMMARY_LENGTH) {
+                summary.append(", ...");
+                break;
+            }
+
+            if (index > 0) {
+                summary.append(", ");
+            }
+            String argument = String.valueOf(arguments[index]);
+            summary.append(argument.length() > MAX_ARGUMENT_LENGTH ? argument.substring(0, MAX_ARGUMENT_LENGTH) + "..." : argument);
+        }
+
+        return summary.append("]").toString();
+    }
+
+    @Override
+    public String toString() {
+
+        return getClass().getName() + " [enabled=" + enabled + ", running=" + running.size() + ", reports=" + reports + ", suppressedReports=" + suppressedReports + "]";
+    }
+
+    /*
+     * One watched executor invokation. It must be ended when the executor is done, so it's removed from the running set.
+     * The thread is null while an asynchronous executor waits for its result.
+     */
+    static class Watch {
+
+        private final AbstractFunction<?> function;
+        private final String              executorName;
+        private volatile Thread           thread;
+        private final Object[]            arguments;
+        private final long                budget;
+        private final long                start;
+
+        /*
+         * Only accessed by the timer thread.
+         */
+        private boolean                   reported;
+
+        private Watch(AbstractFunction<?> function, String executorName, Thread thread, Object[] arguments, long budget) {
+
+            this.function = function;
+            this.executorName = executorName;
+            this.thread = thread;
+            this.arguments = arguments;
+            this.budget = budget;
+            start = System.nanoTime();
+        }
+
+        /*
+         * Called when the executor returned a future and its thread continues with other work.
+         */
+        void suspend() {
+
+            thread = null;
+        }
+
+        void end() {
+
+            INSTANCE.running.remove(this);
+        }
+
+    }
+
+    /*
+     * Carries the stack of a running executor's thread, so it's printed along with the report.
+     */
+    private static class StackSample extends Throwable {
+
+        private static final long serialVersionUID = -1426815283622539245L;
+
+        private StackSample(Thread thread) {
+
+            super("Stack sample of thread '" + thread.getName() + "'");
+            setStackTrace(thread.getStackTrace());
+        }
+
+        @Override
+        public synchronized Throwable fillInStackTrace() {
+
+            // The stack trace of the timer thread is useless
+            return this;
+        }
+
+    }
+
+    /*
+     * Holds the shared timer thread, which is only created when the watchdog is enabled for the first time.
+     */
+    private static class TimerHolder implements ThreadFactory {
+
+        private static final ScheduledExecutorService TIMER = Executors.newSingleThreadScheduledExecutor(new TimerHolder());
+
+        @Override
+        public Thread newThread(Runnable task) {
+
+            Thread thread = new Thread(task, "classmod-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        }
+
+    }
+
+}
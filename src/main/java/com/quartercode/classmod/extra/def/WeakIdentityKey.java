@@ -0,0 +1,65 @@
+/*
+ * This file is part of Classmod.
+ * Copyright (c) 2014 QuarterCode <http://www.quartercode.com/>
+ *
+ * Classmod is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Classmod is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Classmod. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.quartercode.classmod.extra.def;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+
+/**
+ * A weak identity key is a weak reference which can be used as a key in concurrent maps.
+ * It compares the referenced objects by identity, since the hash codes of objects like feature holders change with their state.
+ * A key which is only used for a lookup isn't registered with a queue, so only the stored keys show up in the queue once their objects are collected.
+ * 
+ * @param <T> The type of the referenced object.
+ */
+class WeakIdentityKey<T> extends WeakReference<T> {
+
+    private final int hash;
+
+    /**
+     * Creates a new weak identity key for the given object.
+     * 
+     * @param referent The object the key references.
+     * @param queue The queue the key is added to once the object is collected, or null if the key is only used for a lookup.
+     */
+    WeakIdentityKey(T referent, ReferenceQueue<? super T> queue) {
+
+        super(referent, queue);
+        hash = System.identityHashCode(referent);
+    }
+
+    @Override
+    public int hashCode() {
+
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+
+        if (this == obj) {
+            return true;
+        }
+        if (! (obj instanceof WeakIdentityKey)) {
+            return false;
+        }
+        Object referent = get();
+        return referent != null && referent == ((WeakIdentityKey<?>) obj).get();
+    }
+
+}
@@ -0,0 +1,189 @@
+/*
+ * This file is part of Classmod.
+ * Copyright (c) 2014 QuarterCode <http://www.quartercode.com/>
+ *
+ * Classmod is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Classmod is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Classmod. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.classmod.util;
+
+import java.lang.reflect.Method;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.apache.commons.lang.Validate;
+
+/**
+ * A blocking executor runs every task on its own thread, so tasks which block (for example on file or socket reads) don't occupy the threads of a shared pool.
+ * If the runtime supports virtual threads, they are used; such threads cost almost nothing while they are blocked.
+ * Otherwise, the executor falls back to platform daemon threads with a small stack.
+ * The amount of tasks which run at the same time is capped; further tasks wait in a queue without occupying a thread.
+ * The executor doesn't need to be shut down since it doesn't keep idle threads.
+ * It can also be used as the async executor of a function (see {@link com.quartercode.classmod.extra.def.AbstractFunction#setAsyncExecutor(Executor)}),
+ * so every asynchronous invokation of that function runs on its own thread.
+ */
+public class BlockingExecutor implements Executor {
+
+    /**
+     * The concurrency cap of the shared blocking executor which is used by functions if no other executor is set.
+     */
+    public static final int            DEFAULT_CONCURRENCY = 256;
+
+    private static final Logger        LOGGER              = Logger.getLogger(BlockingExecutor.class.getName());
+
+    /*
+     * The stack size for platform threads if virtual threads aren't available.
+     */
+    private static final long          PLATFORM_STACK_SIZE = 256 * 1024;
+
+    private static final AtomicInteger NEXT_THREAD_ID      = new AtomicInteger();
+    private static final ThreadFactory VIRTUAL_THREADS     = getVirtualThreadFactory();
+
+    private final int                  concurrency;
+    private final Semaphore            permits;
+    private final Queue<Runnable>      pending             = new ConcurrentLinkedQueue<Runnable>();
+
+    /*
+     * Resolves Thread.ofVirtual().factory() through reflection, so the class still works on runtimes without virtual threads.
+     */
+    private static ThreadFactory getVirtualThreadFactory() {
+
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Method factoryMethod = Class.forName("java.lang.Thread$Builder").getMethod("factory");
+            return (ThreadFactory) factoryMethod.invoke(builder);
+        }
+        catch (Exception e) {
+            LOGGER.log(Level.FINE, "Virtual threads aren't available, blocking executors use platform threads", e);
+            return null;
+        }
+    }
+
+    /**
+     * Returns whether the runtime supports virtual threads, which are then used by all blocking executors.
+     * 
+     * @return True if blocking executors run their tasks on virtual threads, false if they use platform threads.
+     */
+    public static boolean isVirtual() {
+
+        return VIRTUAL_THREADS != null;
+    }
+
+    /**
+     * Creates a new blocking executor which runs at most the given amount of tasks at the same time.
+     * 
+     * @param concurrency The maximum amount of tasks which run at the same time.
+     */
+    public BlockingExecutor(int concurrency) {
+
+        Validate.isTrue(concurrency > 0, "Concurrency must be positive");
+
+        this.concurrency = concurrency;
+        permits = new Semaphore(concurrency);
+    }
+
+    /**
+     * Returns the maximum amount of tasks which run at the same time.
+     * 
+     * @return The concurrency cap of the blocking executor.
+     */
+    public int getConcurrency() {
+
+        return concurrency;
+    }
+
+    /**
+     * Returns the amount of tasks which currently run.
+     * 
+     * @return The amount of running tasks.
+     */
+    public int getRunning() {
+
+        return concurrency - permits.availablePermits();
+    }
+
+    /**
+     * Returns the amount of tasks which wait because the concurrency cap is reached.
+     * 
+     * @return The amount of waiting tasks.
+     */
+    public int getPending() {
+
+        return pending.size();
+    }
+
+    @Override
+    public void execute(Runnable task) {
+
+        Validate.notNull(task, "Task cannot be null");
+
+        pending.add(task);
+        startPending();
+    }
+
+    /*
+     * Starts waiting tasks as long as permits are available.
+     * Every finished task calls this again, so tasks which were queued while no permit was available are started later on.
+     */
+    private void startPending() {
+
+        while (!pending.isEmpty() && permits.tryAcquire()) {
+            final Runnable task = pending.poll();
+            if (task == null) {
+                // Another thread took the task in the meantime
+                permits.release();
+                continue;
+            }
+
+            newThread(new Runnable() {
+
+                @Override
+                public void run() {
+
+                    try {
+                        task.run();
+                    }
+                    finally {
+                        permits.release();
+                        startPending();
+                    }
+                }
+
+            }).start();
+        }
+    }
+
+    private Thread newThread(Runnable task) {
+
+        if (VIRTUAL_THREADS != null) {
+            return VIRTUAL_THREADS.newThread(task);
+        }
+
+        Thread thread = new Thread(null, task, "classmod-blocking-" + NEXT_THREAD_ID.incrementAndGet(), PLATFORM_STACK_SIZE);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    @Override
+    public String toString() {
+
+        return getClass().getName() + " [concurrency=" + concurrency + ", running=" + getRunning() + ", pending=" + getPending() + ", virtual=" + isVirtual() + "]";
+    }
+
+}
@@ -29,6 +29,7 @@ import java.util.SortedSet;
 import java.util.TreeSet;
 import com.quartercode.classmod.base.FeatureDefinition;
 import com.quartercode.classmod.base.FeatureHolder;
+import com.quartercode.classmod.base.VersionedFeatureHolder;
 import com.quartercode.classmod.extra.ChildFeatureHolder;
 import com.quartercode.classmod.extra.ExecutorInvokationException;
 import com.quartercode.classmod.extra.FunctionExecutor;
@@ -36,6 +37,8 @@ import com.quartercode.classmod.extra.Property;
 
 /**
  * A utility class for creating {@link FunctionExecutor}s which can access simple {@link Collection} {@link Property}s.
+ * The modifying {@link FunctionExecutor}s report their changes to {@link VersionedFeatureHolder}s.
+ * The modification is only reported around the actual collection change; the {@link Property} is retrieved before and the parents of child elements are set afterwards.
  * 
  * @see Property
  * @see Collection
@@ -147,14 +150,32 @@ public class CollectionPropertyAccessorFactory {
             @Override
             public Void invoke(FeatureHolder holder, Object... arguments) throws ExecutorInvokationException {
 
-                for (Object element : arguments) {
-                    // Hope that the using FunctionDefinition has the correct parameters
-                    boolean changed = holder.get(propertyDefinition).get().add((E) element);
+                Collection<E> collection = holder.get(propertyDefinition).get();
+                List<ChildFeatureHolder<FeatureHolder>> addedChildren = null;
+
+                startModification(holder);
+                try {
+                    for (Object element : arguments) {
+                        // Hope that the using FunctionDefinition has the correct parameters
+                        boolean changed = collection.add((E) element);
+
+                        if (changed && element instanceof ChildFeatureHolder) {
+                            if (addedChildren == null) {
+                                addedChildren = new ArrayList<ChildFeatureHolder<FeatureHolder>>();
+                            }
+                            // Is always true because of <P extends FeatureHolder> in ChildFeatureHolder
+                            addedChildren.add((ChildFeatureHolder<FeatureHolder>) element);
+                        }
+                    }
+                }
+                finally {
+                    completeModification(holder);
+                }
 
-                    // Set the parent of the added element the new holder
-                    if (changed && element instanceof ChildFeatureHolder) {
-                        // Is always true because of <P extends FeatureHolder> in ChildFeatureHolder
-                        ((ChildFeatureHolder<FeatureHolder>) element).setParent(holder);
+                // Set the parent of the added elements the new holder
+                if (addedChildren != null) {
+                    for (ChildFeatureHolder<FeatureHolder> child : addedChildren) {
+                        child.setParent(holder);
                     }
                 }
 
@@ -178,12 +199,30 @@ public class CollectionPropertyAccessorFactory {
             @Override
             public Void invoke(FeatureHolder holder, Object... arguments) throws ExecutorInvokationException {
 
-                for (Object element : arguments) {
-                    boolean changed = holder.get(propertyDefinition).get().remove(element);
+                Collection<E> collection = holder.get(propertyDefinition).get();
+                List<ChildFeatureHolder<?>> removedChildren = null;
 
-                    // Set the parent of the removed element to null
-                    if (changed && element instanceof ChildFeatureHolder) {
-                        ((ChildFeatureHolder<?>) element).setParent(null);
+                startModification(holder);
+                try {
+                    for (Object element : arguments) {
+                        boolean changed = collection.remove(element);
+
+                        if (changed && element instanceof ChildFeatureHolder) {
+                            if (removedChildren == null) {
+                                removedChildren = new ArrayList<ChildFeatureHolder<?>>();
+                            }
+                            removedChildren.add((ChildFeatureHolder<?>) element);
+                        }
+                    }
+                }
+                finally {
+                    completeModification(holder);
+                }
+
+                // Set the parent of the removed elements to null
+                if (removedChildren != null) {
+                    for (ChildFeatureHolder<?> child : removedChildren) {
+                        child.setParent(null);
                     }
                 }
 
@@ -227,7 +266,16 @@ public class CollectionPropertyAccessorFactory {
             @Override
             public E invoke(FeatureHolder holder, Object... arguments) throws ExecutorInvokationException {
 
-                E element = holder.get(propertyDefinition).get().poll();
+                Queue<E> queue = holder.get(propertyDefinition).get();
+
+                E element;
+                startModification(holder);
+                try {
+                    element = queue.poll();
+                }
+                finally {
+                    completeModification(holder);
+                }
 
                 // Set the parent of the removed (polled) element to null
                 if (element != null && element instanceof ChildFeatureHolder) {
@@ -259,6 +307,20 @@ public class CollectionPropertyAccessorFactory {
 
     }
 
+    private static void startModification(FeatureHolder holder) {
+
+        if (holder instanceof VersionedFeatureHolder) {
+            ((VersionedFeatureHolder) holder).startModification();
+        }
+    }
+
+    private static void completeModification(FeatureHolder holder) {
+
+        if (holder instanceof VersionedFeatureHolder) {
+            ((VersionedFeatureHolder) holder).completeModification();
+        }
+    }
+
     private CollectionPropertyAccessorFactory() {
 
     }
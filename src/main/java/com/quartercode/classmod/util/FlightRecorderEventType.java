@@ -0,0 +1,377 @@
+/*
+ * This file is part of Classmod.
+ * Copyright (c) 2014 QuarterCode <http://www.quartercode.com/>
+ *
+ * Classmod is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Classmod is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Classmod. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.classmod.util;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.apache.commons.lang.Validate;
+
+/**
+ * A flight recorder event type describes a custom Java Flight Recorder event which can be emitted without depending on the JFR API at compile time.
+ * The JFR API is accessed through reflection, so the event types also work on runtimes without JFR; they just never emit anything there.
+ * While no recording is running, {@link #begin()} only reads one volatile field and returns null.
+ * Events whose duration is shorter than the {@link #getThreshold() threshold} of their type are dropped, so only slow operations end up in recordings.
+ * 
+ * @see FlightRecorderEvents
+ */
+public class FlightRecorderEventType {
+
+    private static final Logger         LOGGER              = Logger.getLogger(FlightRecorderEventType.class.getName());
+
+    private static final List<Runnable> RECORDING_LISTENERS = new CopyOnWriteArrayList<Runnable>();
+    private static volatile boolean     recording;
+
+    /*
+     * Null if the JFR API isn't available.
+     */
+    private static final Jfr            JFR                 = loadJfr();
+
+    private final String                name;
+    private final Object                factory;
+    private volatile long               threshold;
+
+    /**
+     * Returns whether the runtime provides the JFR API, so events can be emitted.
+     * 
+     * @return True if the JFR API is available, false if not.
+     */
+    public static boolean isAvailable() {
+
+        return JFR != null;
+    }
+
+    /**
+     * Returns whether a flight recording is running at the moment.
+     * Event types only emit events while this is true.
+     * 
+     * @return True if a flight recording is running, false if not.
+     */
+    public static boolean isRecording() {
+
+        return recording;
+    }
+
+    /**
+     * Adds a listener which is notified every time {@link #isRecording()} might have changed, for example because a recording was started or stopped.
+     * 
+     * @param listener The listener which should be notified about changes of the recording state.
+     */
+    public static void addRecordingListener(Runnable listener) {
+
+        Validate.notNull(listener, "Recording listener cannot be null");
+        RECORDING_LISTENERS.add(listener);
+    }
+
+    /**
+     * Removes a listener which was added with {@link #addRecordingListener(Runnable)}.
+     * 
+     * @param listener The listener which shouldn't be notified about changes of the recording state anymore.
+     */
+    public static void removeRecordingListener(Runnable listener) {
+
+        RECORDING_LISTENERS.remove(listener);
+    }
+
+    private static Jfr loadJfr() {
+
+        try {
+            Jfr jfr = new Jfr();
+            jfr.addListener();
+            return jfr;
+        }
+        catch (Exception e) {
+            LOGGER.log(Level.FINE, "Java Flight Recorder isn't available, no flight recorder events are emitted", e);
+        }
+        catch (LinkageError e) {
+            LOGGER.log(Level.FINE, "Java Flight Recorder isn't available, no flight recorder events are emitted", e);
+        }
+
+        return null;
+    }
+
+    /*
+     * Checks whether any recording is running. The answer is pushed to the listeners.
+     */
+    private static void updateRecording(Jfr jfr) {
+
+        boolean newRecording = false;
+        try {
+            Object recorder = jfr.getFlightRecorder.invoke(null);
+            for (Object currentRecording : (List<?>) jfr.getRecordings.invoke(recorder)) {
+                if ("RUNNING".equals(String.valueOf(jfr.getState.invoke(currentRecording)))) {
+                    newRecording = true;
+                    break;
+                }
+            }
+        }
+        catch (Exception e) {
+            LOGGER.log(Level.WARNING, "Can't read the state of the flight recordings", e);
+        }
+
+        recording = newRecording;
+        for (Runnable listener : RECORDING_LISTENERS) {
+            listener.run();
+        }
+    }
+
+    /**
+     * Creates a new flight recorder event type with the given name, label, description and fields.
+     * The event type is registered at the flight recorder immediately if the JFR API is available.
+     * The field types must be supported by JFR; that includes strings, primitive wrappers and classes.
+     * 
+     * @param name The unique name of the event type (for example "com.quartercode.classmod.FunctionInvokation").
+     * @param label The human readable name of the event type.
+     * @param description A sentence which describes the event type.
+     * @param threshold The minimum duration in nanoseconds an event must have to be emitted.
+     * @param fieldNames The names of the fields every event of the type stores.
+     * @param fieldTypes The types of the fields, in the same order as the names.
+     */
+    public FlightRecorderEventType(String name, String label, String description, long threshold, String[] fieldNames, Class<?>[] fieldTypes) {
+
+        Validate.notNull(name, "Event name cannot be null");
+        Validate.isTrue(fieldNames.length == fieldTypes.length, "There must be a type for every field name");
+
+        this.name = name;
+        this.threshold = threshold;
+        factory = JFR != null ? createFactory(name, label, description, fieldNames, fieldTypes) : null;
+    }
+
+    private static Object createFactory(String name, String label, String description, String[] fieldNames, Class<?>[] fieldTypes) {
+
+        try {
+            List<Object> annotations = new ArrayList<Object>();
+            annotations.add(JFR.newAnnotation("jdk.jfr.Name", name));
+            annotations.add(JFR.newAnnotation("jdk.jfr.Label", label));
+            annotations.add(JFR.newAnnotation("jdk.jfr.Description", description));
+            annotations.add(JFR.newAnnotation("jdk.jfr.Category", new String[] { "Classmod" }));
+
+            List<Object> fields = new ArrayList<Object>();
+            for (int field = 0; field < fieldNames.length; field++) {
+                fields.add(JFR.newValueDescriptor.newInstance(fieldTypes[field], fieldNames[field]));
+            }
+
+            return JFR.createFactory.invoke(null, annotations, fields);
+        }
+        catch (Exception e) {
+            LOGGER.log(Level.WARNING, "Can't create flight recorder event type '" + name + "'", e);
+            return null;
+        }
+    }
+
+    /**
+     * Returns the unique name of the event type.
+     * 
+     * @return The name of the event type.
+     */
+    public String getName() {
+
+        return name;
+    }
+
+    /**
+     * Returns the minimum duration in nanoseconds an event must have to be emitted.
+     * 
+     * @return The threshold of the event type in nanoseconds.
+     */
+    public long getThreshold() {
+
+        return threshold;
+    }
+
+    /**
+     * Changes the minimum duration in nanoseconds an event must have to be emitted.
+     * Events which have already begun use the new threshold when they are committed.
+     * 
+     * @param threshold The new threshold of the event type in nanoseconds.
+     */
+    public void setThreshold(long threshold) {
+
+        this.threshold = threshold;
+    }
+
+    /**
+     * Begins a new event of the type, which is emitted when it's passed to {@link #commit(PendingEvent, Object...)}.
+     * If no recording is running, null is returned. That null can be passed to {@link #commit(PendingEvent, Object...)} as well.
+     * 
+     * @return The begun event, or null if no recording is running.
+     */
+    public PendingEvent begin() {
+
+        if (!recording || factory == null) {
+            return null;
+        }
+
+        try {
+            Object event = JFR.newEvent.invoke(factory);
+            JFR.begin.invoke(event);
+            return new PendingEvent(event, System.nanoTime());
+        }
+        catch (Exception e) {
+            LOGGER.log(Level.FINE, "Can't begin flight recorder event '" + name + "'", e);
+            return null;
+        }
+    }
+
+    /**
+     * Ends the given event and emits it with the given field values if it took at least as long as the {@link #getThreshold() threshold}.
+     * The values must be in the same order as the fields of the event type. Nothing happens if the event is null.
+     * 
+     * @param event The event which was returned by {@link #begin()}.
+     * @param values The values of the fields of the event.
+     */
+    public void commit(PendingEvent event, Object... values) {
+
+        if (event == null || System.nanoTime() - event.start < threshold) {
+            return;
+        }
+
+        try {
+            JFR.end.invoke(event.event);
+            if ((Boolean) JFR.shouldCommit.invoke(event.event)) {
+                for (int field = 0; field < values.length; field++) {
+                    JFR.set.invoke(event.event, field, values[field]);
+                }
+                JFR.commit.invoke(event.event);
+            }
+        }
+        catch (Exception e) {
+            LOGGER.log(Level.FINE, "Can't commit flight recorder event '" + name + "'", e);
+        }
+    }
+
+    @Override
+    public String toString() {
+
+        return getClass().getName() + " [name=" + name + ", threshold=" + threshold + ", registered=" + (factory != null) + "]";
+    }
+
+    /**
+     * A pending event is an event which has begun, but wasn't committed yet.
+     * It is returned by {@link FlightRecorderEventType#begin()} and must be passed to {@link FlightRecorderEventType#commit(PendingEvent, Object...)}.
+     */
+    public static class PendingEvent {
+
+        private final Object event;
+        private final long   start;
+
+        private PendingEvent(Object event, long start) {
+
+            this.event = event;
+            this.start = start;
+        }
+
+    }
+
+    /*
+     * Holds the reflective handles of the JFR API. The constructor fails if any of them can't be resolved.
+     */
+    private static class Jfr {
+
+        private final Class<?>       flightRecorderClass;
+        private final Class<?>       listenerClass;
+        private final Method         createFactory;
+        private final Method         newEvent;
+        private final Method         begin;
+        private final Method         end;
+        private final Method         shouldCommit;
+        private final Method         set;
+        private final Method         commit;
+        private final Method         getFlightRecorder;
+        private final Method         getRecordings;
+        private final Method         getState;
+        private final Constructor<?> newAnnotation;
+        private final Constructor<?> newValueDescriptor;
+
+        private Jfr() throws ClassNotFoundException, NoSuchMethodException {
+
+            Class<?> eventFactoryClass = Class.forName("jdk.jfr.EventFactory");
+            Class<?> eventClass = Class.forName("jdk.jfr.Event");
+            flightRecorderClass = Class.forName("jdk.jfr.FlightRecorder");
+            listenerClass = Class.forName("jdk.jfr.FlightRecorderListener");
+
+            createFactory = eventFactoryClass.getMethod("create", List.class, List.class);
+            newEvent = eventFactoryClass.getMethod("newEvent");
+            begin = eventClass.getMethod("begin");
+            end = eventClass.getMethod("end");
+            shouldCommit = eventClass.getMethod("shouldCommit");
+            set = eventClass.getMethod("set", int.class, Object.class);
+            commit = eventClass.getMethod("commit");
+            getFlightRecorder = flightRecorderClass.getMethod("getFlightRecorder");
+            getRecordings = flightRecorderClass.getMethod("getRecordings");
+            getState = Class.forName("jdk.jfr.Recording").getMethod("getState");
+            newAnnotation = Class.forName("jdk.jfr.AnnotationElement").getConstructor(Class.class, Object.class);
+            newValueDescriptor = Class.forName("jdk.jfr.ValueDescriptor").getConstructor(Class.class, String.class);
+        }
+
+        /*
+         * Tracks the recording state through a FlightRecorderListener proxy, so it doesn't need to be polled.
+         * If the flight recorder is already initialized, the listener is called immediately.
+         */
+        private void addListener() throws Exception {
+
+            Object listener = Proxy.newProxyInstance(listenerClass.getClassLoader(), new Class<?>[] { listenerClass }, new RecordingStateHandler(this));
+            flightRecorderClass.getMethod("addListener", listenerClass).invoke(null, listener);
+        }
+
+        private Object newAnnotation(String type, Object value) throws Exception {
+
+            return newAnnotation.newInstance(Class.forName(type).asSubclass(Annotation.class), value);
+        }
+
+    }
+
+    /*
+     * Implements jdk.jfr.FlightRecorderListener. Both callbacks might change the recording state.
+     */
+    private static class RecordingStateHandler implements InvocationHandler {
+
+        private final Jfr jfr;
+
+        private RecordingStateHandler(Jfr jfr) {
+
+            this.jfr = jfr;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) {
+
+            if (method.getDeclaringClass() == Object.class) {
+                if ("equals".equals(method.getName())) {
+                    return proxy == args[0];
+                } else if ("hashCode".equals(method.getName())) {
+                    return System.identityHashCode(proxy);
+                }
+                return "RecordingStateHandler";
+            }
+
+            updateRecording(jfr);
+            return null;
+        }
+
+    }
+
+}
@@ -0,0 +1,48 @@
+/*
+ * This file is part of Classmod.
+ * Copyright (c) 2014 QuarterCode <http://www.quartercode.com/>
+ *
+ * Classmod is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Classmod is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Classmod. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.classmod.util;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The flight recorder events are the Java Flight Recorder event types Classmod emits.
+ * They are only emitted while a recording is running, and only if they took at least as long as the threshold of their type.
+ * The thresholds can be changed at any time through {@link FlightRecorderEventType#setThreshold(long)}.
+ * 
+ * @see FlightRecorderEventType
+ */
+public class FlightRecorderEvents {
+
+    /**
+     * Emitted by a function invokation, with the function name, the holder class, the amount of invoked executors and the name of the executor which stopped the invokation (or null).
+     * The default threshold is 1 millisecond.
+     */
+    public static final FlightRecorderEventType FUNCTION_INVOKATION = new FlightRecorderEventType("com.quartercode.classmod.FunctionInvokation", "Function Invokation", "A function invokation which invoked all of its executors", TimeUnit.MILLISECONDS.toNanos(1), new String[] { "function", "holderClass", "executorCount", "stoppedBy" }, new Class<?>[] { String.class, Class.class, int.class, String.class });
+
+    /**
+     * Emitted when a feature holder lazily creates a feature through its definition, with the feature name and the holder class.
+     * The default threshold is 1 millisecond.
+     */
+    public static final FlightRecorderEventType FEATURE_CREATION    = new FlightRecorderEventType("com.quartercode.classmod.FeatureCreation", "Feature Creation", "The lazy creation of a feature by its feature holder", TimeUnit.MILLISECONDS.toNanos(1), new String[] { "feature", "holderClass" }, new Class<?>[] { String.class, Class.class });
+
+    private FlightRecorderEvents() {
+
+    }
+
+}
@@ -0,0 +1,183 @@
+/*
+ * This file is part of Classmod.
+ * Copyright (c) 2014 QuarterCode <http://www.quartercode.com/>
+ *
+ * Classmod is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Classmod is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Classmod. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.classmod.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A latency histogram counts long values (usually nanoseconds) in logarithmic buckets, similar to an HDR histogram.
+ * Every power of two is split into four sub buckets, so the values which are reported for percentiles are at most 25% larger than the real ones.
+ * Recording a value only increments one bucket, a {@link StripedCounter} for the count and one for the sum, so it doesn't need any locks.
+ * Like striped counters, latency histograms should only be used for statistics because the reads aren't atomic snapshots while other threads record values.
+ */
+public class LatencyHistogram {
+
+    /*
+     * Values below SUB_BUCKETS get their own bucket. Above that, every power of two has SUB_BUCKETS buckets.
+     * The highest exponent of a long is 62, so the last bucket covers the values up to Long.MAX_VALUE.
+     */
+    private static final int     SUB_BUCKET_BITS = 2;
+    private static final int     SUB_BUCKETS     = 1 << SUB_BUCKET_BITS;
+    private static final int     BUCKETS         = SUB_BUCKETS + (63 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray buckets        = new AtomicLongArray(BUCKETS);
+    private final StripedCounter count           = new StripedCounter();
+    private final StripedCounter sum             = new StripedCounter();
+    private final AtomicLong     max             = new AtomicLong();
+
+    private static int getBucket(long value) {
+
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> exponent - SUB_BUCKET_BITS) & SUB_BUCKETS - 1;
+        return SUB_BUCKETS + (exponent - SUB_BUCKET_BITS) * SUB_BUCKETS + subBucket;
+    }
+
+    /*
+     * Returns the largest value which is counted in the given bucket.
+     */
+    private static long getUpperBound(int bucket) {
+
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        } else if (bucket == BUCKETS - 1) {
+            return Long.MAX_VALUE;
+        }
+
+        int exponent = (bucket - SUB_BUCKETS) / SUB_BUCKETS + SUB_BUCKET_BITS;
+        int subBucket = (bucket - SUB_BUCKETS) % SUB_BUCKETS;
+        return (SUB_BUCKETS + subBucket + 1L << exponent - SUB_BUCKET_BITS) - 1;
+    }
+
+    /**
+     * Records the given value. Negative values are recorded as 0.
+     * 
+     * @param value The value which should be recorded.
+     */
+    public void record(long value) {
+
+        if (value < 0) {
+            value = 0;
+        }
+
+        buckets.incrementAndGet(getBucket(value));
+        count.increment();
+        sum.add(value);
+
+        long currentMax = max.get();
+        while (value > currentMax && !max.compareAndSet(currentMax, value)) {
+            currentMax = max.get();
+        }
+    }
+
+    /**
+     * Returns the amount of values which were recorded.
+     * 
+     * @return The amount of recorded values.
+     */
+    public long getCount() {
+
+        return count.sum();
+    }
+
+    /**
+     * Returns the sum of all values which were recorded.
+     * 
+     * @return The sum of the recorded values.
+     */
+    public long getSum() {
+
+        return sum.sum();
+    }
+
+    /**
+     * Returns the arithmetic mean of all values which were recorded.
+     * 
+     * @return The mean of the recorded values, or 0 if no value was recorded.
+     */
+    public double getMean() {
+
+        long count = getCount();
+        return count == 0 ? 0 : (double) getSum() / count;
+    }
+
+    /**
+     * Returns the largest value which was recorded.
+     * 
+     * @return The maximum of the recorded values, or 0 if no value was recorded.
+     */
+    public long getMax() {
+
+        return max.get();
+    }
+
+    /**
+     * Returns the value below which the given percentage of the recorded values lie.
+     * Since the values are counted in buckets, the upper bound of the bucket which contains the percentile is returned.
+     * It is never larger than the maximum of the recorded values.
+     * 
+     * @param percentile The percentile which should be returned (between 0 and 100).
+     * @return The value at the given percentile, or 0 if no value was recorded.
+     */
+    public long getValueAtPercentile(double percentile) {
+
+        long[] counts = new long[BUCKETS];
+        long total = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            counts[bucket] = buckets.get(bucket);
+            total += counts[bucket];
+        }
+
+        long threshold = Math.max(1, (long) Math.ceil(total * Math.min(100, Math.max(0, percentile)) / 100));
+        long cumulative = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            cumulative += counts[bucket];
+            if (cumulative >= threshold) {
+                return Math.min(getUpperBound(bucket), getMax());
+            }
+        }
+
+        return 0;
+    }
+
+    /**
+     * Resets the histogram, so it doesn't contain any values.
+     * Values which are recorded concurrently might be lost.
+     */
+    public void reset() {
+
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            buckets.set(bucket, 0);
+        }
+        count.reset();
+        sum.reset();
+        max.set(0);
+    }
+
+    @Override
+    public String toString() {
+
+        return getClass().getName() + " [count=" + getCount() + ", mean=" + getMean() + ", p50=" + getValueAtPercentile(50) + ", p99=" + getValueAtPercentile(99) + ", max=" + getMax() + "]";
+    }
+
+}
@@ -20,13 +20,18 @@ package com.quartercode.classmod.util;
 
 import com.quartercode.classmod.base.FeatureDefinition;
 import com.quartercode.classmod.base.FeatureHolder;
+import com.quartercode.classmod.extra.AtomicProperty;
+import com.quartercode.classmod.extra.AtomicProperty.Accumulator;
+import com.quartercode.classmod.extra.AtomicProperty.Updater;
 import com.quartercode.classmod.extra.ChildFeatureHolder;
 import com.quartercode.classmod.extra.ExecutorInvokationException;
+import com.quartercode.classmod.extra.FixedArityFunctionExecutor;
 import com.quartercode.classmod.extra.FunctionExecutor;
 import com.quartercode.classmod.extra.Property;
 
 /**
  * A utility class for creating {@link FunctionExecutor}s which can access simple {@link Property}s (like getters or setters).
+ * It can also create {@link FunctionExecutor}s for the atomic operations of {@link AtomicProperty}s.
  * 
  * @see Property
  * @see FunctionExecutor
@@ -42,7 +47,7 @@ public class PropertyAccessorFactory {
      */
     public static <T> FunctionExecutor<T> createGet(final FeatureDefinition<? extends Property<T>> propertyDefinition) {
 
-        return new FunctionExecutor<T>() {
+        return new FixedArityFunctionExecutor<T>() {
 
             @Override
             public T invoke(FeatureHolder holder, Object... arguments) throws ExecutorInvokationException {
@@ -50,6 +55,30 @@ public class PropertyAccessorFactory {
                 return holder.get(propertyDefinition).get();
             }
 
+            @Override
+            public T invoke0(FeatureHolder holder) throws ExecutorInvokationException {
+
+                return holder.get(propertyDefinition).get();
+            }
+
+            @Override
+            public T invoke1(FeatureHolder holder, Object argument) throws ExecutorInvokationException {
+
+                return holder.get(propertyDefinition).get();
+            }
+
+            @Override
+            public T invoke2(FeatureHolder holder, Object argument1, Object argument2) throws ExecutorInvokationException {
+
+                return holder.get(propertyDefinition).get();
+            }
+
+            @Override
+            public T invoke3(FeatureHolder holder, Object argument1, Object argument2, Object argument3) throws ExecutorInvokationException {
+
+                return holder.get(propertyDefinition).get();
+            }
+
         };
     }
 
@@ -62,12 +91,24 @@ public class PropertyAccessorFactory {
      */
     public static <T> FunctionExecutor<Void> createSet(final FeatureDefinition<? extends Property<T>> propertyDefinition) {
 
-        return new FunctionExecutor<Void>() {
+        return new FixedArityFunctionExecutor<Void>() {
 
-            @SuppressWarnings ("unchecked")
             @Override
             public Void invoke(FeatureHolder holder, Object... arguments) throws ExecutorInvokationException {
 
+                return invoke1(holder, arguments[0]);
+            }
+
+            @Override
+            public Void invoke0(FeatureHolder holder) throws ExecutorInvokationException {
+
+                return invoke(holder);
+            }
+
+            @SuppressWarnings ("unchecked")
+            @Override
+            public Void invoke1(FeatureHolder holder, Object argument) throws ExecutorInvokationException {
+
                 // Set the parent of the old object to null
                 if (holder.get(propertyDefinition).get() instanceof ChildFeatureHolder) {
                     // Is always true because of <P extends FeatureHolder> in ChildFeatureHolder
@@ -75,17 +116,118 @@ public class PropertyAccessorFactory {
                 }
 
                 // Hope that the using FunctionDefinition has the correct parameters
-                holder.get(propertyDefinition).set((T) arguments[0]);
+                holder.get(propertyDefinition).set((T) argument);
 
                 // Set the parent of the new object the new holder
-                if (arguments[0] instanceof ChildFeatureHolder) {
+                if (argument instanceof ChildFeatureHolder) {
                     // Is always true because of <P extends FeatureHolder> in ChildFeatureHolder
-                    ((ChildFeatureHolder<FeatureHolder>) arguments[0]).setParent(holder);
+                    ((ChildFeatureHolder<FeatureHolder>) argument).setParent(holder);
                 }
 
                 return null;
             }
 
+            @Override
+            public Void invoke2(FeatureHolder holder, Object argument1, Object argument2) throws ExecutorInvokationException {
+
+                return invoke1(holder, argument1);
+            }
+
+            @Override
+            public Void invoke3(FeatureHolder holder, Object argument1, Object argument2, Object argument3) throws ExecutorInvokationException {
+
+                return invoke1(holder, argument1);
+            }
+
+        };
+    }
+
+    /**
+     * Creates a new compare-and-set {@link FunctionExecutor} for the given {@link AtomicProperty} definition.
+     * A compare-and-set function takes the expected and the new value and changes the value of the {@link AtomicProperty} if the current value is the expected one.
+     * It returns whether the value was changed (see {@link AtomicProperty#compareAndSet(Object, Object)}).
+     * 
+     * @param propertyDefinition The {@link FeatureDefinition} of the {@link AtomicProperty} to access.
+     * @return The created {@link FunctionExecutor}.
+     */
+    public static <T> FunctionExecutor<Boolean> createCompareAndSet(final FeatureDefinition<? extends AtomicProperty<T>> propertyDefinition) {
+
+        return new FunctionExecutor<Boolean>() {
+
+            @SuppressWarnings ("unchecked")
+            @Override
+            public Boolean invoke(FeatureHolder holder, Object... arguments) throws ExecutorInvokationException {
+
+                // Hope that the using FunctionDefinition has the correct parameters
+                return holder.get(propertyDefinition).compareAndSet((T) arguments[0], (T) arguments[1]);
+            }
+
+        };
+    }
+
+    /**
+     * Creates a new get-and-update {@link FunctionExecutor} for the given {@link AtomicProperty} definition.
+     * A get-and-update function atomically changes the value of the {@link AtomicProperty} using the given {@link Updater} and returns the previous value.
+     * 
+     * @param propertyDefinition The {@link FeatureDefinition} of the {@link AtomicProperty} to access.
+     * @param updater The {@link Updater} which calculates the new value from the current one.
+     * @return The created {@link FunctionExecutor}.
+     */
+    public static <T> FunctionExecutor<T> createGetAndUpdate(final FeatureDefinition<? extends AtomicProperty<T>> propertyDefinition, final Updater<T> updater) {
+
+        return new FunctionExecutor<T>() {
+
+            @Override
+            public T invoke(FeatureHolder holder, Object... arguments) throws ExecutorInvokationException {
+
+                return holder.get(propertyDefinition).getAndUpdate(updater);
+            }
+
+        };
+    }
+
+    /**
+     * Creates a new update-and-get {@link FunctionExecutor} for the given {@link AtomicProperty} definition.
+     * An update-and-get function atomically changes the value of the {@link AtomicProperty} using the given {@link Updater} and returns the new value.
+     * 
+     * @param propertyDefinition The {@link FeatureDefinition} of the {@link AtomicProperty} to access.
+     * @param updater The {@link Updater} which calculates the new value from the current one.
+     * @return The created {@link FunctionExecutor}.
+     */
+    public static <T> FunctionExecutor<T> createUpdateAndGet(final FeatureDefinition<? extends AtomicProperty<T>> propertyDefinition, final Updater<T> updater) {
+
+        return new FunctionExecutor<T>() {
+
+            @Override
+            public T invoke(FeatureHolder holder, Object... arguments) throws ExecutorInvokationException {
+
+                return holder.get(propertyDefinition).updateAndGet(updater);
+            }
+
+        };
+    }
+
+    /**
+     * Creates a new accumulate-and-get {@link FunctionExecutor} for the given {@link AtomicProperty} definition.
+     * An accumulate-and-get function takes one argument and atomically changes the value of the {@link AtomicProperty} to the result of the given {@link Accumulator}.
+     * The {@link Accumulator} is called with the current value and the argument. The function returns the new value.
+     * 
+     * @param propertyDefinition The {@link FeatureDefinition} of the {@link AtomicProperty} to access.
+     * @param accumulator The {@link Accumulator} which calculates the new value from the current one and the argument.
+     * @return The created {@link FunctionExecutor}.
+     */
+    public static <T> FunctionExecutor<T> createAccumulateAndGet(final FeatureDefinition<? extends AtomicProperty<T>> propertyDefinition, final Accumulator<T> accumulator) {
+
+        return new FunctionExecutor<T>() {
+
+            @SuppressWarnings ("unchecked")
+            @Override
+            public T invoke(FeatureHolder holder, Object... arguments) throws ExecutorInvokationException {
+
+                // Hope that the using FunctionDefinition has the correct parameters
+                return holder.get(propertyDefinition).accumulateAndGet((T) arguments[0], accumulator);
+            }
+
         };
     }
 
@@ -0,0 +1,154 @@
+/*
+ * This file is part of Classmod.
+ * Copyright (c) 2014 QuarterCode <http://www.quartercode.com/>
+ *
+ * Classmod is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Classmod is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Classmod. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.classmod.util;
+
+import java.util.Collection;
+import com.quartercode.classmod.extra.Function;
+import com.quartercode.classmod.extra.ResultReducer;
+
+/**
+ * A utility class for creating common {@link ResultReducer}s which can be used with {@link Function#invokeReduce(ResultReducer, Object, Object...)}.
+ * All reducers are stateless, so the factory methods return shared instances which can be reused for every invokation.
+ * 
+ * @see ResultReducer
+ * @see Function
+ */
+public class ResultReducerFactory {
+
+    private static final ResultReducer<Object, Object>             FIRST_NON_NULL = new FirstNonNullReducer();
+    private static final ResultReducer<Number, Long>               LONG_SUM       = new LongSumReducer();
+    private static final ResultReducer<Number, Double>             DOUBLE_SUM     = new DoubleSumReducer();
+    private static final ResultReducer<Boolean, Boolean>           ALL_TRUE       = new AllTrueReducer();
+    private static final ResultReducer<Object, Collection<Object>> COLLECT        = new CollectReducer();
+
+    /**
+     * Returns a {@link ResultReducer} which returns the first return value that isn't null.
+     * The identity value should be null; it is returned if all return values are null.
+     * 
+     * @return The shared {@link ResultReducer}.
+     */
+    @SuppressWarnings ("unchecked")
+    public static <R> ResultReducer<R, R> createFirstNonNull() {
+
+        // The reducer only passes its values through, so it works for any type
+        return (ResultReducer<R, R>) (ResultReducer<?, ?>) FIRST_NON_NULL;
+    }
+
+    /**
+     * Returns a {@link ResultReducer} which sums up all {@link Number} return values as longs.
+     * Null return values are ignored.
+     * 
+     * @return The shared {@link ResultReducer}.
+     */
+    public static ResultReducer<Number, Long> createLongSum() {
+
+        return LONG_SUM;
+    }
+
+    /**
+     * Returns a {@link ResultReducer} which sums up all {@link Number} return values as doubles.
+     * Null return values are ignored.
+     * 
+     * @return The shared {@link ResultReducer}.
+     */
+    public static ResultReducer<Number, Double> createDoubleSum() {
+
+        return DOUBLE_SUM;
+    }
+
+    /**
+     * Returns a {@link ResultReducer} which checks whether all {@link Boolean} return values are true.
+     * Null return values count as false. The identity value should be true.
+     * 
+     * @return The shared {@link ResultReducer}.
+     */
+    public static ResultReducer<Boolean, Boolean> createAllTrue() {
+
+        return ALL_TRUE;
+    }
+
+    /**
+     * Returns a {@link ResultReducer} which adds all return values to the {@link Collection} that is passed as identity value.
+     * That allows to reuse an existing buffer for multiple invokations.
+     * 
+     * @return The shared {@link ResultReducer}.
+     */
+    @SuppressWarnings ("unchecked")
+    public static <R, C extends Collection<? super R>> ResultReducer<R, C> createCollect() {
+
+        // The reducer only adds its values to the accumulator and returns the accumulator, so it works for any collection type
+        return (ResultReducer<R, C>) (ResultReducer<?, ?>) COLLECT;
+    }
+
+    private ResultReducerFactory() {
+
+    }
+
+    private static class FirstNonNullReducer implements ResultReducer<Object, Object> {
+
+        @Override
+        public Object reduce(Object accumulator, Object result) {
+
+            return accumulator != null ? accumulator : result;
+        }
+
+    }
+
+    private static class LongSumReducer implements ResultReducer<Number, Long> {
+
+        @Override
+        public Long reduce(Long accumulator, Number result) {
+
+            return result == null ? accumulator : accumulator + result.longValue();
+        }
+
+    }
+
+    private static class DoubleSumReducer implements ResultReducer<Number, Double> {
+
+        @Override
+        public Double reduce(Double accumulator, Number result) {
+
+            return result == null ? accumulator : accumulator + result.doubleValue();
+        }
+
+    }
+
+    private static class AllTrueReducer implements ResultReducer<Boolean, Boolean> {
+
+        @Override
+        public Boolean reduce(Boolean accumulator, Boolean result) {
+
+            return accumulator && Boolean.TRUE.equals(result);
+        }
+
+    }
+
+    private static class CollectReducer implements ResultReducer<Object, Collection<Object>> {
+
+        @Override
+        public Collection<Object> reduce(Collection<Object> accumulator, Object result) {
+
+            accumulator.add(result);
+            return accumulator;
+        }
+
+    }
+
+}
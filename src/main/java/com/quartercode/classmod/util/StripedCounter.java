@@ -0,0 +1,135 @@
+/*
+ * This file is part of Classmod.
+ * Copyright (c) 2014 QuarterCode <http://www.quartercode.com/>
+ *
+ * Classmod is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Classmod is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Classmod. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.classmod.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * A striped counter is a long counter which can be incremented by many threads without contention.
+ * As long as there is no contention, it only updates a single base value.
+ * When two threads collide, the counter inflates into multiple cells, and every thread updates the cell which is assigned to it.
+ * The cells are padded, so they don't share cache lines.
+ * Striped counters should only be used for statistics because {@link #sum()} isn't an atomic snapshot while other threads add values.
+ */
+public class StripedCounter {
+
+    private static final AtomicLongFieldUpdater<StripedCounter>                       BASE    = AtomicLongFieldUpdater.newUpdater(StripedCounter.class, "base");
+    private static final AtomicReferenceFieldUpdater<StripedCounter, AtomicLongArray> CELLS   = AtomicReferenceFieldUpdater.newUpdater(StripedCounter.class, AtomicLongArray.class, "cells");
+
+    /*
+     * The amount of cells is the next power of two of the available processors, so threads can be mapped to cells with a bit mask.
+     * Every cell takes up a 64 byte cache line (8 longs); only the first long of each line is used.
+     */
+    private static final int                                                          STRIPES = getStripes();
+    private static final int                                                          PADDING = 8;
+
+    private volatile long                                                             base;
+    private volatile AtomicLongArray                                                  cells;
+
+    private static int getStripes() {
+
+        int stripes = 1;
+        while (stripes < Runtime.getRuntime().availableProcessors() && stripes < 64) {
+            stripes <<= 1;
+        }
+        return stripes;
+    }
+
+    /**
+     * Adds 1 to the counter.
+     */
+    public void increment() {
+
+        add(1);
+    }
+
+    /**
+     * Adds the given value to the counter.
+     * 
+     * @param value The value which should be added to the counter. It may be negative.
+     */
+    public void add(long value) {
+
+        AtomicLongArray cells = this.cells;
+        if (cells == null) {
+            long current = base;
+            if (BASE.compareAndSet(this, current, current + value)) {
+                return;
+            }
+
+            // Contention -> Inflate into cells
+            CELLS.compareAndSet(this, null, new AtomicLongArray(STRIPES * PADDING));
+            cells = this.cells;
+        }
+
+        cells.getAndAdd(getStripe() * PADDING, value);
+    }
+
+    private static int getStripe() {
+
+        long id = Thread.currentThread().getId();
+        int hash = (int) (id ^ id >>> 32);
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        return hash & STRIPES - 1;
+    }
+
+    /**
+     * Returns the sum of all values which were added to the counter.
+     * If other threads add values concurrently, those values might or might not be included.
+     * 
+     * @return The current value of the counter.
+     */
+    public long sum() {
+
+        long sum = base;
+        AtomicLongArray cells = this.cells;
+        if (cells != null) {
+            for (int stripe = 0; stripe < STRIPES; stripe++) {
+                sum += cells.get(stripe * PADDING);
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Resets the counter to 0.
+     * Values which are added concurrently might be lost.
+     */
+    public void reset() {
+
+        base = 0;
+        AtomicLongArray cells = this.cells;
+        if (cells != null) {
+            for (int stripe = 0; stripe < STRIPES; stripe++) {
+                cells.set(stripe * PADDING, 0);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+
+        return String.valueOf(sum());
+    }
+
+}
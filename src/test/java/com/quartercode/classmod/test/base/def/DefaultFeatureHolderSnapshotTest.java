@@ -0,0 +1,183 @@
+/*
+ * This file is part of Classmod.
+ * Copyright (c) 2014 QuarterCode <http://www.quartercode.com/>
+ *
+ * Classmod is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Classmod is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Classmod. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.classmod.test.base.def;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import com.quartercode.classmod.base.FeatureDefinition;
+import com.quartercode.classmod.base.FeatureHolder;
+import com.quartercode.classmod.base.VersionedFeatureHolder;
+import com.quartercode.classmod.base.VersionedFeatureHolder.SnapshotReader;
+import com.quartercode.classmod.base.def.AbstractFeatureDefinition;
+import com.quartercode.classmod.base.def.DefaultFeatureHolder;
+import com.quartercode.classmod.extra.ExecutorInvokationException;
+import com.quartercode.classmod.extra.def.DefaultChildFeatureHolder;
+import com.quartercode.classmod.extra.def.ObjectProperty;
+import com.quartercode.classmod.util.CollectionPropertyAccessorFactory;
+
+public class DefaultFeatureHolderSnapshotTest {
+
+    private static FeatureDefinition<ObjectProperty<Integer>>                 FIRST;
+    private static FeatureDefinition<ObjectProperty<Integer>>                 SECOND;
+
+    private static FeatureDefinition<ObjectProperty<List<StampReadingChild>>> CHILDREN;
+
+    private static SnapshotReader<int[]>                                      READ_BOTH;
+
+    @BeforeClass
+    public static void setUpBeforeClass() {
+
+        FIRST = createDefinition("first");
+        SECOND = createDefinition("second");
+
+        CHILDREN = new AbstractFeatureDefinition<ObjectProperty<List<StampReadingChild>>>("children") {
+
+            @Override
+            public ObjectProperty<List<StampReadingChild>> create(FeatureHolder holder) {
+
+                // Lazy creations may read the stamp of their holder
+                ((VersionedFeatureHolder) holder).getStamp();
+                return new ObjectProperty<List<StampReadingChild>>(getName(), holder, new ArrayList<StampReadingChild>());
+            }
+
+        };
+
+        READ_BOTH = new SnapshotReader<int[]>() {
+
+            @Override
+            public int[] read(VersionedFeatureHolder holder) {
+
+                return new int[] { holder.get(FIRST).get(), holder.get(SECOND).get() };
+            }
+
+        };
+    }
+
+    private static FeatureDefinition<ObjectProperty<Integer>> createDefinition(String name) {
+
+        return new AbstractFeatureDefinition<ObjectProperty<Integer>>(name) {
+
+            @Override
+            public ObjectProperty<Integer> create(FeatureHolder holder) {
+
+                return new ObjectProperty<Integer>(getName(), holder, 0);
+            }
+
+        };
+    }
+
+    private DefaultFeatureHolder featureHolder;
+
+    @Before
+    public void setUp() {
+
+        featureHolder = new DefaultFeatureHolder();
+        featureHolder.get(FIRST);
+        featureHolder.get(SECOND);
+    }
+
+    @Test
+    public void testValidate() {
+
+        int stamp = featureHolder.getStamp();
+        featureHolder.get(FIRST).get();
+        Assert.assertTrue("Stamp is valid without modification", featureHolder.validate(stamp));
+
+        featureHolder.get(FIRST).set(1);
+        Assert.assertFalse("Stamp is valid after modification", featureHolder.validate(stamp));
+        Assert.assertTrue("New stamp is valid", featureHolder.validate(featureHolder.getStamp()));
+    }
+
+    @Test
+    public void testReadSnapshot() {
+
+        featureHolder.get(FIRST).set(1);
+        featureHolder.get(SECOND).set(2);
+
+        int[] snapshot = featureHolder.readSnapshot(READ_BOTH);
+        Assert.assertEquals("First value", 1, snapshot[0]);
+        Assert.assertEquals("Second value", 2, snapshot[1]);
+    }
+
+    @Test (timeout = 5000)
+    public void testCollectionModificationReadingStamp() throws ExecutorInvokationException {
+
+        StampReadingChild child = new StampReadingChild();
+        CollectionPropertyAccessorFactory.createAdd(CHILDREN).invoke(featureHolder, child);
+        Assert.assertSame("Parent of the added child", featureHolder, child.getParent());
+
+        CollectionPropertyAccessorFactory.createRemove(CHILDREN).invoke(featureHolder, child);
+        Assert.assertNull("Parent of the removed child", child.getParent());
+    }
+
+    @Test
+    public void testReadSnapshotConcurrently() throws InterruptedException {
+
+        final AtomicBoolean running = new AtomicBoolean(true);
+        Thread writer = new Thread() {
+
+            @Override
+            public void run() {
+
+                // The first property is always set before the second one, so a snapshot never contains a second value which is greater than the first one
+                for (int value = 1; running.get(); value++) {
+                    featureHolder.get(FIRST).set(value);
+                    featureHolder.get(SECOND).set(value);
+                }
+            }
+
+        };
+        writer.start();
+
+        try {
+            for (int read = 0; read < 10000; read++) {
+                int[] snapshot = featureHolder.readSnapshot(READ_BOTH);
+                Assert.assertTrue("Snapshot " + snapshot[0] + "/" + snapshot[1] + " is torn", snapshot[0] == snapshot[1] || snapshot[0] == snapshot[1] + 1);
+            }
+        }
+        finally {
+            running.set(false);
+            writer.join();
+        }
+    }
+
+    private static class StampReadingChild extends DefaultChildFeatureHolder<FeatureHolder> {
+
+        @Override
+        public void setParent(FeatureHolder parent) {
+
+            // Children may read the stamp of their old and new parents when they are moved
+            FeatureHolder oldParent = getParent();
+            if (oldParent != null) {
+                ((VersionedFeatureHolder) oldParent).getStamp();
+            }
+            if (parent != null) {
+                ((VersionedFeatureHolder) parent).getStamp();
+            }
+            super.setParent(parent);
+        }
+
+    }
+
+}
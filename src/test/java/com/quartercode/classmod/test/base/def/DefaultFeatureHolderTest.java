@@ -20,16 +20,21 @@ package com.quartercode.classmod.test.base.def;
 
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Test;
+import com.quartercode.classmod.base.Feature;
 import com.quartercode.classmod.base.FeatureDefinition;
 import com.quartercode.classmod.base.FeatureHolder;
 import com.quartercode.classmod.base.Persistent;
 import com.quartercode.classmod.base.def.AbstractFeature;
 import com.quartercode.classmod.base.def.AbstractFeatureDefinition;
 import com.quartercode.classmod.base.def.DefaultFeatureHolder;
+import com.quartercode.classmod.extra.LockableClass;
 
 public class DefaultFeatureHolderTest {
 
@@ -76,6 +81,81 @@ public class DefaultFeatureHolderTest {
         Assert.assertEquals("Name of TEST_FEATURE_2", "testFeature2", featureHolder.get(TEST_FEATURE_2).getName());
     }
 
+    @Test
+    public void testGetSameFeature() {
+
+        Assert.assertSame("Second call for TEST_FEATURE_1", featureHolder.get(TEST_FEATURE_1), featureHolder.get(TEST_FEATURE_1));
+    }
+
+    @Test
+    public void testGetSameName() {
+
+        FeatureDefinition<AbstractFeature> otherDefinition = new AbstractFeatureDefinition<AbstractFeature>("testFeature2") {
+
+            @Override
+            public AbstractFeature create(FeatureHolder holder) {
+
+                return new AbstractFeature(getName(), holder);
+            }
+
+        };
+
+        Assert.assertSame("Feature of other definition with the same name", featureHolder.get(TEST_FEATURE_2), featureHolder.get(otherDefinition));
+    }
+
+    @Test
+    public void testGetOtherDefinition() {
+
+        FeatureDefinition<AbstractFeature> otherDefinition = new FeatureDefinition<AbstractFeature>() {
+
+            @Override
+            public String getName() {
+
+                return "testFeature2";
+            }
+
+            @Override
+            public AbstractFeature create(FeatureHolder holder) {
+
+                return new AbstractFeature(getName(), holder);
+            }
+
+        };
+
+        Assert.assertSame("Feature of other definition with the same name", featureHolder.get(TEST_FEATURE_2), featureHolder.get(otherDefinition));
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void testGetNullName() {
+
+        featureHolder.get(new FeatureDefinition<AbstractFeature>() {
+
+            @Override
+            public String getName() {
+
+                return null;
+            }
+
+            @Override
+            public AbstractFeature create(FeatureHolder holder) {
+
+                return new AbstractFeature(getName(), holder);
+            }
+
+        });
+    }
+
+    @Test
+    public void testGetAfterSetPersistentFeatures() {
+
+        TestFeature1 feature = new TestFeature1("testFeature1", featureHolder);
+        Set<Object> features = new HashSet<Object>();
+        features.add(feature);
+        featureHolder.setPersistentFeatures(features);
+
+        Assert.assertSame("Feature for TEST_FEATURE_1 after adding it", feature, featureHolder.get(TEST_FEATURE_1));
+    }
+
     @Test
     public void testGetPersistentFeatures() {
 
@@ -102,6 +182,136 @@ public class DefaultFeatureHolderTest {
         Assert.assertEquals("Added features", features, actualFeatures);
     }
 
+    @Test
+    public void testGetConcurrently() throws InterruptedException {
+
+        final AtomicInteger creations = new AtomicInteger();
+        final FeatureDefinition<AbstractFeature> definition = new AbstractFeatureDefinition<AbstractFeature>("concurrentTestFeature") {
+
+            @Override
+            public AbstractFeature create(FeatureHolder holder) {
+
+                creations.incrementAndGet();
+                return new AbstractFeature(getName(), holder);
+            }
+
+        };
+
+        int threadCount = 8;
+        final CountDownLatch startSignal = new CountDownLatch(1);
+        final CountDownLatch doneSignal = new CountDownLatch(threadCount);
+        final AtomicReferenceArray<Feature> results = new AtomicReferenceArray<Feature>(threadCount);
+        for (int thread = 0; thread < threadCount; thread++) {
+            final int index = thread;
+            new Thread(new Runnable() {
+
+                @Override
+                public void run() {
+
+                    try {
+                        startSignal.await();
+                        results.set(index, featureHolder.get(definition));
+                    }
+                    catch (InterruptedException e) {
+                        // Leave the result empty
+                    }
+                    finally {
+                        doneSignal.countDown();
+                    }
+                }
+
+            }).start();
+        }
+
+        startSignal.countDown();
+        doneSignal.await();
+
+        Assert.assertEquals("Times the feature was created", 1, creations.get());
+        for (int index = 0; index < threadCount; index++) {
+            Assert.assertSame("Feature returned to thread " + index, results.get(0), results.get(index));
+        }
+    }
+
+    @Test
+    public void testGetManyFeatures() {
+
+        int featureCount = 100;
+        Set<Feature> features = new HashSet<Feature>();
+        for (int index = 0; index < featureCount; index++) {
+            features.add(featureHolder.get(new AbstractFeatureDefinition<AbstractFeature>("manyTestFeature" + index) {
+
+                @Override
+                public AbstractFeature create(FeatureHolder holder) {
+
+                    return new AbstractFeature(getName(), holder);
+                }
+
+            }));
+        }
+
+        Set<Feature> actualFeatures = new HashSet<Feature>();
+        for (Feature feature : featureHolder) {
+            actualFeatures.add(feature);
+        }
+
+        Assert.assertEquals("Amount of created features", featureCount, features.size());
+        Assert.assertEquals("Iterated features", features, actualFeatures);
+    }
+
+    @Test
+    public void testSetLockedDuringCreation() throws InterruptedException {
+
+        final CountDownLatch creationStarted = new CountDownLatch(1);
+        final CountDownLatch finishCreation = new CountDownLatch(1);
+        final FeatureDefinition<LockableTestFeature> definition = new AbstractFeatureDefinition<LockableTestFeature>("lockableTestFeature") {
+
+            @Override
+            public LockableTestFeature create(FeatureHolder holder) {
+
+                creationStarted.countDown();
+                try {
+                    finishCreation.await();
+                }
+                catch (InterruptedException e) {
+                    // Finish the creation
+                }
+                return new LockableTestFeature(getName(), holder);
+            }
+
+        };
+
+        Thread creator = new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+
+                featureHolder.get(definition);
+            }
+
+        });
+        Thread unlocker = new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+
+                featureHolder.setLocked(false);
+            }
+
+        });
+
+        creator.start();
+        creationStarted.await();
+        unlocker.start();
+        // Give the unlocker the chance to toggle the lock state while the feature is created
+        Thread.sleep(20);
+        finishCreation.countDown();
+        creator.join();
+        unlocker.join();
+
+        Assert.assertFalse("Holder is locked", featureHolder.isLocked());
+        Assert.assertFalse("Feature created during unlocking is locked", featureHolder.get(definition).isLocked());
+    }
+
     @Persistent
     private static class TestFeature1 extends AbstractFeature {
 
@@ -112,4 +322,27 @@ public class DefaultFeatureHolderTest {
 
     }
 
+    private static class LockableTestFeature extends AbstractFeature implements LockableClass {
+
+        private volatile boolean locked;
+
+        public LockableTestFeature(String name, FeatureHolder holder) {
+
+            super(name, holder);
+        }
+
+        @Override
+        public boolean isLocked() {
+
+            return locked;
+        }
+
+        @Override
+        public void setLocked(boolean locked) {
+
+            this.locked = locked;
+        }
+
+    }
+
 }
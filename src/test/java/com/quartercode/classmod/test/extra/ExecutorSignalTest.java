@@ -0,0 +1,98 @@
+/*
+ * This file is part of Classmod.
+ * Copyright (c) 2014 QuarterCode <http://www.quartercode.com/>
+ *
+ * Classmod is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Classmod is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Classmod. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.classmod.test.extra;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.Assert;
+import org.junit.Test;
+import com.quartercode.classmod.base.FeatureHolder;
+import com.quartercode.classmod.base.def.DefaultFeatureHolder;
+import com.quartercode.classmod.extra.ExecutorInvokationException;
+import com.quartercode.classmod.extra.FunctionExecutionException;
+import com.quartercode.classmod.extra.FunctionExecutor;
+import com.quartercode.classmod.extra.ReturnNextException;
+import com.quartercode.classmod.extra.StopExecutionException;
+import com.quartercode.classmod.extra.def.AbstractFunction;
+
+public class ExecutorSignalTest {
+
+    @Test (expected = IllegalStateException.class)
+    public void testStopInstanceInitCause() {
+
+        StopExecutionException.INSTANCE.initCause(new RuntimeException());
+    }
+
+    @Test (expected = IllegalStateException.class)
+    public void testReturnNextInstanceInitCause() {
+
+        ReturnNextException.INSTANCE.initCause(new RuntimeException());
+    }
+
+    @Test
+    public void testInstanceStackTrace() {
+
+        StackTraceElement[] stackTrace = new Throwable().getStackTrace();
+        StopExecutionException.INSTANCE.setStackTrace(stackTrace);
+        ReturnNextException.INSTANCE.setStackTrace(stackTrace);
+
+        Assert.assertEquals("Stack trace length of the stop instance", 0, StopExecutionException.INSTANCE.getStackTrace().length);
+        Assert.assertEquals("Stack trace length of the return next instance", 0, ReturnNextException.INSTANCE.getStackTrace().length);
+    }
+
+    @Test
+    public void testNewSignalsModifiable() {
+
+        RuntimeException cause = new RuntimeException();
+        StopExecutionException stop = new StopExecutionException("Stopped");
+        stop.initCause(cause);
+        Assert.assertSame("Cause of a new stop signal", cause, stop.getCause());
+
+        StackTraceElement[] stackTrace = new Throwable().getStackTrace();
+        ReturnNextException returnNext = new ReturnNextException();
+        returnNext.setStackTrace(stackTrace);
+        Assert.assertArrayEquals("Stack trace of a new return next signal", stackTrace, returnNext.getStackTrace());
+    }
+
+    @Test
+    public void testStopInstanceAfterInitCause() throws FunctionExecutionException {
+
+        try {
+            StopExecutionException.INSTANCE.initCause(new RuntimeException());
+        }
+        catch (IllegalStateException e) {
+            // Expected
+        }
+
+        Map<String, FunctionExecutor<String>> executors = new HashMap<String, FunctionExecutor<String>>();
+        executors.put("stop", new FunctionExecutor<String>() {
+
+            @Override
+            public String invoke(FeatureHolder holder, Object... arguments) throws ExecutorInvokationException {
+
+                throw StopExecutionException.INSTANCE;
+            }
+
+        });
+
+        Assert.assertNull("Return value of a plainly stopped function", new AbstractFunction<String>("stopFunction", new DefaultFeatureHolder(), new ArrayList<Class<?>>(), executors).invoke());
+    }
+
+}
@@ -0,0 +1,219 @@
+/*
+ * This file is part of Classmod.
+ * Copyright (c) 2014 QuarterCode <http://www.quartercode.com/>
+ *
+ * Classmod is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Classmod is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Classmod. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.classmod.test.extra.def;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import com.quartercode.classmod.base.FeatureHolder;
+import com.quartercode.classmod.base.def.DefaultFeatureHolder;
+import com.quartercode.classmod.extra.AsyncFunctionExecutor;
+import com.quartercode.classmod.extra.ExecutorInvokationException;
+import com.quartercode.classmod.extra.FunctionExecutionException;
+import com.quartercode.classmod.extra.FunctionExecutor;
+import com.quartercode.classmod.extra.FunctionFuture;
+import com.quartercode.classmod.extra.Prioritized;
+import com.quartercode.classmod.extra.StopExecutionException;
+import com.quartercode.classmod.extra.def.AbstractFunction;
+import com.quartercode.classmod.extra.def.DefaultFunctionFuture;
+
+public class AbstractFunctionAsyncTest {
+
+    private ExecutorService                       pool;
+    private List<String>                          invoked;
+    private DefaultFunctionFuture<String>         pending;
+    private Map<String, FunctionExecutor<String>> executors;
+
+    @Before
+    public void setUp() {
+
+        pool = Executors.newFixedThreadPool(2);
+        invoked = new ArrayList<String>();
+        pending = new DefaultFunctionFuture<String>();
+        executors = new HashMap<String, FunctionExecutor<String>>();
+
+        executors.put("high", new FunctionExecutor<String>() {
+
+            @Override
+            @Prioritized (Prioritized.LEVEL_7)
+            public String invoke(FeatureHolder holder, Object... arguments) throws ExecutorInvokationException {
+
+                addInvoked("high");
+                return "high";
+            }
+
+        });
+        executors.put("async", new AsyncFunctionExecutor<String>() {
+
+            @Override
+            public FunctionFuture<String> invokeAsync(FeatureHolder holder, Object... arguments) {
+
+                addInvoked("async");
+                return pending;
+            }
+
+            @Override
+            @Prioritized (Prioritized.LEVEL_5)
+            public String invoke(FeatureHolder holder, Object... arguments) throws ExecutorInvokationException {
+
+                try {
+                    return invokeAsync(holder, arguments).get();
+                }
+                catch (Exception e) {
+                    throw new StopExecutionException(e);
+                }
+            }
+
+        });
+        executors.put("low", new FunctionExecutor<String>() {
+
+            @Override
+            @Prioritized (Prioritized.LEVEL_3)
+            public String invoke(FeatureHolder holder, Object... arguments) throws ExecutorInvokationException {
+
+                addInvoked("low");
+                return "low";
+            }
+
+        });
+    }
+
+    private void addInvoked(String executor) {
+
+        synchronized (invoked) {
+            invoked.add(executor);
+        }
+    }
+
+    private List<String> getInvoked() {
+
+        synchronized (invoked) {
+            return new ArrayList<String>(invoked);
+        }
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+
+        pool.shutdownNow();
+        pool.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    private AbstractFunction<String> createFunction() {
+
+        AbstractFunction<String> function = new AbstractFunction<String>("testFunction", new DefaultFeatureHolder(), new ArrayList<Class<?>>(), executors);
+        function.setAsyncExecutor(pool);
+        return function;
+    }
+
+    @Test
+    public void testInvokeRAAsync() throws Exception {
+
+        FunctionFuture<List<String>> result = createFunction().invokeRAAsync();
+
+        // The chain waits for the async executor without blocking a thread
+        Thread.sleep(100);
+        Assert.assertFalse("Future is done before the async executor completed", result.isDone());
+        Assert.assertEquals("Invoked executors while pending", Arrays.asList("high", "async"), getInvoked());
+
+        pending.complete("async");
+        Assert.assertEquals("Results", Arrays.asList("high", "async", "low"), result.get(10, TimeUnit.SECONDS));
+        Assert.assertEquals("Invoked executors", Arrays.asList("high", "async", "low"), getInvoked());
+    }
+
+    @Test
+    public void testInvokeAsync() throws Exception {
+
+        pending.complete("async");
+
+        final DefaultFunctionFuture<String> callbackResult = new DefaultFunctionFuture<String>();
+        createFunction().invokeAsync().addCallback(new FunctionFuture.Callback<String>() {
+
+            @Override
+            public void onSuccess(String result) {
+
+                callbackResult.complete(result);
+            }
+
+            @Override
+            public void onFailure(Throwable cause) {
+
+                callbackResult.fail(cause);
+            }
+
+        });
+
+        Assert.assertEquals("Result of the executor with the highest priority", "high", callbackResult.get(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testAsyncStop() throws Exception {
+
+        pending.fail(StopExecutionException.INSTANCE);
+
+        Assert.assertEquals("Results", Arrays.asList("high"), createFunction().invokeRAAsync().get(10, TimeUnit.SECONDS));
+        Assert.assertEquals("Invoked executors", Arrays.asList("high", "async"), getInvoked());
+    }
+
+    @Test
+    public void testAsyncFailure() throws Exception {
+
+        IllegalStateException cause = new IllegalStateException("Test failure");
+        pending.fail(new StopExecutionException(cause));
+
+        try {
+            createFunction().invokeAsync().get(10, TimeUnit.SECONDS);
+            Assert.fail("Future didn't fail");
+        }
+        catch (ExecutionException e) {
+            Assert.assertTrue("Failure is a function execution exception", e.getCause() instanceof FunctionExecutionException);
+            Assert.assertSame("Cause of the failure", cause, e.getCause().getCause());
+        }
+        Assert.assertEquals("Invoked executors", Arrays.asList("high", "async"), getInvoked());
+    }
+
+    @Test
+    public void testInvokeAsyncInvalidArguments() throws Exception {
+
+        List<Class<?>> parameters = new ArrayList<Class<?>>();
+        parameters.add(String.class);
+        AbstractFunction<String> function = new AbstractFunction<String>("testFunction", new DefaultFeatureHolder(), parameters, executors);
+        function.setAsyncExecutor(pool);
+
+        try {
+            function.invokeAsync(5).get(10, TimeUnit.SECONDS);
+            Assert.fail("Future didn't fail");
+        }
+        catch (ExecutionException e) {
+            Assert.assertTrue("Failure is a function execution exception", e.getCause() instanceof FunctionExecutionException);
+        }
+        Assert.assertTrue("No executor was invoked", getInvoked().isEmpty());
+    }
+
+}
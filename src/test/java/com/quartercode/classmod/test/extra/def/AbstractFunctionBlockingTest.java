@@ -0,0 +1,209 @@
+/*
+ * This file is part of Classmod.
+ * Copyright (c) 2014 QuarterCode <http://www.quartercode.com/>
+ *
+ * Classmod is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Classmod is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Classmod. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.classmod.test.extra.def;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import com.quartercode.classmod.base.FeatureHolder;
+import com.quartercode.classmod.base.def.DefaultFeatureHolder;
+import com.quartercode.classmod.extra.Blocking;
+import com.quartercode.classmod.extra.ExecutorInvokationException;
+import com.quartercode.classmod.extra.FunctionExecutionException;
+import com.quartercode.classmod.extra.FunctionExecutor;
+import com.quartercode.classmod.extra.Prioritized;
+import com.quartercode.classmod.extra.StopExecutionException;
+import com.quartercode.classmod.extra.def.AbstractFunction;
+import com.quartercode.classmod.util.BlockingExecutor;
+
+public class AbstractFunctionBlockingTest {
+
+    private ExecutorService                       pool;
+    private AtomicInteger                         blockingExecutions;
+    private Map<String, FunctionExecutor<String>> executors;
+
+    @Before
+    public void setUp() {
+
+        pool = Executors.newFixedThreadPool(2);
+        blockingExecutions = new AtomicInteger();
+        executors = new HashMap<String, FunctionExecutor<String>>();
+
+        executors.put("low", new FunctionExecutor<String>() {
+
+            @Override
+            @Prioritized (Prioritized.LEVEL_3)
+            public String invoke(FeatureHolder holder, Object... arguments) throws ExecutorInvokationException {
+
+                return "low";
+            }
+
+        });
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+
+        pool.shutdownNow();
+        pool.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    private AbstractFunction<String> createFunction() {
+
+        AbstractFunction<String> function = new AbstractFunction<String>("testFunction", new DefaultFeatureHolder(), new ArrayList<Class<?>>(), executors);
+        function.setAsyncExecutor(pool);
+
+        // Count the executors which are moved to the blocking executor
+        final Executor blockingExecutor = new BlockingExecutor(2);
+        function.setBlockingExecutor(new Executor() {
+
+            @Override
+            public void execute(Runnable task) {
+
+                blockingExecutions.incrementAndGet();
+                blockingExecutor.execute(task);
+            }
+
+        });
+
+        return function;
+    }
+
+    @Test
+    public void testInvokeAsyncBlocking() throws Exception {
+
+        executors.put("blocking", new FunctionExecutor<String>() {
+
+            @Override
+            @Prioritized (Prioritized.LEVEL_5)
+            @Blocking
+            public String invoke(FeatureHolder holder, Object... arguments) throws ExecutorInvokationException {
+
+                return "blocking";
+            }
+
+        });
+
+        List<String> results = createFunction().invokeRAAsync().get(10, TimeUnit.SECONDS);
+        Assert.assertEquals("Results", Arrays.asList("blocking", "low"), results);
+        Assert.assertEquals("Executors run on the blocking executor", 1, blockingExecutions.get());
+    }
+
+    @Test
+    public void testInvokeBlockingSynchronously() throws FunctionExecutionException {
+
+        executors.put("blocking", new FunctionExecutor<String>() {
+
+            @Override
+            @Prioritized (Prioritized.LEVEL_5)
+            @Blocking
+            public String invoke(FeatureHolder holder, Object... arguments) throws ExecutorInvokationException {
+
+                return "blocking";
+            }
+
+        });
+
+        List<String> results = createFunction().invokeRA();
+        Assert.assertEquals("Results", Arrays.asList("blocking", "low"), results);
+        Assert.assertEquals("Executors run on the blocking executor", 0, blockingExecutions.get());
+    }
+
+    @Test
+    public void testInvokeAsyncBlockingStop() throws Exception {
+
+        final IOException cause = new IOException("Test");
+        executors.put("blocking", new FunctionExecutor<String>() {
+
+            @Override
+            @Prioritized (Prioritized.LEVEL_5)
+            @Blocking
+            public String invoke(FeatureHolder holder, Object... arguments) throws ExecutorInvokationException {
+
+                throw new StopExecutionException(cause);
+            }
+
+        });
+
+        try {
+            createFunction().invokeRAAsync().get(10, TimeUnit.SECONDS);
+            Assert.fail("Future didn't fail");
+        }
+        catch (ExecutionException e) {
+            Assert.assertTrue("Failure " + e.getCause() + " is a function execution exception", e.getCause() instanceof FunctionExecutionException);
+            Assert.assertEquals("Cause of the function execution exception", cause, e.getCause().getCause());
+        }
+    }
+
+    @Test
+    public void testConcurrencyCap() throws InterruptedException {
+
+        final BlockingExecutor blockingExecutor = new BlockingExecutor(2);
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        final CountDownLatch done = new CountDownLatch(10);
+
+        for (int task = 0; task < 10; task++) {
+            blockingExecutor.execute(new Runnable() {
+
+                @Override
+                public void run() {
+
+                    int current = running.incrementAndGet();
+                    while (true) {
+                        int max = maxRunning.get();
+                        if (current <= max || maxRunning.compareAndSet(max, current)) {
+                            break;
+                        }
+                    }
+
+                    try {
+                        Thread.sleep(10);
+                    }
+                    catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    finally {
+                        running.decrementAndGet();
+                        done.countDown();
+                    }
+                }
+
+            });
+        }
+
+        Assert.assertTrue("All tasks were run", done.await(10, TimeUnit.SECONDS));
+        Assert.assertTrue("Maximum amount of running tasks " + maxRunning.get() + " exceeds the cap", maxRunning.get() <= 2);
+    }
+
+}
@@ -0,0 +1,177 @@
+/*
+ * This file is part of Classmod.
+ * Copyright (c) 2014 QuarterCode <http://www.quartercode.com/>
+ *
+ * Classmod is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Classmod is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Classmod. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.classmod.test.extra.def;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Assert;
+import org.junit.Test;
+import com.quartercode.classmod.base.FeatureHolder;
+import com.quartercode.classmod.base.def.DefaultFeatureHolder;
+import com.quartercode.classmod.extra.Delay;
+import com.quartercode.classmod.extra.ExecutorInvokationException;
+import com.quartercode.classmod.extra.FunctionExecutionException;
+import com.quartercode.classmod.extra.FunctionExecutor;
+import com.quartercode.classmod.extra.Limit;
+import com.quartercode.classmod.extra.Lockable;
+import com.quartercode.classmod.extra.def.AbstractFunction;
+
+public class AbstractFunctionConcurrencyTest {
+
+    private static final int THREADS = 32;
+
+    private void invokeConcurrently(final AbstractFunction<?> function, final int invokationsPerThread) throws InterruptedException {
+
+        final CountDownLatch startSignal = new CountDownLatch(1);
+        final CountDownLatch doneSignal = new CountDownLatch(THREADS);
+        for (int thread = 0; thread < THREADS; thread++) {
+            new Thread(new Runnable() {
+
+                @Override
+                public void run() {
+
+                    try {
+                        startSignal.await();
+                        for (int invokation = 0; invokation < invokationsPerThread; invokation++) {
+                            function.invoke();
+                        }
+                    }
+                    catch (InterruptedException e) {
+                        // Stop invoking
+                    }
+                    catch (FunctionExecutionException e) {
+                        // Stop invoking
+                    }
+                    finally {
+                        doneSignal.countDown();
+                    }
+                }
+
+            }).start();
+        }
+
+        startSignal.countDown();
+        doneSignal.await();
+    }
+
+    @Test
+    public void testLimit() throws InterruptedException {
+
+        final AtomicInteger timesInvoked = new AtomicInteger();
+        Map<String, FunctionExecutor<Void>> executors = new HashMap<String, FunctionExecutor<Void>>();
+        executors.put("limited", new FunctionExecutor<Void>() {
+
+            @Override
+            @Limit (1)
+            public Void invoke(FeatureHolder holder, Object... arguments) throws ExecutorInvokationException {
+
+                timesInvoked.incrementAndGet();
+                return null;
+            }
+
+        });
+        AbstractFunction<Void> function = new AbstractFunction<Void>("testFunction", new DefaultFeatureHolder(), new ArrayList<Class<?>>(), executors);
+
+        invokeConcurrently(function, 10);
+
+        Assert.assertEquals("Times the limited executor was invoked", 1, timesInvoked.get());
+        Assert.assertEquals("Function invokation counter", THREADS * 10, function.getInvokationCounter());
+    }
+
+    @Test
+    public void testDelay() throws InterruptedException {
+
+        final AtomicInteger timesInvoked = new AtomicInteger();
+        Map<String, FunctionExecutor<Void>> executors = new HashMap<String, FunctionExecutor<Void>>();
+        executors.put("delayed", new FunctionExecutor<Void>() {
+
+            @Override
+            @Delay (delay = 1)
+            public Void invoke(FeatureHolder holder, Object... arguments) throws ExecutorInvokationException {
+
+                timesInvoked.incrementAndGet();
+                return null;
+            }
+
+        });
+        AbstractFunction<Void> function = new AbstractFunction<Void>("testFunction", new DefaultFeatureHolder(), new ArrayList<Class<?>>(), executors);
+
+        invokeConcurrently(function, 10);
+
+        // Every second invokation calls the executor
+        Assert.assertEquals("Times the delayed executor was invoked", THREADS * 10 / 2, timesInvoked.get());
+    }
+
+    @Test
+    public void testLockToggling() throws InterruptedException {
+
+        Map<String, FunctionExecutor<Integer>> executors = new HashMap<String, FunctionExecutor<Integer>>();
+        for (int counter = 0; counter < 2; counter++) {
+            executors.put("lockable" + counter, new FunctionExecutor<Integer>() {
+
+                @Override
+                @Lockable
+                public Integer invoke(FeatureHolder holder, Object... arguments) throws ExecutorInvokationException {
+
+                    return 1;
+                }
+
+            });
+        }
+        final AbstractFunction<Integer> function = new AbstractFunction<Integer>("testFunction", new DefaultFeatureHolder(), new ArrayList<Class<?>>(), executors);
+
+        final AtomicBoolean running = new AtomicBoolean(true);
+        final AtomicInteger partialInvokations = new AtomicInteger();
+        Thread invoker = new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+
+                try {
+                    while (running.get()) {
+                        List<Integer> results = function.invokeRA();
+                        // Both executors are either locked or unlocked
+                        if (results.size() == 1) {
+                            partialInvokations.incrementAndGet();
+                        }
+                    }
+                }
+                catch (FunctionExecutionException e) {
+                    partialInvokations.incrementAndGet();
+                }
+            }
+
+        });
+        invoker.start();
+
+        for (int counter = 0; counter < 10000; counter++) {
+            function.setLocked(counter % 2 == 0);
+        }
+        running.set(false);
+        invoker.join();
+
+        Assert.assertEquals("Invokations which saw a partial lock change", 0, partialInvokations.get());
+    }
+
+}
@@ -32,13 +32,16 @@ import com.quartercode.classmod.base.def.DefaultFeatureHolder;
 import com.quartercode.classmod.extra.ExecutorInvokationException;
 import com.quartercode.classmod.extra.Function;
 import com.quartercode.classmod.extra.Function.FunctionExecutorContainer;
+import com.quartercode.classmod.extra.FunctionExecutionException;
 import com.quartercode.classmod.extra.FunctionExecutor;
+import com.quartercode.classmod.extra.Limit;
 import com.quartercode.classmod.extra.def.AbstractFunction;
 import com.quartercode.classmod.extra.def.AbstractFunctionDefinition;
 
 public class AbstractFunctionDefinitionTest {
 
     private AbstractFunctionDefinition<Void> functionDefinition;
+    private int                              actualTimesInvoked;
 
     @Before
     public void setUp() {
@@ -94,4 +97,55 @@ public class AbstractFunctionDefinitionTest {
         Assert.assertEquals("Function object's executors", expectedExecutors, actualExecutors);
     }
 
+    @Test
+    public void testCreateAfterExecutorChange() {
+
+        FunctionExecutor<Void> executor = new FunctionExecutor<Void>() {
+
+            @Override
+            public Void invoke(FeatureHolder holder, Object... arguments) throws ExecutorInvokationException {
+
+                return null;
+            }
+
+        };
+
+        Assert.assertTrue("Executors before adding one", functionDefinition.create(new DefaultFeatureHolder()).getExecutors().isEmpty());
+
+        functionDefinition.addExecutor(FeatureHolder.class, "default", executor);
+        Assert.assertEquals("Executor count after adding one", 1, functionDefinition.create(new DefaultFeatureHolder()).getExecutors().size());
+
+        functionDefinition.removeExecutor(FeatureHolder.class, "default");
+        Assert.assertTrue("Executors after removing the added one", functionDefinition.create(new DefaultFeatureHolder()).getExecutors().isEmpty());
+    }
+
+    @Test
+    public void testCreateSeparateExecutorState() throws FunctionExecutionException {
+
+        functionDefinition.addExecutor(FeatureHolder.class, "limited", new FunctionExecutor<Void>() {
+
+            @Override
+            @Limit (1)
+            public Void invoke(FeatureHolder holder, Object... arguments) throws ExecutorInvokationException {
+
+                actualTimesInvoked++;
+                return null;
+            }
+
+        });
+        Function<Void> function1 = functionDefinition.create(new DefaultFeatureHolder());
+        Function<Void> function2 = functionDefinition.create(new DefaultFeatureHolder());
+
+        // The functions share their executors, but the limit counters must be separate
+        function1.invoke();
+        function1.invoke();
+        function2.invoke();
+        Assert.assertEquals("Times the limited executor was invoked", 2, actualTimesInvoked);
+
+        // The executor locks must be separate as well
+        function1.getExecutor("limited").setLocked(true);
+        Assert.assertTrue("Executor of first function is locked", function1.getExecutor("limited").isLocked());
+        Assert.assertFalse("Executor of second function is locked", function2.getExecutor("limited").isLocked());
+    }
+
 }
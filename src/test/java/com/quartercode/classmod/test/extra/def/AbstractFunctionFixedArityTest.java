@@ -0,0 +1,128 @@
+/*
+ * This file is part of Classmod.
+ * Copyright (c) 2014 QuarterCode <http://www.quartercode.com/>
+ *
+ * Classmod is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Classmod is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Classmod. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.classmod.test.extra.def;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Assert;
+import org.junit.Test;
+import com.quartercode.classmod.base.FeatureHolder;
+import com.quartercode.classmod.base.def.DefaultFeatureHolder;
+import com.quartercode.classmod.extra.ExecutorInvokationException;
+import com.quartercode.classmod.extra.FixedArityFunctionExecutor;
+import com.quartercode.classmod.extra.FunctionExecutionException;
+import com.quartercode.classmod.extra.FunctionExecutor;
+import com.quartercode.classmod.extra.Prioritized;
+import com.quartercode.classmod.extra.def.AbstractFunction;
+
+public class AbstractFunctionFixedArityTest {
+
+    @Test
+    public void testInvokeFixedArity() throws FunctionExecutionException {
+
+        final List<Object> fixedArityCalls = new ArrayList<Object>();
+        final List<Object> varargsCalls = new ArrayList<Object>();
+
+        Map<String, FunctionExecutor<String>> executors = new HashMap<String, FunctionExecutor<String>>();
+        executors.put("fixedArity", new FixedArityFunctionExecutor<String>() {
+
+            @Override
+            @Prioritized (Prioritized.LEVEL_9)
+            public String invoke(FeatureHolder holder, Object... arguments) throws ExecutorInvokationException {
+
+                varargsCalls.add(Arrays.asList(arguments));
+                return "varargs";
+            }
+
+            @Override
+            public String invoke0(FeatureHolder holder) throws ExecutorInvokationException {
+
+                fixedArityCalls.add(Arrays.asList());
+                return "fixedArity";
+            }
+
+            @Override
+            public String invoke1(FeatureHolder holder, Object argument) throws ExecutorInvokationException {
+
+                fixedArityCalls.add(Arrays.asList(argument));
+                return "fixedArity";
+            }
+
+            @Override
+            public String invoke2(FeatureHolder holder, Object argument1, Object argument2) throws ExecutorInvokationException {
+
+                fixedArityCalls.add(Arrays.asList(argument1, argument2));
+                return "fixedArity";
+            }
+
+            @Override
+            public String invoke3(FeatureHolder holder, Object argument1, Object argument2, Object argument3) throws ExecutorInvokationException {
+
+                fixedArityCalls.add(Arrays.asList(argument1, argument2, argument3));
+                return "fixedArity";
+            }
+
+        });
+        executors.put("plain", new FunctionExecutor<String>() {
+
+            @Override
+            public String invoke(FeatureHolder holder, Object... arguments) throws ExecutorInvokationException {
+
+                varargsCalls.add(Arrays.asList(arguments));
+                return "plain";
+            }
+
+        });
+
+        AbstractFunction<String> function = new AbstractFunction<String>("testFunction", new DefaultFeatureHolder(), new ArrayList<Class<?>>(), executors);
+
+        Assert.assertEquals("Return value of invoke0()", "fixedArity", function.invoke0());
+        Assert.assertEquals("Return value of invoke1()", "fixedArity", function.invoke1("a"));
+        Assert.assertEquals("Return value of invoke2()", "fixedArity", function.invoke2("a", "b"));
+        Assert.assertEquals("Return value of invoke3()", "fixedArity", function.invoke3("a", "b", "c"));
+        Assert.assertEquals("Return value of invoke()", "varargs", function.invoke("a"));
+
+        List<Object> expectedFixedArityCalls = new ArrayList<Object>();
+        expectedFixedArityCalls.add(Arrays.asList());
+        expectedFixedArityCalls.add(Arrays.asList("a"));
+        expectedFixedArityCalls.add(Arrays.asList("a", "b"));
+        expectedFixedArityCalls.add(Arrays.asList("a", "b", "c"));
+        Assert.assertEquals("Fixed arity calls", expectedFixedArityCalls, fixedArityCalls);
+
+        List<Object> expectedVarargsCalls = new ArrayList<Object>();
+        expectedVarargsCalls.add(Arrays.asList());
+        expectedVarargsCalls.add(Arrays.asList("a"));
+        expectedVarargsCalls.add(Arrays.asList("a", "b"));
+        expectedVarargsCalls.add(Arrays.asList("a", "b", "c"));
+        expectedVarargsCalls.add(Arrays.asList("a"));
+        expectedVarargsCalls.add(Arrays.asList("a"));
+        Assert.assertEquals("Varargs calls", expectedVarargsCalls, varargsCalls);
+    }
+
+    @Test (expected = FunctionExecutionException.class)
+    public void testInvokeFixedArityWrongArguments() throws FunctionExecutionException {
+
+        AbstractFunction<Void> function = new AbstractFunction<Void>("testFunction", new DefaultFeatureHolder(), Arrays.<Class<?>> asList(String.class), new HashMap<String, FunctionExecutor<Void>>());
+        function.invoke1(5);
+    }
+
+}
@@ -0,0 +1,119 @@
+/*
+ * This file is part of Classmod.
+ * Copyright (c) 2014 QuarterCode <http://www.quartercode.com/>
+ *
+ * Classmod is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Classmod is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Classmod. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.classmod.test.extra.def;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import com.quartercode.classmod.base.FeatureHolder;
+import com.quartercode.classmod.base.def.DefaultFeatureHolder;
+import com.quartercode.classmod.extra.ExecutorInvokationException;
+import com.quartercode.classmod.extra.FunctionExecutionException;
+import com.quartercode.classmod.extra.FunctionExecutor;
+import com.quartercode.classmod.extra.Lockable;
+import com.quartercode.classmod.extra.Prioritized;
+import com.quartercode.classmod.extra.def.AbstractFunction;
+
+public class AbstractFunctionInvokationPlanTest {
+
+    private AbstractFunction<String> function;
+
+    @Before
+    public void setUp() {
+
+        Map<String, FunctionExecutor<String>> executors = new HashMap<String, FunctionExecutor<String>>();
+
+        executors.put("high", new FunctionExecutor<String>() {
+
+            @Override
+            @Prioritized (Prioritized.LEVEL_9)
+            public String invoke(FeatureHolder holder, Object... arguments) throws ExecutorInvokationException {
+
+                return "high";
+            }
+
+        });
+
+        executors.put("lockable", new FunctionExecutor<String>() {
+
+            @Override
+            @Prioritized (Prioritized.LEVEL_5)
+            @Lockable
+            public String invoke(FeatureHolder holder, Object... arguments) throws ExecutorInvokationException {
+
+                return "lockable";
+            }
+
+        });
+
+        executors.put("low", new FunctionExecutor<String>() {
+
+            @Override
+            @Prioritized (Prioritized.LEVEL_1)
+            public String invoke(FeatureHolder holder, Object... arguments) throws ExecutorInvokationException {
+
+                return "low";
+            }
+
+        });
+
+        function = new AbstractFunction<String>("testFunction", new DefaultFeatureHolder(), new ArrayList<Class<?>>(), executors);
+    }
+
+    @Test
+    public void testInvokeOrder() throws FunctionExecutionException {
+
+        function.setLocked(false);
+
+        Assert.assertEquals("Return values", Arrays.asList("high", "lockable", "low"), function.invokeRA());
+    }
+
+    @Test
+    public void testInvokeAfterFunctionLockChange() throws FunctionExecutionException {
+
+        function.setLocked(false);
+        Assert.assertEquals("Return values before locking", Arrays.asList("high", "lockable", "low"), function.invokeRA());
+
+        function.setLocked(true);
+        Assert.assertEquals("Return values after locking", Arrays.asList("high", "low"), function.invokeRA());
+
+        function.setLocked(false);
+        Assert.assertEquals("Return values after unlocking", Arrays.asList("high", "lockable", "low"), function.invokeRA());
+    }
+
+    @Test
+    public void testInvokeAfterExecutorLockChange() throws FunctionExecutionException {
+
+        function.setLocked(false);
+        function.invokeRA();
+
+        function.getExecutor("high").setLocked(true);
+        List<String> expected = Arrays.asList("lockable", "low");
+        Assert.assertEquals("Return values after locking executor", expected, function.invokeRA());
+
+        function.getExecutor("high").setLocked(false);
+        Assert.assertEquals("Return value after unlocking executor", "high", function.invoke());
+    }
+
+}
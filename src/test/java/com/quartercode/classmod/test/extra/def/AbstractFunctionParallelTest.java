@@ -0,0 +1,189 @@
+/*
+ * This file is part of Classmod.
+ * Copyright (c) 2014 QuarterCode <http://www.quartercode.com/>
+ *
+ * Classmod is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Classmod is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Classmod. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.classmod.test.extra.def;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import com.quartercode.classmod.base.FeatureHolder;
+import com.quartercode.classmod.base.def.DefaultFeatureHolder;
+import com.quartercode.classmod.extra.ExecutorInvokationException;
+import com.quartercode.classmod.extra.FunctionExecutionException;
+import com.quartercode.classmod.extra.FunctionExecutor;
+import com.quartercode.classmod.extra.Parallel;
+import com.quartercode.classmod.extra.Prioritized;
+import com.quartercode.classmod.extra.StopExecutionException;
+import com.quartercode.classmod.extra.def.AbstractFunction;
+
+public class AbstractFunctionParallelTest {
+
+    private ExecutorService                       pool;
+    private AtomicInteger                         finishedParallel;
+    private Map<String, FunctionExecutor<String>> executors;
+
+    @Before
+    public void setUp() {
+
+        pool = Executors.newFixedThreadPool(2);
+        finishedParallel = new AtomicInteger();
+        executors = new HashMap<String, FunctionExecutor<String>>();
+
+        executors.put("low", new FunctionExecutor<String>() {
+
+            @Override
+            @Prioritized (Prioritized.LEVEL_3)
+            public String invoke(FeatureHolder holder, Object... arguments) throws ExecutorInvokationException {
+
+                // The parallel group is a barrier
+                return "low after " + finishedParallel.get();
+            }
+
+        });
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+
+        pool.shutdownNow();
+        pool.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    private FunctionExecutor<String> createParallel(final String name, final CyclicBarrier barrier, final boolean stop) {
+
+        return new FunctionExecutor<String>() {
+
+            @Override
+            @Prioritized (Prioritized.LEVEL_5)
+            @Parallel
+            public String invoke(FeatureHolder holder, Object... arguments) throws ExecutorInvokationException {
+
+                try {
+                    if (barrier != null) {
+                        barrier.await(10, TimeUnit.SECONDS);
+                    }
+                }
+                catch (Exception e) {
+                    throw new StopExecutionException(e);
+                }
+                finally {
+                    finishedParallel.incrementAndGet();
+                }
+
+                if (stop) {
+                    throw StopExecutionException.INSTANCE;
+                }
+                return name;
+            }
+
+        };
+    }
+
+    private AbstractFunction<String> createFunction() {
+
+        AbstractFunction<String> function = new AbstractFunction<String>("testFunction", new DefaultFeatureHolder(), new ArrayList<Class<?>>(), executors);
+        function.setAsyncExecutor(pool);
+        return function;
+    }
+
+    @Test
+    public void testInvokeParallel() throws FunctionExecutionException {
+
+        // The executors only pass the barrier if all three of them run at the same time
+        CyclicBarrier barrier = new CyclicBarrier(3);
+        for (String name : Arrays.asList("parallel1", "parallel2", "parallel3")) {
+            executors.put(name, createParallel(name, barrier, false));
+        }
+
+        List<String> results = createFunction().invokeRA();
+        Assert.assertEquals("Results of the parallel group", new HashSet<String>(Arrays.asList("parallel1", "parallel2", "parallel3")), new HashSet<String>(results.subList(0, 3)));
+        Assert.assertEquals("Result of the lower priority executor", "low after 3", results.get(3));
+    }
+
+    @Test
+    public void testInvokeParallelStop() throws FunctionExecutionException {
+
+        executors.put("parallel1", createParallel("parallel1", null, false));
+        executors.put("stop", createParallel("stop", null, true));
+
+        List<String> results = createFunction().invokeRA();
+        Assert.assertEquals("Invoked parallel executors", 2, finishedParallel.get());
+        // The results are handled in the undefined order of the group, so the result of the other executor might be collected before the stop
+        Assert.assertTrue("Results " + results + " contain more than the other parallel executor", results.isEmpty() || results.equals(Arrays.asList("parallel1")));
+    }
+
+    @Test
+    public void testInvokeParallelBusyPool() throws Exception {
+
+        for (String name : Arrays.asList("parallel1", "parallel2", "parallel3")) {
+            executors.put(name, createParallel(name, null, false));
+        }
+
+        // Block all pool threads, so the calling thread must invoke the whole group itself
+        final CountDownLatch release = new CountDownLatch(1);
+        for (int thread = 0; thread < 2; thread++) {
+            pool.execute(new Runnable() {
+
+                @Override
+                public void run() {
+
+                    try {
+                        release.await();
+                    }
+                    catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+
+            });
+        }
+
+        try {
+            List<String> results = createFunction().invokeRA();
+            Assert.assertEquals("Result of the lower priority executor", "low after 3", results.get(3));
+        }
+        finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    public void testInvokeAsyncParallel() throws Exception {
+
+        CyclicBarrier barrier = new CyclicBarrier(2);
+        executors.put("parallel1", createParallel("parallel1", barrier, false));
+        executors.put("parallel2", createParallel("parallel2", barrier, false));
+
+        List<String> results = createFunction().invokeRAAsync().get(10, TimeUnit.SECONDS);
+        Assert.assertEquals("Result of the lower priority executor", "low after 2", results.get(2));
+    }
+
+}
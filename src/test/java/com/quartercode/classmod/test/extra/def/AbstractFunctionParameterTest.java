@@ -45,9 +45,11 @@ public class AbstractFunctionParameterTest {
         List<Object[]> data = new ArrayList<Object[]>();
 
         data.add(new Object[] { new Class<?>[] {}, new Object[] { 0 }, true });
+        data.add(new Object[] { new Class<?>[] {}, new Object[] { null }, true });
 
         data.add(new Object[] { new Class<?>[] { String.class }, new Object[] { "" }, true });
         data.add(new Object[] { new Class<?>[] { String.class }, new Object[] { 0 }, false });
+        data.add(new Object[] { new Class<?>[] { String.class }, new Object[] { "", null }, true });
 
         data.add(new Object[] { new Class<?>[] { String.class, Integer.class }, new Object[] { "", 0 }, true });
         data.add(new Object[] { new Class<?>[] { String.class, Integer.class }, new Object[] { "", "" }, false });
@@ -60,6 +62,7 @@ public class AbstractFunctionParameterTest {
         data.add(new Object[] { new Class<?>[] { String.class, Integer[].class }, new Object[] { "", "", 0, 1, 2 }, false });
 
         data.add(new Object[] { new Class<?>[] { Integer[].class }, new Object[] { new Integer[] { 0, 1, 2 } }, true });
+        data.add(new Object[] { new Class<?>[] { Integer[].class }, new Object[] { new Integer[] { 0, 1, 2 }, null }, true });
 
         return data;
     }
@@ -75,8 +78,7 @@ public class AbstractFunctionParameterTest {
         this.works = works;
     }
 
-    @Test
-    public void testInvoke() throws InstantiationException, IllegalAccessException, FunctionExecutionException {
+    private Map<String, FunctionExecutor<Void>> createExecutors() {
 
         Map<String, FunctionExecutor<Void>> executors = new HashMap<String, FunctionExecutor<Void>>();
         executors.put("default", new FunctionExecutor<Void>() {
@@ -88,10 +90,15 @@ public class AbstractFunctionParameterTest {
             }
 
         });
+        return executors;
+    }
+
+    @Test
+    public void testInvoke() throws InstantiationException, IllegalAccessException, FunctionExecutionException {
 
         boolean actuallyWorks;
         try {
-            AbstractFunction<Void> function = new AbstractFunction<Void>("testFunction", new DefaultFeatureHolder(), Arrays.asList(parameters), executors);
+            AbstractFunction<Void> function = new AbstractFunction<Void>("testFunction", new DefaultFeatureHolder(), Arrays.asList(parameters), createExecutors());
             function.invoke(arguments);
             actuallyWorks = true;
         }
@@ -102,4 +109,62 @@ public class AbstractFunctionParameterTest {
         Assert.assertTrue("Function call " + (works ? "doesn't work" : "works"), actuallyWorks == works);
     }
 
+    @Test
+    public void testInvokeRepeated() throws InstantiationException, IllegalAccessException, FunctionExecutionException {
+
+        AbstractFunction<Void> function = new AbstractFunction<Void>("testFunction", new DefaultFeatureHolder(), Arrays.asList(parameters), createExecutors());
+
+        for (int counter = 0; counter < 3; counter++) {
+            boolean actuallyWorks;
+            try {
+                function.invoke(arguments);
+                actuallyWorks = true;
+            }
+            catch (FunctionExecutionException e) {
+                actuallyWorks = false;
+            }
+
+            Assert.assertTrue("Function call " + counter + " " + (works ? "doesn't work" : "works"), actuallyWorks == works);
+        }
+    }
+
+    @Test
+    public void testInvokeSingleArguments() throws InstantiationException, IllegalAccessException, FunctionExecutionException {
+
+        AbstractFunction<Void> function = new AbstractFunction<Void>("testFunction", new DefaultFeatureHolder(), Arrays.asList(parameters), createExecutors());
+
+        for (int counter = 0; counter < 3; counter++) {
+            boolean actuallyWorks;
+            try {
+                if (arguments.length == 0) {
+                    function.invoke0();
+                } else if (arguments.length == 1) {
+                    function.invoke1(arguments[0]);
+                } else if (arguments.length == 2) {
+                    function.invoke2(arguments[0], arguments[1]);
+                } else if (arguments.length == 3) {
+                    function.invoke3(arguments[0], arguments[1], arguments[2]);
+                } else {
+                    function.invoke(arguments);
+                }
+                actuallyWorks = true;
+            }
+            catch (FunctionExecutionException e) {
+                actuallyWorks = false;
+            }
+
+            Assert.assertTrue("Function call " + counter + " " + (works ? "doesn't work" : "works"), actuallyWorks == works);
+        }
+    }
+
+    @Test
+    public void testInvokeTrusted() throws InstantiationException, IllegalAccessException, FunctionExecutionException {
+
+        AbstractFunction<Void> function = new AbstractFunction<Void>("testFunction", new DefaultFeatureHolder(), Arrays.asList(parameters), createExecutors());
+        function.setTrusted(true);
+
+        // Trusted functions don't validate their arguments, so every call works
+        function.invoke(arguments);
+    }
+
 }
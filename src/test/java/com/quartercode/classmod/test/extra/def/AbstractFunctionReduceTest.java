@@ -0,0 +1,129 @@
+/*
+ * This file is part of Classmod.
+ * Copyright (c) 2014 QuarterCode <http://www.quartercode.com/>
+ *
+ * Classmod is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Classmod is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Classmod. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.classmod.test.extra.def;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import com.quartercode.classmod.base.FeatureHolder;
+import com.quartercode.classmod.base.def.DefaultFeatureHolder;
+import com.quartercode.classmod.extra.ExecutorInvokationException;
+import com.quartercode.classmod.extra.FunctionExecutionException;
+import com.quartercode.classmod.extra.FunctionExecutor;
+import com.quartercode.classmod.extra.Prioritized;
+import com.quartercode.classmod.extra.def.AbstractFunction;
+import com.quartercode.classmod.util.ResultReducerFactory;
+
+public class AbstractFunctionReduceTest {
+
+    private AbstractFunction<Integer> function;
+
+    @Before
+    public void setUp() {
+
+        Map<String, FunctionExecutor<Integer>> executors = new HashMap<String, FunctionExecutor<Integer>>();
+        executors.put("1", createExecutor(null));
+        executors.put("2", createExecutor(2));
+        executors.put("3", createExecutor(3));
+
+        function = new AbstractFunction<Integer>("testFunction", new DefaultFeatureHolder(), new ArrayList<Class<?>>(), executors);
+    }
+
+    private FunctionExecutor<Integer> createExecutor(final Integer returnValue) {
+
+        if (returnValue == null) {
+            return new FunctionExecutor<Integer>() {
+
+                @Override
+                @Prioritized (Prioritized.LEVEL_9)
+                public Integer invoke(FeatureHolder holder, Object... arguments) throws ExecutorInvokationException {
+
+                    return null;
+                }
+
+            };
+        } else if (returnValue == 2) {
+            return new FunctionExecutor<Integer>() {
+
+                @Override
+                @Prioritized (Prioritized.LEVEL_8)
+                public Integer invoke(FeatureHolder holder, Object... arguments) throws ExecutorInvokationException {
+
+                    return 2;
+                }
+
+            };
+        } else {
+            return new FunctionExecutor<Integer>() {
+
+                @Override
+                @Prioritized (Prioritized.LEVEL_7)
+                public Integer invoke(FeatureHolder holder, Object... arguments) throws ExecutorInvokationException {
+
+                    return 3;
+                }
+
+            };
+        }
+    }
+
+    @Test
+    public void testInvoke() throws FunctionExecutionException {
+
+        Assert.assertEquals("First return value", null, function.invoke());
+    }
+
+    @Test
+    public void testInvokeReduceFirstNonNull() throws FunctionExecutionException {
+
+        Assert.assertEquals("First non-null return value", (Integer) 2, function.invokeReduce(ResultReducerFactory.<Integer> createFirstNonNull(), null));
+    }
+
+    @Test
+    public void testInvokeReduceSum() throws FunctionExecutionException {
+
+        Assert.assertEquals("Sum of return values", (Long) 5L, function.invokeReduce(ResultReducerFactory.createLongSum(), 0L));
+    }
+
+    @Test
+    public void testInvokeReduceCollect() throws FunctionExecutionException {
+
+        List<Integer> buffer = new ArrayList<Integer>();
+        buffer.add(1);
+
+        List<Integer> result = function.invokeReduce(ResultReducerFactory.<Integer, List<Integer>> createCollect(), buffer);
+
+        Assert.assertSame("Returned buffer", buffer, result);
+        Assert.assertEquals("Collected return values", Arrays.asList(1, null, 2, 3), buffer);
+    }
+
+    @Test
+    public void testReducersShared() {
+
+        Assert.assertSame("First non-null reducers", ResultReducerFactory.<Integer> createFirstNonNull(), ResultReducerFactory.<String> createFirstNonNull());
+        Assert.assertSame("Long sum reducers", ResultReducerFactory.createLongSum(), ResultReducerFactory.createLongSum());
+        Assert.assertSame("Collect reducers", ResultReducerFactory.<Integer, List<Integer>> createCollect(), ResultReducerFactory.<String, List<String>> createCollect());
+    }
+
+}
@@ -0,0 +1,191 @@
+/*
+ * This file is part of Classmod.
+ * Copyright (c) 2014 QuarterCode <http://www.quartercode.com/>
+ *
+ * Classmod is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Classmod is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Classmod. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.classmod.test.extra.def;
+
+import java.util.concurrent.CountDownLatch;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import com.quartercode.classmod.base.FeatureDefinition;
+import com.quartercode.classmod.base.FeatureHolder;
+import com.quartercode.classmod.base.VersionedFeatureHolder;
+import com.quartercode.classmod.base.VersionedFeatureHolder.SnapshotReader;
+import com.quartercode.classmod.base.def.AbstractFeatureDefinition;
+import com.quartercode.classmod.base.def.DefaultFeatureHolder;
+import com.quartercode.classmod.extra.AtomicProperty.Accumulator;
+import com.quartercode.classmod.extra.AtomicProperty.Updater;
+import com.quartercode.classmod.extra.FunctionDefinition;
+import com.quartercode.classmod.extra.FunctionExecutionException;
+import com.quartercode.classmod.extra.def.AtomicObjectProperty;
+import com.quartercode.classmod.util.FunctionDefinitionFactory;
+import com.quartercode.classmod.util.PropertyAccessorFactory;
+
+public class AtomicObjectPropertyTest {
+
+    private static FeatureDefinition<AtomicObjectProperty<Integer>> COUNTER;
+
+    private static Updater<Integer>                                 INCREMENT;
+    private static Accumulator<Integer>                             ADD;
+
+    @BeforeClass
+    public static void setUpBeforeClass() {
+
+        COUNTER = new AbstractFeatureDefinition<AtomicObjectProperty<Integer>>("counter") {
+
+            @Override
+            public AtomicObjectProperty<Integer> create(FeatureHolder holder) {
+
+                return new AtomicObjectProperty<Integer>(getName(), holder, 0);
+            }
+
+        };
+
+        INCREMENT = new Updater<Integer>() {
+
+            @Override
+            public Integer update(Integer value) {
+
+                return value + 1;
+            }
+
+        };
+
+        ADD = new Accumulator<Integer>() {
+
+            @Override
+            public Integer accumulate(Integer value, Integer argument) {
+
+                return value + argument;
+            }
+
+        };
+    }
+
+    private FeatureHolder featureHolder;
+
+    @Before
+    public void setUp() {
+
+        featureHolder = new DefaultFeatureHolder();
+    }
+
+    @Test
+    public void testCompareAndSet() {
+
+        AtomicObjectProperty<Integer> property = featureHolder.get(COUNTER);
+        Integer value = property.get();
+
+        Assert.assertTrue("Compare-and-set with the current value worked", property.compareAndSet(value, 5));
+        Assert.assertFalse("Compare-and-set with an old value worked", property.compareAndSet(value, 7));
+        Assert.assertEquals("Value after compare-and-set", 5, (int) property.get());
+    }
+
+    @Test
+    public void testUpdate() {
+
+        AtomicObjectProperty<Integer> property = featureHolder.get(COUNTER);
+
+        Assert.assertEquals("Value returned by get-and-update", 0, (int) property.getAndUpdate(INCREMENT));
+        Assert.assertEquals("Value returned by update-and-get", 2, (int) property.updateAndGet(INCREMENT));
+        Assert.assertEquals("Value returned by accumulate-and-get", 7, (int) property.accumulateAndGet(5, ADD));
+    }
+
+    @Test (timeout = 5000)
+    public void testUpdateReadingSnapshot() {
+
+        final VersionedFeatureHolder holder = (VersionedFeatureHolder) featureHolder;
+        final AtomicObjectProperty<Integer> property = holder.get(COUNTER);
+        final SnapshotReader<Integer> reader = new SnapshotReader<Integer>() {
+
+            @Override
+            public Integer read(VersionedFeatureHolder holder) {
+
+                return holder.get(COUNTER).get();
+            }
+
+        };
+
+        Integer result = property.updateAndGet(new Updater<Integer>() {
+
+            @Override
+            public Integer update(Integer value) {
+
+                // Reading a snapshot of the own holder must not wait for the running update
+                return holder.readSnapshot(reader) + 10;
+            }
+
+        });
+
+        Assert.assertEquals("Value returned by update-and-get", 10, (int) result);
+        Assert.assertEquals("Value read through a snapshot afterwards", 10, (int) holder.readSnapshot(reader));
+    }
+
+    @Test
+    public void testUpdateConcurrently() throws InterruptedException {
+
+        final AtomicObjectProperty<Integer> property = featureHolder.get(COUNTER);
+
+        int threadCount = 16;
+        final int updatesPerThread = 1000;
+        final CountDownLatch startSignal = new CountDownLatch(1);
+        final CountDownLatch doneSignal = new CountDownLatch(threadCount);
+        for (int thread = 0; thread < threadCount; thread++) {
+            new Thread(new Runnable() {
+
+                @Override
+                public void run() {
+
+                    try {
+                        startSignal.await();
+                        for (int update = 0; update < updatesPerThread; update++) {
+                            property.updateAndGet(INCREMENT);
+                        }
+                    }
+                    catch (InterruptedException e) {
+                        // Stop updating
+                    }
+                    finally {
+                        doneSignal.countDown();
+                    }
+                }
+
+            }).start();
+        }
+
+        startSignal.countDown();
+        doneSignal.await();
+
+        Assert.assertEquals("Value after concurrent updates", threadCount * updatesPerThread, (int) property.get());
+    }
+
+    @Test
+    public void testAccessorFunctions() throws FunctionExecutionException {
+
+        FunctionDefinition<Boolean> compareAndSetDefinition = FunctionDefinitionFactory.create("compareAndSetCounter", FeatureHolder.class, PropertyAccessorFactory.createCompareAndSet(COUNTER), Integer.class, Integer.class);
+        FunctionDefinition<Integer> incrementDefinition = FunctionDefinitionFactory.create("incrementCounter", FeatureHolder.class, PropertyAccessorFactory.createUpdateAndGet(COUNTER, INCREMENT));
+        FunctionDefinition<Integer> addDefinition = FunctionDefinitionFactory.create("addToCounter", FeatureHolder.class, PropertyAccessorFactory.createAccumulateAndGet(COUNTER, ADD), Integer.class);
+
+        Assert.assertEquals("Value returned by increment function", 1, (int) featureHolder.get(incrementDefinition).invoke());
+        Assert.assertEquals("Value returned by add function", 4, (int) featureHolder.get(addDefinition).invoke(3));
+        Assert.assertTrue("Compare-and-set function with the current value worked", featureHolder.get(compareAndSetDefinition).invoke(featureHolder.get(COUNTER).get(), 10));
+        Assert.assertEquals("Value after compare-and-set function", 10, (int) featureHolder.get(COUNTER).get());
+    }
+
+}
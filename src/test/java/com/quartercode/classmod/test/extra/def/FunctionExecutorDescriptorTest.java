@@ -0,0 +1,170 @@
+/*
+ * This file is part of Classmod.
+ * Copyright (c) 2014 QuarterCode <http://www.quartercode.com/>
+ *
+ * Classmod is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Classmod is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Classmod. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.classmod.test.extra.def;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.ref.WeakReference;
+import org.junit.Assert;
+import org.junit.Test;
+import com.quartercode.classmod.base.FeatureHolder;
+import com.quartercode.classmod.extra.Blocking;
+import com.quartercode.classmod.extra.Budget;
+import com.quartercode.classmod.extra.Delay;
+import com.quartercode.classmod.extra.ExecutorInvokationException;
+import com.quartercode.classmod.extra.FunctionExecutor;
+import com.quartercode.classmod.extra.Limit;
+import com.quartercode.classmod.extra.Lockable;
+import com.quartercode.classmod.extra.Parallel;
+import com.quartercode.classmod.extra.Prioritized;
+import com.quartercode.classmod.extra.def.FunctionExecutorDescriptor;
+
+public class FunctionExecutorDescriptorTest {
+
+    @Test
+    public void testGetCached() {
+
+        Assert.assertSame("Descriptor of the same class", FunctionExecutorDescriptor.get(AnnotatedExecutor.class), FunctionExecutorDescriptor.get(AnnotatedExecutor.class));
+        Assert.assertNotSame("Descriptors of different classes", FunctionExecutorDescriptor.get(AnnotatedExecutor.class), FunctionExecutorDescriptor.get(PlainExecutor.class));
+    }
+
+    @Test
+    public void testAnnotated() {
+
+        FunctionExecutorDescriptor descriptor = FunctionExecutorDescriptor.get(AnnotatedExecutor.class);
+        Assert.assertEquals("Priority", Prioritized.LEVEL_7, descriptor.getPriority());
+        Assert.assertTrue("Lockable", descriptor.isLockable());
+        Assert.assertTrue("Parallel", descriptor.isParallel());
+        Assert.assertTrue("Blocking", descriptor.isBlocking());
+        Assert.assertEquals("Limit", Integer.valueOf(3), descriptor.getLimit());
+        Assert.assertEquals("First delay", 2, descriptor.getFirstDelay());
+        Assert.assertEquals("Delay", 1, descriptor.getDelay());
+        Assert.assertEquals("Budget", Long.valueOf(50), descriptor.getBudget());
+        Assert.assertEquals("Limit value", 3, descriptor.getValue(Limit.class, "value"));
+    }
+
+    @Test
+    public void testDefaults() {
+
+        FunctionExecutorDescriptor descriptor = FunctionExecutorDescriptor.get(PlainExecutor.class);
+        Assert.assertEquals("Priority", Prioritized.DEFAULT, descriptor.getPriority());
+        Assert.assertFalse("Lockable", descriptor.isLockable());
+        Assert.assertFalse("Parallel", descriptor.isParallel());
+        Assert.assertFalse("Blocking", descriptor.isBlocking());
+        Assert.assertNull("Limit", descriptor.getLimit());
+        Assert.assertEquals("First delay", 0, descriptor.getFirstDelay());
+        Assert.assertEquals("Delay", 0, descriptor.getDelay());
+        Assert.assertNull("Budget", descriptor.getBudget());
+        Assert.assertEquals("Delay default value", 0, descriptor.getValue(Delay.class, "delay"));
+    }
+
+    @Test
+    public void testClassNotRetained() throws Exception {
+
+        WeakReference<Class<?>> type = describeInOwnLoader();
+
+        for (int attempt = 0; attempt < 50 && type.get() != null; attempt++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+
+        Assert.assertNull("Described class was collected", type.get());
+    }
+
+    private WeakReference<Class<?>> describeInOwnLoader() throws Exception {
+
+        Class<?> type = new IsolatingClassLoader(PlainExecutor.class.getName()).loadClass(PlainExecutor.class.getName());
+        Assert.assertNotSame("Isolated class", PlainExecutor.class, type);
+        Assert.assertEquals("Priority of isolated class", Prioritized.DEFAULT, FunctionExecutorDescriptor.get(type).getPriority());
+        return new WeakReference<Class<?>>(type);
+    }
+
+    public static class AnnotatedExecutor implements FunctionExecutor<Void> {
+
+        @Override
+        @Prioritized (Prioritized.LEVEL_7)
+        @Lockable
+        @Parallel
+        @Blocking
+        @Limit (3)
+        @Delay (firstDelay = 2, delay = 1)
+        @Budget (50)
+        public Void invoke(FeatureHolder holder, Object... arguments) throws ExecutorInvokationException {
+
+            return null;
+        }
+
+    }
+
+    public static class PlainExecutor implements FunctionExecutor<Void> {
+
+        @Override
+        public Void invoke(FeatureHolder holder, Object... arguments) throws ExecutorInvokationException {
+
+            return null;
+        }
+
+    }
+
+    /*
+     * Defines the class with the given name itself instead of delegating to its parent, so the class can be unloaded with the loader.
+     */
+    private static class IsolatingClassLoader extends ClassLoader {
+
+        private final String isolatedName;
+
+        private IsolatingClassLoader(String isolatedName) {
+
+            super(FunctionExecutorDescriptorTest.class.getClassLoader());
+            this.isolatedName = isolatedName;
+        }
+
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+
+            if (!name.equals(isolatedName)) {
+                return super.loadClass(name, resolve);
+            }
+
+            InputStream input = getParent().getResourceAsStream(name.replace('.', '/') + ".class");
+            try {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                byte[] buffer = new byte[4096];
+                for (int read = input.read(buffer); read >= 0; read = input.read(buffer)) {
+                    bytes.write(buffer, 0, read);
+                }
+                return defineClass(name, bytes.toByteArray(), 0, bytes.size());
+            }
+            catch (IOException e) {
+                throw new ClassNotFoundException(name, e);
+            }
+            finally {
+                try {
+                    input.close();
+                }
+                catch (IOException e) {
+                    // Ignore
+                }
+            }
+        }
+
+    }
+
+}
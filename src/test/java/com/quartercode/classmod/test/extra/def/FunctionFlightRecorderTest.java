@@ -0,0 +1,160 @@
+/*
+ * This file is part of Classmod.
+ * Copyright (c) 2014 QuarterCode <http://www.quartercode.com/>
+ *
+ * Classmod is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Classmod is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Classmod. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.classmod.test.extra.def;
+
+import java.io.File;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import com.quartercode.classmod.base.FeatureHolder;
+import com.quartercode.classmod.base.def.AbstractFeatureDefinition;
+import com.quartercode.classmod.base.def.DefaultFeatureHolder;
+import com.quartercode.classmod.extra.ExecutorInvokationException;
+import com.quartercode.classmod.extra.FunctionExecutor;
+import com.quartercode.classmod.extra.StopExecutionException;
+import com.quartercode.classmod.extra.def.AbstractFunction;
+import com.quartercode.classmod.extra.def.ObjectProperty;
+import com.quartercode.classmod.util.FlightRecorderEventType;
+import com.quartercode.classmod.util.FlightRecorderEvents;
+
+// The JFR API is accessed through reflection because the tests are compiled for old runtimes as well
+public class FunctionFlightRecorderTest {
+
+    private Object recording;
+    private File   recordingFile;
+
+    @Before
+    public void setUp() throws Exception {
+
+        Assume.assumeTrue(FlightRecorderEventType.isAvailable());
+
+        FlightRecorderEvents.FUNCTION_INVOKATION.setThreshold(0);
+        FlightRecorderEvents.FEATURE_CREATION.setThreshold(0);
+
+        recording = Class.forName("jdk.jfr.Recording").newInstance();
+        recording.getClass().getMethod("enable", String.class).invoke(recording, FlightRecorderEvents.FUNCTION_INVOKATION.getName());
+        recording.getClass().getMethod("enable", String.class).invoke(recording, FlightRecorderEvents.FEATURE_CREATION.getName());
+        recording.getClass().getMethod("start").invoke(recording);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+
+        if (recording != null) {
+            recording.getClass().getMethod("close").invoke(recording);
+        }
+        if (recordingFile != null) {
+            recordingFile.delete();
+        }
+
+        FlightRecorderEvents.FUNCTION_INVOKATION.setThreshold(TimeUnit.MILLISECONDS.toNanos(1));
+        FlightRecorderEvents.FEATURE_CREATION.setThreshold(TimeUnit.MILLISECONDS.toNanos(1));
+    }
+
+    private List<Object> stopAndReadEvents(String eventName) throws Exception {
+
+        recording.getClass().getMethod("stop").invoke(recording);
+        recordingFile = File.createTempFile("classmod", ".jfr");
+        Object path = File.class.getMethod("toPath").invoke(recordingFile);
+        recording.getClass().getMethod("dump", Class.forName("java.nio.file.Path")).invoke(recording, path);
+
+        Method readAllEvents = Class.forName("jdk.jfr.consumer.RecordingFile").getMethod("readAllEvents", Class.forName("java.nio.file.Path"));
+        List<Object> events = new ArrayList<Object>();
+        for (Object event : (List<?>) readAllEvents.invoke(null, path)) {
+            Object eventType = event.getClass().getMethod("getEventType").invoke(event);
+            if (eventName.equals(eventType.getClass().getMethod("getName").invoke(eventType))) {
+                events.add(event);
+            }
+        }
+        return events;
+    }
+
+    private Object getValue(Object event, String field) throws Exception {
+
+        return event.getClass().getMethod("getValue", String.class).invoke(event, field);
+    }
+
+    @Test
+    public void testFunctionInvokation() throws Exception {
+
+        Assert.assertTrue("Recording state is tracked", FlightRecorderEventType.isRecording());
+
+        Map<String, FunctionExecutor<String>> executors = new HashMap<String, FunctionExecutor<String>>();
+        executors.put("stopper", new FunctionExecutor<String>() {
+
+            @Override
+            public String invoke(FeatureHolder holder, Object... arguments) throws ExecutorInvokationException {
+
+                throw StopExecutionException.INSTANCE;
+            }
+
+        });
+        new AbstractFunction<String>("recordedFunction", new DefaultFeatureHolder(), new ArrayList<Class<?>>(), executors).invokeRA();
+
+        List<Object> events = stopAndReadEvents(FlightRecorderEvents.FUNCTION_INVOKATION.getName());
+        Assert.assertEquals("Function invokation events", 1, events.size());
+        Assert.assertEquals("Function name", "recordedFunction", getValue(events.get(0), "function"));
+        Assert.assertEquals("Executor count", 1, getValue(events.get(0), "executorCount"));
+        Assert.assertEquals("Stopping executor", "stopper", getValue(events.get(0), "stoppedBy"));
+    }
+
+    @Test
+    public void testFunctionInvokationBelowThreshold() throws Exception {
+
+        FlightRecorderEvents.FUNCTION_INVOKATION.setThreshold(TimeUnit.HOURS.toNanos(1));
+        new AbstractFunction<String>("recordedFunction", new DefaultFeatureHolder(), new ArrayList<Class<?>>(), new HashMap<String, FunctionExecutor<String>>()).invokeRA();
+
+        Assert.assertEquals("Function invokation events", 0, stopAndReadEvents(FlightRecorderEvents.FUNCTION_INVOKATION.getName()).size());
+    }
+
+    @Test
+    public void testFeatureCreation() throws Exception {
+
+        new DefaultFeatureHolder().get(new AbstractFeatureDefinition<ObjectProperty<String>>("recordedProperty") {
+
+            @Override
+            public ObjectProperty<String> create(FeatureHolder holder) {
+
+                return new ObjectProperty<String>(getName(), holder);
+            }
+
+        });
+
+        List<Object> events = stopAndReadEvents(FlightRecorderEvents.FEATURE_CREATION.getName());
+        Assert.assertEquals("Feature creation events", 1, events.size());
+        Assert.assertEquals("Feature name", "recordedProperty", getValue(events.get(0), "feature"));
+    }
+
+    @Test
+    public void testNotRecording() throws Exception {
+
+        recording.getClass().getMethod("stop").invoke(recording);
+        Assert.assertFalse("Recording state is tracked", FlightRecorderEventType.isRecording());
+        Assert.assertNull("Event begun without recording", FlightRecorderEvents.FUNCTION_INVOKATION.begin());
+    }
+
+}
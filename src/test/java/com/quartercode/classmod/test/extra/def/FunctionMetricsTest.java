@@ -0,0 +1,242 @@
+/*
+ * This file is part of Classmod.
+ * Copyright (c) 2014 QuarterCode <http://www.quartercode.com/>
+ *
+ * Classmod is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Classmod is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Classmod. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.classmod.test.extra.def;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import com.quartercode.classmod.base.FeatureHolder;
+import com.quartercode.classmod.base.def.DefaultFeatureHolder;
+import com.quartercode.classmod.extra.AsyncFunctionExecutor;
+import com.quartercode.classmod.extra.ExecutorInvokationException;
+import com.quartercode.classmod.extra.FunctionExecutionException;
+import com.quartercode.classmod.extra.FunctionExecutor;
+import com.quartercode.classmod.extra.FunctionFuture;
+import com.quartercode.classmod.extra.Prioritized;
+import com.quartercode.classmod.extra.StopExecutionException;
+import com.quartercode.classmod.extra.def.AbstractFunction;
+import com.quartercode.classmod.extra.def.DefaultFunctionFuture;
+import com.quartercode.classmod.extra.def.FunctionMetrics;
+import com.quartercode.classmod.extra.def.FunctionMetrics.FunctionStats;
+import com.quartercode.classmod.extra.def.InvokationStats;
+import com.quartercode.classmod.util.LatencyHistogram;
+
+public class FunctionMetricsTest {
+
+    private FunctionMetrics                       metrics;
+    private Map<String, FunctionExecutor<String>> executors;
+    private boolean                               stop;
+
+    @Before
+    public void setUp() {
+
+        metrics = FunctionMetrics.getInstance();
+        metrics.reset();
+        metrics.setEnabled(true);
+
+        executors = new HashMap<String, FunctionExecutor<String>>();
+        executors.put("high", new FunctionExecutor<String>() {
+
+            @Override
+            @Prioritized (Prioritized.LEVEL_7)
+            public String invoke(FeatureHolder holder, Object... arguments) throws ExecutorInvokationException {
+
+                if (stop) {
+                    throw StopExecutionException.INSTANCE;
+                }
+                return "high";
+            }
+
+        });
+        executors.put("low", new FunctionExecutor<String>() {
+
+            @Override
+            @Prioritized (Prioritized.LEVEL_3)
+            public String invoke(FeatureHolder holder, Object... arguments) throws ExecutorInvokationException {
+
+                return "low";
+            }
+
+        });
+    }
+
+    @After
+    public void tearDown() {
+
+        metrics.setEnabled(false);
+        metrics.reset();
+    }
+
+    private AbstractFunction<String> createFunction() {
+
+        return new AbstractFunction<String>("metricsFunction", new DefaultFeatureHolder(), new ArrayList<Class<?>>(), executors);
+    }
+
+    @Test
+    public void testInvoke() throws FunctionExecutionException {
+
+        AbstractFunction<String> function = createFunction();
+        function.invokeRA();
+        function.invokeRA();
+        stop = true;
+        function.invokeRA();
+
+        FunctionStats stats = metrics.getFunctionStats("metricsFunction");
+        Assert.assertEquals("Function calls", 3, stats.getCalls());
+        Assert.assertEquals("Function stops", 1, stats.getStops());
+        Assert.assertEquals("Function errors", 0, stats.getErrors());
+        Assert.assertEquals("Function latencies", 3, stats.getLatencies().getCount());
+
+        InvokationStats highStats = stats.getExecutorStats("high");
+        Assert.assertEquals("Calls of the high executor", 3, highStats.getCalls());
+        Assert.assertEquals("Stops of the high executor", 1, highStats.getStops());
+        Assert.assertEquals("Calls of the low executor", 2, stats.getExecutorStats("low").getCalls());
+    }
+
+    @Test
+    public void testInvokeStopWithCause() {
+
+        executors.put("failing", new FunctionExecutor<String>() {
+
+            @Override
+            @Prioritized (Prioritized.LEVEL_5)
+            public String invoke(FeatureHolder holder, Object... arguments) throws ExecutorInvokationException {
+
+                throw new StopExecutionException(new IllegalStateException("Test"));
+            }
+
+        });
+
+        try {
+            createFunction().invokeRA();
+            Assert.fail("Function didn't throw an exception");
+        }
+        catch (FunctionExecutionException e) {
+            // Expected
+        }
+
+        FunctionStats stats = metrics.getFunctionStats("metricsFunction");
+        Assert.assertEquals("Function errors", 1, stats.getErrors());
+        Assert.assertEquals("Errors of the failing executor", 1, stats.getExecutorStats("failing").getErrors());
+        Assert.assertEquals("Calls of the low executor", 0, stats.getExecutorStats("low").getCalls());
+    }
+
+    @Test
+    public void testInvokeAsync() throws Exception {
+
+        createFunction().invokeRAAsync().get(10, TimeUnit.SECONDS);
+
+        FunctionStats stats = metrics.getFunctionStats("metricsFunction");
+        // The stats are recorded by a callback, which might run after get() returned
+        long deadline = System.currentTimeMillis() + 10000;
+        while (stats.getCalls() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        Assert.assertEquals("Function calls", 1, stats.getCalls());
+        Assert.assertEquals("Calls of the low executor", 1, stats.getExecutorStats("low").getCalls());
+    }
+
+    @Test
+    public void testInvokeAsyncExecutor() throws Exception {
+
+        final DefaultFunctionFuture<String> pending = new DefaultFunctionFuture<String>();
+        executors.put("async", new AsyncFunctionExecutor<String>() {
+
+            @Override
+            public FunctionFuture<String> invokeAsync(FeatureHolder holder, Object... arguments) {
+
+                return pending;
+            }
+
+            @Override
+            @Prioritized (Prioritized.LEVEL_5)
+            public String invoke(FeatureHolder holder, Object... arguments) throws ExecutorInvokationException {
+
+                throw new UnsupportedOperationException();
+            }
+
+        });
+
+        FunctionFuture<List<String>> future = createFunction().invokeRAAsync();
+        FunctionStats stats = metrics.getFunctionStats("metricsFunction");
+        InvokationStats asyncStats = stats.getExecutorStats("async");
+
+        // The async executor call lasts until its future is done
+        long deadline = System.currentTimeMillis() + 10000;
+        while (stats.getExecutorStats("high").getCalls() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        Assert.assertEquals("Calls of the async executor before its future is done", 0, asyncStats.getCalls());
+
+        pending.complete("async");
+        Assert.assertEquals("Results", Arrays.asList("high", "async", "low"), future.get(10, TimeUnit.SECONDS));
+
+        deadline = System.currentTimeMillis() + 10000;
+        while (stats.getCalls() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        Assert.assertEquals("Calls of the async executor", 1, asyncStats.getCalls());
+        Assert.assertEquals("Calls of the low executor", 1, stats.getExecutorStats("low").getCalls());
+    }
+
+    @Test
+    public void testDisabled() throws FunctionExecutionException {
+
+        metrics.setEnabled(false);
+        createFunction().invokeRA();
+
+        Assert.assertEquals("Measured functions", 0, metrics.getFunctionNames().length);
+    }
+
+    @Test
+    public void testDump() throws FunctionExecutionException {
+
+        createFunction().invokeRA();
+
+        String dump = metrics.dump();
+        Assert.assertTrue("Dump " + dump + " contains the function", dump.contains("function 'metricsFunction': calls=1"));
+        Assert.assertTrue("Dump " + dump + " contains the executor", dump.contains("executor 'low': calls=1"));
+    }
+
+    @Test
+    public void testLatencyHistogram() {
+
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1; value <= 1000; value++) {
+            histogram.record(value * 1000);
+        }
+
+        Assert.assertEquals("Count", 1000, histogram.getCount());
+        Assert.assertEquals("Max", 1000000, histogram.getMax());
+        Assert.assertEquals("Mean", 500500, histogram.getMean(), 0.001);
+
+        // The buckets are at most 25% wide
+        long median = histogram.getValueAtPercentile(50);
+        Assert.assertTrue("Median " + median + " is in range", median >= 500000 && median <= 625000);
+        Assert.assertEquals("100th percentile", 1000000, histogram.getValueAtPercentile(100));
+    }
+
+}
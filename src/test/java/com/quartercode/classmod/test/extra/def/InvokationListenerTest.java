@@ -0,0 +1,234 @@
+/*
+ * This file is part of Classmod.
+ * Copyright (c) 2014 QuarterCode <http://www.quartercode.com/>
+ *
+ * Classmod is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Classmod is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Classmod. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.classmod.test.extra.def;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import com.quartercode.classmod.base.FeatureHolder;
+import com.quartercode.classmod.base.def.DefaultFeatureHolder;
+import com.quartercode.classmod.extra.AsyncFunctionExecutor;
+import com.quartercode.classmod.extra.ExecutorInvokationException;
+import com.quartercode.classmod.extra.Function;
+import com.quartercode.classmod.extra.FunctionExecutionException;
+import com.quartercode.classmod.extra.FunctionExecutor;
+import com.quartercode.classmod.extra.FunctionFuture;
+import com.quartercode.classmod.extra.InvokationListener;
+import com.quartercode.classmod.extra.Prioritized;
+import com.quartercode.classmod.extra.StopExecutionException;
+import com.quartercode.classmod.extra.def.AbstractFunction;
+import com.quartercode.classmod.extra.def.AbstractFunctionDefinition;
+import com.quartercode.classmod.extra.def.DefaultFunctionFuture;
+import com.quartercode.classmod.extra.def.InvokationListeners;
+
+public class InvokationListenerTest {
+
+    private AbstractFunctionDefinition<String> functionDefinition;
+    private boolean                            stop;
+    private RecordingListener                  listener;
+
+    @Before
+    public void setUp() {
+
+        functionDefinition = new AbstractFunctionDefinition<String>("listenedFunction") {
+
+            @Override
+            protected Function<String> create(FeatureHolder holder, List<Class<?>> parameters, Map<String, FunctionExecutor<String>> executors) {
+
+                return new AbstractFunction<String>(getName(), holder, parameters, executors);
+            }
+
+        };
+
+        functionDefinition.addExecutor(FeatureHolder.class, "first", new FunctionExecutor<String>() {
+
+            @Override
+            @Prioritized (Prioritized.LEVEL_7)
+            public String invoke(FeatureHolder holder, Object... arguments) throws ExecutorInvokationException {
+
+                if (stop) {
+                    throw StopExecutionException.INSTANCE;
+                }
+                return "first";
+            }
+
+        });
+        functionDefinition.addExecutor(FeatureHolder.class, "second", new FunctionExecutor<String>() {
+
+            @Override
+            @Prioritized (Prioritized.LEVEL_3)
+            public String invoke(FeatureHolder holder, Object... arguments) throws ExecutorInvokationException {
+
+                return "second";
+            }
+
+        });
+
+        listener = new RecordingListener();
+    }
+
+    @After
+    public void tearDown() {
+
+        InvokationListeners.getGlobal().remove(listener);
+    }
+
+    @Test
+    public void testGlobalListener() throws FunctionExecutionException {
+
+        InvokationListeners.getGlobal().add(listener);
+        functionDefinition.create(new DefaultFeatureHolder()).invokeRA();
+
+        Assert.assertEquals("Callbacks", Arrays.asList("before first", "after first = first", "before second", "after second = second"), listener.getCallbacks());
+    }
+
+    @Test
+    public void testDefinitionListener() throws FunctionExecutionException {
+
+        // Functions which were created before the listener was added are observed as well
+        Function<String> function = functionDefinition.create(new DefaultFeatureHolder());
+        functionDefinition.getInvokationListeners().add(listener);
+        function.invokeRA();
+
+        Assert.assertEquals("Callbacks", Arrays.asList("before first", "after first = first", "before second", "after second = second"), listener.getCallbacks());
+    }
+
+    @Test
+    public void testExecutorFailed() throws FunctionExecutionException {
+
+        functionDefinition.getInvokationListeners().add(listener);
+        stop = true;
+        functionDefinition.create(new DefaultFeatureHolder()).invokeRA();
+
+        Assert.assertEquals("Callbacks", Arrays.asList("before first", "failed first: StopExecutionException"), listener.getCallbacks());
+    }
+
+    @Test
+    public void testAsyncExecutor() throws Exception {
+
+        final DefaultFunctionFuture<String> pending = new DefaultFunctionFuture<String>();
+        functionDefinition.addExecutor(FeatureHolder.class, "async", new AsyncFunctionExecutor<String>() {
+
+            @Override
+            public FunctionFuture<String> invokeAsync(FeatureHolder holder, Object... arguments) {
+
+                return pending;
+            }
+
+            @Override
+            @Prioritized (Prioritized.LEVEL_5)
+            public String invoke(FeatureHolder holder, Object... arguments) throws ExecutorInvokationException {
+
+                throw new UnsupportedOperationException();
+            }
+
+        });
+
+        functionDefinition.getInvokationListeners().add(listener);
+        FunctionFuture<List<String>> future = functionDefinition.create(new DefaultFeatureHolder()).invokeRAAsync();
+
+        // The async executor isn't done before its future is completed
+        long deadline = System.currentTimeMillis() + 10000;
+        while (listener.getCallbacks().size() < 3 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        Assert.assertEquals("Callbacks before the future is done", Arrays.asList("before first", "after first = first", "before async"), listener.getCallbacks());
+
+        pending.complete("async");
+        future.get(10, TimeUnit.SECONDS);
+        Assert.assertEquals("Callbacks", Arrays.asList("before first", "after first = first", "before async", "after async = async", "before second", "after second = second"), listener.getCallbacks());
+    }
+
+    @Test
+    public void testSampling() throws FunctionExecutionException {
+
+        functionDefinition.getInvokationListeners().add(listener, 3);
+        Function<String> function = functionDefinition.create(new DefaultFeatureHolder());
+        for (int invokation = 0; invokation < 7; invokation++) {
+            function.invokeRA();
+        }
+
+        // The invokations 0, 3 and 6 are sampled; each one reports two executors with two callbacks each
+        Assert.assertEquals("Callbacks", 12, listener.getCallbacks().size());
+    }
+
+    @Test
+    public void testFailingListener() throws FunctionExecutionException {
+
+        functionDefinition.getInvokationListeners().add(new RecordingListener() {
+
+            @Override
+            public void beforeExecutor(Function<?> function, String executorName) {
+
+                throw new IllegalStateException("Test");
+            }
+
+        });
+
+        List<String> results = functionDefinition.create(new DefaultFeatureHolder()).invokeRA();
+        Assert.assertEquals("Results", Arrays.asList("first", "second"), results);
+    }
+
+    @Test
+    public void testRemove() throws FunctionExecutionException {
+
+        InvokationListeners.getGlobal().add(listener);
+        InvokationListeners.getGlobal().remove(listener);
+        functionDefinition.create(new DefaultFeatureHolder()).invokeRA();
+
+        Assert.assertEquals("Callbacks", Collections.emptyList(), listener.getCallbacks());
+    }
+
+    private static class RecordingListener implements InvokationListener {
+
+        private final List<String> callbacks = new ArrayList<String>();
+
+        private synchronized List<String> getCallbacks() {
+
+            return new ArrayList<String>(callbacks);
+        }
+
+        @Override
+        public synchronized void beforeExecutor(Function<?> function, String executorName) {
+
+            callbacks.add("before " + executorName);
+        }
+
+        @Override
+        public synchronized void afterExecutor(Function<?> function, String executorName, Object result, long nanos) {
+
+            callbacks.add("after " + executorName + " = " + result);
+        }
+
+        @Override
+        public synchronized void executorFailed(Function<?> function, String executorName, Throwable exception, long nanos) {
+
+            callbacks.add("failed " + executorName + ": " + exception.getClass().getSimpleName());
+        }
+
+    }
+
+}
@@ -0,0 +1,285 @@
+/*
+ * This file is part of Classmod.
+ * Copyright (c) 2014 QuarterCode <http://www.quartercode.com/>
+ *
+ * Classmod is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Classmod is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Classmod. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.classmod.test.extra.def;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import com.quartercode.classmod.base.FeatureHolder;
+import com.quartercode.classmod.base.def.DefaultFeatureHolder;
+import com.quartercode.classmod.extra.ExecutorInvokationException;
+import com.quartercode.classmod.extra.FunctionDefinition;
+import com.quartercode.classmod.extra.FunctionExecutor;
+import com.quartercode.classmod.extra.def.MailboxExecutor;
+import com.quartercode.classmod.util.FunctionDefinitionFactory;
+
+public class MailboxExecutorTest {
+
+    private ExecutorService pool;
+    private MailboxExecutor executor;
+
+    @Before
+    public void setUp() {
+
+        pool = Executors.newFixedThreadPool(4);
+        executor = new MailboxExecutor(pool, 2, 4);
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+
+        pool.shutdownNow();
+        pool.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testInvokeAsync() throws Exception {
+
+        FunctionDefinition<String> definition = FunctionDefinitionFactory.create("testFunction", String.class);
+        definition.addExecutor(DefaultFeatureHolder.class, "default", new FunctionExecutor<String>() {
+
+            @Override
+            public String invoke(FeatureHolder holder, Object... arguments) throws ExecutorInvokationException {
+
+                return "Hello " + arguments[0];
+            }
+
+        });
+
+        DefaultFeatureHolder holder = new DefaultFeatureHolder();
+        Future<String> result = executor.invokeAsync(holder.get(definition), "World");
+        Assert.assertEquals("Result of the invokation", "Hello World", result.get(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testSerializedPerHolder() throws Exception {
+
+        final FeatureHolder holder = new DefaultFeatureHolder();
+        // These fields are only accessed by the tasks of one mailbox, so they don't need to be thread-safe
+        final int[] state = new int[2];
+
+        List<Thread> submitters = new ArrayList<Thread>();
+        final List<Future<Void>> results = new ArrayList<Future<Void>>();
+        for (int thread = 0; thread < 4; thread++) {
+            Thread submitter = new Thread() {
+
+                @Override
+                public void run() {
+
+                    try {
+                        for (int task = 0; task < 250; task++) {
+                            Future<Void> result = executor.submit(holder, new Callable<Void>() {
+
+                                @Override
+                                public Void call() {
+
+                                    if (state[0]++ != 0) {
+                                        throw new IllegalStateException("Tasks of one mailbox overlap");
+                                    }
+                                    state[1]++;
+                                    state[0]--;
+                                    return null;
+                                }
+
+                            });
+                            synchronized (results) {
+                                results.add(result);
+                            }
+                        }
+                    }
+                    catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+
+            };
+            submitter.start();
+            submitters.add(submitter);
+        }
+
+        for (Thread submitter : submitters) {
+            submitter.join();
+        }
+        for (Future<Void> result : results) {
+            result.get(10, TimeUnit.SECONDS);
+        }
+
+        Assert.assertEquals("Executed tasks", 1000, executor.submit(holder, new Callable<Integer>() {
+
+            @Override
+            public Integer call() {
+
+                return state[1];
+            }
+
+        }).get(10, TimeUnit.SECONDS).intValue());
+    }
+
+    @Test
+    public void testHolderUnchanged() throws Exception {
+
+        FeatureHolder holder = new DefaultFeatureHolder();
+        executor.submit(holder, new Callable<Void>() {
+
+            @Override
+            public Void call() {
+
+                return null;
+            }
+
+        }).get(10, TimeUnit.SECONDS);
+
+        Assert.assertFalse("Holder got a feature for its mailbox", holder.iterator().hasNext());
+    }
+
+    @Test
+    public void testErrorInTask() throws Exception {
+
+        FeatureHolder holder = new DefaultFeatureHolder();
+        final CountDownLatch release = new CountDownLatch(1);
+        Future<Void> failing = executor.submit(holder, new Callable<Void>() {
+
+            @Override
+            public Void call() throws InterruptedException {
+
+                release.await();
+                throw new AssertionError("Task error");
+            }
+
+        });
+        Future<Integer> next = executor.submit(holder, new Callable<Integer>() {
+
+            @Override
+            public Integer call() {
+
+                return 7;
+            }
+
+        });
+        release.countDown();
+
+        try {
+            failing.get(10, TimeUnit.SECONDS);
+            Assert.fail("Failing task succeeded");
+        }
+        catch (ExecutionException e) {
+            Assert.assertTrue("Failure cause is the error", e.getCause() instanceof AssertionError);
+        }
+        Assert.assertEquals("Result of the task after the error", 7, next.get(10, TimeUnit.SECONDS).intValue());
+    }
+
+    @Test
+    public void testParallelHolders() throws Exception {
+
+        final CountDownLatch firstStarted = new CountDownLatch(1);
+        final CountDownLatch secondStarted = new CountDownLatch(1);
+
+        // Each task waits for the other one, so they only finish if they run in parallel
+        Future<Boolean> first = executor.submit(new DefaultFeatureHolder(), new Callable<Boolean>() {
+
+            @Override
+            public Boolean call() throws InterruptedException {
+
+                firstStarted.countDown();
+                return secondStarted.await(10, TimeUnit.SECONDS);
+            }
+
+        });
+        Future<Boolean> second = executor.submit(new DefaultFeatureHolder(), new Callable<Boolean>() {
+
+            @Override
+            public Boolean call() throws InterruptedException {
+
+                secondStarted.countDown();
+                return firstStarted.await(10, TimeUnit.SECONDS);
+            }
+
+        });
+
+        Assert.assertTrue("First task saw the second one", first.get(20, TimeUnit.SECONDS));
+        Assert.assertTrue("Second task saw the first one", second.get(20, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testBackpressure() throws Exception {
+
+        final FeatureHolder holder = new DefaultFeatureHolder();
+        final CountDownLatch release = new CountDownLatch(1);
+        final Callable<Void> blocking = new Callable<Void>() {
+
+            @Override
+            public Void call() throws InterruptedException {
+
+                release.await();
+                return null;
+            }
+
+        };
+
+        // The first task occupies the draining pool thread, the next two fill the mailbox with its capacity of 2
+        final CountDownLatch started = new CountDownLatch(1);
+        executor.submit(holder, new Callable<Void>() {
+
+            @Override
+            public Void call() throws Exception {
+
+                started.countDown();
+                return blocking.call();
+            }
+
+        });
+        Assert.assertTrue("First task didn't start", started.await(10, TimeUnit.SECONDS));
+        executor.submit(holder, blocking);
+        executor.submit(holder, blocking);
+
+        final CountDownLatch submitted = new CountDownLatch(1);
+        Thread submitter = new Thread() {
+
+            @Override
+            public void run() {
+
+                try {
+                    executor.submit(holder, blocking);
+                    submitted.countDown();
+                }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+        };
+        submitter.start();
+
+        Assert.assertFalse("Submission to a full mailbox didn't block", submitted.await(200, TimeUnit.MILLISECONDS));
+        release.countDown();
+        Assert.assertTrue("Submission didn't continue after the mailbox was drained", submitted.await(10, TimeUnit.SECONDS));
+        submitter.join();
+    }
+
+}
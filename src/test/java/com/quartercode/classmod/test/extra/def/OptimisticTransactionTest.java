@@ -0,0 +1,299 @@
+/*
+ * This file is part of Classmod.
+ * Copyright (c) 2014 QuarterCode <http://www.quartercode.com/>
+ *
+ * Classmod is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Classmod is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Classmod. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.classmod.test.extra.def;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import com.quartercode.classmod.base.FeatureDefinition;
+import com.quartercode.classmod.base.FeatureHolder;
+import com.quartercode.classmod.base.def.AbstractFeatureDefinition;
+import com.quartercode.classmod.base.def.DefaultFeatureHolder;
+import com.quartercode.classmod.extra.ExecutorInvokationException;
+import com.quartercode.classmod.extra.Transaction;
+import com.quartercode.classmod.extra.Transaction.Work;
+import com.quartercode.classmod.extra.TransactionConflictException;
+import com.quartercode.classmod.extra.def.DefaultChildFeatureHolder;
+import com.quartercode.classmod.extra.def.ObjectProperty;
+import com.quartercode.classmod.extra.def.OptimisticTransaction;
+
+public class OptimisticTransactionTest {
+
+    private static FeatureDefinition<ObjectProperty<Integer>>                                        BALANCE;
+    private static FeatureDefinition<ObjectProperty<List<DefaultChildFeatureHolder<FeatureHolder>>>> ITEMS;
+    private static FeatureDefinition<ObjectProperty<Integer>>                                        POSITIVE;
+
+    @BeforeClass
+    public static void setUpBeforeClass() {
+
+        BALANCE = new AbstractFeatureDefinition<ObjectProperty<Integer>>("balance") {
+
+            @Override
+            public ObjectProperty<Integer> create(FeatureHolder holder) {
+
+                return new ObjectProperty<Integer>(getName(), holder, 0);
+            }
+
+        };
+
+        ITEMS = new AbstractFeatureDefinition<ObjectProperty<List<DefaultChildFeatureHolder<FeatureHolder>>>>("items") {
+
+            @Override
+            public ObjectProperty<List<DefaultChildFeatureHolder<FeatureHolder>>> create(FeatureHolder holder) {
+
+                return new ObjectProperty<List<DefaultChildFeatureHolder<FeatureHolder>>>(getName(), holder, new ArrayList<DefaultChildFeatureHolder<FeatureHolder>>());
+            }
+
+        };
+
+        POSITIVE = new AbstractFeatureDefinition<ObjectProperty<Integer>>("positive") {
+
+            @Override
+            public ObjectProperty<Integer> create(FeatureHolder holder) {
+
+                return new ObjectProperty<Integer>(getName(), holder, 1) {
+
+                    @Override
+                    public void set(Integer value) {
+
+                        if (value <= 0) {
+                            throw new IllegalArgumentException("Value must be positive");
+                        }
+                        super.set(value);
+                    }
+
+                };
+            }
+
+        };
+    }
+
+    private DefaultFeatureHolder holder1;
+    private DefaultFeatureHolder holder2;
+
+    @Before
+    public void setUp() {
+
+        holder1 = new DefaultFeatureHolder();
+        holder2 = new DefaultFeatureHolder();
+        holder1.get(BALANCE).set(100);
+        holder2.get(BALANCE).set(100);
+    }
+
+    @Test
+    public void testCommit() {
+
+        Transaction transaction = new OptimisticTransaction();
+        transaction.set(holder1, BALANCE, transaction.get(holder1, BALANCE) - 30);
+        transaction.set(holder2, BALANCE, transaction.get(holder2, BALANCE) + 30);
+
+        Assert.assertEquals("Buffered balance of holder 1", 70, (int) transaction.get(holder1, BALANCE));
+        Assert.assertEquals("Balance of holder 1 before commit", 100, (int) holder1.get(BALANCE).get());
+
+        Assert.assertTrue("Commit succeeded", transaction.commit());
+        Assert.assertEquals("Balance of holder 1", 70, (int) holder1.get(BALANCE).get());
+        Assert.assertEquals("Balance of holder 2", 130, (int) holder2.get(BALANCE).get());
+    }
+
+    @Test (timeout = 5000)
+    public void testCommitWhileHolderSynchronized() throws InterruptedException {
+
+        final CountDownLatch locked = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        Thread blocker = new Thread() {
+
+            @Override
+            public void run() {
+
+                // Client code which synchronizes on a holder mustn't block commits
+                synchronized (holder1) {
+                    locked.countDown();
+                    try {
+                        release.await();
+                    }
+                    catch (InterruptedException e) {
+                        // Stop blocking
+                    }
+                }
+            }
+
+        };
+        blocker.start();
+        locked.await();
+
+        try {
+            Transaction transaction = new OptimisticTransaction();
+            transaction.set(holder1, BALANCE, transaction.get(holder1, BALANCE) - 30);
+            Assert.assertTrue("Commit succeeded", transaction.commit());
+            Assert.assertEquals("Balance of holder 1", 70, (int) holder1.get(BALANCE).get());
+        }
+        finally {
+            release.countDown();
+            blocker.join();
+        }
+    }
+
+    @Test
+    public void testCommitConflict() {
+
+        Transaction transaction = new OptimisticTransaction();
+        transaction.set(holder2, BALANCE, transaction.get(holder1, BALANCE) + 1);
+
+        holder1.get(BALANCE).set(50);
+
+        Assert.assertFalse("Commit succeeded despite conflict", transaction.commit());
+        Assert.assertEquals("Balance of holder 2", 100, (int) holder2.get(BALANCE).get());
+    }
+
+    @Test (expected = TransactionConflictException.class)
+    public void testGetConflict() {
+
+        Transaction transaction = new OptimisticTransaction();
+        transaction.get(holder1, BALANCE);
+
+        holder1.get(BALANCE).set(50);
+
+        transaction.get(holder1, BALANCE);
+    }
+
+    @Test (expected = IllegalStateException.class)
+    public void testUseAfterCommit() {
+
+        Transaction transaction = new OptimisticTransaction();
+        transaction.commit();
+        transaction.get(holder1, BALANCE);
+    }
+
+    @Test
+    public void testCommitRollback() {
+
+        DefaultChildFeatureHolder<FeatureHolder> item1 = new DefaultChildFeatureHolder<FeatureHolder>();
+        DefaultChildFeatureHolder<FeatureHolder> item2 = new DefaultChildFeatureHolder<FeatureHolder>();
+        holder1.get(ITEMS).get().add(item1);
+        holder1.get(ITEMS).get().add(item2);
+        item1.setParent(holder1);
+        item2.setParent(holder1);
+
+        Transaction transaction = new OptimisticTransaction();
+        transaction.set(holder1, BALANCE, 70);
+        transaction.remove(holder1, ITEMS, item1);
+        transaction.add(holder2, ITEMS, item1);
+        transaction.set(holder2, POSITIVE, -5);
+
+        try {
+            transaction.commit();
+            Assert.fail("Commit with a rejected value succeeded");
+        }
+        catch (IllegalArgumentException e) {
+            // Expected
+        }
+
+        Assert.assertEquals("Balance of holder 1", 100, (int) holder1.get(BALANCE).get());
+        Assert.assertEquals("Items of holder 1", Arrays.asList(item1, item2), holder1.get(ITEMS).get());
+        Assert.assertTrue("Items of holder 2 are empty", holder2.get(ITEMS).get().isEmpty());
+        Assert.assertSame("Parent of the item", holder1, item1.getParent());
+        Assert.assertEquals("Value of the positive property", 1, (int) holder2.get(POSITIVE).get());
+    }
+
+    @Test
+    public void testMoveChild() throws ExecutorInvokationException {
+
+        final DefaultChildFeatureHolder<FeatureHolder> item = new DefaultChildFeatureHolder<FeatureHolder>();
+        holder1.get(ITEMS).get().add(item);
+        item.setParent(holder1);
+
+        OptimisticTransaction.execute(new Work<Void>() {
+
+            @Override
+            public Void execute(Transaction transaction) {
+
+                transaction.remove(holder1, ITEMS, item);
+                transaction.add(holder2, ITEMS, item);
+                return null;
+            }
+
+        });
+
+        Assert.assertTrue("Items of holder 1 are empty", holder1.get(ITEMS).get().isEmpty());
+        Assert.assertTrue("Items of holder 2 contain the item", holder2.get(ITEMS).get().contains(item));
+        Assert.assertSame("Parent of the item", holder2, item.getParent());
+    }
+
+    @Test
+    public void testExecuteConcurrently() throws InterruptedException {
+
+        final int threads = 8;
+        final int transfers = 1000;
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Throwable> failures = new ArrayList<Throwable>();
+
+        List<Thread> workers = new ArrayList<Thread>();
+        for (int thread = 0; thread < threads; thread++) {
+            // Half of the threads transfer from holder 1 to holder 2, the other half the other way round
+            final DefaultFeatureHolder from = thread % 2 == 0 ? holder1 : holder2;
+            final DefaultFeatureHolder to = thread % 2 == 0 ? holder2 : holder1;
+            Thread worker = new Thread() {
+
+                @Override
+                public void run() {
+
+                    try {
+                        start.await();
+                        for (int transfer = 0; transfer < transfers; transfer++) {
+                            OptimisticTransaction.execute(new Work<Void>() {
+
+                                @Override
+                                public Void execute(Transaction transaction) {
+
+                                    transaction.set(from, BALANCE, transaction.get(from, BALANCE) - 1);
+                                    transaction.set(to, BALANCE, transaction.get(to, BALANCE) + 1);
+                                    return null;
+                                }
+
+                            });
+                        }
+                    }
+                    catch (Throwable t) {
+                        synchronized (failures) {
+                            failures.add(t);
+                        }
+                    }
+                }
+
+            };
+            worker.start();
+            workers.add(worker);
+        }
+
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        Assert.assertTrue("Failures: " + failures, failures.isEmpty());
+        Assert.assertEquals("Balance of holder 1", 100, (int) holder1.get(BALANCE).get());
+        Assert.assertEquals("Balance of holder 2", 100, (int) holder2.get(BALANCE).get());
+    }
+
+}
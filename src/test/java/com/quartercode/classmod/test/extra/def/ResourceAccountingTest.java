@@ -0,0 +1,134 @@
+/*
+ * This file is part of Classmod.
+ * Copyright (c) 2014 QuarterCode <http://www.quartercode.com/>
+ *
+ * Classmod is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Classmod is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Classmod. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.classmod.test.extra.def;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import com.quartercode.classmod.base.FeatureHolder;
+import com.quartercode.classmod.base.def.DefaultFeatureHolder;
+import com.quartercode.classmod.extra.ExecutorInvokationException;
+import com.quartercode.classmod.extra.FunctionExecutionException;
+import com.quartercode.classmod.extra.FunctionExecutor;
+import com.quartercode.classmod.extra.Prioritized;
+import com.quartercode.classmod.extra.def.AbstractFunction;
+import com.quartercode.classmod.extra.def.ResourceAccounting;
+import com.quartercode.classmod.extra.def.ResourceAccounting.ResourceUsage;
+
+public class ResourceAccountingTest {
+
+    private ResourceAccounting                    accounting;
+    private Map<String, FunctionExecutor<String>> executors;
+    private Object                                sink;
+
+    @Before
+    public void setUp() {
+
+        accounting = ResourceAccounting.getInstance();
+        accounting.reset();
+        accounting.setEnabled(true);
+
+        executors = new HashMap<String, FunctionExecutor<String>>();
+        executors.put("allocating", new FunctionExecutor<String>() {
+
+            @Override
+            @Prioritized (Prioritized.LEVEL_7)
+            public String invoke(FeatureHolder holder, Object... arguments) throws ExecutorInvokationException {
+
+                for (int counter = 0; counter < 1000; counter++) {
+                    sink = new byte[1024];
+                }
+                return "allocating";
+            }
+
+        });
+        executors.put("idle", new FunctionExecutor<String>() {
+
+            @Override
+            @Prioritized (Prioritized.LEVEL_3)
+            public String invoke(FeatureHolder holder, Object... arguments) throws ExecutorInvokationException {
+
+                return "idle";
+            }
+
+        });
+    }
+
+    @After
+    public void tearDown() {
+
+        accounting.setEnabled(false);
+        accounting.reset();
+    }
+
+    private AbstractFunction<String> createFunction() {
+
+        return new AbstractFunction<String>("accountedFunction", new DefaultFeatureHolder(), new ArrayList<Class<?>>(), executors);
+    }
+
+    @Test
+    public void testInvokations() throws FunctionExecutionException {
+
+        AbstractFunction<String> function = createFunction();
+        function.invokeRA();
+        function.invokeRA();
+
+        Assert.assertEquals("Invokations of the allocating executor", 2, accounting.getUsage("accountedFunction", "allocating").getInvokations());
+        Assert.assertEquals("Invokations of the idle executor", 2, accounting.getUsage("accountedFunction", "idle").getInvokations());
+    }
+
+    @Test
+    public void testTopByAllocatedBytes() throws FunctionExecutionException {
+
+        Assume.assumeTrue(accounting.isAllocatedBytesSupported());
+
+        createFunction().invokeRA();
+
+        List<ResourceUsage> top = accounting.getTopByAllocatedBytes(1);
+        Assert.assertEquals("Top usages", 1, top.size());
+        Assert.assertEquals("Top allocating executor", "allocating", top.get(0).getExecutorName());
+        Assert.assertTrue("Allocated bytes of the allocating executor", top.get(0).getAllocatedBytes() >= 1000 * 1024);
+    }
+
+    @Test
+    public void testReport() throws FunctionExecutionException {
+
+        createFunction().invokeRA();
+
+        String report = accounting.report(5);
+        Assert.assertTrue("Report " + report + " contains the allocating executor", report.contains("function 'accountedFunction', executor 'allocating'"));
+        Assert.assertTrue("Report " + report + " contains the idle executor", report.contains("function 'accountedFunction', executor 'idle'"));
+    }
+
+    @Test
+    public void testDisabled() throws FunctionExecutionException {
+
+        accounting.setEnabled(false);
+        createFunction().invokeRA();
+
+        Assert.assertEquals("Top usages", 0, accounting.getTopByCpuTime(10).size());
+    }
+
+}
@@ -0,0 +1,227 @@
+/*
+ * This file is part of Classmod.
+ * Copyright (c) 2014 QuarterCode <http://www.quartercode.com/>
+ *
+ * Classmod is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Classmod is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Classmod. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.classmod.test.extra.def;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import com.quartercode.classmod.base.FeatureHolder;
+import com.quartercode.classmod.base.def.DefaultFeatureHolder;
+import com.quartercode.classmod.extra.Budget;
+import com.quartercode.classmod.extra.ExecutorInvokationException;
+import com.quartercode.classmod.extra.FunctionExecutionException;
+import com.quartercode.classmod.extra.FunctionExecutor;
+import com.quartercode.classmod.extra.StopExecutionException;
+import com.quartercode.classmod.extra.def.AbstractFunction;
+import com.quartercode.classmod.extra.def.Watchdog;
+
+public class WatchdogTest {
+
+    private static final Logger                   WATCHDOG_LOGGER = Logger.getLogger(Watchdog.class.getName());
+
+    private Watchdog                              watchdog;
+    private Map<String, FunctionExecutor<String>> executors;
+    private List<LogRecord>                       reports;
+    private CountDownLatch                        reported;
+    private Handler                               handler;
+
+    @Before
+    public void setUp() {
+
+        watchdog = Watchdog.getInstance();
+        watchdog.setCheckInterval(5);
+        watchdog.setReportInterval(0);
+        watchdog.setEnabled(true);
+
+        executors = new HashMap<String, FunctionExecutor<String>>();
+        reports = new ArrayList<LogRecord>();
+        reported = new CountDownLatch(1);
+
+        handler = new Handler() {
+
+            @Override
+            public void publish(LogRecord record) {
+
+                synchronized (reports) {
+                    reports.add(record);
+                }
+                reported.countDown();
+            }
+
+            @Override
+            public void flush() {
+
+            }
+
+            @Override
+            public void close() {
+
+            }
+
+        };
+        WATCHDOG_LOGGER.addHandler(handler);
+    }
+
+    @After
+    public void tearDown() {
+
+        WATCHDOG_LOGGER.removeHandler(handler);
+        watchdog.setEnabled(false);
+        watchdog.setCheckInterval(10);
+        watchdog.setReportInterval(1000);
+    }
+
+    private List<LogRecord> getReports() {
+
+        synchronized (reports) {
+            return new ArrayList<LogRecord>(reports);
+        }
+    }
+
+    private void awaitReport() throws ExecutorInvokationException {
+
+        try {
+            // Keep running until the watchdog reported the executor
+            reported.await(10, TimeUnit.SECONDS);
+        }
+        catch (InterruptedException e) {
+            throw new StopExecutionException(e);
+        }
+    }
+
+    @Test
+    public void testReportAnnotationBudget() throws FunctionExecutionException {
+
+        executors.put("slow", new FunctionExecutor<String>() {
+
+            @Override
+            @Budget (20)
+            public String invoke(FeatureHolder holder, Object... arguments) throws ExecutorInvokationException {
+
+                awaitReport();
+                return "slow";
+            }
+
+        });
+
+        new AbstractFunction<String>("watchedFunction", new DefaultFeatureHolder(), new ArrayList<Class<?>>(), executors).invoke("argument1", 2);
+
+        List<LogRecord> reports = getReports();
+        Assert.assertEquals("Reports", 1, reports.size());
+        String message = reports.get(0).getMessage();
+        Assert.assertTrue("Report " + message + " contains the function", message.contains("'slow' of function 'watchedFunction'"));
+        Assert.assertTrue("Report " + message + " contains the holder class", message.contains(DefaultFeatureHolder.class.getName()));
+        Assert.assertTrue("Report " + message + " contains the arguments", message.contains("[argument1, 2]"));
+
+        boolean sampledExecutor = false;
+        for (StackTraceElement element : reports.get(0).getThrown().getStackTrace()) {
+            if (element.getMethodName().equals("awaitReport")) {
+                sampledExecutor = true;
+            }
+        }
+        Assert.assertTrue("Stack sample shows the running executor", sampledExecutor);
+    }
+
+    @Test
+    public void testReportFunctionBudget() throws FunctionExecutionException {
+
+        executors.put("slow", new FunctionExecutor<String>() {
+
+            @Override
+            public String invoke(FeatureHolder holder, Object... arguments) throws ExecutorInvokationException {
+
+                awaitReport();
+                return "slow";
+            }
+
+        });
+
+        AbstractFunction<String> function = new AbstractFunction<String>("watchedFunction", new DefaultFeatureHolder(), new ArrayList<Class<?>>(), executors);
+        function.setWatchdogBudget(20);
+        function.invoke();
+
+        Assert.assertEquals("Reports", 1, getReports().size());
+    }
+
+    @Test
+    public void testNoBudget() throws FunctionExecutionException, InterruptedException {
+
+        executors.put("unwatched", new FunctionExecutor<String>() {
+
+            @Override
+            public String invoke(FeatureHolder holder, Object... arguments) throws ExecutorInvokationException {
+
+                try {
+                    Thread.sleep(50);
+                }
+                catch (InterruptedException e) {
+                    throw new StopExecutionException(e);
+                }
+                return "unwatched";
+            }
+
+        });
+
+        new AbstractFunction<String>("watchedFunction", new DefaultFeatureHolder(), new ArrayList<Class<?>>(), executors).invoke();
+
+        Assert.assertEquals("Reports", 0, getReports().size());
+    }
+
+    @Test
+    public void testRateLimit() throws FunctionExecutionException, InterruptedException {
+
+        watchdog.setReportInterval(TimeUnit.HOURS.toMillis(1));
+        final long reportsBefore = watchdog.getReports() + watchdog.getSuppressedReports();
+        executors.put("slow", new FunctionExecutor<String>() {
+
+            @Override
+            @Budget (10)
+            public String invoke(FeatureHolder holder, Object... arguments) throws ExecutorInvokationException {
+
+                // Keep running until the watchdog counted the executor
+                long target = watchdog.getReports() + watchdog.getSuppressedReports() + 1;
+                long deadline = System.currentTimeMillis() + 10000;
+                while (watchdog.getReports() + watchdog.getSuppressedReports() < target && System.currentTimeMillis() < deadline) {
+                    Thread.yield();
+                }
+                return "slow";
+            }
+
+        });
+
+        AbstractFunction<String> function = new AbstractFunction<String>("watchedFunction", new DefaultFeatureHolder(), new ArrayList<Class<?>>(), executors);
+        function.invoke();
+        function.invoke();
+        function.invoke();
+
+        Assert.assertEquals("Counted reports", reportsBefore + 3, watchdog.getReports() + watchdog.getSuppressedReports());
+        Assert.assertTrue("At most one report was logged", getReports().size() <= 1);
+    }
+
+}